@@ -0,0 +1,8 @@
+ALTER TABLE catalogo_outbox_event
+MODIFY COLUMN payload_json VARCHAR(8000) NULL;
+
+ALTER TABLE catalogo_outbox_event
+ADD COLUMN payload LONGBLOB NULL;
+
+ALTER TABLE catalogo_outbox_event
+ADD COLUMN content_type VARCHAR(64) NULL;
@@ -4,7 +4,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import unrn.infra.persistence.PeliculaRepository;
+import org.springframework.web.context.request.WebRequest;
+import unrn.service.PeliculaService;
 
 import java.util.List;
 
@@ -12,28 +13,36 @@ import java.util.List;
  * Controlador publico para consultar las categorias disponibles del catalogo.
  *
  * Se usa por el frontend para armar filtros o navegacion por genero sin exponer
- * detalles internos de persistencia. Toma la informacion desde el repositorio de
+ * detalles internos de persistencia. Toma la informacion desde el servicio de
  * peliculas y responde solo los nombres visibles de categoria.
  */
 @RestController
 @RequestMapping("/categorias")
 public class CategoriaController {
 
-    private final PeliculaRepository repo;
+    private final PeliculaService service;
 
     /**
      * Inicializa una instancia de CategoriaController con los datos necesarios.
      */
-    public CategoriaController(PeliculaRepository repo) {
-        this.repo = repo;
+    public CategoriaController(PeliculaService service) {
+        this.service = service;
     }
 
     /**
      * Devuelve los generos disponibles para filtros del catalogo publico.
+     *
+     * Usa un ETag debil con la marca de cambios del catalogo y responde 304 si el
+     * cliente ya tiene la lista vigente.
      */
     @GetMapping
-    public ResponseEntity<List<String>> listar() {
-        var generos = repo.listarGeneros();
-        return ResponseEntity.ok(generos);
+    public ResponseEntity<List<String>> listar(WebRequest request) {
+        String etag = "W/\"" + service.marcaCatalogo() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        var generos = service.listarCategorias();
+        return ResponseEntity.ok().eTag(etag).body(generos);
     }
 }
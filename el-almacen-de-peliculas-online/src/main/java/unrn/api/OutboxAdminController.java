@@ -0,0 +1,71 @@
+package unrn.api;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import unrn.dto.OutboxFallidosDTO;
+import unrn.event.stock.RetencionOutboxService;
+import unrn.event.stock.StockValidationResultOutboxService;
+
+/**
+ * Controlador REST de backoffice para la operacion del outbox de stock.
+ *
+ * Expone las metricas de depuracion del outbox y de la tabla de idempotencia,
+ * permite forzar una corrida sin esperar al scheduler y reencolar en bloque los
+ * eventos que quedaron en dead-letter (FAILED).
+ */
+@RestController
+@RequestMapping("/api/admin/outbox")
+public class OutboxAdminController {
+
+    private static final String LIMITE_REENCOLADO_POR_DEFECTO = "1000";
+
+    private final RetencionOutboxService retencionOutboxService;
+    private final StockValidationResultOutboxService outboxService;
+
+    /**
+     * Inicializa una instancia de OutboxAdminController con los datos necesarios.
+     */
+    public OutboxAdminController(RetencionOutboxService retencionOutboxService,
+            StockValidationResultOutboxService outboxService) {
+        this.retencionOutboxService = retencionOutboxService;
+        this.outboxService = outboxService;
+    }
+
+    /**
+     * Devuelve cuantos eventos outbox estan en dead-letter.
+     */
+    @GetMapping("/fallidos")
+    public ResponseEntity<OutboxFallidosDTO> fallidos() {
+        return ResponseEntity.ok(new OutboxFallidosDTO(0, outboxService.fallidosCount()));
+    }
+
+    /**
+     * Devuelve a pendientes hasta limite eventos en dead-letter, con los intentos reiniciados.
+     */
+    @PostMapping("/fallidos/reencolar")
+    public ResponseEntity<OutboxFallidosDTO> reencolarFallidos(
+            @RequestParam(defaultValue = LIMITE_REENCOLADO_POR_DEFECTO) int limite) {
+        int reencolados = outboxService.reencolarFallidos(limite);
+        return ResponseEntity.ok(new OutboxFallidosDTO(reencolados, outboxService.fallidosCount()));
+    }
+
+    /**
+     * Devuelve las filas depuradas por corrida y acumuladas desde el arranque.
+     */
+    @GetMapping("/retencion")
+    public ResponseEntity<RetencionOutboxService.Estadisticas> estadisticasRetencion() {
+        return ResponseEntity.ok(retencionOutboxService.estadisticas());
+    }
+
+    /**
+     * Ejecuta una corrida de depuracion ahora y devuelve cuantas filas borro.
+     */
+    @PostMapping("/retencion")
+    public ResponseEntity<RetencionOutboxService.ResultadoRetencion> depurar() {
+        return ResponseEntity.ok(retencionOutboxService.depurar());
+    }
+}
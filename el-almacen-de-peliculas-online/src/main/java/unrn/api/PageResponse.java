@@ -1,5 +1,7 @@
 package unrn.api;
 
+import unrn.infra.persistence.PageResult;
+
 import java.util.List;
 
 /**
@@ -7,15 +9,38 @@ import java.util.List;
  *
  * Unifica la forma en que frontend recibe items, total de resultados, cantidad de
  * paginas y pagina actual, independientemente de si el listado es publico o admin.
+ * nextCursor permite seguir recorriendo por clave sin offset; es null en la ultima
+ * pagina. Con withTotal=false total y totalPages llegan en null y hasNext indica
+ * si hay mas resultados.
  */
-public record PageResponse<T>(List<T> items, long total, int totalPages, int page, int size) {
+public record PageResponse<T>(List<T> items, Long total, Integer totalPages, boolean hasNext, int page, int size,
+        String nextCursor) {
     /**
      * Construye una respuesta paginada con totales calculados.
      */
     public static <T> PageResponse<T> of(List<T> items, long total, int page, int size) {
         int safeSize = size <= 0 ? 1 : size;
         int safePage = Math.max(0, page);
-        int computedTotalPages = total == 0 ? 0 : (int) Math.ceil((double) total / safeSize);
-        return new PageResponse<>(items, total, computedTotalPages, safePage, safeSize);
+        return of(items, total, (long) (safePage + 1) * safeSize < total, page, size, null);
+    }
+
+    /**
+     * Construye una respuesta paginada con cursor siguiente; sin total deja totalPages en null.
+     */
+    public static <T> PageResponse<T> of(List<T> items, Long total, boolean hasNext, int page, int size,
+            String nextCursor) {
+        int safeSize = size <= 0 ? 1 : size;
+        int safePage = Math.max(0, page);
+        Integer computedTotalPages = total == null ? null
+                : total == 0 ? 0 : (int) Math.ceil((double) total / safeSize);
+        return new PageResponse<>(items, total, computedTotalPages, hasNext, safePage, safeSize, nextCursor);
+    }
+
+    /**
+     * Construye la respuesta a partir del resultado paginado del servicio.
+     */
+    public static <T> PageResponse<T> from(PageResult<T> result) {
+        return of(result.getItems(), result.getTotal(), result.hasNext(), result.getPage(), result.getSize(),
+                result.getNextCursor());
     }
 }
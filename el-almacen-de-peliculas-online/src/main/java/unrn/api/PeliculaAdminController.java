@@ -1,12 +1,35 @@
 package unrn.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import unrn.dto.ActualizarStockRequest;
 import unrn.dto.AdminPeliculaDTO;
 import unrn.dto.PeliculaRequest;
+import unrn.service.DetallePeliculaCache;
+import unrn.service.ExportacionPeliculasService;
+import unrn.service.FormatoImportacion;
+import unrn.service.ImportacionPeliculasService;
 import unrn.service.PeliculaService;
+import unrn.service.ValidationRuntimeException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Controlador REST administrativo para gestionar peliculas del catalogo.
@@ -19,13 +42,26 @@ import unrn.service.PeliculaService;
 @RequestMapping("/api/admin/peliculas")
 public class PeliculaAdminController {
 
+    static final String MEDIA_NDJSON = "application/x-ndjson";
+    static final String MEDIA_CSV = "text/csv";
+    static final String ERROR_FORMATO_EXPORTACION = "El parametro 'formato' debe ser ndjson o csv";
+
     private final PeliculaService peliculaService;
+    private final ImportacionPeliculasService importacionService;
+    private final ExportacionPeliculasService exportacionService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Inicializa una instancia de PeliculaAdminController con los datos necesarios.
      */
-    public PeliculaAdminController(PeliculaService peliculaService) {
+    public PeliculaAdminController(PeliculaService peliculaService,
+            ImportacionPeliculasService importacionService,
+            ExportacionPeliculasService exportacionService,
+            ObjectMapper objectMapper) {
         this.peliculaService = peliculaService;
+        this.importacionService = importacionService;
+        this.exportacionService = exportacionService;
+        this.objectMapper = objectMapper;
     }
 
     // LISTAR
@@ -47,7 +83,9 @@ public class PeliculaAdminController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
             @RequestParam(defaultValue = "titulo") String sort,
-            @RequestParam(defaultValue = "true") boolean asc) {
+            @RequestParam(defaultValue = "true") boolean asc,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
 
         java.time.LocalDate d = (desde == null || desde.isBlank()) ? null : java.time.LocalDate.parse(desde);
         java.time.LocalDate h = (hasta == null || hasta.isBlank()) ? null : java.time.LocalDate.parse(hasta);
@@ -66,15 +104,11 @@ public class PeliculaAdminController {
                 page,
                 size,
                 sort,
-                asc);
+                asc,
+                cursor,
+                withTotal);
 
-        var response = PageResponse.of(
-                pageResult.getContent(),
-                pageResult.getTotalElements(),
-                pageResult.getNumber(),
-                pageResult.getSize());
-
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(PageResponse.from(pageResult));
     }
 
     // CREAR
@@ -87,6 +121,84 @@ public class PeliculaAdminController {
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    // IMPORTAR
+    /**
+     * Importa peliculas en masa desde un cuerpo NDJSON o CSV.
+     *
+     * Responde en NDJSON mientras importa: una linea por fila con error, una de
+     * progreso por lote guardado y una de resumen al final.
+     */
+    @PostMapping(value = "/bulk", consumes = {MEDIA_NDJSON, MEDIA_CSV}, produces = MEDIA_NDJSON)
+    public void importar(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        var formato = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.valueOf(MEDIA_CSV))
+                ? FormatoImportacion.CSV
+                : FormatoImportacion.NDJSON;
+        var charset = request.getCharacterEncoding() == null ? StandardCharsets.UTF_8.name()
+                : request.getCharacterEncoding();
+        var entrada = new BufferedReader(new InputStreamReader(request.getInputStream(), charset));
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MEDIA_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        PrintWriter salida = response.getWriter();
+
+        var resumen = importacionService.importar(entrada, formato, new ImportacionPeliculasService.Observador() {
+            /**
+             * Escribe la fila que no se pudo importar.
+             */
+            @Override
+            public void error(int linea, String mensaje) {
+                escribirLinea(salida, Map.of("tipo", "error", "linea", linea, "error", mensaje));
+            }
+
+            /**
+             * Escribe el avance y lo envia al cliente sin esperar al final.
+             */
+            @Override
+            public void progreso(ImportacionPeliculasService.Resumen avance) {
+                escribirLinea(salida, lineaResumen("progreso", avance));
+                salida.flush();
+            }
+        });
+        escribirLinea(salida, lineaResumen("resumen", resumen));
+        salida.flush();
+    }
+
+    // EXPORTAR
+    /**
+     * Exporta todas las peliculas activas en NDJSON o CSV a medida que se leen de la base.
+     *
+     * Si el cliente acepta gzip, la respuesta se comprime mientras se escribe.
+     */
+    @GetMapping("/export")
+    public void exportar(
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+
+        var formatoExportacion = switch (formato.toLowerCase()) {
+            case "ndjson" -> FormatoImportacion.NDJSON;
+            case "csv" -> FormatoImportacion.CSV;
+            default -> throw new ValidationRuntimeException(ERROR_FORMATO_EXPORTACION);
+        };
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(formatoExportacion == FormatoImportacion.CSV ? MEDIA_CSV : MEDIA_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"peliculas." + formato.toLowerCase() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        OutputStream cuerpo = response.getOutputStream();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            cuerpo = new GZIPOutputStream(cuerpo);
+        }
+        try (Writer salida = new BufferedWriter(new OutputStreamWriter(cuerpo, StandardCharsets.UTF_8))) {
+            exportacionService.exportar(salida, formatoExportacion);
+        }
+    }
+
     // EDITAR
     /**
      * Actualiza los datos editables de una pelicula desde la API admin.
@@ -112,6 +224,15 @@ public class PeliculaAdminController {
         return ResponseEntity.ok(response);
     }
 
+    // METRICAS
+    /**
+     * Devuelve los aciertos, fallos y desalojos del cache de detalle publico.
+     */
+    @GetMapping("/cache/detalle")
+    public ResponseEntity<DetallePeliculaCache.Estadisticas> estadisticasDetalleCache() {
+        return ResponseEntity.ok(peliculaService.estadisticasDetalleCache());
+    }
+
     // ELIMINAR
     /**
      * Elimina logicamente la pelicula indicada desde la API admin.
@@ -121,4 +242,31 @@ public class PeliculaAdminController {
         peliculaService.eliminar(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Escribe un objeto como una linea NDJSON.
+     */
+    private void escribirLinea(PrintWriter salida, Map<String, Object> linea) {
+        try {
+            salida.write(objectMapper.writeValueAsString(linea));
+            salida.write('\n');
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Arma la linea de progreso o de resumen con los totales de la importacion.
+     */
+    private static Map<String, Object> lineaResumen(String tipo, ImportacionPeliculasService.Resumen resumen) {
+        var linea = new LinkedHashMap<String, Object>();
+        linea.put("tipo", tipo);
+        linea.put("procesadas", resumen.procesadas());
+        linea.put("importadas", resumen.importadas());
+        linea.put("errores", resumen.errores());
+        if (tipo.equals("resumen")) {
+            linea.put("milisegundos", resumen.milisegundos());
+        }
+        return linea;
+    }
 }
@@ -6,10 +6,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import unrn.dto.DetallePeliculaDTO;
-import unrn.infra.persistence.PeliculaRepository;
 import unrn.service.PeliculaService;
-import unrn.model.Pelicula;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -25,33 +24,41 @@ import java.time.LocalDate;
 @RequestMapping("/peliculas")
 public class PeliculaController {
 
-    private final PeliculaRepository repo;
     private final PeliculaService service;
 
     /**
      * Inicializa una instancia de PeliculaController con los datos necesarios.
      */
-    public PeliculaController(PeliculaRepository repo, PeliculaService service) {
-        this.repo = repo;
+    public PeliculaController(PeliculaService service) {
         this.service = service;
     }
 
     // GET /api/peliculas/{id} -> detalle para la vista de React
     /**
      * Devuelve el detalle publico de una pelicula por id.
+     *
+     * El ETag fuerte se arma con id, version y ratings; si coincide con If-None-Match se
+     * responde 304 sin armar el DTO.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<DetallePeliculaDTO> detalle(@PathVariable Long id) {
-        Pelicula p = repo.porId(id);
+    public ResponseEntity<DetallePeliculaDTO> detalle(@PathVariable Long id, WebRequest request) {
+        String etiqueta = service.etiquetaDetalle(id);
+        if (etiqueta != null && request.checkNotModified(etagDetalle(id, etiqueta))) {
+            return null;
+        }
+
+        var p = service.detalle(id);
         if (p == null)
             throw new NotFound("PelÃ­cula no encontrada: id=" + id);
-        return ResponseEntity.ok(DetallePeliculaDTO.from(p));
+        return ResponseEntity.ok().eTag(etagDetalle(id, p.etiqueta())).body(p.detalle());
     }
 
     // GET
     // /api/peliculas?q=blade&genero=DRAMA&actor=Ford&director=Scott&minPrecio=0&maxPrecio=10000&desde=1980-01-01&hasta=1990-12-31&page=0&size=12&sort=titulo&asc=true
+    // Scroll por clave: repetir la busqueda con &cursor=<nextCursor de la respuesta anterior>
+    // Scroll infinito sin total: &withTotal=false evita el conteo y responde solo hasNext
     /**
-     * Busca peliculas publicas con filtros, orden y paginacion.
+     * Busca peliculas publicas con filtros, orden y paginacion por offset o cursor.
      */
     @GetMapping
     public ResponseEntity<PageResponse<DetallePeliculaDTO>> buscar(
@@ -68,7 +75,15 @@ public class PeliculaController {
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = "12") int size,
             @RequestParam(name = "sort", defaultValue = "titulo") String sort,
-            @RequestParam(name = "asc", defaultValue = "true") boolean asc) {
+            @RequestParam(name = "asc", defaultValue = "true") boolean asc,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "withTotal", defaultValue = "true") boolean withTotal,
+            WebRequest request) {
+        String etag = "W/\"" + service.marcaCatalogo() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
         LocalDate d = (desde == null || desde.isBlank()) ? null : LocalDate.parse(desde);
         LocalDate h = (hasta == null || hasta.isBlank()) ? null : LocalDate.parse(hasta);
 
@@ -86,14 +101,17 @@ public class PeliculaController {
                 page,
                 size,
                 sort,
-                asc);
+                asc,
+                cursor,
+                withTotal);
 
-        var response = PageResponse.of(
-                pageResult.getContent(),
-                pageResult.getTotalElements(),
-                pageResult.getNumber(),
-                pageResult.getSize());
+        return ResponseEntity.ok().eTag(etag).body(PageResponse.from(pageResult));
+    }
 
-        return ResponseEntity.ok(response);
+    /**
+     * Arma el ETag fuerte del detalle a partir del id y la etiqueta de la pelicula.
+     */
+    private static String etagDetalle(Long id, String etiqueta) {
+        return "\"" + id + "-" + etiqueta + "\"";
     }
 }
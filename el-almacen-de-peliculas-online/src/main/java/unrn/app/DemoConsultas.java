@@ -1,6 +1,10 @@
 package unrn.app;
 
+import unrn.infra.persistence.CatalogoVersion;
+import unrn.infra.persistence.PeliculaConteoCache;
+import unrn.infra.persistence.PeliculaIndiceTexto;
 import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -16,7 +20,8 @@ public class DemoConsultas {
      * Punto de entrada para ejecutar esta aplicacion.
      */
     public static void main(String[] args) {
-        var repo = new PeliculaRepository();
+        var repo = new PeliculaRepository(new PeliculaConteoCache(), new PeliculaIndiceTexto(),
+                new CatalogoVersion(), new ReferenciasCatalogoCache(), evento -> { });
 
         System.out.println("Â¿Existe Blade Runner? " + repo.existePorTitulo("Blade Runner"));
         System.out.println("Total DRAMA: " + repo.contarPorGenero("DRAMA"));
@@ -1,7 +1,11 @@
 package unrn.app;
 
 import unrn.model.*;
+import unrn.infra.persistence.CatalogoVersion;
+import unrn.infra.persistence.PeliculaConteoCache;
+import unrn.infra.persistence.PeliculaIndiceTexto;
 import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,7 +21,8 @@ public class DemoPersist {
      * Punto de entrada para ejecutar esta aplicacion.
      */
     public static void main(String[] args) {
-        PeliculaRepository repo = new PeliculaRepository();
+        PeliculaRepository repo = new PeliculaRepository(new PeliculaConteoCache(), new PeliculaIndiceTexto(),
+                new CatalogoVersion(), new ReferenciasCatalogoCache(), evento -> { });
 
         Pelicula peli = new Pelicula(
                 "Blade Runner",
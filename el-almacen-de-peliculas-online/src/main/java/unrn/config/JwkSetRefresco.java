@@ -0,0 +1,233 @@
+package unrn.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fuente de claves de firma JWT que mantiene el JWK set de Keycloak en memoria.
+ *
+ * Las claves se descargan en un hilo propio cada cierto intervalo. Al iniciar se
+ * espera la primera descarga, como mucho el tiempo de espera, para no rechazar
+ * los primeros requests con un JWK set vacio. Si llega un token firmado con un
+ * kid desconocido (rotacion de claves) se adelanta una descarga, limitada a una
+ * por intervalo de reintento, y ese request la espera como mucho el tiempo de
+ * espera; si Keycloak esta lento o caido, la validacion sigue con el ultimo JWK
+ * set descargado. Cuando un JWK set nuevo deja de publicar una clave se avisa a
+ * los interesados, por ejemplo para olvidar los tokens firmados con ella.
+ */
+public class JwkSetRefresco implements JWKSource<SecurityContext>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JwkSetRefresco.class);
+
+    private final URL jwkSetUrl;
+    private final ResourceRetriever retriever;
+    private final long refrescoMs;
+    private final long reintentoMs;
+    private final long esperaMs;
+    private final ScheduledExecutorService ejecutor;
+    private final AtomicLong ultimaDescargaAnticipada = new AtomicLong();
+    private final List<Runnable> alQuitarClaves = new CopyOnWriteArrayList<>();
+    private volatile JWKSet jwkSet = new JWKSet();
+    private volatile Set<JWSAlgorithm> algoritmos = Set.of();
+    private CompletableFuture<Void> pendiente;
+    private ScheduledFuture<?> proxima;
+
+    /**
+     * Inicializa una instancia de JwkSetRefresco con los datos necesarios.
+     *
+     * espera acota cuanto se bloquean el arranque y un request con kid
+     * desconocido esperando una descarga.
+     */
+    public JwkSetRefresco(URL jwkSetUrl, ResourceRetriever retriever, Duration refresco, Duration reintento,
+            Duration espera) {
+        this.jwkSetUrl = jwkSetUrl;
+        this.retriever = retriever;
+        this.refrescoMs = refresco.toMillis();
+        this.reintentoMs = reintento.toMillis();
+        this.esperaMs = espera.toMillis();
+        this.ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "jwk-set-refresco");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Descarga el JWK set por primera vez, esperando como mucho el tiempo de espera.
+     */
+    public void iniciar() {
+        if (!esperar(descargar())) {
+            log.warn("El JWK set de {} no se descargo en {} ms; se reintenta en segundo plano", jwkSetUrl, esperaMs);
+        }
+    }
+
+    /**
+     * Registra una accion a ejecutar cuando un JWK set nuevo deja de publicar alguna clave.
+     */
+    public void alQuitarClaves(Runnable accion) {
+        alQuitarClaves.add(accion);
+    }
+
+    /**
+     * Devuelve los algoritmos de firma que admiten las claves del ultimo JWK set.
+     *
+     * Una clave con alg declarado admite solo ese; si no, todos los de su tipo
+     * (RSA o EC).
+     */
+    public Set<JWSAlgorithm> algoritmos() {
+        return algoritmos;
+    }
+
+    /**
+     * Devuelve las claves del ultimo JWK set descargado que coinciden con el selector.
+     *
+     * Si ninguna coincide, espera una descarga anticipada y vuelve a buscar.
+     */
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) {
+        List<JWK> claves = selector.select(jwkSet);
+        if (claves.isEmpty() && descargarAnticipado()) {
+            claves = selector.select(jwkSet);
+        }
+        return claves;
+    }
+
+    /**
+     * Detiene el hilo de descarga.
+     */
+    @Override
+    public void close() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Adelanta una descarga, como mucho una por intervalo de reintento, y la espera acotado.
+     *
+     * Si ya hay una en curso la espera sin pedir otra. Devuelve true si termino
+     * una descarga dentro de la espera.
+     */
+    private boolean descargarAnticipado() {
+        CompletableFuture<Void> descarga;
+        synchronized (this) {
+            descarga = pendiente;
+        }
+        if (descarga == null) {
+            long ahora = System.currentTimeMillis();
+            long ultima = ultimaDescargaAnticipada.get();
+            if (ahora - ultima < reintentoMs || !ultimaDescargaAnticipada.compareAndSet(ultima, ahora)) {
+                return false;
+            }
+            descarga = descargar();
+        }
+        return esperar(descarga);
+    }
+
+    /**
+     * Encola una descarga si no hay otra esperando y devuelve la que quedo pendiente.
+     */
+    private synchronized CompletableFuture<Void> descargar() {
+        if (pendiente == null) {
+            pendiente = new CompletableFuture<>();
+            if (ejecutor.isShutdown()) {
+                pendiente.complete(null);
+            } else {
+                ejecutor.execute(this::actualizar);
+            }
+        }
+        return pendiente;
+    }
+
+    /**
+     * Espera la descarga como mucho el tiempo de espera e informa si termino.
+     */
+    private boolean esperar(CompletableFuture<Void> descarga) {
+        try {
+            descarga.get(esperaMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Descarga y reemplaza el JWK set; reprograma la proxima descarga segun el resultado.
+     */
+    private void actualizar() {
+        CompletableFuture<Void> descarga;
+        synchronized (this) {
+            descarga = pendiente;
+            pendiente = null;
+        }
+        long demoraMs;
+        try {
+            JWKSet descargado = JWKSet.parse(retriever.retrieveResource(jwkSetUrl).getContent());
+            boolean quitoClaves = !new HashSet<>(descargado.getKeys()).containsAll(jwkSet.getKeys());
+            algoritmos = algoritmosDe(descargado);
+            jwkSet = descargado;
+            demoraMs = refrescoMs;
+            log.debug("JWK set de {} actualizado con {} claves", jwkSetUrl, descargado.getKeys().size());
+            if (quitoClaves) {
+                alQuitarClaves.forEach(Runnable::run);
+            }
+        } catch (Exception e) {
+            demoraMs = reintentoMs;
+            log.warn("No se pudo descargar el JWK set de {}; se sigue con las {} claves anteriores: {}",
+                    jwkSetUrl, jwkSet.getKeys().size(), e.getMessage());
+        } finally {
+            descarga.complete(null);
+        }
+        if (proxima != null) {
+            proxima.cancel(false);
+        }
+        if (!ejecutor.isShutdown()) {
+            proxima = ejecutor.schedule(this::descargar, demoraMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Calcula los algoritmos de firma admitidos por las claves de firma del JWK set.
+     */
+    private static Set<JWSAlgorithm> algoritmosDe(JWKSet jwkSet) {
+        Set<JWSAlgorithm> admitidos = new HashSet<>();
+        for (JWK clave : jwkSet.getKeys()) {
+            if (clave.getKeyUse() != null && !KeyUse.SIGNATURE.equals(clave.getKeyUse())) {
+                continue;
+            }
+            if (clave.getAlgorithm() != null) {
+                admitidos.add(JWSAlgorithm.parse(clave.getAlgorithm().getName()));
+            } else if (KeyType.RSA.equals(clave.getKeyType())) {
+                admitidos.addAll(JWSAlgorithm.Family.RSA);
+            } else if (KeyType.EC.equals(clave.getKeyType())) {
+                admitidos.addAll(JWSAlgorithm.Family.EC);
+            }
+        }
+        return Set.copyOf(admitidos);
+    }
+}
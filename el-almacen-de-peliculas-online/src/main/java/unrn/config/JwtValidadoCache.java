@@ -0,0 +1,174 @@
+package unrn.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache acotado de tokens JWT ya validados y de las authorities calculadas para cada uno.
+ *
+ * Las pantallas admin hacen muchas llamadas con el mismo token; con este cache
+ * solo la primera paga la verificacion de firma, issuer y fechas y la conversion
+ * de roles. La clave es el SHA-256 del token y cada entrada vence en el exp del
+ * token; al superar el maximo se desaloja la usada hace mas tiempo. Los tokens
+ * que fallan la validacion no se guardan, y el cache se vacia cuando deja de
+ * publicarse una clave de firma.
+ */
+public class JwtValidadoCache {
+
+    static final int MAX_ENTRADAS_POR_DEFECTO = 10_000;
+
+    private final int maxEntradas;
+    private final Clock reloj;
+    private final Map<String, Entrada> entradas;
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private long vaciados;
+
+    /**
+     * Inicializa una instancia de JwtValidadoCache con los datos necesarios.
+     */
+    public JwtValidadoCache(int maxEntradas) {
+        this(maxEntradas, Clock.systemUTC());
+    }
+
+    /**
+     * Inicializa una instancia de JwtValidadoCache con el reloj que decide los vencimientos.
+     */
+    JwtValidadoCache(int maxEntradas, Clock reloj) {
+        this.maxEntradas = maxEntradas;
+        this.reloj = reloj;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            /**
+             * Desaloja la entrada menos usada cuando se supera el maximo.
+             */
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+                return size() > JwtValidadoCache.this.maxEntradas;
+            }
+        };
+    }
+
+    /**
+     * Devuelve el JWT cacheado si sigue vigente; si no, lo valida con el decodificador y lo guarda.
+     */
+    public Jwt decodificar(String token, JwtDecoder delegado) {
+        String clave = clave(token);
+        Entrada entrada = vigente(clave, token);
+        if (entrada != null) {
+            aciertos.incrementAndGet();
+            return entrada.jwt();
+        }
+        fallos.incrementAndGet();
+        long vaciadosAntes;
+        synchronized (entradas) {
+            vaciadosAntes = vaciados;
+        }
+        Jwt jwt = delegado.decode(token);
+        if (maxEntradas > 0 && jwt.getExpiresAt() != null && reloj.instant().isBefore(jwt.getExpiresAt())) {
+            synchronized (entradas) {
+                if (vaciados == vaciadosAntes) {
+                    entradas.put(clave, new Entrada(jwt, null));
+                }
+            }
+        }
+        return jwt;
+    }
+
+    /**
+     * Descarta todos los tokens validados, por ejemplo porque se retiro la clave que los firmo.
+     *
+     * Un token que se estaba validando mientras tanto tampoco se guarda.
+     */
+    public void vaciar() {
+        synchronized (entradas) {
+            entradas.clear();
+            vaciados++;
+        }
+    }
+
+    /**
+     * Devuelve las authorities del JWT, calculandolas con el conversor solo la primera vez.
+     */
+    public Collection<GrantedAuthority> authorities(Jwt jwt,
+            Converter<Jwt, Collection<GrantedAuthority>> delegado) {
+        String clave = clave(jwt.getTokenValue());
+        Entrada entrada = vigente(clave, jwt.getTokenValue());
+        if (entrada != null && entrada.authorities() != null) {
+            return entrada.authorities();
+        }
+        Collection<GrantedAuthority> calculadas = List.copyOf(delegado.convert(jwt));
+        if (entrada != null) {
+            synchronized (entradas) {
+                entradas.replace(clave, entrada, new Entrada(entrada.jwt(), calculadas));
+            }
+        }
+        return calculadas;
+    }
+
+    /**
+     * Devuelve los contadores de uso del cache.
+     */
+    public Estadisticas estadisticas() {
+        int tamanio;
+        synchronized (entradas) {
+            tamanio = entradas.size();
+        }
+        return new Estadisticas(aciertos.get(), fallos.get(), tamanio, maxEntradas);
+    }
+
+    /**
+     * Busca la entrada del token y la descarta si ya vencio.
+     */
+    private Entrada vigente(String clave, String token) {
+        Instant ahora = reloj.instant();
+        synchronized (entradas) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada == null) {
+                return null;
+            }
+            if (!ahora.isBefore(entrada.jwt().getExpiresAt()) || !entrada.jwt().getTokenValue().equals(token)) {
+                entradas.remove(clave);
+                return null;
+            }
+            return entrada;
+        }
+    }
+
+    /**
+     * Calcula la clave del token para no indexar el cache por el token en claro.
+     */
+    private static String clave(String token) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * JWT validado y, una vez calculadas, sus authorities.
+     */
+    private record Entrada(Jwt jwt, Collection<GrantedAuthority> authorities) {
+    }
+
+    /**
+     * Contadores de aciertos y fallos del cache de tokens.
+     */
+    public record Estadisticas(long aciertos, long fallos, int entradas, int maxEntradas) {
+    }
+}
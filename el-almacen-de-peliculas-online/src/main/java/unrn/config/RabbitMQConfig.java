@@ -4,13 +4,28 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Configuracion de infraestructura RabbitMQ de la vertical catalogo.
@@ -18,6 +33,15 @@ import org.springframework.context.annotation.Configuration;
  * Declara exchanges, colas, bindings y conversor JSON que conectan esta aplicacion
  * con eventos de ventas, stock y catalogo. Centraliza nombres configurables para
  * que listeners y publishers no construyan la topologia por su cuenta.
+ *
+ * Tambien define el container factory propio del listener de validacion de stock,
+ * con consumidores concurrentes y prefetch configurables, y el de ratings, que
+ * entrega los mensajes en lotes.
+ *
+ * Los listeners de eventos de pelicula y de rating no reintentan en el hilo del
+ * consumidor: cada cola tiene colas de reintento con TTL, una por intento, que
+ * al vencer devuelven el mensaje a la cola original, y una cola parking-lot para
+ * los mensajes que agotan los reintentos.
  */
 @Configuration
 public class RabbitMQConfig {
@@ -28,11 +52,24 @@ public class RabbitMQConfig {
     static final String CATALOGO_STOCK_VALIDATION_REQUESTS_QUEUE = "catalogo.stock.validation.requests";
     static final String VENTAS_COMPRA_CONFIRMADA_ROUTING_KEY = "ventas.compra.confirmada";
     static final String CATALOGO_STOCK_VALIDATION_REQUESTED_ROUTING_KEY = "catalogo.stock.validation.requested";
+    public static final String STOCK_VALIDATION_CONTAINER_FACTORY = "stockValidationListenerContainerFactory";
+    static final int STOCK_VALIDATION_CONSUMIDORES = 4;
+    static final int STOCK_VALIDATION_MAX_CONSUMIDORES = 8;
+    static final int STOCK_VALIDATION_PREFETCH = 10;
+    public static final String RATING_CONTAINER_FACTORY = "ratingListenerContainerFactory";
+    static final int RATING_LOTE = 100;
+    static final long RATING_ESPERA_MS = 200;
+    public static final String RATING_CATALOGO_QUEUE = "rating.catalogo.queue";
+    public static final String EVENTOS_CONTAINER_FACTORY = "eventosListenerContainerFactory";
+    static final String DEMORAS_REINTENTO_MS = "5000,30000,120000";
 
     // Event
     @Value("${rabbitmq.event.exchange.name}")
     private String eventExchange;
 
+    @Value("${rabbitmq.event.movie.queue.name}")
+    private String movieQueue;
+
     @Value("${rabbitmq.ventas.events.exchange:" + VENTAS_EVENTS_EXCHANGE + "}")
     private String ventasEventsExchange;
 
@@ -44,6 +81,30 @@ public class RabbitMQConfig {
             + CATALOGO_STOCK_VALIDATION_REQUESTED_ROUTING_KEY + "}")
     private String catalogoStockValidationRequestedRoutingKey;
 
+    // Listener de validacion de stock
+    @Value("${catalogo.stock.validation.listener.concurrency:" + STOCK_VALIDATION_CONSUMIDORES + "}")
+    private int stockValidationConsumidores;
+
+    @Value("${catalogo.stock.validation.listener.max-concurrency:" + STOCK_VALIDATION_MAX_CONSUMIDORES + "}")
+    private int stockValidationMaxConsumidores;
+
+    @Value("${catalogo.stock.validation.listener.prefetch:" + STOCK_VALIDATION_PREFETCH + "}")
+    private int stockValidationPrefetch;
+
+    @Value("${catalogo.stock.validation.listener.virtual-threads:false}")
+    private boolean stockValidationVirtualThreads;
+
+    // Listener de ratings
+    @Value("${catalogo.rating.lote.tamanio:" + RATING_LOTE + "}")
+    private int ratingLote;
+
+    @Value("${catalogo.rating.lote.espera-ms:" + RATING_ESPERA_MS + "}")
+    private long ratingEsperaMs;
+
+    // Reintentos diferidos
+    @Value("${catalogo.reintentos.demoras-ms:" + DEMORAS_REINTENTO_MS + "}")
+    private long[] demorasReintentoMs;
+
     /**
      * Declara el exchange topic legado usado por eventos de pelicula y rating.
      * El nombre sale de rabbitmq.event.exchange.name para que el ambiente decida la topologia.
@@ -117,4 +178,125 @@ public class RabbitMQConfig {
                 .to(ventasEventsExchange())
                 .with(catalogoStockValidationRequestedRoutingKey);
     }
+
+    /**
+     * Crea el container factory del listener de validacion de stock.
+     *
+     * Parte de la configuracion de spring.rabbitmq.listener.simple y le fija
+     * consumidores, maximo de consumidores y prefetch propios: cada consumidor
+     * procesa una compra en su propia transaccion y los bloqueos por pelicula se
+     * toman en orden de id, asi que varios a la vez no sobrevenden ni se
+     * bloquean mutuamente. El maximo de consumidores debe quedar por debajo del
+     * pool de conexiones. Con virtual-threads=true los consumidores corren en
+     * hilos virtuales.
+     */
+    @Bean(name = STOCK_VALIDATION_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory stockValidationListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(stockValidationConsumidores);
+        factory.setMaxConcurrentConsumers(Math.max(stockValidationConsumidores, stockValidationMaxConsumidores));
+        factory.setPrefetchCount(stockValidationPrefetch);
+        if (stockValidationVirtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stock-validation-");
+            executor.setVirtualThreads(true);
+            factory.setTaskExecutor(executor);
+        }
+        return factory;
+    }
+
+    /**
+     * Crea el container factory del listener de ratings, que entrega lotes de mensajes.
+     *
+     * Cada lote junta hasta catalogo.rating.lote.tamanio mensajes, esperando como
+     * maximo catalogo.rating.lote.espera-ms por el siguiente; con tamanio 1 se
+     * procesa de a un mensaje. Usa un solo consumidor para que, dentro de la cola,
+     * el ultimo rating recibido de cada pelicula sea el mas reciente. Un lote que
+     * falla se deriva entero a las colas de reintento.
+     */
+    @Bean(name = RATING_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory ratingListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ReintentoDiferidoRecoverer reintentoDiferidoRecoverer) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(Math.max(1, ratingLote));
+        factory.setReceiveTimeout(ratingEsperaMs);
+        factory.setAdviceChain(reintentoDiferido(reintentoDiferidoRecoverer));
+        return factory;
+    }
+
+    /**
+     * Crea el container factory del listener de eventos de pelicula.
+     *
+     * Parte de la configuracion de spring.rabbitmq.listener.simple y solo le
+     * agrega el reintento diferido, para que un mensaje que falla no retenga al
+     * consumidor mientras espera el proximo intento.
+     */
+    @Bean(name = EVENTOS_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory eventosListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ReintentoDiferidoRecoverer reintentoDiferidoRecoverer) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAdviceChain(reintentoDiferido(reintentoDiferidoRecoverer));
+        return factory;
+    }
+
+    /**
+     * Crea el recoverer que deriva los mensajes fallidos a las colas de reintento o a la parking-lot.
+     */
+    @Bean
+    public ReintentoDiferidoRecoverer reintentoDiferidoRecoverer(RabbitTemplate rabbitTemplate) {
+        return new ReintentoDiferidoRecoverer(rabbitTemplate, colasConReintento(), demorasReintentoMs.length);
+    }
+
+    /**
+     * Declara, por cada cola con reintento diferido, sus colas de reintento y su parking-lot.
+     *
+     * La cola de reintento del intento n retiene el mensaje catalogo.reintentos.demoras-ms[n]
+     * milisegundos y lo devuelve por el exchange por defecto a la cola original.
+     * Como el TTL es fijo por cola, los mensajes vencen en orden y ninguno queda
+     * detras de otro con una demora mayor.
+     */
+    @Bean
+    public Declarables colasDeReintento() {
+        List<Declarable> declarables = new ArrayList<>();
+        for (String cola : colasConReintento()) {
+            for (int intento = 1; intento <= demorasReintentoMs.length; intento++) {
+                declarables.add(QueueBuilder.durable(ReintentoDiferidoRecoverer.colaReintento(cola, intento))
+                        .ttl((int) demorasReintentoMs[intento - 1])
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(cola)
+                        .build());
+            }
+            declarables.add(QueueBuilder.durable(ReintentoDiferidoRecoverer.colaParkingLot(cola)).build());
+        }
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Devuelve las colas cuyos listeners usan reintento diferido.
+     */
+    private Set<String> colasConReintento() {
+        return Set.of(movieQueue, RATING_CATALOGO_QUEUE);
+    }
+
+    /**
+     * Arma el advice que, ante el primer fallo, entrega el mensaje al recoverer sin reintentar en el hilo.
+     */
+    static RetryOperationsInterceptor reintentoDiferido(MessageRecoverer recoverer) {
+        return RetryInterceptorBuilder.stateless()
+                .maxAttempts(1)
+                .recoverer(recoverer)
+                .build();
+    }
 }
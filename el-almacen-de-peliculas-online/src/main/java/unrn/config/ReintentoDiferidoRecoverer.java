@@ -0,0 +1,135 @@
+package unrn.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deriva los mensajes que fallan en un listener a la cola de reintento que corresponde.
+ *
+ * No reintenta en el hilo del consumidor: cuenta el intento en un header, publica
+ * el mensaje en la cola de reintento de ese intento y el original se confirma,
+ * asi el consumidor sigue con el proximo mensaje. Cada cola de reintento tiene
+ * un TTL fijo y, al vencer, RabbitMQ devuelve el mensaje a la cola original.
+ * Agotados los reintentos, o si el mensaje no se puede convertir, va a la cola
+ * parking-lot para revisarlo a mano.
+ */
+public class ReintentoDiferidoRecoverer implements MessageBatchRecoverer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReintentoDiferidoRecoverer.class);
+
+    static final String HEADER_REINTENTOS = "x-catalogo-reintentos";
+    static final String HEADER_ERROR = "x-catalogo-error";
+    static final String ERROR_COLA_SIN_REINTENTOS = "ERROR_COLA_SIN_REINTENTOS";
+    private static final String EXCHANGE_POR_DEFECTO = "";
+    private static final int LARGO_MAXIMO_ERROR = 500;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final Set<String> colas;
+    private final int maxReintentos;
+
+    /**
+     * Inicializa una instancia de ReintentoDiferidoRecoverer con los datos necesarios.
+     */
+    public ReintentoDiferidoRecoverer(RabbitTemplate rabbitTemplate, Set<String> colas, int maxReintentos) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.colas = Set.copyOf(colas);
+        this.maxReintentos = maxReintentos;
+    }
+
+    /**
+     * Devuelve el nombre de la cola de reintento de una cola para el intento indicado.
+     */
+    public static String colaReintento(String cola, int intento) {
+        return cola + ".reintento." + intento;
+    }
+
+    /**
+     * Devuelve el nombre de la cola parking-lot de una cola.
+     */
+    public static String colaParkingLot(String cola) {
+        return cola + ".parking-lot";
+    }
+
+    /**
+     * Publica el mensaje fallido en su proxima cola de reintento o en la parking-lot.
+     */
+    @Override
+    public void recover(Message message, Throwable cause) {
+        MessageProperties properties = message.getMessageProperties();
+        String cola = properties.getConsumerQueue();
+        if (cola == null || !colas.contains(cola)) {
+            throw new AmqpRejectAndDontRequeueException(ERROR_COLA_SIN_REINTENTOS + ": " + cola, cause);
+        }
+
+        int reintentos = reintentos(properties) + 1;
+        properties.setHeader(HEADER_REINTENTOS, reintentos);
+        properties.setHeader(HEADER_ERROR, descripcion(cause));
+        if (properties.getDeliveryMode() == null) {
+            properties.setDeliveryMode(properties.getReceivedDeliveryMode() != null
+                    ? properties.getReceivedDeliveryMode()
+                    : MessageDeliveryMode.PERSISTENT);
+        }
+
+        if (reintentos > maxReintentos || esFatal(cause)) {
+            log.error("Mensaje de {} enviado a parking-lot tras {} intentos: {}",
+                    cola, reintentos, descripcion(cause));
+            rabbitTemplate.send(EXCHANGE_POR_DEFECTO, colaParkingLot(cola), message);
+            return;
+        }
+        log.warn("Mensaje de {} programado para reintento {} de {}: {}",
+                cola, reintentos, maxReintentos, descripcion(cause));
+        rabbitTemplate.send(EXCHANGE_POR_DEFECTO, colaReintento(cola, reintentos), message);
+    }
+
+    /**
+     * Deriva cada mensaje de un lote fallido segun sus propios reintentos.
+     */
+    @Override
+    public void recover(List<Message> messages, Throwable cause) {
+        for (Message message : messages) {
+            recover(message, cause);
+        }
+    }
+
+    /**
+     * Lee cuantas veces se reintento ya el mensaje.
+     */
+    private static int reintentos(MessageProperties properties) {
+        Object valor = properties.getHeaders().get(HEADER_REINTENTOS);
+        return valor instanceof Number numero ? numero.intValue() : 0;
+    }
+
+    /**
+     * Indica si el error no se arregla reintentando, como un cuerpo que no se puede convertir.
+     */
+    private static boolean esFatal(Throwable cause) {
+        for (Throwable actual = cause; actual != null; actual = actual.getCause()) {
+            if (actual instanceof MessageConversionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describe la causa mas profunda del error, recortada para viajar en un header.
+     */
+    private static String descripcion(Throwable cause) {
+        Throwable raiz = cause;
+        while (raiz != null && raiz.getCause() != null && raiz.getCause() != raiz) {
+            raiz = raiz.getCause();
+        }
+        String texto = raiz == null ? "" : raiz.getClass().getSimpleName() + ": " + raiz.getMessage();
+        return texto.length() <= LARGO_MAXIMO_ERROR ? texto : texto.substring(0, LARGO_MAXIMO_ERROR);
+    }
+}
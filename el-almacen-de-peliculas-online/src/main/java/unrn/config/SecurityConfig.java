@@ -1,5 +1,11 @@
 package unrn.config;
 
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,20 +24,31 @@ import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Configuracion central de seguridad HTTP y validacion JWT.
  *
  * Define que endpoints son publicos, cuales requieren rol ADMIN, como se decodifica
  * el token emitido por Keycloak y como se convierten sus roles a authorities de
- * Spring. Tambien lee desde properties los issuers aceptados por ambiente.
+ * Spring. Tambien lee desde properties los issuers aceptados por ambiente. Los
+ * tokens validados y sus authorities se cachean hasta su exp, y el JWK set se
+ * mantiene en memoria con refresco en segundo plano.
  */
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    static final long JWK_SET_REFRESCO_MS = 300_000;
+    static final long JWK_SET_REINTENTO_MS = 30_000;
+    static final long JWK_SET_ESPERA_MS = 3_000;
+    private static final int JWK_SET_TIMEOUT_MS = 2_000;
+
     @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}")
     private String issuerUri;
 
@@ -44,6 +61,18 @@ public class SecurityConfig {
     @Value("${security.keycloak.allowed-issuers:${spring.security.oauth2.resourceserver.jwt.issuer-uri}}")
     private String allowedIssuersProperty;
 
+    @Value("${security.keycloak.token-cache.max-entradas:" + JwtValidadoCache.MAX_ENTRADAS_POR_DEFECTO + "}")
+    private int tokenCacheMaxEntradas;
+
+    @Value("${security.keycloak.jwk-set.refresco-ms:" + JWK_SET_REFRESCO_MS + "}")
+    private long jwkSetRefrescoMs;
+
+    @Value("${security.keycloak.jwk-set.reintento-ms:" + JWK_SET_REINTENTO_MS + "}")
+    private long jwkSetReintentoMs;
+
+    @Value("${security.keycloak.jwk-set.espera-ms:" + JWK_SET_ESPERA_MS + "}")
+    private long jwkSetEsperaMs;
+
     /**
      * Define las reglas HTTP de seguridad para endpoints publicos y administrados.
      */
@@ -74,20 +103,51 @@ public class SecurityConfig {
                         .hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/admin/actores", "/api/admin/actores/**")
                         .hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/admin/outbox/**")
+                        .hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/admin/outbox/**")
+                        .hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())));
         return http.build();
     }
 
+    /**
+     * Mantiene en memoria el JWK set de jwk-set-uri y lo refresca en segundo plano.
+     */
+    @Bean
+    @ConditionalOnExpression("!'${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:}'.isBlank()")
+    public JwkSetRefresco jwkSetRefresco() throws MalformedURLException {
+        var refresco = new JwkSetRefresco(URI.create(jwkSetUri).toURL(),
+                new DefaultResourceRetriever(JWK_SET_TIMEOUT_MS, JWK_SET_TIMEOUT_MS),
+                Duration.ofMillis(jwkSetRefrescoMs), Duration.ofMillis(jwkSetReintentoMs),
+                Duration.ofMillis(jwkSetEsperaMs));
+        refresco.iniciar();
+        return refresco;
+    }
+
+    /**
+     * Cache de tokens validados y de sus authorities, compartido por el decoder y el conversor.
+     */
+    @Bean
+    public JwtValidadoCache jwtValidadoCache() {
+        return new JwtValidadoCache(tokenCacheMaxEntradas);
+    }
+
     /**
      * Construye el decodificador JWT y valida emisores permitidos.
+     *
+     * Con jwk-set-uri las claves salen de JwkSetRefresco; si no, se descubren
+     * desde el issuer. En ambos casos los tokens ya validados salen del cache, que
+     * se vacia cuando una clave deja de publicarse en el JWK set.
      */
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(Optional<JwkSetRefresco> jwkSetRefresco, JwtValidadoCache jwtValidadoCache) {
         NimbusJwtDecoder jwtDecoder;
-        if (jwkSetUri != null && !jwkSetUri.isBlank()) {
-            jwtDecoder = NimbusJwtDecoder.withJwkSetUri(jwkSetUri).build();
+        if (jwkSetRefresco.isPresent()) {
+            jwtDecoder = decodificadorNimbus(jwkSetRefresco.get());
+            jwkSetRefresco.get().alQuitarClaves(jwtValidadoCache::vaciar);
         } else {
             jwtDecoder = JwtDecoders.fromIssuerLocation(issuerUri);
         }
@@ -104,7 +164,27 @@ public class SecurityConfig {
         };
 
         jwtDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(withTimestamp, withIssuers));
-        return jwtDecoder;
+        return token -> jwtValidadoCache.decodificar(token, jwtDecoder);
+    }
+
+    /**
+     * Arma un NimbusJwtDecoder sobre el JWK set indicado.
+     *
+     * Acepta los algoritmos que admiten las claves publicadas, no uno fijo. Igual
+     * que NimbusJwtDecoder.withJwkSetUri, deja la validacion de claims a los
+     * validadores de Spring.
+     */
+    static NimbusJwtDecoder decodificadorNimbus(JwkSetRefresco claves) {
+        JWSKeySelector<SecurityContext> selector = (header, contexto) -> {
+            var seleccionadas = new JWSVerificationKeySelector<>(header.getAlgorithm(), claves)
+                    .selectJWSKeys(header, contexto);
+            return claves.algoritmos().contains(header.getAlgorithm()) ? seleccionadas : List.of();
+        };
+        var procesador = new DefaultJWTProcessor<SecurityContext>();
+        procesador.setJWSKeySelector(selector);
+        procesador.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        return new NimbusJwtDecoder(procesador);
     }
 
     /**
@@ -118,12 +198,14 @@ public class SecurityConfig {
     }
 
     /**
-     * Configura la conversion de claims JWT a authorities de Spring Security.
+     * Configura la conversion de claims JWT a authorities de Spring Security, cacheada por token.
      */
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(new JwtRoleConverter(keycloakClientId));
+        JwtRoleConverter roleConverter = new JwtRoleConverter(keycloakClientId);
+        JwtValidadoCache cache = jwtValidadoCache();
+        converter.setJwtGrantedAuthoritiesConverter(jwt -> cache.authorities(jwt, roleConverter));
         return converter;
     }
 }
@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 import unrn.model.Actor;
 import unrn.model.Director;
 import unrn.model.Pelicula;
+import unrn.infra.persistence.PeliculaVista;
 
 /**
  * DTO de pelicula para pantallas administrativas.
@@ -55,4 +56,27 @@ public record AdminPeliculaDTO(
                 p.stockDisponible(),
                 p.version());
     }
+
+    /**
+     * Construye un DTO a partir de la vista de lectura sin pasar por el dominio.
+     */
+    public static AdminPeliculaDTO from(PeliculaVista v) {
+        return new AdminPeliculaDTO(
+                v.id(),
+                v.titulo(),
+                v.condicion(),
+                v.directores(),
+                v.precio().doubleValue(),
+                v.formato(),
+                v.genero(),
+                v.sinopsis(),
+                v.actores(),
+                v.imagenUrl(),
+                v.fechaSalida(),
+                v.rating(),
+                v.ratingPromedio(),
+                v.totalRatings(),
+                v.stockDisponible(),
+                v.version());
+    }
 }
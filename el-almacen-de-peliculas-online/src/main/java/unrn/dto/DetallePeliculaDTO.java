@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 import unrn.model.Actor;
 import unrn.model.Director;
 import unrn.model.Pelicula;
+import unrn.infra.persistence.PeliculaVista;
 
 /**
  * DTO publico con el detalle de una pelicula visible en la tienda.
@@ -49,4 +50,25 @@ public record DetallePeliculaDTO(
                                 p.ratingPromedio(),
                                 p.totalRatings());
         }
+
+        /**
+         * Construye un DTO a partir de la vista de lectura sin pasar por el dominio.
+         */
+        public static DetallePeliculaDTO from(PeliculaVista v) {
+                return new DetallePeliculaDTO(
+                                v.id(),
+                                v.titulo(),
+                                v.condicion(),
+                                v.directores(),
+                                v.precio().doubleValue(),
+                                v.formato(),
+                                v.genero(),
+                                v.sinopsis(),
+                                v.actores(),
+                                v.imagenUrl(),
+                                v.fechaSalida(),
+                                v.rating(),
+                                v.ratingPromedio(),
+                                v.totalRatings());
+        }
 }
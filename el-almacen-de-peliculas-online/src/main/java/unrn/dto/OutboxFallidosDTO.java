@@ -0,0 +1,10 @@
+package unrn.dto;
+
+/**
+ * Respuesta de backoffice sobre eventos outbox en dead-letter.
+ *
+ * Informa cuantos eventos se reencolaron en la operacion (cero en una consulta)
+ * y cuantos siguen en estado FAILED despues de ella.
+ */
+public record OutboxFallidosDTO(int reencolados, long fallidos) {
+}
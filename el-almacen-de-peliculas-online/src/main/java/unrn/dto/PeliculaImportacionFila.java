@@ -0,0 +1,24 @@
+package unrn.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Fila de entrada de la importacion masiva de peliculas.
+ *
+ * A diferencia de PeliculaRequest, directores y actores vienen por nombre: la
+ * importacion crea los que no existen, igual que genero, formato y condicion.
+ */
+public record PeliculaImportacionFila(
+        String titulo,
+        String condicion,
+        List<String> directores,
+        double precio,
+        String formato,
+        String genero,
+        String sinopsis,
+        List<String> actores,
+        String imagenUrl,
+        LocalDate fechaSalida,
+        int rating) {
+}
@@ -7,19 +7,27 @@ import org.springframework.amqp.rabbit.annotation.Queue;
 import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.Exchange;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import unrn.config.RabbitMQConfig;
 import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.RatingPelicula;
 import unrn.model.Pelicula;
+import unrn.service.DetallePeliculaCache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Listener RabbitMQ para eventos externos que impactan datos de peliculas.
  *
- * Consume eventos genericos de pelicula y eventos de rating, aplica reintentos y
- * actualiza el catalogo cuando llega nueva informacion desde otras verticales. Es
- * una pieza de integracion, no un endpoint HTTP.
+ * Consume eventos genericos de pelicula y eventos de rating y actualiza el
+ * catalogo cuando llega nueva informacion desde otras verticales. Los ratings
+ * llegan en lotes y se aplican de una vez por pelicula. Los mensajes que fallan
+ * no se reintentan aca: sus containers los derivan a las colas de reintento
+ * diferido declaradas en RabbitMQConfig. Es una pieza de integracion, no un
+ * endpoint HTTP.
  */
 @Service
 public class MessageListener {
@@ -28,32 +36,34 @@ public class MessageListener {
     static final String ERROR_PELICULA_NO_ENCONTRADA = "ERROR_PELICULA_NO_ENCONTRADA";
 
     private final PeliculaRepository peliculaRepository;
+    private final DetallePeliculaCache detalleCache;
 
     /**
      * Inicializa una instancia de MessageListener con los datos necesarios.
      */
-    public MessageListener(PeliculaRepository peliculaRepository) {
+    public MessageListener(PeliculaRepository peliculaRepository, DetallePeliculaCache detalleCache) {
         this.peliculaRepository = peliculaRepository;
+        this.detalleCache = detalleCache;
     }
 
     /**
      * Procesa eventos de pelicula recibidos por RabbitMQ.
+     *
+     * Solo guarda el rating local, con un UPDATE de esa columna que no aumenta la version.
      */
-    @RabbitListener(bindings = @QueueBinding(value = @Queue(value = "${rabbitmq.event.movie.queue.name}", durable = "true"), exchange = @Exchange(value = "${rabbitmq.event.exchange.name}", type = "topic"), key = "${rabbitmq.event.movie.routing.key}"))
-    @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 5000))
+    @RabbitListener(bindings = @QueueBinding(value = @Queue(value = "${rabbitmq.event.movie.queue.name}", durable = "true"), exchange = @Exchange(value = "${rabbitmq.event.exchange.name}", type = "topic"), key = "${rabbitmq.event.movie.routing.key}"),
+            containerFactory = RabbitMQConfig.EVENTOS_CONTAINER_FACTORY)
     public void handleMovieEvent(Event<String, Pelicula> event) {
         switch (event.getEventType()) {
             case CREATE:
                 Long id = event.getData().id();
                 int newRating = event.getData().rating();
 
-                Pelicula pelicula = peliculaRepository.porId(id);
-                if (pelicula == null) {
+                Pelicula.validarRating(newRating);
+                if (!peliculaRepository.actualizarRatingLocal(id, newRating)) {
                     throw new RuntimeException(ERROR_PELICULA_NO_ENCONTRADA);
                 }
-
-                pelicula.actualizarRating(newRating);
-                peliculaRepository.actualizar(id, pelicula);
+                detalleCache.invalidar(id);
                 log.info("PelÃ­cula {} actualizada con nuevo rating {}", id, newRating);
                 break;
 
@@ -67,44 +77,40 @@ public class MessageListener {
     }
 
     /**
-     * Registra la recuperacion luego de agotar reintentos de procesamiento.
-     */
-    @Recover
-    public void recover(Exception e, Event<String, Pelicula> event) {
-        log.info("Recover: no se pudo procesar el evento despuÃ©s de reintentos: {}", event.getData());
-    }
-
-    /**
-     * Escucha eventos de actualizaciÃ³n de rating desde la vertical Rating.
-     * Actualiza el ratingPromedio y totalRatings en la pelÃ­cula del catÃ¡logo.
+     * Escucha lotes de eventos de rating desde la vertical Rating.
+     *
+     * Se queda con el ultimo evento de cada pelicula del lote y guarda solo
+     * ratingPromedio y totalRatings con el UPDATE de actualizarRating, sin cargar
+     * el agregado ni aumentar su version. Los eventos invalidos y las peliculas
+     * inexistentes se registran y no frenan al resto del lote.
      */
-    @RabbitListener(bindings = @QueueBinding(value = @Queue(value = "rating.catalogo.queue", durable = "true"), exchange = @Exchange(value = "${rabbitmq.event.exchange.name}", type = "topic"), key = "RatingActualizadoEvent.#"))
-    @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 5000))
-    public void handleRatingEvent(Event<String, RatingActualizadoEvent> event) {
-        log.info("Evento de rating recibido: {}", event.getData());
-
-        Long peliculaId = event.getData().id();
-        double ratingPromedio = event.getData().rating();
-        int totalRatings = (int) event.getData().totalRatings();
-
-        Pelicula pelicula = peliculaRepository.porId(peliculaId);
-        if (pelicula == null) {
-            throw new RuntimeException(ERROR_PELICULA_NO_ENCONTRADA);
+    @RabbitListener(bindings = @QueueBinding(value = @Queue(value = RabbitMQConfig.RATING_CATALOGO_QUEUE, durable = "true"), exchange = @Exchange(value = "${rabbitmq.event.exchange.name}", type = "topic"), key = "RatingActualizadoEvent.#"),
+            containerFactory = RabbitMQConfig.RATING_CONTAINER_FACTORY)
+    public void handleRatingEvents(List<Event<String, RatingActualizadoEvent>> events) {
+        Map<Long, RatingPelicula> ultimos = new LinkedHashMap<>();
+        for (Event<String, RatingActualizadoEvent> event : events) {
+            RatingActualizadoEvent data = event.getData();
+            if (data == null || data.id() == null) {
+                log.error("Evento de rating sin pelicula descartado: {}", data);
+                continue;
+            }
+            try {
+                Pelicula.validarRatingPromedio(data.rating(), (int) data.totalRatings());
+            } catch (RuntimeException ex) {
+                log.error("Evento de rating invalido descartado: {} motivo={}", data, ex.getMessage());
+                continue;
+            }
+            ultimos.put(data.id(), new RatingPelicula(data.id(), data.rating(), (int) data.totalRatings()));
+        }
+        if (ultimos.isEmpty()) {
+            return;
         }
 
-        pelicula.actualizarRatingPromedio(ratingPromedio, totalRatings);
-        peliculaRepository.actualizar(peliculaId, pelicula);
-
-        log.info("PelÃ­cula {} actualizada: ratingPromedio={}, totalRatings={}",
-                peliculaId, ratingPromedio, totalRatings);
-    }
-
-    /**
-     * Registra la recuperacion luego de fallar el procesamiento de rating.
-     */
-    @Recover
-    public void recoverRating(Exception e, Event<String, RatingActualizadoEvent> event) {
-        log.error("Recover: no se pudo procesar el evento de rating despuÃ©s de reintentos: {}",
-                event.getData(), e);
+        List<Long> inexistentes = peliculaRepository.actualizarRatings(new ArrayList<>(ultimos.values()));
+        ultimos.keySet().forEach(detalleCache::invalidar);
+        if (!inexistentes.isEmpty()) {
+            log.warn("{}: ratings ignorados para peliculas {}", ERROR_PELICULA_NO_ENCONTRADA, inexistentes);
+        }
+        log.info("Lote de {} eventos de rating aplicado a {} peliculas", events.size(), ultimos.size());
     }
 }
@@ -0,0 +1,28 @@
+package unrn.event.movie;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Envoltorio de evento saliente para un lote de peliculas dadas de alta juntas.
+ *
+ * Lo usa la importacion masiva: en lugar de un MovieCreated.v1 por pelicula se
+ * publica un solo mensaje por lote confirmado, con el mismo payload por pelicula.
+ */
+public record MovieBatchEventEnvelope(
+        String eventId,
+        String eventType,
+        Instant occurredAt,
+        List<MovieEventPayload> payloads) {
+
+    static final String TYPE_IMPORTED = "MoviesImported.v1";
+
+    /**
+     * Crea el envelope versionado para informar el alta de un lote de peliculas importadas.
+     */
+    public static MovieBatchEventEnvelope imported(List<MovieEventPayload> payloads) {
+        return new MovieBatchEventEnvelope(UUID.randomUUID().toString(), TYPE_IMPORTED, Instant.now(),
+                List.copyOf(payloads));
+    }
+}
@@ -60,4 +60,13 @@ public class MovieEventPublisher {
         log.info("Publicando evento de pelicula {} con routing key {}", envelope.eventId(), envelope.eventType());
         rabbitTemplate.convertAndSend(eventExchange.getName(), envelope.eventType(), envelope);
     }
+
+    /**
+     * Publica inmediatamente el evento de un lote de peliculas en RabbitMQ.
+     */
+    public void publishNow(MovieBatchEventEnvelope envelope) {
+        log.info("Publicando lote {} de {} peliculas con routing key {}",
+                envelope.eventId(), envelope.payloads().size(), envelope.eventType());
+        rabbitTemplate.convertAndSend(eventExchange.getName(), envelope.eventType(), envelope);
+    }
 }
@@ -0,0 +1,87 @@
+package unrn.event.stock;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import unrn.infra.persistence.PeliculaEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Motor de descuento que bloquea las peliculas y descuenta sobre las entidades.
+ *
+ * Todas las peliculas se bloquean en una sola consulta ordenada por id, de modo
+ * que dos compras con las mismas peliculas toman los locks en el mismo orden y no
+ * pueden trabarse entre si. Es el motor por defecto.
+ */
+@Component
+@ConditionalOnProperty(name = "catalogo.stock.motor", havingValue = "bloqueo", matchIfMissing = true)
+class DescuentoStockConBloqueo implements MotorDescuentoStock {
+
+    private final EntityManager entityManager;
+
+    /**
+     * Inicializa una instancia de DescuentoStockConBloqueo con los datos necesarios.
+     */
+    DescuentoStockConBloqueo(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Bloquea las peliculas, valida existencia, actividad y stock, y descuenta si todo alcanza.
+     */
+    @Override
+    public List<ValidacionStock> validarYDescontar(Map<Long, BigDecimal> solicitadoPorPelicula) {
+        Map<Long, PeliculaEntity> bloqueadas = bloquearPeliculas(solicitadoPorPelicula.keySet());
+        List<ValidacionStock> validaciones = new ArrayList<>();
+
+        for (var entrada : solicitadoPorPelicula.entrySet()) {
+            Long peliculaId = entrada.getKey();
+            BigDecimal solicitado = entrada.getValue();
+            PeliculaEntity pelicula = bloqueadas.get(peliculaId);
+
+            if (pelicula == null || !pelicula.estaActiva()) {
+                validaciones.add(ValidacionStock.peliculaInexistente(peliculaId, solicitado));
+                continue;
+            }
+
+            if (pelicula.stockDisponible().compareTo(solicitado) < 0) {
+                validaciones.add(ValidacionStock.stockInsuficiente(peliculaId, solicitado, pelicula.stockDisponible()));
+                continue;
+            }
+
+            validaciones.add(ValidacionStock.ok(peliculaId, solicitado, pelicula.stockDisponible()));
+        }
+
+        if (validaciones.stream().noneMatch(ValidacionStock::esError)) {
+            for (ValidacionStock validacion : validaciones) {
+                bloqueadas.get(validacion.peliculaId()).descontarStock(validacion.solicitado());
+            }
+        }
+        return validaciones;
+    }
+
+    /**
+     * Bloquea para escritura las peliculas indicadas con un unico SELECT ... FOR UPDATE ordenado por id.
+     */
+    private Map<Long, PeliculaEntity> bloquearPeliculas(Set<Long> peliculaIds) {
+        Map<Long, PeliculaEntity> bloqueadas = new HashMap<>();
+        if (peliculaIds.isEmpty()) {
+            return bloqueadas;
+        }
+
+        entityManager.createQuery(
+                "SELECT p FROM PeliculaEntity p WHERE p.id IN :ids ORDER BY p.id", PeliculaEntity.class)
+                .setParameter("ids", peliculaIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList()
+                .forEach(pelicula -> bloqueadas.put(pelicula.id(), pelicula));
+        return bloqueadas;
+    }
+}
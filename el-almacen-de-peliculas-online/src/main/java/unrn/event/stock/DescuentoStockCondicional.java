@@ -0,0 +1,119 @@
+package unrn.event.stock;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Motor de descuento con UPDATE condicional atomico por pelicula.
+ *
+ * No carga entidades ni bloquea antes de decidir: cada item es un unico UPDATE que
+ * descuenta solo si la pelicula esta activa y alcanza el stock, y la cantidad de
+ * filas afectadas indica si se pudo. Antes del primer UPDATE se crea un savepoint
+ * JDBC en la conexion de la compra (el dialecto JPA de Hibernate no expone
+ * savepoints por TransactionStatus); si algun item falla se vuelve a ese savepoint,
+ * lo que deshace los descuentos ya hechos sin calcular compensaciones, y se leen
+ * las peliculas para armar el mismo rechazo que el motor con bloqueo. Se activa
+ * con catalogo.stock.motor=condicional.
+ */
+@Component
+@ConditionalOnProperty(name = "catalogo.stock.motor", havingValue = "condicional")
+class DescuentoStockCondicional implements MotorDescuentoStock {
+
+    private static final String DESCONTAR = "UPDATE PeliculaEntity p"
+            + " SET p.stockDisponible = p.stockDisponible - :cantidad, p.version = p.version + 1"
+            + " WHERE p.id = :id AND p.activa = true AND p.stockDisponible >= :cantidad";
+
+    private final EntityManager entityManager;
+
+    /**
+     * Inicializa una instancia de DescuentoStockCondicional con los datos necesarios.
+     */
+    DescuentoStockCondicional(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Descuenta cada pelicula en orden de id y, ante el primer fallo, deshace y clasifica.
+     */
+    @Override
+    public List<ValidacionStock> validarYDescontar(Map<Long, BigDecimal> solicitadoPorPelicula) {
+        // Se baja lo pendiente antes, para que volver al savepoint no deshaga escrituras que la sesion da por hechas.
+        entityManager.flush();
+        Session sesion = entityManager.unwrap(Session.class);
+        Savepoint savepoint = sesion.doReturningWork(Connection::setSavepoint);
+        Long fallida = null;
+        for (var entrada : new TreeMap<>(solicitadoPorPelicula).entrySet()) {
+            if (ejecutar(DESCONTAR, entrada.getKey(), entrada.getValue()) == 0) {
+                fallida = entrada.getKey();
+                break;
+            }
+        }
+
+        if (fallida == null) {
+            sesion.doWork(conexion -> conexion.releaseSavepoint(savepoint));
+            List<ValidacionStock> validaciones = new ArrayList<>();
+            solicitadoPorPelicula.forEach((id, solicitado) -> validaciones.add(ValidacionStock.ok(id, solicitado, null)));
+            return validaciones;
+        }
+
+        sesion.doWork(conexion -> conexion.rollback(savepoint));
+        return clasificar(solicitadoPorPelicula, fallida);
+    }
+
+    /**
+     * Ejecuta un UPDATE de stock para una pelicula y devuelve las filas afectadas.
+     */
+    private int ejecutar(String jpql, Long peliculaId, BigDecimal cantidad) {
+        return entityManager.createQuery(jpql)
+                .setParameter("cantidad", cantidad)
+                .setParameter("id", peliculaId)
+                .executeUpdate();
+    }
+
+    /**
+     * Lee existencia, actividad y stock para detallar por que no se pudo descontar.
+     *
+     * La pelicula cuyo UPDATE no afecto filas se informa como error aunque otra
+     * transaccion haya repuesto stock despues.
+     */
+    private List<ValidacionStock> clasificar(Map<Long, BigDecimal> solicitadoPorPelicula, Long fallida) {
+        Map<Long, Object[]> filas = new HashMap<>();
+        entityManager.createQuery(
+                "SELECT p.id, p.activa, p.stockDisponible FROM PeliculaEntity p WHERE p.id IN :ids", Object[].class)
+                .setParameter("ids", solicitadoPorPelicula.keySet())
+                .getResultList()
+                .forEach(fila -> filas.put((Long) fila[0], fila));
+
+        List<ValidacionStock> validaciones = new ArrayList<>();
+        for (var entrada : solicitadoPorPelicula.entrySet()) {
+            Long peliculaId = entrada.getKey();
+            BigDecimal solicitado = entrada.getValue();
+            Object[] fila = filas.get(peliculaId);
+
+            if (fila == null || !Boolean.TRUE.equals(fila[1])) {
+                validaciones.add(ValidacionStock.peliculaInexistente(peliculaId, solicitado));
+                continue;
+            }
+
+            BigDecimal disponible = (BigDecimal) fila[2];
+            if (disponible.compareTo(solicitado) < 0 || peliculaId.equals(fallida)) {
+                validaciones.add(ValidacionStock.stockInsuficiente(peliculaId, solicitado, disponible));
+                continue;
+            }
+
+            validaciones.add(ValidacionStock.ok(peliculaId, solicitado, disponible));
+        }
+        return validaciones;
+    }
+}
@@ -0,0 +1,22 @@
+package unrn.event.stock;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estrategia para validar y descontar el stock de una compra.
+ *
+ * Recibe las cantidades ya sumadas por pelicula y todas positivas. Si alguna
+ * pelicula no existe, esta retirada o no alcanza, no debe quedar stock descontado
+ * y se devuelven todas las validaciones con sus errores; si no, descuenta todo.
+ * Corre dentro de la transaccion de ProcesarCompraConfirmadaService. Se elige con
+ * catalogo.stock.motor (bloqueo por defecto, o condicional).
+ */
+interface MotorDescuentoStock {
+
+    /**
+     * Valida las cantidades pedidas y, si todas alcanzan, descuenta el stock.
+     */
+    List<ValidacionStock> validarYDescontar(Map<Long, BigDecimal> solicitadoPorPelicula);
+}
@@ -1,24 +1,26 @@
 package unrn.event.stock;
 
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.LockModeType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import unrn.infra.persistence.EventoProcesadoEntity;
 import unrn.infra.persistence.EventoProcesadoRepository;
-import unrn.infra.persistence.PeliculaEntity;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.service.DetallePeliculaCache;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio transaccional que valida y aplica stock para una compra.
  *
- * Garantiza idempotencia por eventId, bloquea peliculas con lock pesimista,
- * detecta cantidades invalidas, peliculas inexistentes o stock insuficiente, y
- * registra en outbox el resultado aceptado o rechazado para publicarlo luego.
+ * Garantiza idempotencia por eventId, detecta cantidades invalidas, delega en el
+ * motor de descuento configurado la validacion de peliculas inexistentes o stock
+ * insuficiente y el descuento, avisa al catalogo el stock descontado y registra en outbox el resultado aceptado o
+ * rechazado para publicarlo luego.
  */
 @Service
 public class ProcesarCompraConfirmadaService {
@@ -28,19 +30,25 @@ public class ProcesarCompraConfirmadaService {
     static final String MOTIVO_PELICULA_INEXISTENTE = "PELICULA_INEXISTENTE";
     static final String MOTIVO_CANTIDAD_INVALIDA = "CANTIDAD_INVALIDA";
 
-    private final EntityManager entityManager;
+    private final MotorDescuentoStock motorDescuentoStock;
     private final EventoProcesadoRepository eventoProcesadoRepository;
     private final StockValidationResultOutboxService outboxService;
+    private final DetallePeliculaCache detalleCache;
+    private final PeliculaRepository peliculaRepository;
 
     /**
      * Inicializa una instancia de ProcesarCompraConfirmadaService con los datos necesarios.
      */
-    public ProcesarCompraConfirmadaService(EntityManager entityManager,
+    public ProcesarCompraConfirmadaService(MotorDescuentoStock motorDescuentoStock,
             EventoProcesadoRepository eventoProcesadoRepository,
-            StockValidationResultOutboxService outboxService) {
-        this.entityManager = entityManager;
+            StockValidationResultOutboxService outboxService,
+            DetallePeliculaCache detalleCache,
+            PeliculaRepository peliculaRepository) {
+        this.motorDescuentoStock = motorDescuentoStock;
         this.eventoProcesadoRepository = eventoProcesadoRepository;
         this.outboxService = outboxService;
+        this.detalleCache = detalleCache;
+        this.peliculaRepository = peliculaRepository;
     }
 
     /**
@@ -52,7 +60,7 @@ public class ProcesarCompraConfirmadaService {
             return ResultadoProcesamiento.eventoDuplicado();
         }
 
-        List<ValidacionItem> validaciones = validarItems(event.items());
+        List<ValidacionStock> validaciones = validarCantidades(event.items());
 
         if (existeCantidadInvalida(validaciones)) {
             StockRechazadoEvent rechazoEvent = crearRechazo(event, MOTIVO_CANTIDAD_INVALIDA, validaciones);
@@ -61,6 +69,8 @@ public class ProcesarCompraConfirmadaService {
             return ResultadoProcesamiento.conRechazo(rechazoEvent);
         }
 
+        validaciones = motorDescuentoStock.validarYDescontar(sumarPorPelicula(event.items()));
+
         if (existePeliculaInexistente(validaciones)) {
             StockRechazadoEvent rechazoEvent = crearRechazo(event, MOTIVO_PELICULA_INEXISTENTE, validaciones);
             registrarEventoProcesado(event);
@@ -75,9 +85,10 @@ public class ProcesarCompraConfirmadaService {
             return ResultadoProcesamiento.conRechazo(rechazoEvent);
         }
 
-        for (ValidacionItem validacion : validaciones) {
-            validacion.pelicula().descontarStock(validacion.solicitado());
+        for (ValidacionStock validacion : validaciones) {
+            detalleCache.invalidar(validacion.peliculaId());
         }
+        peliculaRepository.registrarCambioDeStock(validaciones.stream().map(ValidacionStock::peliculaId).toList());
 
         registrarEventoProcesado(event);
         StockValidationAcceptedEvent acceptedEvent = new StockValidationAcceptedEvent(
@@ -89,65 +100,60 @@ public class ProcesarCompraConfirmadaService {
     }
 
     /**
-     * Valida cada item de la compra contra existencia, actividad y stock disponible.
+     * Valida que cada item pida una cantidad positiva.
+     *
+     * Devuelve solo los items invalidos; si hay alguno la compra se rechaza antes
+     * de tocar el stock.
      */
-    private List<ValidacionItem> validarItems(List<CompraConfirmadaEvent.ItemCompraConfirmada> items) {
-        List<ValidacionItem> validaciones = new ArrayList<>();
-
+    private List<ValidacionStock> validarCantidades(List<CompraConfirmadaEvent.ItemCompraConfirmada> items) {
+        List<ValidacionStock> invalidas = new ArrayList<>();
         for (CompraConfirmadaEvent.ItemCompraConfirmada item : items) {
             BigDecimal solicitado = BigDecimal.valueOf(item.cantidad());
-
             if (solicitado.compareTo(BigDecimal.ZERO) <= 0) {
-                validaciones.add(ValidacionItem.cantidadInvalida(item.peliculaId(), solicitado));
-                continue;
-            }
-
-            PeliculaEntity pelicula = entityManager.find(PeliculaEntity.class, item.peliculaId(),
-                    LockModeType.PESSIMISTIC_WRITE);
-
-            if (pelicula == null || !pelicula.estaActiva()) {
-                validaciones.add(ValidacionItem.peliculaInexistente(item.peliculaId(), solicitado));
-                continue;
-            }
-
-            if (pelicula.stockDisponible().compareTo(solicitado) < 0) {
-                validaciones.add(ValidacionItem.stockInsuficiente(pelicula, solicitado));
-                continue;
+                invalidas.add(ValidacionStock.cantidadInvalida(item.peliculaId(), solicitado));
             }
-
-            validaciones.add(ValidacionItem.ok(pelicula, solicitado));
         }
+        return invalidas;
+    }
 
-        return validaciones;
+    /**
+     * Suma las cantidades pedidas por pelicula conservando el orden de llegada.
+     */
+    private Map<Long, BigDecimal> sumarPorPelicula(List<CompraConfirmadaEvent.ItemCompraConfirmada> items) {
+        Map<Long, BigDecimal> solicitadoPorPelicula = new LinkedHashMap<>();
+        for (CompraConfirmadaEvent.ItemCompraConfirmada item : items) {
+            solicitadoPorPelicula.merge(item.peliculaId(), BigDecimal.valueOf(item.cantidad()), BigDecimal::add);
+        }
+        return solicitadoPorPelicula;
     }
 
     /**
      * Detecta si algun item solicita una cantidad menor o igual a cero.
      */
-    private boolean existeCantidadInvalida(List<ValidacionItem> validaciones) {
-        return validaciones.stream().anyMatch(ValidacionItem::esCantidadInvalida);
+    private boolean existeCantidadInvalida(List<ValidacionStock> validaciones) {
+        return validaciones.stream().anyMatch(ValidacionStock::esCantidadInvalida);
     }
 
     /**
      * Detecta si algun item apunta a una pelicula inexistente o inactiva.
      */
-    private boolean existePeliculaInexistente(List<ValidacionItem> validaciones) {
-        return validaciones.stream().anyMatch(ValidacionItem::esPeliculaInexistente);
+    private boolean existePeliculaInexistente(List<ValidacionStock> validaciones) {
+        return validaciones.stream().anyMatch(ValidacionStock::esPeliculaInexistente);
     }
 
     /**
      * Detecta si alguna pelicula no tiene stock suficiente para la compra.
      */
-    private boolean existeStockInsuficiente(List<ValidacionItem> validaciones) {
-        return validaciones.stream().anyMatch(ValidacionItem::esStockInsuficiente);
+    private boolean existeStockInsuficiente(List<ValidacionStock> validaciones) {
+        return validaciones.stream().anyMatch(ValidacionStock::esStockInsuficiente);
     }
 
     /**
      * Convierte validaciones con error en detalles para el evento de rechazo.
      */
-    private List<StockRechazadoEvent.DetalleStockRechazado> mapearDetalles(List<ValidacionItem> validaciones) {
+    private List<StockRechazadoEvent.DetalleStockRechazado> mapearDetalles(List<ValidacionStock> validaciones) {
         return validaciones.stream()
-                .filter(ValidacionItem::esError)
+                .filter(ValidacionStock::esError)
                 .map(validacion -> new StockRechazadoEvent.DetalleStockRechazado(
                         validacion.peliculaId(),
                         validacion.solicitado().intValue(),
@@ -171,7 +177,7 @@ public class ProcesarCompraConfirmadaService {
      */
     private StockRechazadoEvent crearRechazo(CompraConfirmadaEvent event,
             String motivo,
-            List<ValidacionItem> validaciones) {
+            List<ValidacionStock> validaciones) {
         return new StockRechazadoEvent(
                 event.eventId(),
                 event.compraId(),
@@ -219,103 +225,4 @@ public class ProcesarCompraConfirmadaService {
             return rechazoEvent != null;
         }
     }
-
-    /**
-     * Resultado de validar un item individual contra el catalogo y su stock.
-     *
-     * Conserva la pelicula bloqueada cuando existe, la cantidad solicitada, el stock
-     * disponible y el tipo de validacion para construir rechazos o descontar stock.
-     */
-    private record ValidacionItem(PeliculaEntity pelicula,
-            Long peliculaId,
-            BigDecimal solicitado,
-            BigDecimal disponible,
-            TipoValidacion tipoValidacion) {
-
-        /**
-         * Crea una validacion fallida cuando el item solicita cantidad cero o negativa.
-         */
-        static ValidacionItem cantidadInvalida(Long peliculaId, BigDecimal solicitado) {
-            return new ValidacionItem(null, peliculaId, solicitado, null, TipoValidacion.CANTIDAD_INVALIDA);
-        }
-
-        /**
-         * Crea una validacion fallida cuando la pelicula no existe o no esta activa.
-         */
-        static ValidacionItem peliculaInexistente(Long peliculaId, BigDecimal solicitado) {
-            return new ValidacionItem(null, peliculaId, solicitado, null, TipoValidacion.PELICULA_INEXISTENTE);
-        }
-
-        /**
-         * Crea una validacion fallida cuando la pelicula existe pero no alcanza el stock disponible.
-         */
-        static ValidacionItem stockInsuficiente(PeliculaEntity pelicula, BigDecimal solicitado) {
-            return new ValidacionItem(
-                    pelicula,
-                    pelicula.id(),
-                    solicitado,
-                    pelicula.stockDisponible(),
-                    TipoValidacion.STOCK_INSUFICIENTE);
-        }
-
-        /**
-         * Crea una validacion exitosa lista para descontar stock sobre la pelicula bloqueada.
-         */
-        static ValidacionItem ok(PeliculaEntity pelicula, BigDecimal solicitado) {
-            return new ValidacionItem(
-                    pelicula,
-                    pelicula.id(),
-                    solicitado,
-                    pelicula.stockDisponible(),
-                    TipoValidacion.OK);
-        }
-
-        /**
-         * Indica si la validacion corresponde a un error.
-         */
-        boolean esError() {
-            return tipoValidacion != TipoValidacion.OK;
-        }
-
-        /**
-         * Indica si la validacion fallo por cantidad no positiva.
-         */
-        boolean esCantidadInvalida() {
-            return tipoValidacion == TipoValidacion.CANTIDAD_INVALIDA;
-        }
-
-        /**
-         * Indica si la validacion fallo por pelicula inexistente o inactiva.
-         */
-        boolean esPeliculaInexistente() {
-            return tipoValidacion == TipoValidacion.PELICULA_INEXISTENTE;
-        }
-
-        /**
-         * Indica si la validacion fallo por stock insuficiente.
-         */
-        boolean esStockInsuficiente() {
-            return tipoValidacion == TipoValidacion.STOCK_INSUFICIENTE;
-        }
-
-        /**
-         * Devuelve el stock disponible como texto para el detalle del rechazo.
-         */
-        String disponibleComoString() {
-            return disponible == null ? null : disponible.stripTrailingZeros().toPlainString();
-        }
-    }
-
-    /**
-     * Clasificacion interna del resultado de validar un item de compra.
-     *
-     * Diferencia items correctos de fallas por cantidad invalida, pelicula no usable
-     * o stock insuficiente, lo que luego define el motivo del rechazo.
-     */
-    private enum TipoValidacion {
-        OK,
-        CANTIDAD_INVALIDA,
-        PELICULA_INEXISTENTE,
-        STOCK_INSUFICIENTE
-    }
 }
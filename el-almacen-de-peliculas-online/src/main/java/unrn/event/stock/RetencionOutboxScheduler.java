@@ -0,0 +1,34 @@
+package unrn.event.stock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tarea programada que depura periodicamente el outbox y la tabla de idempotencia.
+ *
+ * Solo dispara RetencionOutboxService cada catalogo.retencion.delay-ms; se apaga
+ * con catalogo.retencion.enabled=false.
+ */
+@Component
+@ConditionalOnProperty(name = "catalogo.retencion.enabled", havingValue = "true", matchIfMissing = true)
+public class RetencionOutboxScheduler {
+
+    private final RetencionOutboxService retencionOutboxService;
+
+    /**
+     * Inicializa una instancia de RetencionOutboxScheduler con los datos necesarios.
+     */
+    public RetencionOutboxScheduler(RetencionOutboxService retencionOutboxService) {
+        this.retencionOutboxService = retencionOutboxService;
+    }
+
+    /**
+     * Ejecuta una corrida de depuracion.
+     */
+    @Scheduled(initialDelayString = "${catalogo.retencion.delay-ms:3600000}",
+            fixedDelayString = "${catalogo.retencion.delay-ms:3600000}")
+    public void depurar() {
+        retencionOutboxService.depurar();
+    }
+}
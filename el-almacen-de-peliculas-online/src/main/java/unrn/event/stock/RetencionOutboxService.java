@@ -0,0 +1,129 @@
+package unrn.event.stock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import unrn.infra.persistence.CatalogoOutboxEventRepository;
+import unrn.infra.persistence.EventoProcesadoRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+/**
+ * Depura filas viejas del outbox de stock y de la tabla de idempotencia.
+ *
+ * Borra los eventos outbox ya publicados despues de catalogo.retencion.outbox-horas
+ * y las marcas de eventos procesados fuera de la ventana de deduplicacion
+ * (catalogo.retencion.dedup-horas), que debe cubrir el maximo tiempo en que ventas
+ * puede reenviar un mensaje. Borra en lotes chicos, cada uno en su propia
+ * transaccion, para no retener bloqueos largos; los eventos FAILED o pendientes
+ * no se tocan. Guarda cuantas filas borro cada corrida.
+ */
+@Service
+public class RetencionOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetencionOutboxService.class);
+
+    static final long OUTBOX_HORAS_POR_DEFECTO = 168;
+    static final long DEDUP_HORAS_POR_DEFECTO = 720;
+    static final int LOTE_POR_DEFECTO = 500;
+    static final int MAX_LOTES_POR_DEFECTO = 200;
+
+    private final CatalogoOutboxEventRepository outboxEventRepository;
+    private final EventoProcesadoRepository eventoProcesadoRepository;
+    private final Duration retencionOutbox;
+    private final Duration ventanaDedup;
+    private final int lote;
+    private final int maxLotesPorCorrida;
+    private final AtomicLong corridas = new AtomicLong();
+    private final AtomicLong outboxEliminados = new AtomicLong();
+    private final AtomicLong eventosProcesadosEliminados = new AtomicLong();
+    private final AtomicReference<ResultadoRetencion> ultimaCorrida = new AtomicReference<>();
+
+    /**
+     * Inicializa una instancia de RetencionOutboxService con los datos necesarios.
+     */
+    public RetencionOutboxService(CatalogoOutboxEventRepository outboxEventRepository,
+            EventoProcesadoRepository eventoProcesadoRepository,
+            @Value("${catalogo.retencion.outbox-horas:" + OUTBOX_HORAS_POR_DEFECTO + "}") long outboxHoras,
+            @Value("${catalogo.retencion.dedup-horas:" + DEDUP_HORAS_POR_DEFECTO + "}") long dedupHoras,
+            @Value("${catalogo.retencion.lote:" + LOTE_POR_DEFECTO + "}") int lote,
+            @Value("${catalogo.retencion.max-lotes-por-corrida:" + MAX_LOTES_POR_DEFECTO + "}") int maxLotesPorCorrida) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.eventoProcesadoRepository = eventoProcesadoRepository;
+        this.retencionOutbox = Duration.ofHours(outboxHoras);
+        this.ventanaDedup = Duration.ofHours(dedupHoras);
+        this.lote = lote;
+        this.maxLotesPorCorrida = maxLotesPorCorrida;
+    }
+
+    /**
+     * Ejecuta una corrida de depuracion tomando el instante actual como referencia.
+     */
+    public ResultadoRetencion depurar() {
+        return depurar(Instant.now());
+    }
+
+    /**
+     * Ejecuta una corrida de depuracion con ahora como referencia y devuelve cuanto borro.
+     */
+    ResultadoRetencion depurar(Instant ahora) {
+        long inicio = System.nanoTime();
+        Instant limiteOutbox = ahora.minus(retencionOutbox);
+        Instant limiteDedup = ahora.minus(ventanaDedup);
+
+        long outbox = borrarEnLotes(() -> outboxEventRepository.eliminarPublicadosAntesDe(limiteOutbox, lote));
+        long eventos = borrarEnLotes(() -> eventoProcesadoRepository.eliminarAnterioresA(limiteDedup, lote));
+
+        ResultadoRetencion resultado = new ResultadoRetencion(outbox, eventos, ahora,
+                (System.nanoTime() - inicio) / 1_000_000);
+        corridas.incrementAndGet();
+        outboxEliminados.addAndGet(outbox);
+        eventosProcesadosEliminados.addAndGet(eventos);
+        ultimaCorrida.set(resultado);
+        log.info("Retencion outbox: {} eventos publicados y {} marcas de idempotencia borrados en {} ms",
+                outbox, eventos, resultado.duracionMs());
+        return resultado;
+    }
+
+    /**
+     * Devuelve los totales borrados desde el arranque y el resultado de la ultima corrida.
+     */
+    public Estadisticas estadisticas() {
+        return new Estadisticas(corridas.get(), outboxEliminados.get(), eventosProcesadosEliminados.get(),
+                ultimaCorrida.get());
+    }
+
+    /**
+     * Repite un borrado por lote hasta que devuelva menos de un lote o se alcance el maximo de lotes.
+     */
+    private long borrarEnLotes(IntSupplier borrarLote) {
+        long total = 0;
+        for (int corrida = 0; corrida < maxLotesPorCorrida; corrida++) {
+            int borrados = borrarLote.getAsInt();
+            total += borrados;
+            if (borrados < lote) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Filas borradas en una corrida de depuracion.
+     */
+    public record ResultadoRetencion(long outboxEliminados, long eventosProcesadosEliminados, Instant ejecutadaEn,
+            long duracionMs) {
+    }
+
+    /**
+     * Totales acumulados de depuracion desde el arranque.
+     */
+    public record Estadisticas(long corridas, long outboxEliminados, long eventosProcesadosEliminados,
+            ResultadoRetencion ultimaCorrida) {
+    }
+}
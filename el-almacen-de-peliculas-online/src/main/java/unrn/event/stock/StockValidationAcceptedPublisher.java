@@ -2,7 +2,9 @@ package unrn.event.stock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +12,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Publicador RabbitMQ para resultados aceptados de validacion de stock.
  *
@@ -69,4 +73,26 @@ public class StockValidationAcceptedPublisher {
             throw ex;
         }
     }
+
+    /**
+     * Publica un mensaje ya serializado del outbox sin bloquear y devuelve un futuro
+     * que se completa con la confirmacion del broker.
+     *
+     * El cuerpo se envia tal cual, sin pasar por el conversor JSON. Si la conexion
+     * no tiene publisher confirms habilitados, el futuro se completa apenas el
+     * mensaje se entrega al canal.
+     */
+    public CompletableFuture<Void> publicarConConfirmacion(String eventId, Message mensaje) {
+        CorrelationData correlacion = new CorrelationData(eventId);
+        rabbitTemplate.send(catalogoEventsExchange.getName(), routingKey, mensaje, correlacion);
+        if (!rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return correlacion.getFuture().thenAccept(confirmacion -> {
+            if (!confirmacion.isAck()) {
+                throw new RuntimeException(StockValidationResultOutboxService.ERROR_PUBLICACION_NO_CONFIRMADA
+                        + ": " + confirmacion.getReason());
+            }
+        });
+    }
 }
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
+import unrn.config.RabbitMQConfig;
 
 import java.util.List;
 
@@ -12,7 +13,8 @@ import java.util.List;
  *
  * Recibe solicitudes de ventas, las adapta al modelo interno de compra confirmada y
  * delega el procesamiento transaccional. La respuesta se deja en outbox para ser
- * publicada de forma confiable.
+ * publicada de forma confiable. Corre en el container factory de validacion de
+ * stock, con varios consumidores concurrentes.
  */
 @Component
 public class StockValidationRequestListener {
@@ -31,7 +33,8 @@ public class StockValidationRequestListener {
     /**
      * Consume solicitudes de validacion de stock y delega su procesamiento.
      */
-    @RabbitListener(queues = "${rabbitmq.catalogo.stock.validation.requested.queue:catalogo.stock.validation.requests}")
+    @RabbitListener(queues = "${rabbitmq.catalogo.stock.validation.requested.queue:catalogo.stock.validation.requests}",
+            containerFactory = RabbitMQConfig.STOCK_VALIDATION_CONTAINER_FACTORY)
     public void onStockValidationRequested(StockValidationRequestedEvent event) {
         try {
             CompraConfirmadaEvent eventoMapeado = mapearACompraConfirmadaEvent(event);
@@ -0,0 +1,85 @@
+package unrn.event.stock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hilo que publica en el momento los resultados de stock recien confirmados.
+ *
+ * Toma de StockValidationResultDespachoCola los ids que el servicio de outbox
+ * encolo despues del commit y los publica en lotes con el mismo publicador del
+ * barrido, asi que el reclamo por lease evita envios duplicados con el scheduler
+ * o con otras replicas. Un fallo no se reintenta aca: la fila queda pendiente y
+ * la retoma el scheduler.
+ */
+@Component
+@ConditionalOnProperty(name = "catalogo.outbox.despacho.enabled", havingValue = "true", matchIfMissing = true)
+public class StockValidationResultDespachador {
+
+    private static final Logger log = LoggerFactory.getLogger(StockValidationResultDespachador.class);
+
+    private static final long ESPERA_MS = 1_000;
+
+    private final StockValidationResultDespachoCola cola;
+    private final StockValidationResultOutboxPublicador publicador;
+    private final int lote;
+    private Thread hilo;
+    private volatile boolean activo;
+
+    /**
+     * Inicializa una instancia de StockValidationResultDespachador con los datos necesarios.
+     */
+    public StockValidationResultDespachador(StockValidationResultDespachoCola cola,
+            StockValidationResultOutboxPublicador publicador,
+            @Value("${catalogo.outbox.lote:" + StockValidationResultOutboxPublisherScheduler.LOTE_POR_DEFECTO + "}")
+            int lote) {
+        this.cola = cola;
+        this.publicador = publicador;
+        this.lote = lote;
+    }
+
+    /**
+     * Arranca el hilo de despacho.
+     */
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        hilo = Thread.ofPlatform().name("outbox-despacho").daemon().start(this::despachar);
+    }
+
+    /**
+     * Detiene el hilo de despacho; lo que quede en la cola sale con el barrido.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        hilo.interrupt();
+        hilo.join(ESPERA_MS);
+    }
+
+    /**
+     * Publica los lotes encolados mientras el despacho este activo.
+     */
+    private void despachar() {
+        while (activo) {
+            try {
+                List<Long> ids = cola.tomar(lote, ESPERA_MS);
+                if (!ids.isEmpty()) {
+                    publicador.publicarIds(ids);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Fallo el despacho inmediato de outbox, queda para el barrido: {}", ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package unrn.event.stock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cola en memoria de ids de outbox recien confirmados, pendientes de despacho inmediato.
+ *
+ * Es acotada: si se llena, el id se descarta y el evento sale con el proximo
+ * barrido del scheduler, porque la fila ya esta persistida como pendiente. Se
+ * mantiene separada de StockValidationResultDespachador para que el servicio de
+ * outbox pueda encolar sin depender del publicador.
+ */
+@Component
+@ConditionalOnProperty(name = "catalogo.outbox.despacho.enabled", havingValue = "true", matchIfMissing = true)
+public class StockValidationResultDespachoCola {
+
+    private static final Logger log = LoggerFactory.getLogger(StockValidationResultDespachoCola.class);
+
+    static final int CAPACIDAD_POR_DEFECTO = 10_000;
+
+    private final BlockingQueue<Long> ids;
+
+    /**
+     * Inicializa una instancia de StockValidationResultDespachoCola con valores por defecto.
+     */
+    public StockValidationResultDespachoCola() {
+        this(CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * Inicializa una instancia de StockValidationResultDespachoCola con los datos necesarios.
+     */
+    @Autowired
+    public StockValidationResultDespachoCola(
+            @Value("${catalogo.outbox.despacho.capacidad:" + CAPACIDAD_POR_DEFECTO + "}") int capacidad) {
+        this.ids = new ArrayBlockingQueue<>(capacidad);
+    }
+
+    /**
+     * Agrega el id a la cola sin bloquear; si esta llena lo deja para el barrido.
+     */
+    public void encolar(Long outboxId) {
+        if (!ids.offer(outboxId)) {
+            log.debug("Cola de despacho outbox llena, id={} queda para el barrido", outboxId);
+        }
+    }
+
+    /**
+     * Espera hasta esperaMs por un id y devuelve ese y los que ya esten encolados, hasta maximo.
+     */
+    public List<Long> tomar(int maximo, long esperaMs) throws InterruptedException {
+        Long primero = ids.poll(esperaMs, TimeUnit.MILLISECONDS);
+        if (primero == null) {
+            return List.of();
+        }
+        List<Long> lote = new ArrayList<>();
+        lote.add(primero);
+        ids.drainTo(lote, maximo - 1);
+        return lote;
+    }
+}
@@ -0,0 +1,208 @@
+package unrn.event.stock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import unrn.infra.persistence.CatalogoOutboxEventEntity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publica en RabbitMQ lotes reclamados del outbox de stock.
+ *
+ * Reclama las filas con un lease propio de cada lote, envia todos los eventos sin
+ * esperar uno por uno, espera las confirmaciones del broker y marca los
+ * confirmados con un unico UPDATE. Los que fallan o no se confirman a tiempo
+ * registran el error, cuentan un intento y liberan el lease. Lo usan tanto el
+ * despacho inmediato posterior al commit como el scheduler de barrido.
+ */
+@Component
+public class StockValidationResultOutboxPublicador {
+
+    private static final Logger log = LoggerFactory.getLogger(StockValidationResultOutboxPublicador.class);
+
+    static final long CONFIRMACION_TIMEOUT_POR_DEFECTO_MS = 5_000;
+    static final long LEASE_POR_DEFECTO_MS = 30_000;
+    private static final int LARGO_MAXIMO_INSTANCIA = 48;
+
+    private final StockValidationResultOutboxService outboxService;
+    private final StockValidationAcceptedPublisher acceptedPublisher;
+    private final StockRechazadoPublisher rechazadoPublisher;
+    private final int maxAttempts;
+    private final long confirmacionTimeoutMs;
+    private final String instancia;
+    private final long leaseMs;
+    private final AtomicLong reclamos = new AtomicLong();
+
+    /**
+     * Inicializa una instancia de StockValidationResultOutboxPublicador con valores por defecto.
+     */
+    public StockValidationResultOutboxPublicador(StockValidationResultOutboxService outboxService,
+            StockValidationAcceptedPublisher acceptedPublisher,
+            StockRechazadoPublisher rechazadoPublisher,
+            int maxAttempts) {
+        this(outboxService, acceptedPublisher, rechazadoPublisher, maxAttempts,
+                CONFIRMACION_TIMEOUT_POR_DEFECTO_MS, "", LEASE_POR_DEFECTO_MS);
+    }
+
+    /**
+     * Inicializa una instancia de StockValidationResultOutboxPublicador con los datos necesarios.
+     */
+    @Autowired
+    public StockValidationResultOutboxPublicador(StockValidationResultOutboxService outboxService,
+            StockValidationAcceptedPublisher acceptedPublisher,
+            StockRechazadoPublisher rechazadoPublisher,
+            @Value("${catalogo.outbox.max-attempts:10}") int maxAttempts,
+            @Value("${catalogo.outbox.confirmacion-timeout-ms:" + CONFIRMACION_TIMEOUT_POR_DEFECTO_MS + "}")
+            long confirmacionTimeoutMs,
+            @Value("${catalogo.outbox.instancia:}") String instancia,
+            @Value("${catalogo.outbox.lease-ms:" + LEASE_POR_DEFECTO_MS + "}") long leaseMs) {
+        this.outboxService = outboxService;
+        this.acceptedPublisher = acceptedPublisher;
+        this.rechazadoPublisher = rechazadoPublisher;
+        this.maxAttempts = maxAttempts;
+        this.confirmacionTimeoutMs = confirmacionTimeoutMs;
+        this.instancia = recortar(instancia == null || instancia.isBlank() ? instanciaPorDefecto() : instancia);
+        this.leaseMs = leaseMs;
+    }
+
+    /**
+     * Reclama y publica hasta lote eventos pendientes en orden de creacion.
+     */
+    public ResultadoLote publicarPendientes(int lote) {
+        String reclamo = nuevoReclamo();
+        return publicar(reclamo, outboxService.reclamar(reclamo, maxAttempts, lote, leaseMs));
+    }
+
+    /**
+     * Reclama y publica los eventos indicados que sigan pendientes y libres.
+     */
+    public ResultadoLote publicarIds(List<Long> outboxIds) {
+        String reclamo = nuevoReclamo();
+        return publicar(reclamo, outboxService.reclamarIds(reclamo, outboxIds, leaseMs));
+    }
+
+    /**
+     * Publica los eventos reclamados y devuelve cuantos eran y cuantos fallaron.
+     */
+    private ResultadoLote publicar(String reclamo, List<CatalogoOutboxEventEntity> reclamados) {
+        if (reclamados.isEmpty()) {
+            return new ResultadoLote(0, 0);
+        }
+
+        Map<Long, CompletableFuture<Void>> envios = new LinkedHashMap<>();
+        for (CatalogoOutboxEventEntity outboxEvent : reclamados) {
+            envios.put(outboxEvent.id(), enviar(outboxEvent));
+        }
+
+        try {
+            CompletableFuture.allOf(envios.values().toArray(CompletableFuture[]::new))
+                    .get(confirmacionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            // Cada envio se revisa por separado abajo.
+        }
+
+        List<Long> confirmados = new ArrayList<>();
+        Map<Long, String> errores = new LinkedHashMap<>();
+        for (var envio : envios.entrySet()) {
+            String error = error(envio.getValue());
+            if (error == null) {
+                confirmados.add(envio.getKey());
+                continue;
+            }
+            errores.put(envio.getKey(), error);
+            log.warn("No se pudo publicar evento outbox catalogo id={} error={}", envio.getKey(), error);
+        }
+
+        if (!errores.isEmpty()) {
+            outboxService.registrarFallos(reclamo, errores, maxAttempts);
+        }
+        outboxService.marcarPublicados(reclamo, confirmados);
+        return new ResultadoLote(reclamados.size(), errores.size());
+    }
+
+    /**
+     * Publica los bytes guardados del evento outbox y devuelve el futuro de su confirmacion.
+     */
+    private CompletableFuture<Void> enviar(CatalogoOutboxEventEntity outboxEvent) {
+        try {
+            Message mensaje = outboxService.mensaje(outboxEvent);
+            String eventType = outboxEvent.eventType();
+            if (StockValidationResultOutboxService.EVENT_TYPE_STOCK_VALIDATION_ACCEPTED.equals(eventType)) {
+                return acceptedPublisher.publicarConConfirmacion(outboxEvent.eventId(), mensaje);
+            }
+            if (StockValidationResultOutboxService.EVENT_TYPE_STOCK_RECHAZADO.equals(eventType)) {
+                return rechazadoPublisher.publicarConConfirmacion(outboxEvent.eventId(), mensaje);
+            }
+            throw new RuntimeException(StockValidationResultOutboxService.ERROR_EVENT_TYPE_NO_SOPORTADO);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Devuelve el error de un envio, o null si el broker lo confirmo.
+     */
+    private String error(CompletableFuture<Void> envio) {
+        if (!envio.isDone()) {
+            envio.cancel(false);
+            return StockValidationResultOutboxService.ERROR_PUBLICACION_NO_CONFIRMADA + ": timeout";
+        }
+        try {
+            envio.join();
+            return null;
+        } catch (CompletionException | CancellationException ex) {
+            Throwable causa = ex.getCause() != null ? ex.getCause() : ex;
+            return causa.getMessage();
+        }
+    }
+
+    /**
+     * Arma el propietario del lease de un reclamo: la instancia mas un numero de reclamo.
+     *
+     * Distinguir cada reclamo evita que el despacho inmediato y el barrido de la
+     * misma instancia se devuelvan filas el uno al otro.
+     */
+    private String nuevoReclamo() {
+        return instancia + "#" + reclamos.incrementAndGet();
+    }
+
+    /**
+     * Arma un nombre de instancia unico con el host y un sufijo aleatorio.
+     */
+    static String instanciaPorDefecto() {
+        String host = System.getenv().getOrDefault("HOSTNAME", "catalogo");
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Recorta el nombre de instancia para que, con el numero de reclamo, entre en lease_owner.
+     */
+    private static String recortar(String instancia) {
+        return instancia.length() <= LARGO_MAXIMO_INSTANCIA
+                ? instancia
+                : instancia.substring(instancia.length() - LARGO_MAXIMO_INSTANCIA);
+    }
+
+    /**
+     * Cantidad de eventos tomados en un lote y cuantos de ellos no se confirmaron.
+     */
+    public record ResultadoLote(int tomados, int fallidos) {
+    }
+}
@@ -1,72 +1,62 @@
 package unrn.event.stock;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import unrn.infra.persistence.CatalogoOutboxEventEntity;
+import unrn.event.stock.StockValidationResultOutboxPublicador.ResultadoLote;
 
 /**
- * Tarea programada que publica resultados pendientes del outbox de stock.
+ * Tarea programada que barre el outbox de stock y publica lo que quedo pendiente.
  *
- * Busca eventos aceptados o rechazados todavia no publicados, los envia por el
- * publisher correspondiente y actualiza su estado. Si falla, registra el error y
- * deja controlado el numero de reintentos.
+ * Los resultados nuevos salen por el despacho inmediato posterior al commit; este
+ * barrido es la red de seguridad para eventos que no se despacharon (cola llena,
+ * reinicio, broker caido) o que deben reintentarse. Trabaja por lotes de
+ * catalogo.outbox.lote y, mientras el lote sale lleno y sin fallos, sigue con el
+ * siguiente en lugar de esperar al proximo tick. Como cada lote se reclama con un
+ * lease, varias replicas pueden correrlo y cada una publica filas distintas.
  */
 @Component
 @ConditionalOnProperty(name = "catalogo.outbox.scheduler.enabled", havingValue = "true", matchIfMissing = true)
 public class StockValidationResultOutboxPublisherScheduler {
 
-    private static final Logger log = LoggerFactory.getLogger(StockValidationResultOutboxPublisherScheduler.class);
+    static final int LOTE_POR_DEFECTO = 100;
+    static final int MAX_LOTES_POR_DEFECTO = 50;
 
-    private final StockValidationResultOutboxService outboxService;
-    private final StockValidationAcceptedPublisher acceptedPublisher;
-    private final StockRechazadoPublisher rechazadoPublisher;
-    private final int maxAttempts;
+    private final StockValidationResultOutboxPublicador publicador;
+    private final int lote;
+    private final int maxLotesPorCorrida;
 
     /**
-     * Inicializa una instancia de StockValidationResultOutboxPublisherScheduler con los datos necesarios.
+     * Inicializa una instancia de StockValidationResultOutboxPublisherScheduler con valores por defecto de lote.
      */
-    public StockValidationResultOutboxPublisherScheduler(StockValidationResultOutboxService outboxService,
-            StockValidationAcceptedPublisher acceptedPublisher,
-            StockRechazadoPublisher rechazadoPublisher,
-            @Value("${catalogo.outbox.max-attempts:10}") int maxAttempts) {
-        this.outboxService = outboxService;
-        this.acceptedPublisher = acceptedPublisher;
-        this.rechazadoPublisher = rechazadoPublisher;
-        this.maxAttempts = maxAttempts;
+    public StockValidationResultOutboxPublisherScheduler(StockValidationResultOutboxPublicador publicador) {
+        this(publicador, LOTE_POR_DEFECTO, MAX_LOTES_POR_DEFECTO);
     }
 
     /**
-     * Publica todos los eventos outbox pendientes encontrados por el scheduler.
+     * Inicializa una instancia de StockValidationResultOutboxPublisherScheduler con los datos necesarios.
      */
-    @Scheduled(fixedDelayString = "${catalogo.outbox.scheduler.delay-ms:3000}")
-    public void publicarPendientes() {
-        for (CatalogoOutboxEventEntity outboxEvent : outboxService.pendientes(maxAttempts)) {
-            publicar(outboxEvent);
-        }
+    @Autowired
+    public StockValidationResultOutboxPublisherScheduler(StockValidationResultOutboxPublicador publicador,
+            @Value("${catalogo.outbox.lote:" + LOTE_POR_DEFECTO + "}") int lote,
+            @Value("${catalogo.outbox.max-lotes-por-corrida:" + MAX_LOTES_POR_DEFECTO + "}") int maxLotesPorCorrida) {
+        this.publicador = publicador;
+        this.lote = lote;
+        this.maxLotesPorCorrida = maxLotesPorCorrida;
     }
 
     /**
-     * Publica un evento outbox y actualiza su estado segun el resultado.
+     * Drena el outbox por lotes mientras haya atraso y el broker responda.
      */
-    private void publicar(CatalogoOutboxEventEntity outboxEvent) {
-        try {
-            Object event = outboxService.leerEvento(outboxEvent);
-            if (event instanceof StockValidationAcceptedEvent acceptedEvent) {
-                acceptedPublisher.publicarAhora(acceptedEvent);
-            } else if (event instanceof StockRechazadoEvent rechazadoEvent) {
-                rechazadoPublisher.publicarAhora(rechazadoEvent);
-            } else {
-                throw new RuntimeException(StockValidationResultOutboxService.ERROR_EVENT_TYPE_NO_SOPORTADO);
+    @Scheduled(fixedDelayString = "${catalogo.outbox.scheduler.delay-ms:3000}")
+    public void publicarPendientes() {
+        for (int corrida = 0; corrida < maxLotesPorCorrida; corrida++) {
+            ResultadoLote resultado = publicador.publicarPendientes(lote);
+            if (resultado.tomados() < lote || resultado.fallidos() > 0) {
+                return;
             }
-            outboxService.marcarPublicado(outboxEvent.id());
-        } catch (RuntimeException ex) {
-            outboxService.registrarFallo(outboxEvent.id(), ex.getMessage(), maxAttempts);
-            log.warn("No se pudo publicar evento outbox catalogo id={} error={}",
-                    outboxEvent.id(), ex.getMessage());
         }
     }
 }
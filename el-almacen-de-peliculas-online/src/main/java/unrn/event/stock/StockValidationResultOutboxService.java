@@ -1,22 +1,44 @@
 package unrn.event.stock;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import unrn.infra.persistence.CatalogoOutboxEventEntity;
 import unrn.infra.persistence.CatalogoOutboxEventRepository;
 import unrn.infra.persistence.CatalogoOutboxEventStatus;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Servicio de aplicacion para registrar y administrar el outbox de stock.
  *
- * Serializa eventos aceptados o rechazados, los guarda como pendientes, permite
- * leerlos para publicacion y marca exito o fallo. Es la pieza que desacopla la
- * transaccion de stock de la entrega efectiva por RabbitMQ.
+ * Serializa eventos aceptados o rechazados, los guarda como pendientes, arma el
+ * mensaje AMQP para publicarlos y marca exito o fallo. Es la pieza que desacopla
+ * la transaccion de stock de la entrega efectiva por RabbitMQ.
+ *
+ * Los eventos se serializan una sola vez, con el mismo conversor que usa
+ * RabbitTemplate, y se guardan los bytes del cuerpo con su content type; al
+ * publicar se envian esos bytes sin deserializar ni volver a serializar.
+ *
+ * Si el despacho inmediato esta habilitado, cada fila nueva se encola al confirmar
+ * la transaccion para publicarse en el momento; el scheduler queda como barrido.
+ * Cada fallo posterga el siguiente intento con backoff exponencial con jitter,
+ * para no reintentar todo el atraso en cada tick mientras el broker esta caido.
  */
 @Service
 public class StockValidationResultOutboxService {
@@ -26,19 +48,29 @@ public class StockValidationResultOutboxService {
     static final String EVENT_TYPE_STOCK_RECHAZADO = "StockRechazadoEvent";
     static final String ERROR_EVENT_TYPE_NO_SOPORTADO = "Tipo de evento outbox no soportado";
     static final String ERROR_SERIALIZANDO_EVENTO = "No se pudo serializar evento de outbox";
-    static final String ERROR_DESERIALIZANDO_EVENTO = "No se pudo deserializar evento de outbox";
-    static final String ERROR_OUTBOX_NO_ENCONTRADO = "No se encontro evento outbox";
+    static final String ERROR_PUBLICACION_NO_CONFIRMADA = "RabbitMQ no confirmo la publicacion";
+    static final long BACKOFF_BASE_POR_DEFECTO_MS = 1_000;
+    static final long BACKOFF_MAXIMO_POR_DEFECTO_MS = 300_000;
 
     private final CatalogoOutboxEventRepository outboxEventRepository;
-    private final ObjectMapper objectMapper;
+    private final MessageConverter messageConverter;
+    private final Optional<StockValidationResultDespachoCola> despachoCola;
+    private final long backoffBaseMs;
+    private final long backoffMaximoMs;
 
     /**
      * Inicializa una instancia de StockValidationResultOutboxService con los datos necesarios.
      */
     public StockValidationResultOutboxService(CatalogoOutboxEventRepository outboxEventRepository,
-            ObjectMapper objectMapper) {
+            MessageConverter messageConverter,
+            Optional<StockValidationResultDespachoCola> despachoCola,
+            @Value("${catalogo.outbox.backoff.base-ms:" + BACKOFF_BASE_POR_DEFECTO_MS + "}") long backoffBaseMs,
+            @Value("${catalogo.outbox.backoff.max-ms:" + BACKOFF_MAXIMO_POR_DEFECTO_MS + "}") long backoffMaximoMs) {
         this.outboxEventRepository = outboxEventRepository;
-        this.objectMapper = objectMapper;
+        this.messageConverter = messageConverter;
+        this.despachoCola = despachoCola;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaximoMs = backoffMaximoMs;
     }
 
     /**
@@ -58,45 +90,100 @@ public class StockValidationResultOutboxService {
     }
 
     /**
-     * Obtiene los eventos outbox pendientes que aun pueden reintentarse.
+     * Reclama a nombre de propietario un lote de eventos pendientes durante leaseMs milisegundos.
      */
-    public List<CatalogoOutboxEventEntity> pendientes(int maxAttempts) {
-        return outboxEventRepository.findPendientes(maxAttempts);
+    public List<CatalogoOutboxEventEntity> reclamar(String propietario, int maxAttempts, int limite, long leaseMs) {
+        Instant ahora = Instant.now();
+        return outboxEventRepository.reclamar(propietario, maxAttempts, limite, ahora, ahora.plusMillis(leaseMs));
     }
 
     /**
-     * Deserializa el payload outbox segun el tipo de evento registrado.
+     * Reclama a nombre de propietario los eventos indicados que sigan pendientes y libres.
      */
-    public Object leerEvento(CatalogoOutboxEventEntity entity) {
-        try {
-            if (EVENT_TYPE_STOCK_VALIDATION_ACCEPTED.equals(entity.eventType())) {
-                return objectMapper.readValue(entity.payloadJson(), StockValidationAcceptedEvent.class);
-            }
-            if (EVENT_TYPE_STOCK_RECHAZADO.equals(entity.eventType())) {
-                return objectMapper.readValue(entity.payloadJson(), StockRechazadoEvent.class);
-            }
-            throw new RuntimeException(ERROR_EVENT_TYPE_NO_SOPORTADO + ": " + entity.eventType());
-        } catch (JsonProcessingException ex) {
-            throw new RuntimeException(ERROR_DESERIALIZANDO_EVENTO, ex);
-        }
+    public List<CatalogoOutboxEventEntity> reclamarIds(String propietario, List<Long> outboxIds, long leaseMs) {
+        Instant ahora = Instant.now();
+        return outboxEventRepository.reclamarIds(propietario, outboxIds, ahora, ahora.plusMillis(leaseMs));
+    }
+
+    /**
+     * Arma el mensaje AMQP del evento outbox a partir de los bytes guardados.
+     *
+     * Las filas anteriores al cambio solo tienen payload_json; en ese caso se envia
+     * ese texto como cuerpo JSON, que es lo que el conversor hubiera producido.
+     */
+    public Message mensaje(CatalogoOutboxEventEntity entity) {
+        Class<?> tipo = claseDe(entity.eventType());
+        byte[] cuerpo = entity.payload() != null
+                ? entity.payload()
+                : entity.payloadJson().getBytes(StandardCharsets.UTF_8);
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(entity.contentType() != null
+                ? entity.contentType()
+                : MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setContentLength(cuerpo.length);
+        properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, tipo.getName());
+        return new Message(cuerpo, properties);
     }
 
     /**
-     * Marca como publicado el evento outbox indicado.
+     * Marca como publicados los eventos outbox reclamados por propietario en una sola sentencia.
      */
     @Transactional
-    public void marcarPublicado(Long outboxId) {
-        CatalogoOutboxEventEntity entity = buscar(outboxId);
-        entity.marcarPublicado(Instant.now());
+    public void marcarPublicados(String propietario, List<Long> outboxIds) {
+        outboxEventRepository.marcarPublicados(propietario, outboxIds, Instant.now());
     }
 
     /**
-     * Registra el fallo de publicacion de un evento outbox.
+     * Registra los fallos de publicacion de eventos reclamados por propietario y agenda su proximo intento.
+     *
+     * Solo toca los eventos que siguen pendientes a nombre de propietario: si el
+     * lease vencio y otra instancia retomo o publico la fila, el fallo tardio se
+     * descarta. Escribe un UPDATE por cada combinacion de intentos y error, todos
+     * en la misma transaccion.
      */
     @Transactional
-    public void registrarFallo(Long outboxId, String error, int maxAttempts) {
-        CatalogoOutboxEventEntity entity = buscar(outboxId);
-        entity.registrarFallo(error, maxAttempts);
+    public void registrarFallos(String propietario, Map<Long, String> errores, int maxAttempts) {
+        Map<Long, Integer> intentos = outboxEventRepository.intentosReclamados(propietario, errores.keySet());
+        Map<Integer, Map<String, List<Long>>> grupos = new TreeMap<>();
+        intentos.forEach((id, intento) -> grupos
+                .computeIfAbsent(intento, i -> new LinkedHashMap<>())
+                .computeIfAbsent(errores.get(id), e -> new ArrayList<>())
+                .add(id));
+        Instant ahora = Instant.now();
+        grupos.forEach((intento, porError) -> porError.forEach((error, ids) -> {
+            long demoraMs = demoraReintento(intento + 1, backoffBaseMs, backoffMaximoMs,
+                    ThreadLocalRandom.current().nextDouble());
+            outboxEventRepository.registrarFallos(propietario, ids, intento, error, maxAttempts,
+                    ahora.plusMillis(demoraMs));
+        }));
+    }
+
+    /**
+     * Devuelve a PENDING hasta limite eventos en dead-letter para que se vuelvan a publicar.
+     */
+    public int reencolarFallidos(int limite) {
+        return outboxEventRepository.reencolarFallidos(limite, Instant.now());
+    }
+
+    /**
+     * Cuenta cuantos eventos de outbox quedaron en dead-letter.
+     */
+    public long fallidosCount() {
+        return outboxEventRepository.countByStatus(CatalogoOutboxEventStatus.FAILED);
+    }
+
+    /**
+     * Calcula la espera antes del intento indicado: base * 2^(intento-1) hasta el maximo, con jitter.
+     *
+     * El jitter toma un valor entre la mitad y el total de esa espera, asi las
+     * filas que fallaron en reclamos distintos no vuelven a intentarse todas en
+     * el mismo tick.
+     */
+    static long demoraReintento(int intento, long baseMs, long maximoMs, double azar) {
+        int exponente = Math.min(Math.max(intento - 1, 0), 30);
+        long demora = Math.min(maximoMs, baseMs << exponente);
+        return demora / 2 + (long) (azar * (demora - demora / 2));
     }
 
     /**
@@ -107,34 +194,62 @@ public class StockValidationResultOutboxService {
     }
 
     /**
-     * Crea la fila outbox con payload JSON y estado pendiente.
+     * Crea la fila outbox con el cuerpo serializado y estado pendiente y agenda su despacho.
      */
     private void registrar(Long compraId, String eventId, String eventType, Object event) {
-        outboxEventRepository.save(new CatalogoOutboxEventEntity(
+        Message mensaje = serializar(event);
+        CatalogoOutboxEventEntity entity = new CatalogoOutboxEventEntity(
                 AGGREGATE_TYPE_COMPRA,
                 compraId,
                 eventId,
                 eventType,
-                serializar(event),
-                Instant.now()));
+                mensaje.getBody(),
+                mensaje.getMessageProperties().getContentType(),
+                Instant.now());
+        outboxEventRepository.save(entity);
+        despachoCola.ifPresent(cola -> despacharAlConfirmar(cola, entity.id()));
     }
 
     /**
-     * Serializa un evento a JSON para persistirlo en outbox.
+     * Encola el id para publicarlo una vez confirmada la transaccion, o ya si no hay una.
      */
-    private String serializar(Object event) {
+    private void despacharAlConfirmar(StockValidationResultDespachoCola cola, Long outboxId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                /**
+                 * Entrega el evento al despacho solo si la fila quedo confirmada.
+                 */
+                @Override
+                public void afterCommit() {
+                    cola.encolar(outboxId);
+                }
+            });
+            return;
+        }
+        cola.encolar(outboxId);
+    }
+
+    /**
+     * Serializa un evento con el conversor de RabbitMQ para guardar el cuerpo final del mensaje.
+     */
+    private Message serializar(Object event) {
         try {
-            return objectMapper.writeValueAsString(event);
-        } catch (JsonProcessingException ex) {
+            return messageConverter.toMessage(event, new MessageProperties());
+        } catch (MessageConversionException ex) {
             throw new RuntimeException(ERROR_SERIALIZANDO_EVENTO, ex);
         }
     }
 
     /**
-     * Busca el evento outbox requerido o falla si ya no existe.
+     * Devuelve la clase del evento segun el tipo registrado en outbox.
      */
-    private CatalogoOutboxEventEntity buscar(Long outboxId) {
-        return outboxEventRepository.findById(outboxId)
-                .orElseThrow(() -> new RuntimeException(ERROR_OUTBOX_NO_ENCONTRADO));
+    private Class<?> claseDe(String eventType) {
+        if (EVENT_TYPE_STOCK_VALIDATION_ACCEPTED.equals(eventType)) {
+            return StockValidationAcceptedEvent.class;
+        }
+        if (EVENT_TYPE_STOCK_RECHAZADO.equals(eventType)) {
+            return StockRechazadoEvent.class;
+        }
+        throw new RuntimeException(ERROR_EVENT_TYPE_NO_SOPORTADO + ": " + eventType);
     }
 }
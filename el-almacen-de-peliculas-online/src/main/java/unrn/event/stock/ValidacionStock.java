@@ -0,0 +1,89 @@
+package unrn.event.stock;
+
+import java.math.BigDecimal;
+
+/**
+ * Resultado de validar el stock pedido para una pelicula dentro de una compra.
+ *
+ * Conserva la cantidad solicitada, el stock disponible cuando se conoce y el tipo
+ * de validacion para construir rechazos con el mismo detalle sin importar que
+ * motor de descuento se uso.
+ */
+record ValidacionStock(Long peliculaId, BigDecimal solicitado, BigDecimal disponible, Tipo tipo) {
+
+    /**
+     * Clasificacion del resultado de validar un item de compra.
+     *
+     * Diferencia items correctos de fallas por cantidad invalida, pelicula no usable
+     * o stock insuficiente, lo que luego define el motivo del rechazo.
+     */
+    enum Tipo {
+        OK,
+        CANTIDAD_INVALIDA,
+        PELICULA_INEXISTENTE,
+        STOCK_INSUFICIENTE
+    }
+
+    /**
+     * Crea una validacion fallida cuando el item solicita cantidad cero o negativa.
+     */
+    static ValidacionStock cantidadInvalida(Long peliculaId, BigDecimal solicitado) {
+        return new ValidacionStock(peliculaId, solicitado, null, Tipo.CANTIDAD_INVALIDA);
+    }
+
+    /**
+     * Crea una validacion fallida cuando la pelicula no existe o no esta activa.
+     */
+    static ValidacionStock peliculaInexistente(Long peliculaId, BigDecimal solicitado) {
+        return new ValidacionStock(peliculaId, solicitado, null, Tipo.PELICULA_INEXISTENTE);
+    }
+
+    /**
+     * Crea una validacion fallida cuando la pelicula existe pero no alcanza el stock disponible.
+     */
+    static ValidacionStock stockInsuficiente(Long peliculaId, BigDecimal solicitado, BigDecimal disponible) {
+        return new ValidacionStock(peliculaId, solicitado, disponible, Tipo.STOCK_INSUFICIENTE);
+    }
+
+    /**
+     * Crea una validacion exitosa cuyo stock ya fue o sera descontado.
+     */
+    static ValidacionStock ok(Long peliculaId, BigDecimal solicitado, BigDecimal disponible) {
+        return new ValidacionStock(peliculaId, solicitado, disponible, Tipo.OK);
+    }
+
+    /**
+     * Indica si la validacion corresponde a un error.
+     */
+    boolean esError() {
+        return tipo != Tipo.OK;
+    }
+
+    /**
+     * Indica si la validacion fallo por cantidad no positiva.
+     */
+    boolean esCantidadInvalida() {
+        return tipo == Tipo.CANTIDAD_INVALIDA;
+    }
+
+    /**
+     * Indica si la validacion fallo por pelicula inexistente o inactiva.
+     */
+    boolean esPeliculaInexistente() {
+        return tipo == Tipo.PELICULA_INEXISTENTE;
+    }
+
+    /**
+     * Indica si la validacion fallo por stock insuficiente.
+     */
+    boolean esStockInsuficiente() {
+        return tipo == Tipo.STOCK_INSUFICIENTE;
+    }
+
+    /**
+     * Devuelve el stock disponible como texto para el detalle del rechazo.
+     */
+    String disponibleComoString() {
+        return disponible == null ? null : disponible.stripTrailingZeros().toPlainString();
+    }
+}
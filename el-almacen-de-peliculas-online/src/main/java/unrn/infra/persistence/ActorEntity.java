@@ -34,6 +34,14 @@ public class ActorEntity {
         this.nombre = nombre;
     }
 
+    /**
+     * Inicializa una instancia de ActorEntity ya persistida, con su id y nombre conocidos.
+     */
+    ActorEntity(Long id, String nombre) {
+        this.id = id;
+        this.nombre = nombre;
+    }
+
     /**
      * Convierte la entidad de persistencia al modelo de dominio.
      */
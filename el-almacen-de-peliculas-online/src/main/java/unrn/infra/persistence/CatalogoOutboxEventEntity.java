@@ -8,6 +8,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 
 import java.time.Instant;
@@ -15,13 +16,17 @@ import java.time.Instant;
 /**
  * Entidad JPA del outbox de eventos salientes del catalogo.
  *
- * Guarda payload, tipo de evento, aggregate id, estado, intentos y errores para que
- * la publicacion a RabbitMQ pueda hacerse de forma confiable despues de confirmar
- * la transaccion de negocio.
+ * Guarda el cuerpo del mensaje ya serializado con su content type, tipo de evento,
+ * aggregate id, estado, intentos y errores para que la publicacion a RabbitMQ
+ * pueda hacerse de forma confiable despues de confirmar la transaccion de negocio
+ * y sin volver a serializar. payload_json solo queda para filas anteriores. El lease (lease_owner, lease_until) indica que
+ * instancia tiene tomado el evento para publicarlo y hasta cuando, y
+ * next_attempt_at desde cuando puede reintentarse despues de un fallo.
  */
 @Entity
 @Table(name = "catalogo_outbox_event", indexes = {
-        @Index(name = "idx_catalogo_outbox_status_created", columnList = "status, created_at")
+        @Index(name = "idx_catalogo_outbox_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_catalogo_outbox_status_next_attempt", columnList = "status, next_attempt_at")
 })
 public class CatalogoOutboxEventEntity {
 
@@ -41,9 +46,16 @@ public class CatalogoOutboxEventEntity {
     @Column(name = "event_type", nullable = false, length = 128)
     private String eventType;
 
-    @Column(name = "payload_json", nullable = false, length = 8000)
+    @Column(name = "payload_json", length = 8000)
     private String payloadJson;
 
+    @Lob
+    @Column(name = "payload")
+    private byte[] payload;
+
+    @Column(name = "content_type", length = 64)
+    private String contentType;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false, length = 16)
     private CatalogoOutboxEventStatus status;
@@ -60,6 +72,15 @@ public class CatalogoOutboxEventEntity {
     @Column(name = "last_error", length = 1000)
     private String lastError;
 
+    @Column(name = "lease_owner", length = 64)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
     /**
      * Inicializa una instancia de CatalogoOutboxEventEntity con los datos necesarios.
      */
@@ -73,15 +94,18 @@ public class CatalogoOutboxEventEntity {
             Long aggregateId,
             String eventId,
             String eventType,
-            String payloadJson,
+            byte[] payload,
+            String contentType,
             Instant createdAt) {
         this.aggregateType = aggregateType;
         this.aggregateId = aggregateId;
         this.eventId = eventId;
         this.eventType = eventType;
-        this.payloadJson = payloadJson;
+        this.payload = payload;
+        this.contentType = contentType;
         this.status = CatalogoOutboxEventStatus.PENDING;
         this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
         this.attempts = 0;
     }
 
@@ -92,6 +116,13 @@ public class CatalogoOutboxEventEntity {
         return id;
     }
 
+    /**
+     * Devuelve el valor de eventId.
+     */
+    public String eventId() {
+        return eventId;
+    }
+
     /**
      * Devuelve el valor de eventType.
      */
@@ -106,6 +137,20 @@ public class CatalogoOutboxEventEntity {
         return payloadJson;
     }
 
+    /**
+     * Devuelve el valor de payload.
+     */
+    public byte[] payload() {
+        return payload;
+    }
+
+    /**
+     * Devuelve el valor de contentType.
+     */
+    public String contentType() {
+        return contentType;
+    }
+
     /**
      * Devuelve el valor de status.
      */
@@ -113,6 +158,27 @@ public class CatalogoOutboxEventEntity {
         return status;
     }
 
+    /**
+     * Devuelve el valor de attempts.
+     */
+    public int attempts() {
+        return attempts;
+    }
+
+    /**
+     * Devuelve el valor de nextAttemptAt.
+     */
+    public Instant nextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    /**
+     * Devuelve el valor de leaseOwner.
+     */
+    public String leaseOwner() {
+        return leaseOwner;
+    }
+
     /**
      * Marca el evento outbox como publicado y limpia el ultimo error.
      */
@@ -123,11 +189,15 @@ public class CatalogoOutboxEventEntity {
     }
 
     /**
-     * Suma un intento fallido y marca el evento como FAILED si agoto reintentos.
+     * Suma un intento fallido, libera el lease, agenda el proximo intento y marca
+     * el evento como FAILED si agoto reintentos.
      */
-    public void registrarFallo(String error, int maxAttempts) {
+    public void registrarFallo(String error, int maxAttempts, Instant proximoIntento) {
         this.attempts += 1;
         this.lastError = truncar(error);
+        this.leaseOwner = null;
+        this.leaseUntil = null;
+        this.nextAttemptAt = proximoIntento;
         if (this.attempts >= maxAttempts) {
             this.status = CatalogoOutboxEventStatus.FAILED;
         }
@@ -136,7 +206,7 @@ public class CatalogoOutboxEventEntity {
     /**
      * Recorta el mensaje de error para que entre en la columna last_error del outbox.
      */
-    private String truncar(String error) {
+    static String truncar(String error) {
         if (error == null) {
             return null;
         }
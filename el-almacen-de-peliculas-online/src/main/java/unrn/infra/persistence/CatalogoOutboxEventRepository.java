@@ -5,15 +5,24 @@ import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Repositorio del outbox de eventos pendientes de publicacion.
  *
- * Permite registrar eventos nuevos, buscar pendientes con limite de intentos,
+ * Permite registrar eventos nuevos, reclamar pendientes con limite de intentos,
  * contar por estado y actualizar el resultado de la publicacion sin exponer
  * EntityManager al servicio de outbox.
+ *
+ * Varias instancias pueden publicar a la vez: cada lote se reclama poniendo un
+ * propietario y un vencimiento en el lease con un UPDATE condicionado a que el
+ * lease este libre o vencido, de modo que cada fila queda en un solo reclamo.
+ * Si la instancia cae, el lease vence y otra retoma el evento.
  */
 @Repository
 @Transactional(readOnly = true)
@@ -38,21 +47,185 @@ public class CatalogoOutboxEventRepository {
     }
 
     /**
-     * Lista eventos outbox pendientes que aun no agotaron sus intentos.
+     * Reclama hasta limite eventos pendientes libres a nombre de propietario y devuelve los que obtuvo.
+     *
+     * Solo considera eventos cuyo proximo intento ya llego, recorriendo el indice
+     * (status, next_attempt_at); los que estan en espera por backoff no se tocan.
      */
-    public List<CatalogoOutboxEventEntity> findPendientes(int maxAttempts) {
-        return entityManager
+    @Transactional
+    public List<CatalogoOutboxEventEntity> reclamar(String propietario, int maxAttempts, int limite,
+            Instant ahora, Instant leaseHasta) {
+        List<Long> candidatos = entityManager
                 .createQuery("""
-                        SELECT event
+                        SELECT event.id
                         FROM CatalogoOutboxEventEntity event
                         WHERE event.status = :status
                           AND event.attempts < :maxAttempts
-                        ORDER BY event.createdAt ASC
-                        """, CatalogoOutboxEventEntity.class)
+                          AND (event.nextAttemptAt IS NULL OR event.nextAttemptAt <= :ahora)
+                          AND (event.leaseUntil IS NULL OR event.leaseUntil < :ahora)
+                        ORDER BY event.nextAttemptAt ASC, event.id ASC
+                        """, Long.class)
                 .setParameter("status", CatalogoOutboxEventStatus.PENDING)
                 .setParameter("maxAttempts", maxAttempts)
-                .setMaxResults(100)
+                .setParameter("ahora", ahora)
+                .setMaxResults(limite)
+                .getResultList();
+        return tomar(propietario, candidatos, ahora, leaseHasta);
+    }
+
+    /**
+     * Reclama los eventos indicados que sigan pendientes y libres y devuelve los que obtuvo.
+     */
+    @Transactional
+    public List<CatalogoOutboxEventEntity> reclamarIds(String propietario, List<Long> ids,
+            Instant ahora, Instant leaseHasta) {
+        return tomar(propietario, ids, ahora, leaseHasta);
+    }
+
+    /**
+     * Marca como publicados los eventos pendientes indicados que siguen a nombre de propietario.
+     */
+    @Transactional
+    public int marcarPublicados(String propietario, List<Long> ids, Instant publishedAt) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager
+                .createQuery("""
+                        UPDATE CatalogoOutboxEventEntity event
+                        SET event.status = :publicado, event.publishedAt = :publishedAt, event.lastError = null
+                        WHERE event.id IN :ids
+                          AND event.status = :pendiente
+                          AND event.leaseOwner = :propietario
+                        """)
+                .setParameter("publicado", CatalogoOutboxEventStatus.PUBLISHED)
+                .setParameter("publishedAt", publishedAt)
+                .setParameter("ids", ids)
+                .setParameter("propietario", propietario)
+                .setParameter("pendiente", CatalogoOutboxEventStatus.PENDING)
+                .executeUpdate();
+    }
+
+    /**
+     * Devuelve los intentos de los eventos indicados que siguen pendientes a nombre de propietario.
+     */
+    public Map<Long, Integer> intentosReclamados(String propietario, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Integer> intentos = new HashMap<>();
+        entityManager
+                .createQuery("""
+                        SELECT event.id, event.attempts
+                        FROM CatalogoOutboxEventEntity event
+                        WHERE event.id IN :ids
+                          AND event.status = :pendiente
+                          AND event.leaseOwner = :propietario
+                        """, Object[].class)
+                .setParameter("ids", ids)
+                .setParameter("pendiente", CatalogoOutboxEventStatus.PENDING)
+                .setParameter("propietario", propietario)
+                .getResultList()
+                .forEach(fila -> intentos.put((Long) fila[0], (Integer) fila[1]));
+        return intentos;
+    }
+
+    /**
+     * Suma un intento fallido a los eventos indicados que siguen pendientes a nombre de propietario.
+     *
+     * Todos deben llevar intentos intentos: libera el lease, guarda el error y el
+     * proximo intento y los pasa a FAILED si llegan a maxAttempts. Igual que
+     * marcarPublicados, no toca las filas que otro reclamo retomo o publico.
+     */
+    @Transactional
+    public int registrarFallos(String propietario, List<Long> ids, int intentos, String error, int maxAttempts,
+            Instant proximoIntento) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager
+                .createQuery("""
+                        UPDATE CatalogoOutboxEventEntity event
+                        SET event.attempts = event.attempts + 1, event.lastError = :error,
+                            event.leaseOwner = null, event.leaseUntil = null,
+                            event.nextAttemptAt = :proximoIntento, event.status = :estado
+                        WHERE event.id IN :ids
+                          AND event.status = :pendiente
+                          AND event.leaseOwner = :propietario
+                          AND event.attempts = :intentos
+                        """)
+                .setParameter("error", CatalogoOutboxEventEntity.truncar(error))
+                .setParameter("proximoIntento", proximoIntento)
+                .setParameter("estado", intentos + 1 >= maxAttempts
+                        ? CatalogoOutboxEventStatus.FAILED
+                        : CatalogoOutboxEventStatus.PENDING)
+                .setParameter("ids", ids)
+                .setParameter("pendiente", CatalogoOutboxEventStatus.PENDING)
+                .setParameter("propietario", propietario)
+                .setParameter("intentos", intentos)
+                .executeUpdate();
+    }
+
+    /**
+     * Devuelve a PENDING hasta limite eventos FAILED, con intentos en cero y reintento inmediato.
+     */
+    @Transactional
+    public int reencolarFallidos(int limite, Instant ahora) {
+        List<Long> ids = entityManager
+                .createQuery("""
+                        SELECT event.id
+                        FROM CatalogoOutboxEventEntity event
+                        WHERE event.status = :fallido
+                        ORDER BY event.createdAt ASC
+                        """, Long.class)
+                .setParameter("fallido", CatalogoOutboxEventStatus.FAILED)
+                .setMaxResults(limite)
                 .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager
+                .createQuery("""
+                        UPDATE CatalogoOutboxEventEntity event
+                        SET event.status = :pendiente, event.attempts = 0, event.nextAttemptAt = :ahora,
+                            event.leaseOwner = null, event.leaseUntil = null
+                        WHERE event.id IN :ids
+                          AND event.status = :fallido
+                        """)
+                .setParameter("pendiente", CatalogoOutboxEventStatus.PENDING)
+                .setParameter("ahora", ahora)
+                .setParameter("ids", ids)
+                .setParameter("fallido", CatalogoOutboxEventStatus.FAILED)
+                .executeUpdate();
+    }
+
+    /**
+     * Borra hasta lote eventos publicados creados antes de limite y devuelve cuantos borro.
+     *
+     * Primero lee los ids por el indice (status, created_at) y despues borra solo
+     * esos, para que cada transaccion toque un conjunto chico de filas.
+     */
+    @Transactional
+    public int eliminarPublicadosAntesDe(Instant limite, int lote) {
+        List<Long> ids = entityManager
+                .createQuery("""
+                        SELECT event.id
+                        FROM CatalogoOutboxEventEntity event
+                        WHERE event.status = :status
+                          AND event.createdAt < :limite
+                        ORDER BY event.createdAt ASC
+                        """, Long.class)
+                .setParameter("status", CatalogoOutboxEventStatus.PUBLISHED)
+                .setParameter("limite", limite)
+                .setMaxResults(lote)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager
+                .createQuery("DELETE FROM CatalogoOutboxEventEntity event WHERE event.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
     }
 
     /**
@@ -68,4 +241,49 @@ public class CatalogoOutboxEventRepository {
                 .setParameter("status", status)
                 .getSingleResult();
     }
+
+    /**
+     * Pone el lease de propietario sobre los candidatos libres y devuelve los que quedaron a su nombre.
+     *
+     * Los candidatos se leen sin bloquear; el UPDATE vuelve a exigir que el lease
+     * siga libre o vencido, asi que si otro reclamo gano la carrera esas filas no
+     * se actualizan y no aparecen en el resultado. Cada reclamo usa un propietario
+     * propio, por lo que las filas a su nombre son exactamente las que tomo.
+     */
+    private List<CatalogoOutboxEventEntity> tomar(String propietario, List<Long> candidatos,
+            Instant ahora, Instant leaseHasta) {
+        if (candidatos.isEmpty()) {
+            return List.of();
+        }
+
+        int reclamados = entityManager
+                .createQuery("""
+                        UPDATE CatalogoOutboxEventEntity event
+                        SET event.leaseOwner = :propietario, event.leaseUntil = :leaseHasta
+                        WHERE event.id IN :ids
+                          AND event.status = :status
+                          AND (event.leaseUntil IS NULL OR event.leaseUntil < :ahora)
+                        """)
+                .setParameter("propietario", propietario)
+                .setParameter("leaseHasta", leaseHasta)
+                .setParameter("ids", candidatos)
+                .setParameter("status", CatalogoOutboxEventStatus.PENDING)
+                .setParameter("ahora", ahora)
+                .executeUpdate();
+        if (reclamados == 0) {
+            return List.of();
+        }
+
+        return entityManager
+                .createQuery("""
+                        SELECT event
+                        FROM CatalogoOutboxEventEntity event
+                        WHERE event.id IN :ids
+                          AND event.leaseOwner = :propietario
+                        ORDER BY event.createdAt ASC, event.id ASC
+                        """, CatalogoOutboxEventEntity.class)
+                .setParameter("ids", candidatos)
+                .setParameter("propietario", propietario)
+                .getResultList();
+    }
 }
@@ -5,6 +5,8 @@ package unrn.infra.persistence;
  *
  * Permiten distinguir eventos pendientes de publicar, publicados correctamente o
  * fallidos luego de agotar intentos, para que el scheduler tome decisiones claras.
+ * FAILED funciona como estado de dead-letter: el scheduler ya no lo toma y solo
+ * vuelve a PENDING cuando un administrador lo reencola.
  */
 public enum CatalogoOutboxEventStatus {
     PENDING,
@@ -0,0 +1,71 @@
+package unrn.infra.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador de cambios del catalogo usado para los ETag debiles de los listados.
+ *
+ * Avanza despues de cada commit que crea, edita o retira peliculas. La marca
+ * incluye un identificador de arranque, para que otra instancia o un reinicio
+ * nunca respondan 304 con un contador que casualmente coincide, y una ventana de
+ * tiempo que acota cuanto puede durar un ETag cuando el cambio lo hizo otra
+ * instancia.
+ */
+@Component
+public class CatalogoVersion {
+
+    static final long VENTANA_POR_DEFECTO_MS = 60_000;
+
+    private final String arranque = Long.toString(UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE, 36);
+    private final long ventanaMs;
+    private final AtomicLong cambios = new AtomicLong();
+
+    /**
+     * Inicializa una instancia de CatalogoVersion con valores por defecto.
+     */
+    public CatalogoVersion() {
+        this(VENTANA_POR_DEFECTO_MS);
+    }
+
+    /**
+     * Inicializa una instancia de CatalogoVersion con los datos necesarios.
+     */
+    @Autowired
+    public CatalogoVersion(@Value("${catalogo.etag.ventana-ms:" + VENTANA_POR_DEFECTO_MS + "}") long ventanaMs) {
+        this.ventanaMs = ventanaMs;
+    }
+
+    /**
+     * Devuelve la marca actual del catalogo para armar un ETag.
+     */
+    public String marca() {
+        long ventana = ventanaMs > 0 ? System.currentTimeMillis() / ventanaMs : 0;
+        return arranque + "-" + cambios.get() + "-" + ventana;
+    }
+
+    /**
+     * Avanza el contador al confirmar la transaccion en curso, o ya si no hay una.
+     */
+    public void registrarCambio() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                /**
+                 * Publica el cambio solo si la transaccion se confirmo.
+                 */
+                @Override
+                public void afterCommit() {
+                    cambios.incrementAndGet();
+                }
+            });
+            return;
+        }
+        cambios.incrementAndGet();
+    }
+}
@@ -30,4 +30,12 @@ public class CondicionEntity {
     public CondicionEntity(String nombre) {
         this.nombre = nombre;
     }
+
+    /**
+     * Inicializa una instancia de CondicionEntity ya persistida, con su id y nombre conocidos.
+     */
+    CondicionEntity(Byte id, String nombre) {
+        this.id = id;
+        this.nombre = nombre;
+    }
 }
@@ -33,6 +33,14 @@ public class DirectorEntity {
         this.nombre = nombre;
     }
 
+    /**
+     * Inicializa una instancia de DirectorEntity ya persistida, con su id y nombre conocidos.
+     */
+    DirectorEntity(Long id, String nombre) {
+        this.id = id;
+        this.nombre = nombre;
+    }
+
     /**
      * Convierte la entidad de persistencia al modelo de dominio.
      */
@@ -17,7 +17,8 @@ import java.time.Instant;
  */
 @Entity
 @Table(name = "eventos_procesados", indexes = {
-        @Index(name = "idx_eventos_procesados_compra", columnList = "compra_id")
+        @Index(name = "idx_eventos_procesados_compra", columnList = "compra_id"),
+        @Index(name = "idx_eventos_procesados_processed_at", columnList = "processed_at")
 })
 public class EventoProcesadoEntity {
 
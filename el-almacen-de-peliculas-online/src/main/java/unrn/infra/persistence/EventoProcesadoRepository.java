@@ -5,6 +5,9 @@ import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
+
 /**
  * Repositorio para consultar y persistir marcas de eventos procesados.
  *
@@ -33,6 +36,30 @@ public class EventoProcesadoRepository {
         entityManager.persist(eventoProcesado);
     }
 
+    /**
+     * Borra hasta lote marcas procesadas antes de limite y devuelve cuantas borro.
+     */
+    @Transactional
+    public int eliminarAnterioresA(Instant limite, int lote) {
+        List<String> ids = entityManager
+                .createQuery("""
+                        SELECT e.eventId
+                        FROM EventoProcesadoEntity e
+                        WHERE e.processedAt < :limite
+                        ORDER BY e.processedAt ASC
+                        """, String.class)
+                .setParameter("limite", limite)
+                .setMaxResults(lote)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager
+                .createQuery("DELETE FROM EventoProcesadoEntity e WHERE e.eventId IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
     /**
      * Cuenta eventos procesados registrados en la tabla de idempotencia.
      */
@@ -30,4 +30,12 @@ public class FormatoEntity {
     public FormatoEntity(String nombre) {
         this.nombre = nombre;
     }
+
+    /**
+     * Inicializa una instancia de FormatoEntity ya persistida, con su id y nombre conocidos.
+     */
+    FormatoEntity(Short id, String nombre) {
+        this.id = id;
+        this.nombre = nombre;
+    }
 }
@@ -30,4 +30,12 @@ public class GeneroEntity {
     public GeneroEntity(String nombre) {
         this.nombre = nombre;
     }
+
+    /**
+     * Inicializa una instancia de GeneroEntity ya persistida, con su id y nombre conocidos.
+     */
+    GeneroEntity(Short id, String nombre) {
+        this.id = id;
+        this.nombre = nombre;
+    }
 }
@@ -1,28 +1,50 @@
 package unrn.infra.persistence;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Resultado paginado interno devuelto por repositorios de infraestructura.
  *
- * Transporta items, total, pagina y tamanio sin depender de Page de Spring Data,
+ * Transporta items, total opcional, hasNext, pagina y tamanio sin depender de Page de Spring Data,
  * permitiendo que la capa de servicio decida como exponer esa informacion hacia la
  * API.
  */
 public class PageResult<T> {
     private final List<T> items;
-    private final long total;
+    private final Long total;
+    private final boolean hasNext;
     private final int page;
     private final int size;
+    private final String nextCursor;
 
     /**
      * Inicializa una instancia de PageResult con los datos necesarios.
      */
     public PageResult(List<T> items, long total, int page, int size) {
+        this(items, total, (long) (page + 1) * size < total, page, size, null);
+    }
+
+    /**
+     * Inicializa una instancia de PageResult con el cursor de la pagina siguiente.
+     *
+     * total puede ser null cuando la consulta se hizo sin conteo.
+     */
+    public PageResult(List<T> items, Long total, boolean hasNext, int page, int size, String nextCursor) {
         this.items = items;
         this.total = total;
+        this.hasNext = hasNext;
         this.page = page;
         this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Transforma los items conservando totales, pagina y cursor.
+     */
+    public <R> PageResult<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = items.stream().<R>map(mapper).toList();
+        return new PageResult<>(mapped, total, hasNext, page, size, nextCursor);
     }
 
     /**
@@ -33,12 +55,19 @@ public class PageResult<T> {
     }
 
     /**
-     * Devuelve la cantidad total de elementos que cumplen la consulta.
+     * Devuelve la cantidad total de elementos que cumplen la consulta o null si no se conto.
      */
-    public long getTotal() {
+    public Long getTotal() {
         return total;
     }
 
+    /**
+     * Indica si existen resultados despues de la pagina actual.
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
     /**
      * Devuelve el numero de pagina devuelto por la consulta.
      */
@@ -52,4 +81,11 @@ public class PageResult<T> {
     public int getSize() {
         return size;
     }
+
+    /**
+     * Devuelve el cursor opaco de la pagina siguiente o null si no hay mas resultados.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
@@ -0,0 +1,117 @@
+package unrn.infra.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de vida corta para los totales de busquedas del catalogo.
+ *
+ * Evita repetir el countDistinct de buscarPaginado mientras el catalogo no cambia.
+ * Las entradas vencen por tiempo y se descartan todas cuando se crea, edita o
+ * retira una pelicula; la generacion impide guardar un total calculado antes de
+ * ese cambio.
+ */
+@Component
+public class PeliculaConteoCache {
+
+    static final long TTL_POR_DEFECTO_MS = 30_000;
+    static final int MAX_ENTRADAS_POR_DEFECTO = 1_000;
+
+    private final long ttlMs;
+    private final int maxEntradas;
+    private final Map<PeliculaFiltro, Entrada> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Inicializa una instancia de PeliculaConteoCache con valores por defecto.
+     */
+    public PeliculaConteoCache() {
+        this(TTL_POR_DEFECTO_MS, MAX_ENTRADAS_POR_DEFECTO);
+    }
+
+    /**
+     * Inicializa una instancia de PeliculaConteoCache con los datos necesarios.
+     */
+    @Autowired
+    public PeliculaConteoCache(
+            @Value("${catalogo.busqueda.conteo-cache.ttl-ms:" + TTL_POR_DEFECTO_MS + "}") long ttlMs,
+            @Value("${catalogo.busqueda.conteo-cache.max-entradas:" + MAX_ENTRADAS_POR_DEFECTO + "}") int maxEntradas) {
+        this.ttlMs = ttlMs;
+        this.maxEntradas = maxEntradas;
+    }
+
+    /**
+     * Devuelve la generacion actual para asociarla a un conteo que se va a calcular.
+     */
+    public long generacion() {
+        return generacion.get();
+    }
+
+    /**
+     * Devuelve el total vigente para el filtro o null si no esta cacheado.
+     */
+    public Long obtener(PeliculaFiltro filtro) {
+        Entrada entrada = entradas.get(filtro);
+        if (entrada == null) {
+            return null;
+        }
+        if (entrada.venceEn() <= System.currentTimeMillis()) {
+            entradas.remove(filtro, entrada);
+            return null;
+        }
+        return entrada.total();
+    }
+
+    /**
+     * Guarda el total si el catalogo no cambio desde la generacion indicada.
+     */
+    public void guardar(PeliculaFiltro filtro, long total, long generacionLeida) {
+        if (ttlMs <= 0 || generacionLeida != generacion.get()) {
+            return;
+        }
+        if (entradas.size() >= maxEntradas) {
+            // Con pocas combinaciones de filtros repetidas, vaciar es mas barato que llevar orden de uso.
+            entradas.clear();
+        }
+        entradas.put(filtro, new Entrada(total, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * Descarta los totales cacheados ahora y nuevamente al confirmar la transaccion.
+     */
+    public void invalidar() {
+        limpiar();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                /**
+                 * Descarta los conteos leidos mientras la transaccion seguia abierta.
+                 */
+                @Override
+                public void afterCommit() {
+                    limpiar();
+                }
+            });
+        }
+    }
+
+    /**
+     * Avanza la generacion y vacia las entradas.
+     */
+    private void limpiar() {
+        generacion.incrementAndGet();
+        entradas.clear();
+    }
+
+    /**
+     * Total cacheado junto con su instante de vencimiento.
+     */
+    private record Entrada(long total, long venceEn) {
+    }
+}
@@ -0,0 +1,119 @@
+package unrn.infra.persistence;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Posicion opaca para paginar el catalogo por clave (keyset) en lugar de offset.
+ *
+ * Guarda el campo y sentido de orden, el valor de orden de la ultima fila entregada
+ * y su id como desempate. Se codifica en Base64 URL-safe para que el cliente lo
+ * devuelva tal cual en el parametro cursor sin interpretar su contenido.
+ */
+public record PeliculaCursor(String sort, boolean asc, String ultimoValor, Long ultimoId) {
+
+    static final String ERROR_CURSOR_INVALIDO = "El cursor de paginacion no es valido";
+    private static final String VERSION = "v1";
+    private static final String SEPARADOR = "|";
+
+    /**
+     * Inicializa una instancia de PeliculaCursor validando sus datos.
+     */
+    public PeliculaCursor {
+        assertSort(sort);
+        assertUltimaFila(ultimoValor, ultimoId);
+        assertValorDeOrden(sort, ultimoValor);
+    }
+
+    /**
+     * Reconstruye un cursor a partir del texto opaco recibido por la API.
+     */
+    public static PeliculaCursor decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            throw new RuntimeException(ERROR_CURSOR_INVALIDO);
+        }
+        String texto;
+        try {
+            texto = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException(ERROR_CURSOR_INVALIDO, ex);
+        }
+
+        // El valor va al final porque puede contener el separador (por ejemplo, un titulo).
+        String[] partes = texto.split("\\" + SEPARADOR, 5);
+        if (partes.length != 5 || !VERSION.equals(partes[0])) {
+            throw new RuntimeException(ERROR_CURSOR_INVALIDO);
+        }
+        try {
+            return new PeliculaCursor(partes[1], Boolean.parseBoolean(partes[2]), partes[4],
+                    Long.valueOf(partes[3]));
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException(ERROR_CURSOR_INVALIDO, ex);
+        }
+    }
+
+    /**
+     * Codifica el cursor como texto opaco apto para query strings.
+     */
+    public String codificar() {
+        String texto = String.join(SEPARADOR, VERSION, sort, String.valueOf(asc), String.valueOf(ultimoId),
+                ultimoValor);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Indica si el cursor fue emitido para el mismo orden que se esta consultando.
+     */
+    public boolean correspondeA(String sort, boolean asc) {
+        return this.sort.equals(sort) && this.asc == asc;
+    }
+
+    /**
+     * Devuelve el valor de orden de la ultima fila con el tipo de su columna.
+     */
+    public Comparable<?> valorDeOrden() {
+        return valorTipado(sort, ultimoValor);
+    }
+
+    /**
+     * Convierte el valor textual del cursor al tipo de la columna de orden.
+     */
+    private static Comparable<?> valorTipado(String sort, String valor) {
+        return switch (sort) {
+            case "precio" -> new BigDecimal(valor);
+            case "fechaSalida" -> LocalDate.parse(valor);
+            default -> valor;
+        };
+    }
+
+    /**
+     * Exige que el cursor indique el campo de orden con el que fue emitido.
+     */
+    private static void assertSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            throw new RuntimeException(ERROR_CURSOR_INVALIDO);
+        }
+    }
+
+    /**
+     * Exige que el cursor identifique la ultima fila entregada.
+     */
+    private static void assertUltimaFila(String ultimoValor, Long ultimoId) {
+        if (ultimoValor == null || ultimoId == null) {
+            throw new RuntimeException(ERROR_CURSOR_INVALIDO);
+        }
+    }
+
+    /**
+     * Exige que el valor de orden pueda interpretarse segun el campo del cursor.
+     */
+    private static void assertValorDeOrden(String sort, String ultimoValor) {
+        try {
+            valorTipado(sort, ultimoValor);
+        } catch (RuntimeException ex) {
+            throw new RuntimeException(ERROR_CURSOR_INVALIDO, ex);
+        }
+    }
+}
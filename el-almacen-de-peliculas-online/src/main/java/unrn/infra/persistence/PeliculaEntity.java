@@ -15,7 +15,12 @@ import java.util.List;
  * versionado, retiro logico y descuento seguro de stock.
  */
 @Entity
-@Table(name = "pelicula")
+@Table(name = "pelicula", indexes = {
+        // Sostienen el orden (valor, id) que usa la paginacion por cursor sobre peliculas activas.
+        @Index(name = "idx_pelicula_activa_titulo_id", columnList = "activa, titulo, id"),
+        @Index(name = "idx_pelicula_activa_precio_id", columnList = "activa, precio, id"),
+        @Index(name = "idx_pelicula_activa_fecha_id", columnList = "activa, fecha_salida, id")
+})
 @NamedQueries({
         @NamedQuery(name = "PeliculaEntity.buscarPorTitulo", query = "SELECT p FROM PeliculaEntity p WHERE LOWER(p.titulo) LIKE LOWER(CONCAT('%', :q, '%'))"),
         @NamedQuery(name = "PeliculaEntity.buscarPorGenero", query = "SELECT p FROM PeliculaEntity p WHERE LOWER(p.genero) = LOWER(:genero)"),
@@ -60,11 +65,11 @@ public class PeliculaEntity {
     @Column(name = "fecha_salida", nullable = false)
     LocalDate fechaSalida;
 
-    @ManyToMany(cascade = { CascadeType.PERSIST, CascadeType.MERGE })
+    @ManyToMany
     @JoinTable(name = "pelicula_director", joinColumns = @JoinColumn(name = "pelicula_id"), inverseJoinColumns = @JoinColumn(name = "director_id"))
     List<DirectorEntity> directores = new ArrayList<>();
 
-    @ManyToMany(cascade = { CascadeType.PERSIST, CascadeType.MERGE })
+    @ManyToMany
     @JoinTable(name = "pelicula_actor", joinColumns = @JoinColumn(name = "pelicula_id"), inverseJoinColumns = @JoinColumn(name = "actor_id"))
     List<ActorEntity> actores = new ArrayList<>();
 
@@ -0,0 +1,36 @@
+package unrn.infra.persistence;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Columnas escalares de una pelicula leidas con una proyeccion JPQL.
+ *
+ * Es el paso intermedio para armar PeliculaVista: directores y actores se leen
+ * aparte y se combinan por id.
+ */
+record PeliculaFila(
+        Long id,
+        String titulo,
+        String condicion,
+        BigDecimal precio,
+        String formato,
+        String genero,
+        String sinopsis,
+        String imagenUrl,
+        LocalDate fechaSalida,
+        int rating,
+        Double ratingPromedio,
+        Integer totalRatings,
+        BigDecimal stockDisponible,
+        long version) {
+
+    /**
+     * Combina la fila con los nombres de sus directores y actores.
+     */
+    PeliculaVista conNombres(List<String> directores, List<String> actores) {
+        return new PeliculaVista(id, titulo, condicion.toLowerCase(), directores, precio, formato, genero, sinopsis,
+                actores, imagenUrl, fechaSalida, rating, ratingPromedio, totalRatings, stockDisponible, version);
+    }
+}
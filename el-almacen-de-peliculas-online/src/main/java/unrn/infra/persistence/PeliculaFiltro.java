@@ -0,0 +1,66 @@
+package unrn.infra.persistence;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Conjunto normalizado de filtros de busqueda del catalogo.
+ *
+ * Los textos se guardan en minusculas y los vacios como null, de modo que dos
+ * busquedas equivalentes producen el mismo filtro. Se usa para armar los
+ * predicados y como clave del cache de conteos.
+ */
+public record PeliculaFiltro(
+        String q,
+        String genero,
+        String formato,
+        String condicion,
+        String actor,
+        String director,
+        LocalDate desde,
+        LocalDate hasta,
+        BigDecimal minPrecio,
+        BigDecimal maxPrecio) {
+
+    /**
+     * Construye un filtro normalizado a partir de los parametros recibidos.
+     */
+    public static PeliculaFiltro normalizado(
+            String q,
+            String genero,
+            String formato,
+            String condicion,
+            String actor,
+            String director,
+            LocalDate desde,
+            LocalDate hasta,
+            BigDecimal minPrecio,
+            BigDecimal maxPrecio) {
+        return new PeliculaFiltro(
+                texto(q),
+                texto(genero),
+                texto(formato),
+                texto(condicion),
+                texto(actor),
+                texto(director),
+                desde,
+                hasta,
+                importe(minPrecio),
+                importe(maxPrecio));
+    }
+
+    /**
+     * Pasa a minusculas un texto de filtro y descarta los vacios.
+     */
+    private static String texto(String valor) {
+        return (valor == null || valor.isBlank()) ? null : valor.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Quita ceros no significativos para que 10 y 10.00 sean el mismo filtro.
+     */
+    private static BigDecimal importe(BigDecimal valor) {
+        return valor == null ? null : valor.stripTrailingZeros();
+    }
+}
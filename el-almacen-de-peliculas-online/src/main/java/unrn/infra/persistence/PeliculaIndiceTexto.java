@@ -0,0 +1,420 @@
+package unrn.infra.persistence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import unrn.model.Actor;
+import unrn.model.Director;
+import unrn.model.Pelicula;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Indice invertido en memoria sobre titulo, sinopsis, actores y directores.
+ *
+ * Reemplaza los LIKE '%q%' de la busqueda: cada palabra se normaliza sin acentos ni
+ * mayusculas y se busca por prefijo en un diccionario ordenado, asi que el costo
+ * depende de la cantidad de terminos coincidentes y no del tamanio del catalogo.
+ * Solo indexa peliculas activas; se reconstruye al iniciar y cada
+ * catalogo.busqueda.texto.refresco-ms, para absorber los cambios hechos por otras
+ * instancias, y se mantiene al dia despues de cada commit local de alta, edicion
+ * o retiro.
+ */
+@Component
+public class PeliculaIndiceTexto {
+
+    static final int MAX_COINCIDENCIAS_POR_DEFECTO = 1_000;
+    static final long REFRESCO_MS_POR_DEFECTO = 300_000;
+    private static final double FACTOR_PREFIJO = 0.7;
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Campos indexados con su peso en la relevancia.
+     */
+    public enum Campo {
+        TITULO(4), SINOPSIS(1), ACTOR(2), DIRECTOR(2);
+
+        private final int peso;
+
+        /**
+         * Inicializa una instancia de Campo con los datos necesarios.
+         */
+        Campo(int peso) {
+            this.peso = peso;
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final int maxCoincidencias;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Terminos terminos = new Terminos();
+    private Map<Long, Pelicula> cambiosDuranteReconstruccion;
+    private volatile boolean listo;
+
+    /**
+     * Inicializa una instancia de PeliculaIndiceTexto con valores por defecto.
+     */
+    public PeliculaIndiceTexto() {
+        this(MAX_COINCIDENCIAS_POR_DEFECTO);
+    }
+
+    /**
+     * Inicializa una instancia de PeliculaIndiceTexto con los datos necesarios.
+     */
+    @Autowired
+    public PeliculaIndiceTexto(
+            @Value("${catalogo.busqueda.texto.max-coincidencias:" + MAX_COINCIDENCIAS_POR_DEFECTO + "}")
+            int maxCoincidencias) {
+        this.maxCoincidencias = maxCoincidencias;
+    }
+
+    /**
+     * Indica si el indice ya fue construido y puede reemplazar a los LIKE.
+     */
+    public boolean listo() {
+        return listo;
+    }
+
+    /**
+     * Reconstruye el indice con las peliculas activas persistidas.
+     *
+     * El indice nuevo se arma fuera del lock, asi las busquedas siguen atendiendose
+     * con el anterior. Los cambios confirmados mientras se leia la base se guardan
+     * y se vuelven a aplicar sobre el indice nuevo antes de reemplazarlo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${catalogo.busqueda.texto.refresco-ms:" + REFRESCO_MS_POR_DEFECTO + "}",
+            fixedDelayString = "${catalogo.busqueda.texto.refresco-ms:" + REFRESCO_MS_POR_DEFECTO + "}")
+    @Transactional(readOnly = true)
+    public synchronized void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            cambiosDuranteReconstruccion = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Terminos nuevos = null;
+        try {
+            nuevos = leerActivas();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (nuevos != null) {
+                    for (Pelicula cambiada : cambiosDuranteReconstruccion.values()) {
+                        nuevos.aplicar(cambiada);
+                    }
+                    terminos = nuevos;
+                    listo = true;
+                }
+                cambiosDuranteReconstruccion = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Refleja en el indice el estado de la pelicula una vez confirmada la transaccion.
+     */
+    public void sincronizarAlConfirmar(Pelicula pelicula) {
+        Runnable sincronizar = () -> sincronizar(pelicula);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                /**
+                 * Aplica el cambio solo si la transaccion se confirmo.
+                 */
+                @Override
+                public void afterCommit() {
+                    sincronizar.run();
+                }
+            });
+            return;
+        }
+        sincronizar.run();
+    }
+
+    /**
+     * Indexa la pelicula si esta activa o la quita si fue retirada.
+     */
+    public void sincronizar(Pelicula pelicula) {
+        lock.writeLock().lock();
+        try {
+            terminos.aplicar(pelicula);
+            if (cambiosDuranteReconstruccion != null) {
+                cambiosDuranteReconstruccion.put(pelicula.id(), pelicula);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca el texto en todos los campos y devuelve los ids ordenados por relevancia.
+     *
+     * Cada palabra de la consulta debe aparecer, completa o como prefijo, en algun
+     * campo. Se devuelven como maximo las coincidencias configuradas, las mas
+     * relevantes primero.
+     */
+    public LinkedHashMap<Long, Double> buscar(String texto) {
+        return mejores(puntajes(texto), id -> true);
+    }
+
+    /**
+     * Devuelve el puntaje de todas las peliculas que coinciden con el texto, sin recortar.
+     *
+     * Es el conjunto que corresponde usar como filtro; el recorte a las mas
+     * relevantes solo tiene sentido para ordenar por relevancia.
+     */
+    public Map<Long, Double> puntajes(String texto) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> puntajes = null;
+            for (String token : tokens(texto)) {
+                Map<Long, Double> delToken = new HashMap<>();
+                for (Campo campo : Campo.values()) {
+                    terminos.puntuar(campo, token, delToken);
+                }
+                puntajes = combinar(puntajes, delToken);
+                if (puntajes.isEmpty()) {
+                    break;
+                }
+            }
+            return puntajes == null ? Map.of() : puntajes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordena por relevancia descendente, con id como desempate, las peliculas
+     * admitidas y corta al maximo configurado.
+     */
+    public LinkedHashMap<Long, Double> mejores(Map<Long, Double> puntajes, Predicate<Long> admitida) {
+        var ordenados = new LinkedHashMap<Long, Double>();
+        puntajes.entrySet().stream()
+                .filter(e -> admitida.test(e.getKey()))
+                .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxCoincidencias)
+                .forEach(e -> ordenados.put(e.getKey(), e.getValue()));
+        return ordenados;
+    }
+
+    /**
+     * Devuelve los ids cuyo campo contiene todas las palabras del texto.
+     */
+    public Set<Long> buscarEnCampo(Campo campo, String texto) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> puntajes = null;
+            for (String token : tokens(texto)) {
+                Map<Long, Double> delToken = new HashMap<>();
+                terminos.puntuar(campo, token, delToken);
+                puntajes = combinar(puntajes, delToken);
+                if (puntajes.isEmpty()) {
+                    break;
+                }
+            }
+            return puntajes == null ? Set.of() : new HashSet<>(puntajes.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indica si el texto filtra la busqueda.
+     *
+     * Un texto no vacio sin palabras indexables (por ejemplo "!!!") tambien filtra:
+     * no tiene terminos que coincidan, asi que no trae ninguna pelicula.
+     */
+    public static boolean filtra(String texto) {
+        return texto != null && !texto.isBlank();
+    }
+
+    /**
+     * Separa un texto en palabras normalizadas sin acentos ni mayusculas.
+     */
+    static List<String> tokens(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String sinAcentos = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        var tokens = new ArrayList<String>();
+        for (String token : SEPARADORES.split(sinAcentos.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Conserva solo las peliculas presentes en ambos mapas sumando sus puntajes.
+     */
+    private Map<Long, Double> combinar(Map<Long, Double> acumulado, Map<Long, Double> delToken) {
+        if (acumulado == null) {
+            return delToken;
+        }
+        Map<Long, Double> combinado = new HashMap<>();
+        for (var entrada : acumulado.entrySet()) {
+            Double otro = delToken.get(entrada.getKey());
+            if (otro != null) {
+                combinado.put(entrada.getKey(), entrada.getValue() + otro);
+            }
+        }
+        return combinado;
+    }
+
+    /**
+     * Lee las peliculas activas y arma con ellas un indice nuevo.
+     */
+    private Terminos leerActivas() {
+        var filas = em.createQuery(
+                "SELECT p.id, p.titulo, p.sinopsis FROM PeliculaEntity p WHERE p.activa = true", Object[].class)
+                .getResultList();
+        var actores = nombresActivos(
+                "SELECT p.id, a.nombre FROM PeliculaEntity p JOIN p.actores a WHERE p.activa = true");
+        var directores = nombresActivos(
+                "SELECT p.id, d.nombre FROM PeliculaEntity p JOIN p.directores d WHERE p.activa = true");
+
+        var nuevos = new Terminos();
+        for (Object[] fila : filas) {
+            Long id = (Long) fila[0];
+            nuevos.agregar(id, (String) fila[1], (String) fila[2],
+                    actores.getOrDefault(id, List.of()), directores.getOrDefault(id, List.of()));
+        }
+        return nuevos;
+    }
+
+    /**
+     * Agrupa por id de pelicula activa los nombres devueltos por una consulta (id, nombre).
+     */
+    private Map<Long, List<String>> nombresActivos(String jpql) {
+        Map<Long, List<String>> nombres = new HashMap<>();
+        for (Object[] fila : em.createQuery(jpql, Object[].class).getResultList()) {
+            nombres.computeIfAbsent((Long) fila[0], id -> new ArrayList<>()).add((String) fila[1]);
+        }
+        return nombres;
+    }
+
+    /**
+     * Listas de terminos por campo y terminos indexados de cada pelicula.
+     *
+     * No es segura para hilos: la instancia vigente se usa bajo el lock del indice y
+     * una nueva se arma sin compartir hasta reemplazar a la anterior.
+     */
+    private static final class Terminos {
+
+        private final Map<Campo, NavigableMap<String, Map<Long, Integer>>> postings = new EnumMap<>(Campo.class);
+        private final Map<Long, Map<Campo, Set<String>>> terminosPorPelicula = new HashMap<>();
+
+        /**
+         * Inicializa una instancia de Terminos sin peliculas.
+         */
+        Terminos() {
+            for (Campo campo : Campo.values()) {
+                postings.put(campo, new TreeMap<>());
+            }
+        }
+
+        /**
+         * Indexa la pelicula si esta activa o la quita si fue retirada.
+         */
+        void aplicar(Pelicula pelicula) {
+            quitar(pelicula.id());
+            if (pelicula.activa()) {
+                agregar(pelicula.id(), pelicula.titulo(), pelicula.sinopsis(),
+                        pelicula.actores().stream().map(Actor::nombre).toList(),
+                        pelicula.directores().stream().map(Director::nombre).toList());
+            }
+        }
+
+        /**
+         * Suma al mapa el puntaje de cada pelicula que tiene terminos con ese prefijo en el campo.
+         */
+        void puntuar(Campo campo, String token, Map<Long, Double> puntajes) {
+            double total = Math.max(1, terminosPorPelicula.size());
+            var coincidentes = postings.get(campo).subMap(token, true, token + Character.MAX_VALUE, false);
+            for (var termino : coincidentes.entrySet()) {
+                double idf = Math.log(1 + total / termino.getValue().size());
+                double factor = termino.getKey().equals(token) ? 1.0 : FACTOR_PREFIJO;
+                for (var posting : termino.getValue().entrySet()) {
+                    double puntaje = campo.peso * factor * idf * (1 + Math.log(posting.getValue()));
+                    puntajes.merge(posting.getKey(), puntaje, Math::max);
+                }
+            }
+        }
+
+        /**
+         * Agrega los terminos de cada campo de la pelicula al indice.
+         */
+        void agregar(Long id, String titulo, String sinopsis, List<String> actores, List<String> directores) {
+            Map<Campo, Set<String>> terminos = new EnumMap<>(Campo.class);
+            agregarCampo(id, Campo.TITULO, tokens(titulo), terminos);
+            agregarCampo(id, Campo.SINOPSIS, tokens(sinopsis), terminos);
+            agregarCampo(id, Campo.ACTOR, tokens(String.join(" ", actores)), terminos);
+            agregarCampo(id, Campo.DIRECTOR, tokens(String.join(" ", directores)), terminos);
+            terminosPorPelicula.put(id, terminos);
+        }
+
+        /**
+         * Registra la frecuencia de cada termino del campo para la pelicula.
+         */
+        private void agregarCampo(Long id, Campo campo, List<String> tokens, Map<Campo, Set<String>> terminos) {
+            var diccionario = postings.get(campo);
+            for (String token : tokens) {
+                diccionario.computeIfAbsent(token, t -> new HashMap<>()).merge(id, 1, Integer::sum);
+            }
+            terminos.put(campo, new HashSet<>(tokens));
+        }
+
+        /**
+         * Elimina la pelicula de todas las listas de terminos en las que aparece.
+         */
+        private void quitar(Long id) {
+            var terminos = terminosPorPelicula.remove(id);
+            if (terminos == null) {
+                return;
+            }
+            for (var campo : terminos.entrySet()) {
+                var diccionario = postings.get(campo.getKey());
+                for (String termino : campo.getValue()) {
+                    var peliculas = diccionario.get(termino);
+                    if (peliculas != null) {
+                        peliculas.remove(id);
+                        if (peliculas.isEmpty()) {
+                            diccionario.remove(termino);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
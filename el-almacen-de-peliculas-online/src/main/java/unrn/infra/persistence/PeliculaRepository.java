@@ -2,17 +2,47 @@ package unrn.infra.persistence;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import unrn.infra.persistence.ReferenciasCatalogoCache.Dimension;
+import unrn.infra.persistence.ReferenciasCatalogoCache.Referencia;
 import unrn.model.Actor;
+import unrn.model.Condicion;
 import unrn.model.Director;
+import unrn.model.Formato;
+import unrn.model.Genero;
 import unrn.model.Pelicula;
 import unrn.service.PeliculaStockVersionConflictException;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
@@ -35,43 +65,54 @@ public class PeliculaRepository {
     @PersistenceContext
     private EntityManager em;
 
+    static final String SORT_RELEVANCIA = "relevancia";
+    static final String ERROR_CLAVES_GENERADAS = "ERROR_CLAVES_GENERADAS";
+    private static final String SELECT_FILAS = "SELECT new unrn.infra.persistence.PeliculaFila(p.id, p.titulo,"
+            + " c.nombre, p.precio, f.nombre, g.nombre, p.sinopsis, p.imagenUrl, p.fechaSalida, p.rating,"
+            + " p.ratingPromedio, p.totalRatings, p.stockDisponible, p.version)"
+            + " FROM PeliculaEntity p JOIN p.condicion c JOIN p.formato f JOIN p.genero g";
+    private static final String ACTUALIZAR_RATING = "UPDATE PeliculaEntity p"
+            + " SET p.ratingPromedio = :promedio, p.totalRatings = :total WHERE p.id = :id";
+    private static final String ACTUALIZAR_RATING_LOCAL = "UPDATE PeliculaEntity p"
+            + " SET p.rating = :rating WHERE p.id = :id";
+    private static final int LOTE_IDS = 500;
+    private static final String INSERTAR_PELICULA = "INSERT INTO pelicula (titulo, condicion_id, precio,"
+            + " formato_id, genero_id, sinopsis, imagen_url, fecha_salida, rating, activa, stock_disponible, version)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE, ?, 0)";
+    private static final BigDecimal STOCK_INICIAL_IMPORTACION = new BigDecimal("100.00");
+
+    private final PeliculaConteoCache conteoCache;
+    private final PeliculaIndiceTexto indiceTexto;
+    private final CatalogoVersion catalogoVersion;
+    private final ReferenciasCatalogoCache referencias;
+    private final ApplicationEventPublisher eventos;
+
+    /**
+     * Inicializa una instancia de PeliculaRepository con los datos necesarios.
+     */
+    public PeliculaRepository(PeliculaConteoCache conteoCache, PeliculaIndiceTexto indiceTexto,
+            CatalogoVersion catalogoVersion, ReferenciasCatalogoCache referencias,
+            ApplicationEventPublisher eventos) {
+        this.conteoCache = conteoCache;
+        this.indiceTexto = indiceTexto;
+        this.catalogoVersion = catalogoVersion;
+        this.referencias = referencias;
+        this.eventos = eventos;
+    }
+
     /**
      * Persiste una pelicula nueva reutilizando o creando sus datos catalogo.
+     *
+     * Los datos de referencia se resuelven con ReferenciasCatalogoCache: a lo sumo
+     * un SELECT por dimension para los nombres que no estan cacheados.
      */
     @Transactional
     public Pelicula guardar(Pelicula p) {
-        var directores = new ArrayList<DirectorEntity>();
-        for (Director d : p.directores()) {
-            DirectorEntity de = findDirectorPorNombre(d.nombre());
-            if (de == null)
-                de = new DirectorEntity(d.nombre());
-            directores.add(de);
-        }
-
-        var actores = new ArrayList<ActorEntity>();
-        for (Actor a : p.actores()) {
-            ActorEntity ae = findActorPorNombre(a.nombre());
-            if (ae == null)
-                ae = new ActorEntity(a.nombre());
-            actores.add(ae);
-        }
-
-        // Busca o crea las entidades de catalogo normalizadas.
-        CondicionEntity ce = findCondicionPorNombre(p.condicion().toString());
-        if (ce == null) {
-            ce = new CondicionEntity(p.condicion().toString());
-            em.persist(ce);
-        }
-        FormatoEntity fe = findFormatoPorNombre(p.formato().tipo());
-        if (fe == null) {
-            fe = new FormatoEntity(p.formato().tipo());
-            em.persist(fe);
-        }
-        GeneroEntity ge = findGeneroPorNombre(p.genero().nombre());
-        if (ge == null) {
-            ge = new GeneroEntity(p.genero().nombre());
-            em.persist(ge);
-        }
+        var directores = directores(p.directores());
+        var actores = actores(p.actores());
+        CondicionEntity ce = condicion(p.condicion().toString());
+        FormatoEntity fe = formato(p.formato().tipo());
+        GeneroEntity ge = genero(p.genero().nombre());
 
         PeliculaEntity pe = new PeliculaEntity(
                 p.titulo(),
@@ -87,7 +128,59 @@ public class PeliculaRepository {
                 p.rating());
 
         em.persist(pe);
-        return pe.asDomain();
+        return registrarCambio(pe.asDomain());
+    }
+
+    /**
+     * Inserta un lote de peliculas nuevas con sentencias JDBC por lotes, en una sola transaccion.
+     *
+     * Los datos de referencia del lote se resuelven por conjunto: un IN por
+     * dimension para los nombres que no estan en ReferenciasCatalogoCache y un
+     * INSERT por lotes para los que no existen. Las peliculas, sus directores y sus
+     * actores se insertan con executeBatch. Devuelve las peliculas con su id, en
+     * el mismo orden recibido.
+     */
+    @Transactional
+    public List<Pelicula> importarLote(List<Pelicula> peliculas) {
+        if (peliculas.isEmpty()) {
+            return List.of();
+        }
+        var condiciones = idsPorNombre(Dimension.CONDICION, "condicion",
+                peliculas.stream().map(p -> p.condicion().toString()).toList());
+        var formatos = idsPorNombre(Dimension.FORMATO, "formato",
+                peliculas.stream().map(p -> p.formato().tipo()).toList());
+        var generos = idsPorNombre(Dimension.GENERO, "genero",
+                peliculas.stream().map(p -> p.genero().nombre()).toList());
+        var directores = idsPorNombre(Dimension.DIRECTOR, "director",
+                peliculas.stream().flatMap(p -> p.directores().stream()).map(Director::nombre).toList());
+        var actores = idsPorNombre(Dimension.ACTOR, "actor",
+                peliculas.stream().flatMap(p -> p.actores().stream()).map(Actor::nombre).toList());
+
+        List<Long> ids = em.unwrap(Session.class).doReturningWork(conexion -> {
+            List<Long> generados = insertarPeliculas(conexion, peliculas, condiciones, formatos, generos);
+            insertarRelaciones(conexion, "INSERT INTO pelicula_director (pelicula_id, director_id) VALUES (?, ?)",
+                    generados, peliculas.stream()
+                            .map(p -> p.directores().stream().map(d -> directores.get(d.nombre())).toList())
+                            .toList());
+            insertarRelaciones(conexion, "INSERT INTO pelicula_actor (pelicula_id, actor_id) VALUES (?, ?)",
+                    generados, peliculas.stream()
+                            .map(p -> p.actores().stream().map(a -> actores.get(a.nombre())).toList())
+                            .toList());
+            return generados;
+        });
+
+        var importadas = new ArrayList<Pelicula>(peliculas.size());
+        for (int i = 0; i < peliculas.size(); i++) {
+            Pelicula p = peliculas.get(i);
+            Pelicula importada = new Pelicula(ids.get(i), p.titulo(), p.condicion(), p.directores(), p.precio(),
+                    p.formato(), p.genero(), p.sinopsis(), p.actores(), p.imagenUrl(), p.fechaSalida(), p.rating(),
+                    true, 0L, STOCK_INICIAL_IMPORTACION);
+            indiceTexto.sincronizarAlConfirmar(importada);
+            importadas.add(importada);
+        }
+        conteoCache.invalidar();
+        catalogoVersion.registrarCambio();
+        return importadas;
     }
 
     /**
@@ -98,6 +191,31 @@ public class PeliculaRepository {
         return (pe == null) ? null : pe.asDomain();
     }
 
+    /**
+     * Devuelve la version de una pelicula sin cargar el agregado, o null si no existe.
+     */
+    public Long versionDe(Long id) {
+        return em.createQuery("SELECT p.version FROM PeliculaEntity p WHERE p.id = :id", Long.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Devuelve la version y los ratings de una pelicula sin cargar el agregado, o null si no existe.
+     */
+    public VersionDeDetalle versionDeDetalle(Long id) {
+        return em.createQuery("SELECT p.version, p.rating, p.ratingPromedio, p.totalRatings"
+                + " FROM PeliculaEntity p WHERE p.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultStream()
+                .findFirst()
+                .map(fila -> new VersionDeDetalle((Long) fila[0], (Integer) fila[1], (Double) fila[2],
+                        (Integer) fila[3]))
+                .orElse(null);
+    }
+
     /**
      * Actualiza el stock disponible validando la version esperada.
      */
@@ -113,9 +231,100 @@ public class PeliculaRepository {
 
         pe.actualizarStockDisponible(stockDisponible);
         em.flush();
+        registrarActualizadas(List.of(id));
         return pe.asDomain();
     }
 
+    /**
+     * Guarda rating promedio y total de una pelicula sin pasar por el agregado.
+     *
+     * Solo toca las dos columnas de rating: no carga la pelicula, no resuelve sus
+     * relaciones ni aumenta la version, asi que no compite con ediciones de stock
+     * o de backoffice. Gana el ultimo rating aplicado: el evento no trae un orden
+     * propio y el total de ratings baja cuando se borra uno. Devuelve false si la
+     * pelicula no existe.
+     */
+    @Transactional
+    public boolean actualizarRating(Long id, double promedio, int total) {
+        if (ejecutarActualizarRating(id, promedio, total) == 0) {
+            return false;
+        }
+        registrarActualizadas(List.of(id));
+        return true;
+    }
+
+    /**
+     * Guarda rating promedio y total de varias peliculas con un UPDATE angosto por pelicula.
+     *
+     * Usa el mismo UPDATE que actualizarRating en una sola transaccion y devuelve
+     * los ids que no existen.
+     */
+    @Transactional
+    public List<Long> actualizarRatings(List<RatingPelicula> ratings) {
+        List<Long> inexistentes = new ArrayList<>();
+        List<Long> actualizadas = new ArrayList<>();
+        for (RatingPelicula rating : ratings) {
+            if (ejecutarActualizarRating(rating.peliculaId(), rating.promedio(), rating.totalRatings()) == 0) {
+                inexistentes.add(rating.peliculaId());
+            } else {
+                actualizadas.add(rating.peliculaId());
+            }
+        }
+        if (!actualizadas.isEmpty()) {
+            registrarActualizadas(actualizadas);
+        }
+        return inexistentes;
+    }
+
+    /**
+     * Guarda el rating local de una pelicula tocando solo esa columna.
+     *
+     * Como actualizarRating, no aumenta la version. Devuelve false si la pelicula no existe.
+     */
+    @Transactional
+    public boolean actualizarRatingLocal(Long id, int rating) {
+        int filas = em.createQuery(ACTUALIZAR_RATING_LOCAL)
+                .setParameter("rating", rating)
+                .setParameter("id", id)
+                .executeUpdate();
+        if (filas == 0) {
+            return false;
+        }
+        registrarActualizadas(List.of(id));
+        return true;
+    }
+
+    /**
+     * Registra que cambio el stock de las peliculas indicadas por un UPDATE fuera del repositorio.
+     *
+     * Lo usan los motores de descuento de stock para avisar lo mismo que
+     * actualizarStock: avanza la version del catalogo y publica PeliculasActualizadas.
+     */
+    public void registrarCambioDeStock(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            registrarActualizadas(ids);
+        }
+    }
+
+    /**
+     * Avanza la version del catalogo y publica el cambio de rating o stock de las peliculas.
+     */
+    private void registrarActualizadas(List<Long> ids) {
+        catalogoVersion.registrarCambio();
+        eventos.publishEvent(new PeliculasActualizadas(List.copyOf(ids)));
+    }
+
+    /**
+     * Ejecuta el UPDATE de las columnas de rating y devuelve las filas afectadas.
+     */
+    private int ejecutarActualizarRating(Long id, double promedio, int total) {
+        return em.createQuery(ACTUALIZAR_RATING)
+                .setParameter("promedio", promedio)
+                .setParameter("total", total)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
     /**
      * Busca peliculas por coincidencia parcial de titulo.
      */
@@ -187,128 +396,604 @@ public class PeliculaRepository {
             int size,
             String sortField,
             boolean asc) {
-        int offset = page * size;
+        return buscarPaginado(q, genero, formato, condicion, actor, director, desde, hasta, minPrecio, maxPrecio,
+                page, size, sortField, asc, null);
+    }
+
+    /**
+     * Busca peliculas con filtros y orden, paginando por offset o por cursor.
+     *
+     * Con cursor la consulta arranca despues de la ultima fila entregada usando el
+     * valor de orden y el id como desempate, por lo que no descarta filas previas.
+     */
+    public PageResult<Pelicula> buscarPaginado(
+            String q,
+            String genero,
+            String formato,
+            String condicion,
+            String actor,
+            String director,
+            LocalDate desde,
+            LocalDate hasta,
+            BigDecimal minPrecio,
+            BigDecimal maxPrecio,
+            int page,
+            int size,
+            String sortField,
+            boolean asc,
+            PeliculaCursor cursor) {
+        return buscarPaginado(q, genero, formato, condicion, actor, director, desde, hasta, minPrecio, maxPrecio,
+                page, size, sortField, asc, cursor, true);
+    }
+
+    /**
+     * Busca peliculas con filtros y orden, calculando el total solo si se pide.
+     *
+     * Sin total no se ejecuta el countDistinct y la respuesta informa solo si hay
+     * una pagina siguiente, detectada al traer una fila de mas. Con total se usa el
+     * cache de conteos por filtro normalizado.
+     */
+    public PageResult<Pelicula> buscarPaginado(
+            String q,
+            String genero,
+            String formato,
+            String condicion,
+            String actor,
+            String director,
+            LocalDate desde,
+            LocalDate hasta,
+            BigDecimal minPrecio,
+            BigDecimal maxPrecio,
+            int page,
+            int size,
+            String sortField,
+            boolean asc,
+            PeliculaCursor cursor,
+            boolean conTotal) {
+        var filtro = PeliculaFiltro.normalizado(q, genero, formato, condicion, actor, director, desde, hasta,
+                minPrecio, maxPrecio);
+        var pagina = paginaDeIds(filtro, page, size, sortField, asc, cursor, conTotal);
+
+        // FASE 2: entidades de la pagina con sus asociaciones en un numero fijo de consultas
+        var items = cargarConAsociaciones(pagina.ids()).stream().map(PeliculaEntity::asDomain).toList();
+        return new PageResult<>(items, pagina.total(), pagina.hasNext(), page, size, pagina.nextCursor());
+    }
+
+    /**
+     * Busca peliculas con la misma semantica que buscarPaginado pero devolviendo
+     * vistas de lectura armadas por proyeccion, sin entidades ni dominio.
+     */
+    public PageResult<PeliculaVista> buscarVistas(
+            PeliculaFiltro filtro,
+            int page,
+            int size,
+            String sortField,
+            boolean asc,
+            PeliculaCursor cursor,
+            boolean conTotal) {
+        var pagina = paginaDeIds(filtro, page, size, sortField, asc, cursor, conTotal);
+        var items = cargarVistas(pagina.ids());
+        return new PageResult<>(items, pagina.total(), pagina.hasNext(), page, size, pagina.nextCursor());
+    }
+
+    /**
+     * Resuelve los ids de la pagina pedida, si hay pagina siguiente, su cursor y
+     * opcionalmente el total.
+     */
+    private PaginaDeIds paginaDeIds(
+            PeliculaFiltro filtro,
+            int page,
+            int size,
+            String sortField,
+            boolean asc,
+            PeliculaCursor cursor,
+            boolean conTotal) {
+        String sortNormalizado = normalizarSort(sortField);
         var cb = em.getCriteriaBuilder();
+        var coincidencias = coincidenciasDeTexto(filtro);
+        if (SORT_RELEVANCIA.equals(sortNormalizado) && coincidencias.puntajes() != null) {
+            return paginaPorRelevancia(cb, filtro, coincidencias, page, size, conTotal);
+        }
 
-        // DATA QUERY
-        CriteriaQuery<PeliculaEntity> dataQuery = cb.createQuery(PeliculaEntity.class);
+        // FASE 1: ids de la pagina
+        List<Tuple> filas;
+        if (coincidencias.enMemoria()) {
+            filas = filasCoincidentes(cb, filtro, coincidencias, sortNormalizado, asc, cursor,
+                    cursor == null ? page * size : 0, size + 1);
+        } else {
+            var query = consultaDeIds(cb, filtro, coincidencias, sortNormalizado, asc, cursor);
+            if (cursor == null) {
+                query.setFirstResult(page * size);
+            }
+            filas = query
+                    .setMaxResults(size + 1)
+                    .getResultList();
+        }
+
+        boolean hasNext = filas.size() > size;
+        if (hasNext) {
+            filas = filas.subList(0, size);
+        }
+        var ids = filas.stream().map(t -> t.get(0, Long.class)).toList();
+
+        Long total = conTotal ? contar(cb, filtro, coincidencias) : null;
+
+        // Relevancia sin texto ordena por titulo, pero solo se navega por offset.
+        String nextCursor = null;
+        if (hasNext && !SORT_RELEVANCIA.equals(sortNormalizado)) {
+            Tuple ultima = filas.get(filas.size() - 1);
+            nextCursor = new PeliculaCursor(sortNormalizado, asc, claveDeOrden(ultima.get(1)),
+                    ultima.get(0, Long.class)).codificar();
+        }
+        return new PaginaDeIds(ids, total, hasNext, nextCursor);
+    }
+
+    /**
+     * Arma la consulta ordenada de id y valor de orden de las peliculas que cumplen el filtro.
+     *
+     * El valor de orden va en el select para que DISTINCT admita el ORDER BY, y el
+     * id desempata filas con el mismo valor para que el cursor sea estable.
+     */
+    private TypedQuery<Tuple> consultaDeIds(CriteriaBuilder cb, PeliculaFiltro filtro,
+            CoincidenciasTexto coincidencias, String sortNormalizado, boolean asc, PeliculaCursor cursor) {
+        CriteriaQuery<Tuple> dataQuery = cb.createTupleQuery();
         Root<PeliculaEntity> dataRoot = dataQuery.from(PeliculaEntity.class);
-        var dataPredicates = buildPredicates(
-                cb,
-                dataRoot,
-                q,
-                genero,
-                formato,
-                condicion,
-                actor,
-                director,
-                desde,
-                hasta,
-                minPrecio,
-                maxPrecio);
-
-        dataQuery.select(dataRoot).distinct(true);
+        var dataPredicates = buildPredicates(cb, dataRoot, filtro, coincidencias);
+
+        Path<?> orderPath = resolveSortPath(dataRoot, sortNormalizado);
+        if (cursor != null) {
+            dataPredicates.add(seekPredicate(cb, dataRoot, orderPath, asc, cursor));
+        }
+
+        Path<Long> idPath = dataRoot.get("id");
+        dataQuery.select(cb.tuple(idPath, orderPath)).distinct(true);
         if (!dataPredicates.isEmpty()) {
             dataQuery.where(dataPredicates.toArray(new Predicate[0]));
         }
+        dataQuery.orderBy(asc
+                ? List.of(cb.asc(orderPath), cb.asc(idPath))
+                : List.of(cb.desc(orderPath), cb.desc(idPath)));
+        return em.createQuery(dataQuery);
+    }
+
+    /**
+     * Resuelve la pagina cuando el indice de texto trae mas ids de los que entran en un IN.
+     *
+     * Los ids se consultan de a LOTE_IDS, cada lote con su IN y el orden pedido, y
+     * de cada lote quedan solo las primeras saltear + cantidad filas: la pagina esta
+     * entre ellas. Se repite con los que quedaron hasta que entran en un IN y la
+     * ultima consulta arma la pagina. Asi el costo depende de la cantidad de
+     * coincidencias y no del tamanio del catalogo. Si saltear + cantidad no achica
+     * los candidatos (paginas muy profundas por offset; el cursor no tiene ese
+     * problema) se recorren en orden todas las filas del filtro descartando las
+     * que no estan entre los candidatos.
+     */
+    private List<Tuple> filasCoincidentes(CriteriaBuilder cb, PeliculaFiltro filtro,
+            CoincidenciasTexto coincidencias, String sortNormalizado, boolean asc, PeliculaCursor cursor,
+            int saltear, int cantidad) {
+        List<Long> candidatos = new ArrayList<>(coincidencias.ids());
+        while (candidatos.size() > LOTE_IDS) {
+            var mejores = new ArrayList<Long>();
+            for (int inicio = 0; inicio < candidatos.size(); inicio += LOTE_IDS) {
+                var lote = candidatos.subList(inicio, Math.min(inicio + LOTE_IDS, candidatos.size()));
+                consultaDeIds(cb, filtro, coincidencias.restringidas(lote), sortNormalizado, asc, cursor)
+                        .setMaxResults(saltear + cantidad)
+                        .getResultList()
+                        .forEach(fila -> mejores.add(fila.get(0, Long.class)));
+            }
+            if (mejores.size() >= candidatos.size()) {
+                break;
+            }
+            candidatos = mejores;
+        }
+        if (candidatos.size() <= LOTE_IDS) {
+            return consultaDeIds(cb, filtro, coincidencias.restringidas(candidatos), sortNormalizado, asc, cursor)
+                    .setFirstResult(saltear)
+                    .setMaxResults(cantidad)
+                    .getResultList();
+        }
+
+        Set<Long> ids = new HashSet<>(candidatos);
+        try (Stream<Tuple> filas = consultaDeIds(cb, filtro, coincidencias, sortNormalizado, asc, cursor)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, LOTE_IDS)
+                .getResultStream()) {
+            return filas.filter(fila -> ids.contains(fila.get(0, Long.class)))
+                    .skip(saltear)
+                    .limit(cantidad)
+                    .toList();
+        }
+    }
 
-        Path<?> orderPath = resolveSortPath(dataRoot, sortField);
-        dataQuery.orderBy(asc ? cb.asc(orderPath) : cb.desc(orderPath));
+    /**
+     * Pagina por relevancia: recorre las peliculas mas relevantes del indice de texto
+     * en orden de puntaje y les aplica los demas filtros.
+     *
+     * Los filtros se resuelven de a LOTE_IDS ids con un IN cada vez, y sin total la
+     * lectura termina al completar la pagina. Solo se ordenan las
+     * catalogo.busqueda.texto.max-coincidencias mas relevantes.
+     */
+    private PaginaDeIds paginaPorRelevancia(CriteriaBuilder cb, PeliculaFiltro filtro,
+            CoincidenciasTexto coincidencias, int page, int size, boolean conTotal) {
+        var ranking = List.copyOf(indiceTexto.mejores(coincidencias.puntajes(), coincidencias.ids()::contains)
+                .keySet());
+        long buscadas = (long) (page + 1) * size + 1;
+        var filtrados = new ArrayList<Long>();
+        for (int inicio = 0; inicio < ranking.size() && (conTotal || filtrados.size() < buscadas);
+                inicio += LOTE_IDS) {
+            var lote = ranking.subList(inicio, Math.min(inicio + LOTE_IDS, ranking.size()));
+            CriteriaQuery<Long> idsQuery = cb.createQuery(Long.class);
+            Root<PeliculaEntity> root = idsQuery.from(PeliculaEntity.class);
+            var predicates = buildPredicates(cb, root, filtro, coincidencias.restringidas(lote));
+            idsQuery.select(root.get("id")).distinct(true).where(predicates.toArray(new Predicate[0]));
+            var delLote = new HashSet<>(em.createQuery(idsQuery).getResultList());
+            lote.stream().filter(delLote::contains).forEach(filtrados::add);
+        }
 
-        var paged = em.createQuery(dataQuery)
-                .setFirstResult(offset)
-                .setMaxResults(size)
+        int desde = (int) Math.min((long) page * size, filtrados.size());
+        int hasta = Math.min(desde + size, filtrados.size());
+        Long total = conTotal ? (long) filtrados.size() : null;
+        return new PaginaDeIds(filtrados.subList(desde, hasta), total, hasta < filtrados.size(), null);
+    }
+
+    /**
+     * Resuelve con el indice de texto los filtros q, actor y director.
+     *
+     * Los ids resultantes son la interseccion completa de los tres filtros, sin
+     * recortar, y quedan en null cuando no hay filtros de texto. Un filtro sin
+     * palabras indexables no coincide con ninguna pelicula. Si el indice
+     * todavia no termino de construirse se usa LIKE.
+     */
+    private CoincidenciasTexto coincidenciasDeTexto(PeliculaFiltro filtro) {
+        if (!indiceTexto.listo()) {
+            return CoincidenciasTexto.SIN_INDICE;
+        }
+        Map<Long, Double> puntajes = PeliculaIndiceTexto.filtra(filtro.q())
+                ? indiceTexto.puntajes(filtro.q())
+                : null;
+        Set<Long> ids = puntajes == null ? null : new HashSet<>(puntajes.keySet());
+        if (PeliculaIndiceTexto.filtra(filtro.actor())) {
+            ids = intersectar(ids, indiceTexto.buscarEnCampo(PeliculaIndiceTexto.Campo.ACTOR, filtro.actor()));
+        }
+        if (PeliculaIndiceTexto.filtra(filtro.director())) {
+            ids = intersectar(ids,
+                    indiceTexto.buscarEnCampo(PeliculaIndiceTexto.Campo.DIRECTOR, filtro.director()));
+        }
+        return new CoincidenciasTexto(true, ids, puntajes);
+    }
+
+    /**
+     * Intersecta los ids acumulados con los de otro filtro; null significa sin filtro.
+     */
+    private static Set<Long> intersectar(Set<Long> acumulados, Set<Long> otros) {
+        if (acumulados == null) {
+            return new HashSet<>(otros);
+        }
+        acumulados.retainAll(otros);
+        return acumulados;
+    }
+
+    /**
+     * Arma las vistas de las peliculas indicadas con tres consultas de proyeccion,
+     * respetando el orden de los ids recibidos.
+     */
+    private List<PeliculaVista> cargarVistas(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        var filas = em.createQuery(SELECT_FILAS + " WHERE p.id IN :ids", PeliculaFila.class)
+                .setParameter("ids", ids)
                 .getResultList();
+        Map<Long, PeliculaVista> porId = new HashMap<>();
+        conNombres(filas).forEach(vista -> porId.put(vista.id(), vista));
+        return ids.stream().map(porId::get).toList();
+    }
+
+    /**
+     * Recorre las vistas de todas las peliculas activas, por id, con un cursor de solo avance.
+     *
+     * Las filas se leen sin pasar por el contexto de persistencia, con el fetch
+     * size indicado, y la memoria usada no depende del tamanio del catalogo.
+     * Devuelve cuantas vistas entrego. En MySQL el driver solo respeta el fetch
+     * size con useCursorFetch=true, que llevan las URLs de los perfiles mysql y docker.
+     */
+    @Transactional(readOnly = true)
+    public long recorrerVistasActivas(int tamanioFetch, Consumer<PeliculaVista> consumidor) {
+        long entregadas = 0;
+        try (Stream<PeliculaVista> vistas = vistasActivas("p.id", tamanioFetch)) {
+            Iterator<PeliculaVista> iterador = vistas.iterator();
+            while (iterador.hasNext()) {
+                consumidor.accept(iterador.next());
+                entregadas++;
+            }
+        }
+        return entregadas;
+    }
+
+    /**
+     * Devuelve las peliculas activas ordenadas por titulo, leidas de a lotes con un cursor de solo avance.
+     *
+     * Reemplaza a cargar el catalogo entero en una lista: cada pelicula se arma
+     * desde una proyeccion, sin entidades ni asociaciones lazy, y los directores
+     * y actores se traen con un IN por lote de LOTE_IDS peliculas. Como el cursor
+     * vive en la conexion de la transaccion, exige una transaccion del llamador,
+     * debe consumirse dentro de ella y cerrarse al terminar (try-with-resources).
+     */
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<Pelicula> streamActivas() {
+        return vistasActivas("p.titulo, p.id", LOTE_IDS).map(PeliculaRepository::peliculaDesde);
+    }
 
-        // COUNT QUERY
+    /**
+     * Devuelve las peliculas activas con esos ids, armadas por proyeccion como en streamActivas.
+     *
+     * Las retiradas o inexistentes no aparecen. Se consulta de a LOTE_IDS ids.
+     */
+    public List<Pelicula> activasPorIds(Collection<Long> ids) {
+        var lista = List.copyOf(ids);
+        var peliculas = new ArrayList<Pelicula>(lista.size());
+        for (int inicio = 0; inicio < lista.size(); inicio += LOTE_IDS) {
+            var lote = lista.subList(inicio, Math.min(inicio + LOTE_IDS, lista.size()));
+            var filas = em.createQuery(SELECT_FILAS + " WHERE p.activa = true AND p.id IN :ids", PeliculaFila.class)
+                    .setParameter("ids", lote)
+                    .getResultList();
+            conNombres(filas).stream().map(PeliculaRepository::peliculaDesde).forEach(peliculas::add);
+        }
+        return peliculas;
+    }
+
+    /**
+     * Abre el cursor de las peliculas activas en el orden indicado y completa sus nombres de a lotes.
+     */
+    private Stream<PeliculaVista> vistasActivas(String orden, int tamanioFetch) {
+        Stream<PeliculaFila> filas = em
+                .createQuery(SELECT_FILAS + " WHERE p.activa = true ORDER BY " + orden, PeliculaFila.class)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, tamanioFetch)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream();
+        Iterator<PeliculaFila> iterador = filas.iterator();
+        Iterator<List<PeliculaVista>> lotes = new Iterator<>() {
+            /**
+             * Indica si el cursor todavia tiene filas.
+             */
+            @Override
+            public boolean hasNext() {
+                return iterador.hasNext();
+            }
+
+            /**
+             * Lee hasta LOTE_IDS filas del cursor y las completa con sus nombres.
+             */
+            @Override
+            public List<PeliculaVista> next() {
+                var lote = new ArrayList<PeliculaFila>(LOTE_IDS);
+                while (lote.size() < LOTE_IDS && iterador.hasNext()) {
+                    lote.add(iterador.next());
+                }
+                return conNombres(lote);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(lotes, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(filas::close);
+    }
+
+    /**
+     * Arma la pelicula de dominio de una vista activa, con su rating comunitario si lo tiene.
+     */
+    private static Pelicula peliculaDesde(PeliculaVista vista) {
+        var pelicula = new Pelicula(
+                vista.id(),
+                vista.titulo(),
+                new Condicion(vista.condicion()),
+                vista.directores().stream().map(Director::new).toList(),
+                vista.precio().doubleValue(),
+                new Formato(vista.formato()),
+                new Genero(vista.genero()),
+                vista.sinopsis(),
+                vista.actores().stream().map(Actor::new).toList(),
+                vista.imagenUrl(),
+                vista.fechaSalida(),
+                vista.rating(),
+                true,
+                vista.version(),
+                vista.stockDisponible());
+        if (vista.ratingPromedio() != null && vista.totalRatings() != null) {
+            pelicula.actualizarRatingPromedio(vista.ratingPromedio(), vista.totalRatings());
+        }
+        return pelicula;
+    }
+
+    /**
+     * Arma las vistas de las filas leyendo sus directores y actores con un IN cada uno.
+     */
+    private List<PeliculaVista> conNombres(List<PeliculaFila> filas) {
+        var ids = filas.stream().map(PeliculaFila::id).toList();
+        var directores = nombresPorPelicula(
+                "SELECT p.id, d.nombre FROM PeliculaEntity p JOIN p.directores d WHERE p.id IN :ids", ids);
+        var actores = nombresPorPelicula(
+                "SELECT p.id, a.nombre FROM PeliculaEntity p JOIN p.actores a WHERE p.id IN :ids", ids);
+        return filas.stream()
+                .map(fila -> fila.conNombres(
+                        directores.getOrDefault(fila.id(), List.of()),
+                        actores.getOrDefault(fila.id(), List.of())))
+                .toList();
+    }
+
+    /**
+     * Agrupa por id de pelicula los nombres devueltos por una consulta (id, nombre).
+     */
+    private Map<Long, List<String>> nombresPorPelicula(String jpql, List<Long> ids) {
+        Map<Long, List<String>> nombres = new HashMap<>();
+        for (Object[] fila : em.createQuery(jpql, Object[].class).setParameter("ids", ids).getResultList()) {
+            nombres.computeIfAbsent((Long) fila[0], id -> new ArrayList<>()).add((String) fila[1]);
+        }
+        return nombres;
+    }
+
+    /**
+     * Ids de una pagina junto con los datos de navegacion calculados en la fase 1.
+     */
+    private record PaginaDeIds(List<Long> ids, Long total, boolean hasNext, String nextCursor) {
+    }
+
+    /**
+     * Carga las peliculas indicadas con genero, formato, condicion, directores y
+     * actores inicializados, respetando el orden de los ids recibidos.
+     *
+     * Directores y actores se traen en consultas separadas porque Hibernate no
+     * permite hacer fetch de dos listas en la misma consulta; ambas completan las
+     * mismas instancias del contexto de persistencia.
+     */
+    private List<PeliculaEntity> cargarConAsociaciones(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        var peliculas = em.createQuery(
+                "SELECT DISTINCT p FROM PeliculaEntity p"
+                        + " JOIN FETCH p.genero JOIN FETCH p.formato JOIN FETCH p.condicion"
+                        + " LEFT JOIN FETCH p.directores WHERE p.id IN :ids",
+                PeliculaEntity.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        em.createQuery("SELECT DISTINCT p FROM PeliculaEntity p LEFT JOIN FETCH p.actores WHERE p.id IN :ids",
+                PeliculaEntity.class)
+                .setParameter("ids", ids)
+                .getResultList();
+
+        Map<Long, PeliculaEntity> porId = new HashMap<>();
+        for (PeliculaEntity pe : peliculas) {
+            porId.put(pe.id, pe);
+        }
+        return ids.stream().map(porId::get).toList();
+    }
+
+    /**
+     * Cuenta las peliculas que cumplen el filtro reutilizando el total cacheado.
+     */
+    private long contar(CriteriaBuilder cb, PeliculaFiltro filtro, CoincidenciasTexto coincidencias) {
+        Long cacheado = conteoCache.obtener(filtro);
+        if (cacheado != null) {
+            return cacheado;
+        }
+
+        long generacion = conteoCache.generacion();
+        long total = 0;
+        if (coincidencias.enMemoria()) {
+            // Demasiados ids para un IN: se cuentan de a LOTE_IDS, cada lote con su IN.
+            var ids = new ArrayList<>(coincidencias.ids());
+            for (int inicio = 0; inicio < ids.size(); inicio += LOTE_IDS) {
+                total += contarEnConsulta(cb, filtro,
+                        coincidencias.restringidas(ids.subList(inicio, Math.min(inicio + LOTE_IDS, ids.size()))));
+            }
+        } else {
+            total = contarEnConsulta(cb, filtro, coincidencias);
+        }
+        conteoCache.guardar(filtro, total, generacion);
+        return total;
+    }
+
+    /**
+     * Cuenta con un COUNT DISTINCT las peliculas que cumplen el filtro y las coincidencias indicadas.
+     */
+    private long contarEnConsulta(CriteriaBuilder cb, PeliculaFiltro filtro, CoincidenciasTexto coincidencias) {
         CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
         Root<PeliculaEntity> countRoot = countQuery.from(PeliculaEntity.class);
-        var countPredicates = buildPredicates(
-                cb,
-                countRoot,
-                q,
-                genero,
-                formato,
-                condicion,
-                actor,
-                director,
-                desde,
-                hasta,
-                minPrecio,
-                maxPrecio);
+        var countPredicates = buildPredicates(cb, countRoot, filtro, coincidencias);
         countQuery.select(cb.countDistinct(countRoot));
         if (!countPredicates.isEmpty()) {
             countQuery.where(countPredicates.toArray(new Predicate[0]));
         }
-
-        long total = em.createQuery(countQuery).getSingleResult();
-
-        var items = paged.stream().map(PeliculaEntity::asDomain).toList();
-        return new PageResult<>(items, total, page, size);
+        return em.createQuery(countQuery).getSingleResult();
     }
 
     /**
      * Construye los predicados dinamicos para filtrar peliculas.
      */
-    private List<Predicate> buildPredicates(
-            CriteriaBuilder cb,
-            Root<PeliculaEntity> root,
-            String titulo,
-            String genero,
-            String formato,
-            String condicion,
-            String actor,
-            String director,
-            LocalDate desde,
-            LocalDate hasta,
-            BigDecimal minPrecio,
-            BigDecimal maxPrecio) {
+    private List<Predicate> buildPredicates(CriteriaBuilder cb, Root<PeliculaEntity> root, PeliculaFiltro filtro,
+            CoincidenciasTexto coincidencias) {
         var preds = new ArrayList<Predicate>();
 
         preds.add(cb.isTrue(root.get("activa")));
 
-        if (titulo != null && !titulo.isBlank()) {
-            preds.add(cb.like(cb.lower(root.get("titulo")), "%" + titulo.toLowerCase() + "%"));
+        if (coincidencias.indexado()) {
+            if (coincidencias.enConsulta()) {
+                preds.add(coincidencias.ids().isEmpty() ? cb.disjunction() : root.get("id").in(coincidencias.ids()));
+            }
+        } else if (filtro.q() != null) {
+            preds.add(cb.like(cb.lower(root.get("titulo")), "%" + filtro.q() + "%"));
         }
-        if (genero != null && !genero.isBlank()) {
-            preds.add(cb.equal(cb.lower(root.get("genero").get("nombre")), genero.toLowerCase()));
+        if (filtro.genero() != null) {
+            preds.add(cb.equal(cb.lower(root.get("genero").get("nombre")), filtro.genero()));
         }
-        if (formato != null && !formato.isBlank()) {
-            preds.add(cb.equal(cb.lower(root.get("formato").get("nombre")), formato.toLowerCase()));
+        if (filtro.formato() != null) {
+            preds.add(cb.equal(cb.lower(root.get("formato").get("nombre")), filtro.formato()));
         }
-        if (condicion != null && !condicion.isBlank()) {
-            preds.add(cb.equal(cb.lower(root.get("condicion").get("nombre")), condicion.toLowerCase()));
+        if (filtro.condicion() != null) {
+            preds.add(cb.equal(cb.lower(root.get("condicion").get("nombre")), filtro.condicion()));
         }
-        if (actor != null && !actor.isBlank()) {
+        if (!coincidencias.indexado() && filtro.actor() != null) {
             var actorJoin = root.join("actores", JoinType.LEFT);
-            preds.add(cb.like(cb.lower(actorJoin.get("nombre")), "%" + actor.toLowerCase() + "%"));
+            preds.add(cb.like(cb.lower(actorJoin.get("nombre")), "%" + filtro.actor() + "%"));
         }
-        if (director != null && !director.isBlank()) {
+        if (!coincidencias.indexado() && filtro.director() != null) {
             var directorJoin = root.join("directores", JoinType.LEFT);
-            preds.add(cb.like(cb.lower(directorJoin.get("nombre")), "%" + director.toLowerCase() + "%"));
+            preds.add(cb.like(cb.lower(directorJoin.get("nombre")), "%" + filtro.director() + "%"));
         }
-        if (desde != null) {
-            preds.add(cb.greaterThanOrEqualTo(root.get("fechaSalida"), desde));
+        if (filtro.desde() != null) {
+            preds.add(cb.greaterThanOrEqualTo(root.get("fechaSalida"), filtro.desde()));
         }
-        if (hasta != null) {
-            preds.add(cb.lessThanOrEqualTo(root.get("fechaSalida"), hasta));
+        if (filtro.hasta() != null) {
+            preds.add(cb.lessThanOrEqualTo(root.get("fechaSalida"), filtro.hasta()));
         }
-        if (minPrecio != null) {
-            preds.add(cb.ge(root.get("precio"), minPrecio));
+        if (filtro.minPrecio() != null) {
+            preds.add(cb.ge(root.get("precio"), filtro.minPrecio()));
         }
-        if (maxPrecio != null) {
-            preds.add(cb.le(root.get("precio"), maxPrecio));
+        if (filtro.maxPrecio() != null) {
+            preds.add(cb.le(root.get("precio"), filtro.maxPrecio()));
         }
 
         return preds;
     }
 
+    /**
+     * Ids encontrados por el indice de texto para los filtros textuales de la busqueda.
+     *
+     * ids es la interseccion de q, actor y director (null si no hay filtros de texto) y
+     * puntajes la relevancia de q (null sin q). Hasta LOTE_IDS ids van en un IN de
+     * la consulta; con mas, se consultan de a LOTE_IDS.
+     */
+    private record CoincidenciasTexto(boolean indexado, Set<Long> ids, Map<Long, Double> puntajes) {
+        static final CoincidenciasTexto SIN_INDICE = new CoincidenciasTexto(false, null, null);
+
+        /**
+         * Indica si el filtro de texto se aplica con un IN en la consulta.
+         */
+        boolean enConsulta() {
+            return ids != null && ids.size() <= LOTE_IDS;
+        }
+
+        /**
+         * Indica si el filtro de texto se aplica al recorrer las filas de la consulta.
+         */
+        boolean enMemoria() {
+            return ids != null && ids.size() > LOTE_IDS;
+        }
+
+        /**
+         * Devuelve las coincidencias limitadas a un lote de ids que entra en un IN.
+         */
+        CoincidenciasTexto restringidas(List<Long> lote) {
+            return new CoincidenciasTexto(true, new HashSet<>(lote), null);
+        }
+    }
+
     /**
      * Resuelve el path JPA que corresponde al campo de ordenamiento solicitado.
      */
     private Path<?> resolveSortPath(Root<PeliculaEntity> root, String sortField) {
-        String normalized = (sortField == null || sortField.isBlank()) ? "titulo" : sortField;
-        return switch (normalized) {
+        return switch (normalizarSort(sortField)) {
             case "precio" -> root.get("precio");
             case "fechaSalida" -> root.get("fechaSalida");
             case "genero" -> root.get("genero").get("nombre");
@@ -318,6 +1003,40 @@ public class PeliculaRepository {
         };
     }
 
+    /**
+     * Normaliza el campo de orden usando titulo cuando no se indica ninguno.
+     */
+    private String normalizarSort(String sortField) {
+        return (sortField == null || sortField.isBlank()) ? "titulo" : sortField;
+    }
+
+    /**
+     * Construye el predicado keyset que ubica las filas posteriores al cursor.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate seekPredicate(CriteriaBuilder cb, Root<PeliculaEntity> root, Path<?> orderPath,
+            boolean asc, PeliculaCursor cursor) {
+        Path<Comparable> clave = (Path<Comparable>) orderPath;
+        Path<Long> id = root.get("id");
+        Comparable valor = cursor.valorDeOrden();
+
+        if (asc) {
+            return cb.or(
+                    cb.greaterThan(clave, valor),
+                    cb.and(cb.equal(clave, valor), cb.greaterThan(id, cursor.ultimoId())));
+        }
+        return cb.or(
+                cb.lessThan(clave, valor),
+                cb.and(cb.equal(clave, valor), cb.lessThan(id, cursor.ultimoId())));
+    }
+
+    /**
+     * Obtiene como texto el valor de orden de la ultima fila para guardarlo en el cursor.
+     */
+    private String claveDeOrden(Object valor) {
+        return (valor instanceof BigDecimal decimal) ? decimal.toPlainString() : String.valueOf(valor);
+    }
+
     /**
      * Busca peliculas cuyo precio esta dentro del rango recibido.
      */
@@ -394,65 +1113,200 @@ public class PeliculaRepository {
     }
 
     /**
-     * Busca un director persistido por nombre para reutilizarlo al guardar peliculas.
+     * Resuelve los directores por nombre y persiste los que todavia no existen.
      */
-    private DirectorEntity findDirectorPorNombre(String nombre) {
-        var cb = em.getCriteriaBuilder();
-        var cq = cb.createQuery(DirectorEntity.class);
-        var root = cq.from(DirectorEntity.class);
-        cq.select(root).where(cb.equal(root.get("nombre"), nombre));
-        var list = em.createQuery(cq).getResultList();
-        return list.isEmpty() ? null : list.get(0);
+    private List<DirectorEntity> directores(List<Director> directores) {
+        var nombres = directores.stream().map(Director::nombre).toList();
+        var existentes = referencias.resolver(Dimension.DIRECTOR, nombres);
+        var nuevos = new LinkedHashMap<String, DirectorEntity>();
+        var entidades = new ArrayList<DirectorEntity>();
+        for (String nombre : nombres) {
+            var existente = existentes.get(nombre);
+            entidades.add(existente != null
+                    ? new DirectorEntity(existente.id(), existente.nombre())
+                    : nuevos.computeIfAbsent(nombre, n -> persistir(new DirectorEntity(n))));
+        }
+        referencias.registrarAlConfirmar(Dimension.DIRECTOR,
+                nuevos.values().stream().map(de -> new Referencia(de.id, de.nombre)).toList());
+        return entidades;
     }
 
     /**
-     * Busca un actor persistido por nombre para reutilizarlo al guardar peliculas.
+     * Resuelve los actores por nombre y persiste los que todavia no existen.
      */
-    private ActorEntity findActorPorNombre(String nombre) {
-        var cb = em.getCriteriaBuilder();
-        var cq = cb.createQuery(ActorEntity.class);
-        var root = cq.from(ActorEntity.class);
-        cq.select(root).where(cb.equal(root.get("nombre"), nombre));
-        var list = em.createQuery(cq).getResultList();
-        return list.isEmpty() ? null : list.get(0);
+    private List<ActorEntity> actores(List<Actor> actores) {
+        var nombres = actores.stream().map(Actor::nombre).toList();
+        var existentes = referencias.resolver(Dimension.ACTOR, nombres);
+        var nuevos = new LinkedHashMap<String, ActorEntity>();
+        var entidades = new ArrayList<ActorEntity>();
+        for (String nombre : nombres) {
+            var existente = existentes.get(nombre);
+            entidades.add(existente != null
+                    ? new ActorEntity(existente.id(), existente.nombre())
+                    : nuevos.computeIfAbsent(nombre, n -> persistir(new ActorEntity(n))));
+        }
+        referencias.registrarAlConfirmar(Dimension.ACTOR,
+                nuevos.values().stream().map(ae -> new Referencia(ae.id, ae.nombre)).toList());
+        return entidades;
     }
 
     /**
-     * Busca una condicion persistida por nombre para reutilizarla al guardar peliculas.
+     * Resuelve la condicion por nombre y la persiste si todavia no existe.
      */
-    private CondicionEntity findCondicionPorNombre(String nombre) {
-        var cb = em.getCriteriaBuilder();
-        var cq = cb.createQuery(CondicionEntity.class);
-        var root = cq.from(CondicionEntity.class);
-        cq.select(root).where(cb.equal(root.get("nombre"), nombre));
-        var list = em.createQuery(cq).getResultList();
-        return list.isEmpty() ? null : list.get(0);
+    private CondicionEntity condicion(String nombre) {
+        var existente = referencias.resolver(Dimension.CONDICION, List.of(nombre)).get(nombre);
+        if (existente != null) {
+            return new CondicionEntity(existente.id().byteValue(), existente.nombre());
+        }
+        CondicionEntity ce = persistir(new CondicionEntity(nombre));
+        referencias.registrarAlConfirmar(Dimension.CONDICION,
+                List.of(new Referencia(ce.id.longValue(), ce.nombre)));
+        return ce;
     }
 
     /**
-     * Busca un formato persistido por nombre para reutilizarlo al guardar peliculas.
+     * Resuelve el formato por nombre y lo persiste si todavia no existe.
      */
-    private FormatoEntity findFormatoPorNombre(String nombre) {
-        var cb = em.getCriteriaBuilder();
-        var cq = cb.createQuery(FormatoEntity.class);
-        var root = cq.from(FormatoEntity.class);
-        cq.select(root).where(cb.equal(root.get("nombre"), nombre));
-        var list = em.createQuery(cq).getResultList();
-        return list.isEmpty() ? null : list.get(0);
+    private FormatoEntity formato(String nombre) {
+        var existente = referencias.resolver(Dimension.FORMATO, List.of(nombre)).get(nombre);
+        if (existente != null) {
+            return new FormatoEntity(existente.id().shortValue(), existente.nombre());
+        }
+        FormatoEntity fe = persistir(new FormatoEntity(nombre));
+        referencias.registrarAlConfirmar(Dimension.FORMATO,
+                List.of(new Referencia(fe.id.longValue(), fe.nombre)));
+        return fe;
     }
 
     /**
-     * Busca un genero persistido por nombre para reutilizarlo al guardar peliculas.
+     * Resuelve el genero por nombre y lo persiste si todavia no existe.
      */
-    private GeneroEntity findGeneroPorNombre(String nombre) {
-        var cb = em.getCriteriaBuilder();
-        var cq = cb.createQuery(GeneroEntity.class);
-        var root = cq.from(GeneroEntity.class);
-        cq.select(root).where(cb.equal(root.get("nombre"), nombre));
-        var list = em.createQuery(cq).getResultList();
-        return list.isEmpty() ? null : list.get(0);
+    private GeneroEntity genero(String nombre) {
+        var existente = referencias.resolver(Dimension.GENERO, List.of(nombre)).get(nombre);
+        if (existente != null) {
+            return new GeneroEntity(existente.id().shortValue(), existente.nombre());
+        }
+        GeneroEntity ge = persistir(new GeneroEntity(nombre));
+        referencias.registrarAlConfirmar(Dimension.GENERO,
+                List.of(new Referencia(ge.id.longValue(), ge.nombre)));
+        return ge;
+    }
+
+    /**
+     * Devuelve el id de cada nombre de una dimension, insertando por lotes los que no existen.
+     *
+     * Los nombres nuevos que solo difieren en mayusculas se insertan una vez, como
+     * los trata el cache.
+     */
+    private Map<String, Long> idsPorNombre(Dimension dimension, String tabla, List<String> nombres) {
+        var distintos = new LinkedHashSet<>(nombres);
+        var existentes = referencias.resolver(dimension, distintos);
+        var ids = new HashMap<String, Long>();
+        existentes.forEach((nombre, referencia) -> ids.put(nombre, referencia.id()));
+
+        var nuevos = new LinkedHashMap<String, String>();
+        for (String nombre : distintos) {
+            if (!ids.containsKey(nombre)) {
+                nuevos.putIfAbsent(nombre.toLowerCase(Locale.ROOT), nombre);
+            }
+        }
+        if (nuevos.isEmpty()) {
+            return ids;
+        }
+
+        var aInsertar = new ArrayList<>(nuevos.values());
+        List<Long> generados = em.unwrap(Session.class).doReturningWork(conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "INSERT INTO " + tabla + " (nombre) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+                for (String nombre : aInsertar) {
+                    ps.setString(1, nombre);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                return clavesGeneradas(ps, aInsertar.size());
+            }
+        });
+        var insertadas = new ArrayList<Referencia>(aInsertar.size());
+        for (int i = 0; i < aInsertar.size(); i++) {
+            insertadas.add(new Referencia(generados.get(i), aInsertar.get(i)));
+        }
+        referencias.registrarAlConfirmar(dimension, insertadas);
+
+        var insertadasPorClave = new HashMap<String, Long>();
+        insertadas.forEach(r -> insertadasPorClave.put(r.nombre().toLowerCase(Locale.ROOT), r.id()));
+        for (String nombre : distintos) {
+            ids.putIfAbsent(nombre, insertadasPorClave.get(nombre.toLowerCase(Locale.ROOT)));
+        }
+        return ids;
+    }
+
+    /**
+     * Inserta las filas de pelicula con un solo executeBatch y devuelve sus ids en orden.
+     */
+    private List<Long> insertarPeliculas(Connection conexion, List<Pelicula> peliculas,
+            Map<String, Long> condiciones, Map<String, Long> formatos, Map<String, Long> generos)
+            throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(INSERTAR_PELICULA, Statement.RETURN_GENERATED_KEYS)) {
+            for (Pelicula p : peliculas) {
+                ps.setString(1, p.titulo());
+                ps.setLong(2, condiciones.get(p.condicion().toString()));
+                ps.setBigDecimal(3, BigDecimal.valueOf(p.precio()));
+                ps.setLong(4, formatos.get(p.formato().tipo()));
+                ps.setLong(5, generos.get(p.genero().nombre()));
+                ps.setString(6, p.sinopsis());
+                ps.setString(7, p.imagenUrl());
+                ps.setDate(8, Date.valueOf(p.fechaSalida()));
+                ps.setInt(9, p.rating());
+                ps.setBigDecimal(10, STOCK_INICIAL_IMPORTACION);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            return clavesGeneradas(ps, peliculas.size());
+        }
     }
 
+    /**
+     * Inserta por lotes las filas de una tabla de relacion entre peliculas y personas.
+     */
+    private void insertarRelaciones(Connection conexion, String sql, List<Long> peliculaIds,
+            List<List<Long>> relacionados) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < peliculaIds.size(); i++) {
+                for (Long relacionado : relacionados.get(i)) {
+                    ps.setLong(1, peliculaIds.get(i));
+                    ps.setLong(2, relacionado);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Lee las claves generadas por un executeBatch y exige una por fila insertada.
+     */
+    private static List<Long> clavesGeneradas(PreparedStatement ps, int esperadas) throws SQLException {
+        var claves = new ArrayList<Long>(esperadas);
+        try (var rs = ps.getGeneratedKeys()) {
+            while (rs.next()) {
+                claves.add(rs.getLong(1));
+            }
+        }
+        if (claves.size() != esperadas) {
+            throw new SQLException(ERROR_CLAVES_GENERADAS + ": " + claves.size() + " de " + esperadas);
+        }
+        return claves;
+    }
+
+    /**
+     * Persiste un dato de referencia nuevo y lo devuelve con su id asignado.
+     */
+    private <T> T persistir(T entidad) {
+        em.persist(entidad);
+        return entidad;
+    }
+
+
     /**
      * Marca la pelicula como inactiva e incrementa su version.
      */
@@ -465,22 +1319,14 @@ public class PeliculaRepository {
 
         pe.activa = false;
         pe.version = pe.version + 1;
-        return pe.asDomain();
-    }
-
-    /**
-     * Lista peliculas activas ordenadas por titulo para vistas de catalogo.
-     */
-    public List<Pelicula> listarTodos() {
-        var list = em
-                .createQuery("SELECT p FROM PeliculaEntity p WHERE p.activa = true ORDER BY p.titulo",
-                        PeliculaEntity.class)
-                .getResultList();
-        return list.stream().map(PeliculaEntity::asDomain).toList();
+        return registrarCambio(pe.asDomain());
     }
 
     /**
      * Actualiza los datos persistidos de una pelicula y aumenta su version.
+     *
+     * El rating promedio y el total son de la vertical Rating y solo cambian con
+     * actualizarRating, para que una edicion de backoffice no los pise.
      */
     @Transactional
     public Pelicula actualizar(Long id, Pelicula p) {
@@ -489,43 +1335,11 @@ public class PeliculaRepository {
             return null;
         }
 
-        var directores = new ArrayList<DirectorEntity>();
-        for (Director d : p.directores()) {
-            DirectorEntity de = findDirectorPorNombre(d.nombre());
-            if (de == null) {
-                de = new DirectorEntity(d.nombre());
-                em.persist(de);
-            }
-            directores.add(de);
-        }
-
-        var actores = new ArrayList<ActorEntity>();
-        for (Actor a : p.actores()) {
-            ActorEntity ae = findActorPorNombre(a.nombre());
-            if (ae == null) {
-                ae = new ActorEntity(a.nombre());
-                em.persist(ae);
-            }
-            actores.add(ae);
-        }
-
-        CondicionEntity ce = findCondicionPorNombre(p.condicion().toString());
-        if (ce == null) {
-            ce = new CondicionEntity(p.condicion().toString());
-            em.persist(ce);
-        }
-
-        FormatoEntity fe = findFormatoPorNombre(p.formato().tipo());
-        if (fe == null) {
-            fe = new FormatoEntity(p.formato().tipo());
-            em.persist(fe);
-        }
-
-        GeneroEntity ge = findGeneroPorNombre(p.genero().nombre());
-        if (ge == null) {
-            ge = new GeneroEntity(p.genero().nombre());
-            em.persist(ge);
-        }
+        var directores = directores(p.directores());
+        var actores = actores(p.actores());
+        CondicionEntity ce = condicion(p.condicion().toString());
+        FormatoEntity fe = formato(p.formato().tipo());
+        GeneroEntity ge = genero(p.genero().nombre());
 
         pe.titulo = p.titulo();
         pe.condicion = ce;
@@ -538,11 +1352,23 @@ public class PeliculaRepository {
         pe.directores = directores;
         pe.actores = actores;
         pe.rating = p.rating();
-        pe.ratingPromedio = p.ratingPromedio();
-        pe.totalRatings = p.totalRatings();
         pe.version = pe.version + 1;
 
-        return pe.asDomain();
+        return registrarCambio(pe.asDomain());
+    }
+
+    /**
+     * Agenda la actualizacion del indice de texto, descarta los totales cacheados y
+     * avanza la version del catalogo.
+     *
+     * El indice se registra primero para que, al confirmar, ya refleje el cambio
+     * cuando el cache vuelva a aceptar conteos o un cliente reciba el nuevo ETag.
+     */
+    private Pelicula registrarCambio(Pelicula pelicula) {
+        indiceTexto.sincronizarAlConfirmar(pelicula);
+        conteoCache.invalidar();
+        catalogoVersion.registrarCambio();
+        return pelicula;
     }
 
 }
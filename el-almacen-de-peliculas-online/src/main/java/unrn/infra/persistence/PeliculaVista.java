@@ -0,0 +1,31 @@
+package unrn.infra.persistence;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Vista de solo lectura de una pelicula armada directamente desde consultas.
+ *
+ * Alimenta los listados publicos y administrativos sin pasar por PeliculaEntity ni
+ * por el agregado Pelicula, evitando validar y copiar las mismas listas en cada
+ * fila. No aplica reglas de negocio: refleja lo que ya esta persistido.
+ */
+public record PeliculaVista(
+        Long id,
+        String titulo,
+        String condicion,
+        List<String> directores,
+        BigDecimal precio,
+        String formato,
+        String genero,
+        String sinopsis,
+        List<String> actores,
+        String imagenUrl,
+        LocalDate fechaSalida,
+        int rating,
+        Double ratingPromedio,
+        Integer totalRatings,
+        BigDecimal stockDisponible,
+        long version) {
+}
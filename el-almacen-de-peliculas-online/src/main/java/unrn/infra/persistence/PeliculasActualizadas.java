@@ -0,0 +1,13 @@
+package unrn.infra.persistence;
+
+import java.util.List;
+
+/**
+ * Evento local de peliculas cuyo rating o stock cambio sin pasar por el agregado.
+ *
+ * Lo publica PeliculaRepository dentro de la transaccion del UPDATE angosto; a
+ * diferencia de los eventos de pelicula no cambia datos de busqueda, solo los
+ * valores que se muestran.
+ */
+public record PeliculasActualizadas(List<Long> ids) {
+}
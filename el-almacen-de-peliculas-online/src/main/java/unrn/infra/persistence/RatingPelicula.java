@@ -0,0 +1,10 @@
+package unrn.infra.persistence;
+
+/**
+ * Rating de la comunidad a guardar para una pelicula.
+ *
+ * Es lo unico que cambia un evento de la vertical Rating; se guarda con un UPDATE
+ * de esas dos columnas sin pasar por el agregado completo.
+ */
+public record RatingPelicula(Long peliculaId, double promedio, int totalRatings) {
+}
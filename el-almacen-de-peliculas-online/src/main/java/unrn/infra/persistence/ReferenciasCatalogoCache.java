@@ -0,0 +1,211 @@
+package unrn.infra.persistence;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache de nombre a id de los datos de referencia que se asocian al guardar peliculas.
+ *
+ * Genero, formato, condicion, actores y directores cambian poco y se buscan por
+ * nombre en cada alta o edicion. Se precarga al iniciar; los nombres que no estan
+ * se resuelven con un unico IN por dimension y los nuevos se agregan despues del
+ * commit, asi un id de una transaccion revertida nunca entra al cache. La clave
+ * ignora mayusculas, como la collation de MySQL, y la busqueda de los faltantes
+ * tambien, para que un nombre resuelva a la misma fila este o no en el cache.
+ * Si la base tiene varias filas que solo difieren en mayusculas, gana la de
+ * menor id.
+ *
+ * Las filas borradas fuera de la aplicacion dejarian ids viejos en el cache, que
+ * al guardar fallan por clave foranea. Para acotarlo el cache se recarga completo
+ * cada catalogo.referencias.refresco-ms, lo que tambien saca los nombres que ya no
+ * existen, y si una transaccion que uso ids del cache se revierte esos nombres se
+ * olvidan, asi el reintento los vuelve a buscar en la base.
+ */
+@Component
+public class ReferenciasCatalogoCache {
+
+    /**
+     * Tablas de referencia cacheadas, con la entidad JPA que las mapea.
+     */
+    public enum Dimension {
+        GENERO("GeneroEntity"), FORMATO("FormatoEntity"), CONDICION("CondicionEntity"),
+        ACTOR("ActorEntity"), DIRECTOR("DirectorEntity");
+
+        private final String entidad;
+
+        /**
+         * Inicializa una instancia de Dimension con los datos necesarios.
+         */
+        Dimension(String entidad) {
+            this.entidad = entidad;
+        }
+    }
+
+    static final long REFRESCO_MS_POR_DEFECTO = 600_000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final Map<Dimension, Map<String, Referencia>> referencias = new ConcurrentHashMap<>();
+
+    /**
+     * Inicializa una instancia de ReferenciasCatalogoCache con valores por defecto.
+     */
+    public ReferenciasCatalogoCache() {
+        for (Dimension dimension : Dimension.values()) {
+            referencias.put(dimension, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Carga en el cache todos los datos de referencia persistidos, reemplazando lo anterior.
+     *
+     * Cada dimension se arma aparte y se reemplaza de una vez, asi las
+     * resoluciones concurrentes nunca ven un cache vacio a medio cargar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${catalogo.referencias.refresco-ms:" + REFRESCO_MS_POR_DEFECTO + "}",
+            fixedDelayString = "${catalogo.referencias.refresco-ms:" + REFRESCO_MS_POR_DEFECTO + "}")
+    @Transactional(readOnly = true)
+    public void precargar() {
+        for (Dimension dimension : Dimension.values()) {
+            var filas = em.createQuery("SELECT e.id, e.nombre FROM " + dimension.entidad + " e ORDER BY e.id",
+                            Object[].class)
+                    .getResultList();
+            Map<String, Referencia> cache = new ConcurrentHashMap<>(filas.size() * 2);
+            for (Object[] fila : filas) {
+                Referencia referencia = new Referencia(((Number) fila[0]).longValue(), (String) fila[1]);
+                cache.putIfAbsent(clave(referencia.nombre()), referencia);
+            }
+            referencias.put(dimension, cache);
+        }
+    }
+
+    /**
+     * Devuelve las referencias existentes para los nombres indicados, por nombre pedido.
+     *
+     * Los que no estan en el cache se buscan con un solo IN sin distinguir
+     * mayusculas; los que tampoco existen en la base no aparecen en el resultado.
+     */
+    public Map<String, Referencia> resolver(Dimension dimension, Collection<String> nombres) {
+        Map<String, Referencia> cache = referencias.get(dimension);
+        Map<String, Referencia> resueltas = new HashMap<>();
+        Set<String> faltantes = new LinkedHashSet<>();
+        Set<String> clavesFaltantes = new LinkedHashSet<>();
+        for (String nombre : nombres) {
+            Referencia referencia = cache.get(clave(nombre));
+            if (referencia != null) {
+                resueltas.put(nombre, referencia);
+            } else {
+                faltantes.add(nombre);
+                clavesFaltantes.add(clave(nombre));
+            }
+        }
+        olvidarSiSeRevierte(dimension, new ArrayList<>(resueltas.values()));
+        if (faltantes.isEmpty()) {
+            return resueltas;
+        }
+
+        Map<String, Referencia> encontradas = new HashMap<>();
+        em.createQuery("SELECT e.id, e.nombre FROM " + dimension.entidad
+                        + " e WHERE LOWER(e.nombre) IN :claves ORDER BY e.id", Object[].class)
+                .setParameter("claves", clavesFaltantes)
+                .getResultList()
+                .forEach(fila -> encontradas.putIfAbsent(clave((String) fila[1]),
+                        new Referencia(((Number) fila[0]).longValue(), (String) fila[1])));
+        for (String nombre : faltantes) {
+            Referencia referencia = encontradas.get(clave(nombre));
+            if (referencia != null) {
+                resueltas.put(nombre, referencia);
+            }
+        }
+        registrarAlConfirmar(dimension, new ArrayList<>(encontradas.values()));
+        return resueltas;
+    }
+
+    /**
+     * Agrega las referencias al cache al confirmar la transaccion, o ahora si no hay una activa.
+     */
+    public void registrarAlConfirmar(Dimension dimension, List<Referencia> nuevas) {
+        if (nuevas.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            registrar(dimension, nuevas);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            /**
+             * Publica en el cache las referencias que ya quedaron confirmadas.
+             */
+            @Override
+            public void afterCommit() {
+                registrar(dimension, nuevas);
+            }
+        });
+    }
+
+    /**
+     * Olvida las referencias tomadas del cache si la transaccion en curso se revierte.
+     *
+     * Un id borrado de la base hace fallar el guardado por clave foranea; sin esto
+     * seguiria en el cache hasta la proxima recarga y cada reintento fallaria igual.
+     */
+    private void olvidarSiSeRevierte(Dimension dimension, List<Referencia> usadas) {
+        if (usadas.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            /**
+             * Quita del cache las referencias usadas cuando la transaccion no se confirmo.
+             */
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    Map<String, Referencia> cache = referencias.get(dimension);
+                    usadas.forEach(referencia -> cache.remove(clave(referencia.nombre()), referencia));
+                }
+            }
+        });
+    }
+
+    /**
+     * Guarda las referencias en el cache de la dimension.
+     */
+    private void registrar(Dimension dimension, List<Referencia> nuevas) {
+        Map<String, Referencia> cache = referencias.get(dimension);
+        for (Referencia referencia : nuevas) {
+            cache.put(clave(referencia.nombre()), referencia);
+        }
+    }
+
+    /**
+     * Normaliza el nombre para usarlo como clave del cache.
+     */
+    private static String clave(String nombre) {
+        return nombre.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Id y nombre guardado de un dato de referencia.
+     */
+    public record Referencia(Long id, String nombre) {
+    }
+}
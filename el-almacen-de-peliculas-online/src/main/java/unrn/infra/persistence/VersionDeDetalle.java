@@ -0,0 +1,10 @@
+package unrn.infra.persistence;
+
+/**
+ * Version y ratings de una pelicula, leidos sin cargar el agregado.
+ *
+ * Alcanza para armar el ETag del detalle: los ratings se actualizan sin aumentar
+ * la version, asi que la version sola no indica si el detalle cambio.
+ */
+public record VersionDeDetalle(long version, int rating, Double ratingPromedio, Integer totalRatings) {
+}
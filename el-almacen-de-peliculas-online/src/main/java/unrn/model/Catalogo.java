@@ -6,6 +6,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Agrupa una coleccion de peliculas y expresa consultas propias del catalogo.
@@ -32,9 +33,17 @@ public class Catalogo {
     }
 
     /**
-     * Exige que el catalogo se construya con una lista de peliculas.
+     * Arma el catalogo a partir de un stream de peliculas, que queda consumido.
      */
-    private void assertPeliculasNoNulas(List<Pelicula> peliculas) {
+    public static Catalogo desde(Stream<Pelicula> peliculas) {
+        assertPeliculasNoNulas(peliculas);
+        return new Catalogo(peliculas.toList());
+    }
+
+    /**
+     * Exige que el catalogo se construya con peliculas.
+     */
+    private static void assertPeliculasNoNulas(Object peliculas) {
         if (peliculas == null)
             throw new RuntimeException(ERROR_PELICULAS_NULAS);
     }
@@ -49,6 +58,13 @@ public class Catalogo {
         }
     }
 
+    /**
+     * Devuelve las peliculas del catalogo en el orden en que se recibieron.
+     */
+    public List<Pelicula> peliculas() {
+        return peliculas;
+    }
+
     /**
      * Devuelve los titulos de categorias unicos y ordenados.
      */
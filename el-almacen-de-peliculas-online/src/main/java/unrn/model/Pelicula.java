@@ -416,10 +416,17 @@ public class Pelicula {
      * Actualiza el rating local validando su rango permitido.
      */
     public void actualizarRating(int nuevoRating) {
-        if (nuevoRating < 0 || nuevoRating > 5) {
+        validarRating(nuevoRating);
+        this.rating = nuevoRating;
+    }
+
+    /**
+     * Valida el rango del rating local sin necesidad de cargar la pelicula.
+     */
+    public static void validarRating(int rating) {
+        if (rating < 0 || rating > 5) {
             throw new RuntimeException("El rating debe estar entre 0 y 5");
         }
-        this.rating = nuevoRating;
     }
 
     /**
@@ -427,14 +434,21 @@ public class Pelicula {
      * Este mÃ©todo se invoca cuando se recibe un evento de RabbitMQ.
      */
     public void actualizarRatingPromedio(double ratingPromedio, int totalRatings) {
+        validarRatingPromedio(ratingPromedio, totalRatings);
+        this.ratingPromedio = ratingPromedio;
+        this.totalRatings = totalRatings;
+    }
+
+    /**
+     * Valida el rating promedio y el total recibidos sin necesidad de cargar la pelicula.
+     */
+    public static void validarRatingPromedio(double ratingPromedio, int totalRatings) {
         if (ratingPromedio < 0 || ratingPromedio > 10) {
             throw new RuntimeException("El rating promedio debe estar entre 0 y 10");
         }
         if (totalRatings < 0) {
             throw new RuntimeException("El total de ratings no puede ser negativo");
         }
-        this.ratingPromedio = ratingPromedio;
-        this.totalRatings = totalRatings;
     }
 
     // El DTO se moviÃ³ a la capa `unrn.dto` y el modelo ya no lo contiene
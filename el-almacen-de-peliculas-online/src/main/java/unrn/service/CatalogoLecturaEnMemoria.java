@@ -0,0 +1,229 @@
+package unrn.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import unrn.event.movie.MovieEventEnvelope;
+import unrn.infra.persistence.CatalogoVersion;
+import unrn.infra.persistence.PageResult;
+import unrn.infra.persistence.PeliculaCursor;
+import unrn.infra.persistence.PeliculaFiltro;
+import unrn.infra.persistence.PeliculaIndiceTexto;
+import unrn.infra.persistence.PeliculasActualizadas;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.model.Catalogo;
+import unrn.model.Pelicula;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modelo de lectura en memoria del catalogo activo.
+ *
+ * Mantiene una foto inmutable (CatalogoSnapshot) que atiende la busqueda publica,
+ * el detalle y las categorias sin consultar la base. Todos los cambios de la foto
+ * los hace un unico hilo escritor: despues del commit de cada alta, edicion o
+ * retiro publicado por PeliculaService y de cada cambio de rating o stock
+ * (PeliculasActualizadas) solo se encolan los ids, y el escritor lee su estado
+ * actual y parchea la foto. El mismo hilo la reconstruye completa cada
+ * catalogo.lectura.en-memoria.refresco-ms, asi que un parche nunca se pisa con
+ * una reconstruccion. Solo existe si catalogo.lectura.en-memoria.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "catalogo.lectura.en-memoria.enabled", havingValue = "true")
+public class CatalogoLecturaEnMemoria {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoLecturaEnMemoria.class);
+    static final String ERROR_RECONSTRUCCION = "ERROR_RECONSTRUCCION_CATALOGO_EN_MEMORIA";
+
+    private final PeliculaRepository peliculaRepository;
+    private final PeliculaIndiceTexto indiceTexto;
+    private final CatalogoVersion catalogoVersion;
+    private final TransactionTemplate lectura;
+    private final ExecutorService escritor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("catalogo-en-memoria").daemon().factory());
+    private final Set<Long> pendientes = new LinkedHashSet<>();
+    private boolean aplicacionProgramada;
+    private volatile CatalogoSnapshot snapshot;
+
+    /**
+     * Inicializa una instancia de CatalogoLecturaEnMemoria con los datos necesarios.
+     */
+    public CatalogoLecturaEnMemoria(PeliculaRepository peliculaRepository, PeliculaIndiceTexto indiceTexto,
+            CatalogoVersion catalogoVersion, PlatformTransactionManager transactionManager) {
+        this.peliculaRepository = peliculaRepository;
+        this.indiceTexto = indiceTexto;
+        this.catalogoVersion = catalogoVersion;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    /**
+     * Indica si la foto ya fue construida y puede atender lecturas.
+     */
+    public boolean listo() {
+        return snapshot != null;
+    }
+
+    /**
+     * Reconstruye la foto completa en el hilo escritor y espera a que termine.
+     *
+     * Quien llama (el arranque o el scheduler) espera; los requests nunca lo hacen.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${catalogo.lectura.en-memoria.refresco-ms:60000}",
+            fixedDelayString = "${catalogo.lectura.en-memoria.refresco-ms:60000}")
+    public void reconstruir() {
+        try {
+            escritor.submit(this::reconstruirEnEscritor).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ERROR_RECONSTRUCCION, ex.getCause());
+        }
+    }
+
+    /**
+     * Encola la pelicula de un evento publicado por PeliculaService.
+     *
+     * Corre despues del commit y no espera al escritor; si la foto todavia no
+     * existe el cambio queda incluido en la primera reconstruccion.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieEvent(MovieEventEnvelope envelope) {
+        encolar(List.of(envelope.payload().movieId()));
+    }
+
+    /**
+     * Encola las peliculas cuyo rating o stock cambio, despues del commit.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPeliculasActualizadas(PeliculasActualizadas actualizadas) {
+        encolar(actualizadas.ids());
+    }
+
+    /**
+     * Detiene el hilo escritor al cerrar el contexto.
+     */
+    @PreDestroy
+    public void cerrar() {
+        escritor.shutdownNow();
+    }
+
+    /**
+     * Busca en la foto con la misma semantica que la busqueda paginada en base.
+     */
+    public PageResult<Pelicula> buscar(PeliculaFiltro filtro, int page, int size, String sort, boolean asc,
+            PeliculaCursor cursor, boolean conTotal) {
+        return snapshot.buscar(filtro, coincidencias(filtro), page, size, sort, asc, cursor, conTotal);
+    }
+
+    /**
+     * Devuelve la pelicula activa con ese id o null si no esta en la foto.
+     */
+    public Pelicula porId(Long id) {
+        return snapshot.porId(id);
+    }
+
+    /**
+     * Devuelve los nombres de genero disponibles para filtros.
+     */
+    public List<String> categorias() {
+        return snapshot.categorias();
+    }
+
+    /**
+     * Agrega los ids a los pendientes y programa una aplicacion si no habia una en espera.
+     */
+    private void encolar(Collection<Long> ids) {
+        synchronized (pendientes) {
+            pendientes.addAll(ids);
+            if (aplicacionProgramada) {
+                return;
+            }
+            aplicacionProgramada = true;
+        }
+        escritor.execute(this::aplicarPendientes);
+    }
+
+    /**
+     * Lee el estado actual de los ids pendientes y parchea la foto. Corre en el hilo escritor.
+     *
+     * Los ids que se acumularon mientras esperaba se aplican juntos en un solo parche.
+     */
+    private void aplicarPendientes() {
+        Set<Long> ids;
+        synchronized (pendientes) {
+            ids = new LinkedHashSet<>(pendientes);
+            pendientes.clear();
+            aplicacionProgramada = false;
+        }
+        if (snapshot == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            snapshot = snapshot.conCambios(ids, peliculaRepository.activasPorIds(ids));
+            // El contador ya avanzo con el commit; se avanza otra vez para no dejar
+            // cacheado con el ETag nuevo un listado armado con la foto anterior.
+            catalogoVersion.registrarCambio();
+        } catch (RuntimeException ex) {
+            log.warn("No se pudo actualizar el catalogo en memoria para {}; lo corrige la proxima reconstruccion",
+                    ids, ex);
+        }
+    }
+
+    /**
+     * Lee todas las peliculas activas y reemplaza la foto. Corre en el hilo escritor.
+     *
+     * Las lee con el cursor de PeliculaRepository.streamActivas, que necesita la
+     * transaccion de solo lectura abierta mientras se consume.
+     */
+    private void reconstruirEnEscritor() {
+        Catalogo catalogo = lectura.execute(estado -> {
+            try (var peliculas = peliculaRepository.streamActivas()) {
+                return Catalogo.desde(peliculas);
+            }
+        });
+        snapshot = new CatalogoSnapshot(catalogo, peliculaRepository.listarGeneros());
+        catalogoVersion.registrarCambio();
+        log.info("Catalogo en memoria reconstruido con {} peliculas activas", catalogo.peliculas().size());
+    }
+
+    /**
+     * Resuelve los filtros de texto con el indice cuando esta disponible.
+     *
+     * Los filtros usan todas las coincidencias; el ranking recortado a las mas
+     * relevantes se arma solo con las que ademas cumplen actor y director.
+     */
+    private CatalogoSnapshot.Coincidencias coincidencias(PeliculaFiltro filtro) {
+        if (!indiceTexto.listo()) {
+            return CatalogoSnapshot.Coincidencias.SIN_INDICE;
+        }
+        Set<Long> porActor = !PeliculaIndiceTexto.filtra(filtro.actor()) ? null
+                : indiceTexto.buscarEnCampo(PeliculaIndiceTexto.Campo.ACTOR, filtro.actor());
+        Set<Long> porDirector = !PeliculaIndiceTexto.filtra(filtro.director()) ? null
+                : indiceTexto.buscarEnCampo(PeliculaIndiceTexto.Campo.DIRECTOR, filtro.director());
+        if (!PeliculaIndiceTexto.filtra(filtro.q())) {
+            return new CatalogoSnapshot.Coincidencias(true, null, null, porActor, porDirector);
+        }
+        Map<Long, Double> puntajes = indiceTexto.puntajes(filtro.q());
+        var ranking = indiceTexto.mejores(puntajes, id -> (porActor == null || porActor.contains(id))
+                && (porDirector == null || porDirector.contains(id)));
+        return new CatalogoSnapshot.Coincidencias(true, List.copyOf(ranking.keySet()), puntajes.keySet(), porActor,
+                porDirector);
+    }
+}
@@ -0,0 +1,418 @@
+package unrn.service;
+
+import unrn.infra.persistence.PageResult;
+import unrn.infra.persistence.PeliculaCursor;
+import unrn.infra.persistence.PeliculaFiltro;
+import unrn.model.Actor;
+import unrn.model.Catalogo;
+import unrn.model.Director;
+import unrn.model.Pelicula;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Foto inmutable del catalogo activo preparada para buscar sin ir a la base.
+ *
+ * Se construye sobre un Catalogo y guarda en arreglos paralelos (columnas) los
+ * datos que filtran y ordenan: precio en centavos, fecha como dia epoch, ordinal de
+ * genero y textos en minusculas. Para cada campo de orden precalcula la
+ * permutacion ascendente (valor, id), de modo que una pagina se arma recorriendo
+ * esa permutacion y filtrando por columnas.
+ *
+ * Los textos se ordenan con COLACION, que como la colacion por defecto de MySQL
+ * (utf8mb4_0900_ai_ci) no distingue mayusculas ni acentos; asi un cursor emitido
+ * por la busqueda en base sigue en el mismo lugar al continuar en memoria.
+ */
+final class CatalogoSnapshot {
+
+    static final List<String> CAMPOS_DE_ORDEN = List.of("titulo", "precio", "fechaSalida", "genero", "formato",
+            "condicion");
+    static final Collator COLACION = colacion();
+
+    private final Pelicula[] peliculas;
+    private final long[] ids;
+    private final long[] precioCentavos;
+    private final long[] fechaEpochDay;
+    private final int[] generoOrdinal;
+    private final String[] generos;
+    private final CollationKey[] clavesGenero;
+    private final CollationKey[] clavesTitulo;
+    private final CollationKey[] clavesFormato;
+    private final CollationKey[] clavesCondicion;
+    private final String[] titulos;
+    private final String[] formatos;
+    private final String[] condiciones;
+    private final String[] actores;
+    private final String[] directores;
+    private final Map<Long, Integer> posicionPorId;
+    private final Map<String, int[]> ordenAscendente;
+    private final List<String> categorias;
+
+    /**
+     * Inicializa una instancia de CatalogoSnapshot con los datos necesarios.
+     */
+    CatalogoSnapshot(Catalogo catalogo, List<String> categorias) {
+        this.categorias = List.copyOf(categorias);
+        this.peliculas = catalogo.peliculas().toArray(new Pelicula[0]);
+        int n = peliculas.length;
+
+        this.generos = catalogo.peliculas().stream()
+                .map(p -> p.genero().nombre())
+                .collect(Collectors.toCollection(TreeSet::new))
+                .toArray(new String[0]);
+        Arrays.sort(generos, COLACION);
+        clavesGenero = Arrays.stream(generos).map(COLACION::getCollationKey).toArray(CollationKey[]::new);
+        Map<String, Integer> ordinalPorGenero = new HashMap<>();
+        for (int g = 0; g < generos.length; g++) {
+            ordinalPorGenero.put(generos[g], g);
+        }
+
+        ids = new long[n];
+        precioCentavos = new long[n];
+        fechaEpochDay = new long[n];
+        generoOrdinal = new int[n];
+        clavesTitulo = new CollationKey[n];
+        clavesFormato = new CollationKey[n];
+        clavesCondicion = new CollationKey[n];
+        titulos = new String[n];
+        formatos = new String[n];
+        condiciones = new String[n];
+        actores = new String[n];
+        directores = new String[n];
+        posicionPorId = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            Pelicula p = peliculas[i];
+            ids[i] = p.id();
+            precioCentavos[i] = centavos(BigDecimal.valueOf(p.precio()));
+            fechaEpochDay[i] = p.fechaSalida().toEpochDay();
+            generoOrdinal[i] = ordinalPorGenero.get(p.genero().nombre());
+            clavesTitulo[i] = COLACION.getCollationKey(p.titulo());
+            clavesFormato[i] = COLACION.getCollationKey(p.formato().tipo());
+            clavesCondicion[i] = COLACION.getCollationKey(p.condicion().valor());
+            titulos[i] = minusculas(p.titulo());
+            formatos[i] = minusculas(p.formato().tipo());
+            condiciones[i] = minusculas(p.condicion().valor());
+            actores[i] = minusculas(nombres(p.actores().stream().map(Actor::nombre)));
+            directores[i] = minusculas(nombres(p.directores().stream().map(Director::nombre)));
+            posicionPorId.put(ids[i], i);
+        }
+
+        ordenAscendente = new HashMap<>();
+        for (String campo : CAMPOS_DE_ORDEN) {
+            ordenAscendente.put(campo, ordenar(campo));
+        }
+    }
+
+    /**
+     * Inicializa una copia de la foto con otras instancias de pelicula en las mismas posiciones.
+     *
+     * Solo es valida si las peliculas nuevas tienen los mismos datos de filtro y
+     * orden, por lo que comparte todas las columnas y permutaciones.
+     */
+    private CatalogoSnapshot(CatalogoSnapshot base, Pelicula[] peliculas) {
+        this.peliculas = peliculas;
+        this.ids = base.ids;
+        this.precioCentavos = base.precioCentavos;
+        this.fechaEpochDay = base.fechaEpochDay;
+        this.generoOrdinal = base.generoOrdinal;
+        this.generos = base.generos;
+        this.clavesGenero = base.clavesGenero;
+        this.clavesTitulo = base.clavesTitulo;
+        this.clavesFormato = base.clavesFormato;
+        this.clavesCondicion = base.clavesCondicion;
+        this.titulos = base.titulos;
+        this.formatos = base.formatos;
+        this.condiciones = base.condiciones;
+        this.actores = base.actores;
+        this.directores = base.directores;
+        this.posicionPorId = base.posicionPorId;
+        this.ordenAscendente = base.ordenAscendente;
+        this.categorias = base.categorias;
+    }
+
+    /**
+     * Devuelve una foto nueva con el estado actual de las peliculas indicadas.
+     *
+     * activas trae las que siguen activas; las demas ids se quitan. Si ninguna
+     * cambia un dato de filtro u orden, como pasa con rating y stock, solo se
+     * reemplazan las instancias y se reutilizan columnas y permutaciones. Si no, la
+     * foto se rearma completa.
+     */
+    CatalogoSnapshot conCambios(Set<Long> ids, List<Pelicula> activas) {
+        Map<Long, Pelicula> actuales = new HashMap<>();
+        activas.forEach(p -> actuales.put(p.id(), p));
+
+        boolean mismasClaves = true;
+        for (Long id : ids) {
+            Integer posicion = posicionPorId.get(id);
+            Pelicula actual = actuales.get(id);
+            boolean igual = posicion == null ? actual == null : actual != null && mismasClaves(posicion, actual);
+            if (!igual) {
+                mismasClaves = false;
+                break;
+            }
+        }
+        if (mismasClaves) {
+            Pelicula[] copia = peliculas.clone();
+            actuales.values().forEach(p -> copia[posicionPorId.get(p.id())] = p);
+            return new CatalogoSnapshot(this, copia);
+        }
+
+        var lista = new ArrayList<Pelicula>(peliculas.length + activas.size());
+        for (Pelicula p : peliculas) {
+            if (!ids.contains(p.id())) {
+                lista.add(p);
+            }
+        }
+        lista.addAll(activas);
+        var nuevasCategorias = new TreeSet<>(categorias);
+        activas.forEach(p -> nuevasCategorias.add(p.genero().nombre()));
+        return new CatalogoSnapshot(new Catalogo(lista), new ArrayList<>(nuevasCategorias));
+    }
+
+    /**
+     * Devuelve los nombres de genero disponibles para filtros.
+     */
+    List<String> categorias() {
+        return categorias;
+    }
+
+    /**
+     * Busca una pelicula activa por id o devuelve null si no esta en la foto.
+     */
+    Pelicula porId(Long id) {
+        Integer posicion = posicionPorId.get(id);
+        return posicion == null ? null : peliculas[posicion];
+    }
+
+    /**
+     * Filtra, ordena y pagina con la misma semantica que la busqueda en base.
+     *
+     * Con textoIds (ids del indice de texto) y orden por relevancia se respeta el
+     * orden del indice y solo se pagina por offset; en el resto de los casos se
+     * recorre la permutacion del campo y se admite cursor.
+     */
+    PageResult<Pelicula> buscar(PeliculaFiltro filtro, Coincidencias coincidencias, int page, int size,
+            String sort, boolean asc, PeliculaCursor cursor, boolean conTotal) {
+        var generosBuscados = generosCoincidentes(filtro.genero());
+        long minCentavos = filtro.minPrecio() == null ? Long.MIN_VALUE
+                : filtro.minPrecio().movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+        long maxCentavos = filtro.maxPrecio() == null ? Long.MAX_VALUE
+                : filtro.maxPrecio().movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+        long desde = filtro.desde() == null ? Long.MIN_VALUE : filtro.desde().toEpochDay();
+        long hasta = filtro.hasta() == null ? Long.MAX_VALUE : filtro.hasta().toEpochDay();
+
+        IntStream recorrido;
+        boolean porRelevancia = "relevancia".equals(sort) && coincidencias.porTexto() != null;
+        if (porRelevancia) {
+            recorrido = coincidencias.porTexto().stream()
+                    .map(posicionPorId::get)
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue);
+        } else {
+            int[] orden = ordenAscendente.getOrDefault(sort, ordenAscendente.get("titulo"));
+            recorrido = asc
+                    ? Arrays.stream(orden)
+                    : IntStream.range(0, orden.length).map(k -> orden[orden.length - 1 - k]);
+        }
+
+        String campo = ordenAscendente.containsKey(sort) ? sort : "titulo";
+        Comparable<?> claveCursor = cursor == null || porRelevancia ? null : claveDeCursor(campo, cursor);
+        int[] coincidentes = recorrido
+                .filter(i -> generosBuscados == null || generosBuscados.contains(generoOrdinal[i]))
+                .filter(i -> filtro.formato() == null || formatos[i].equals(filtro.formato()))
+                .filter(i -> filtro.condicion() == null || condiciones[i].equals(filtro.condicion()))
+                .filter(i -> precioCentavos[i] >= minCentavos && precioCentavos[i] <= maxCentavos)
+                .filter(i -> fechaEpochDay[i] >= desde && fechaEpochDay[i] <= hasta)
+                .filter(i -> coincideTexto(i, filtro, coincidencias))
+                .filter(i -> claveCursor == null || despuesDelCursor(i, campo, asc, claveCursor, cursor.ultimoId()))
+                .toArray();
+
+        int inicio = (cursor == null || porRelevancia) ? Math.min(page * size, coincidentes.length) : 0;
+        int fin = Math.min(inicio + size, coincidentes.length);
+        boolean hasNext = fin < coincidentes.length;
+        var items = new ArrayList<Pelicula>(fin - inicio);
+        for (int k = inicio; k < fin; k++) {
+            items.add(peliculas[coincidentes[k]]);
+        }
+
+        String nextCursor = null;
+        if (hasNext && !"relevancia".equals(sort)) {
+            int ultima = coincidentes[fin - 1];
+            nextCursor = new PeliculaCursor(campo, asc, claveTexto(ultima, campo), ids[ultima]).codificar();
+        }
+        Long total = conTotal ? (long) coincidentes.length : null;
+        return new PageResult<>(items, total, hasNext, page, size, nextCursor);
+    }
+
+    /**
+     * Aplica los filtros de texto con los ids del indice o, si no esta listo, por subcadena.
+     */
+    private boolean coincideTexto(int i, PeliculaFiltro filtro, Coincidencias coincidencias) {
+        if (coincidencias.indexado()) {
+            return (coincidencias.porTextoIds() == null || coincidencias.porTextoIds().contains(ids[i]))
+                    && (coincidencias.porActor() == null || coincidencias.porActor().contains(ids[i]))
+                    && (coincidencias.porDirector() == null || coincidencias.porDirector().contains(ids[i]));
+        }
+        return (filtro.q() == null || titulos[i].contains(filtro.q()))
+                && (filtro.actor() == null || actores[i].contains(filtro.actor()))
+                && (filtro.director() == null || directores[i].contains(filtro.director()));
+    }
+
+    /**
+     * Indica si la fila queda despues de la posicion del cursor en el orden pedido.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean despuesDelCursor(int i, String campo, boolean asc, Comparable claveCursor, long ultimoId) {
+        Comparable clave = clave(i, campo);
+        int comparacion = clave.compareTo(claveCursor);
+        if (comparacion == 0) {
+            comparacion = Long.compare(ids[i], ultimoId);
+        }
+        return asc ? comparacion > 0 : comparacion < 0;
+    }
+
+    /**
+     * Devuelve los ordinales de genero cuyo nombre coincide sin distinguir mayusculas.
+     */
+    private Set<Integer> generosCoincidentes(String genero) {
+        if (genero == null) {
+            return null;
+        }
+        var ordinales = new HashSet<Integer>();
+        for (int g = 0; g < generos.length; g++) {
+            if (minusculas(generos[g]).equals(genero)) {
+                ordinales.add(g);
+            }
+        }
+        return ordinales;
+    }
+
+    /**
+     * Calcula la permutacion ascendente por (valor del campo, id).
+     */
+    private int[] ordenar(String campo) {
+        Comparator<Integer> comparador = switch (campo) {
+            case "precio" -> Comparator.comparingLong(i -> precioCentavos[i]);
+            case "fechaSalida" -> Comparator.comparingLong(i -> fechaEpochDay[i]);
+            case "genero" -> Comparator.comparing(i -> clavesGenero[generoOrdinal[i]]);
+            case "formato" -> Comparator.comparing(i -> clavesFormato[i]);
+            case "condicion" -> Comparator.comparing(i -> clavesCondicion[i]);
+            default -> Comparator.comparing(i -> clavesTitulo[i]);
+        };
+        return IntStream.range(0, peliculas.length)
+                .boxed()
+                .sorted(comparador.thenComparingLong(i -> ids[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Devuelve el valor de orden de la fila, comparable con el de claveDeCursor.
+     */
+    private Comparable<?> clave(int i, String campo) {
+        return switch (campo) {
+            case "precio" -> BigDecimal.valueOf(precioCentavos[i], 2);
+            case "fechaSalida" -> LocalDate.ofEpochDay(fechaEpochDay[i]);
+            case "genero" -> clavesGenero[generoOrdinal[i]];
+            case "formato" -> clavesFormato[i];
+            case "condicion" -> clavesCondicion[i];
+            default -> clavesTitulo[i];
+        };
+    }
+
+    /**
+     * Devuelve el valor de orden guardado en el cursor; los textos se comparan con COLACION.
+     */
+    private static Comparable<?> claveDeCursor(String campo, PeliculaCursor cursor) {
+        Comparable<?> valor = cursor.valorDeOrden();
+        return valor instanceof String texto ? COLACION.getCollationKey(texto) : valor;
+    }
+
+    /**
+     * Indica si la pelicula conserva los datos de filtro y orden de la fila.
+     */
+    private boolean mismasClaves(int i, Pelicula p) {
+        return p.titulo().equals(peliculas[i].titulo())
+                && centavos(BigDecimal.valueOf(p.precio())) == precioCentavos[i]
+                && p.fechaSalida().toEpochDay() == fechaEpochDay[i]
+                && p.genero().nombre().equals(generos[generoOrdinal[i]])
+                && p.formato().tipo().equals(peliculas[i].formato().tipo())
+                && p.condicion().valor().equals(peliculas[i].condicion().valor())
+                && minusculas(nombres(p.actores().stream().map(Actor::nombre))).equals(actores[i])
+                && minusculas(nombres(p.directores().stream().map(Director::nombre))).equals(directores[i]);
+    }
+
+    /**
+     * Devuelve como texto el valor de orden de la fila para emitir el cursor.
+     */
+    private String claveTexto(int i, String campo) {
+        return switch (campo) {
+            case "precio" -> BigDecimal.valueOf(precioCentavos[i], 2).toPlainString();
+            case "fechaSalida" -> LocalDate.ofEpochDay(fechaEpochDay[i]).toString();
+            case "genero" -> generos[generoOrdinal[i]];
+            case "formato" -> peliculas[i].formato().tipo();
+            case "condicion" -> peliculas[i].condicion().valor();
+            default -> peliculas[i].titulo();
+        };
+    }
+
+    /**
+     * Une los nombres de un reparto en un solo texto, uno por linea.
+     */
+    private static String nombres(Stream<String> nombres) {
+        return String.join("\n", nombres.toList());
+    }
+
+    /**
+     * Crea la colacion de los textos de orden: sin distinguir mayusculas ni acentos.
+     */
+    private static Collator colacion() {
+        Collator colacion = Collator.getInstance(Locale.ROOT);
+        colacion.setStrength(Collator.PRIMARY);
+        return colacion;
+    }
+
+    /**
+     * Expresa un importe en centavos redondeando a dos decimales.
+     */
+    private static long centavos(BigDecimal importe) {
+        return importe.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Pasa un texto a minusculas con reglas independientes del idioma del servidor.
+     */
+    private static String minusculas(String texto) {
+        return texto == null ? "" : texto.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Ids resueltos por el indice de texto para q, actor y director.
+     *
+     * porTexto son las mas relevantes, en orden, y solo se usa para ordenar por
+     * relevancia; porTextoIds son todas las coincidencias de q y es el que filtra.
+     */
+    record Coincidencias(boolean indexado, List<Long> porTexto, Set<Long> porTextoIds, Set<Long> porActor,
+            Set<Long> porDirector) {
+        static final Coincidencias SIN_INDICE = new Coincidencias(false, null, null, null, null);
+    }
+}
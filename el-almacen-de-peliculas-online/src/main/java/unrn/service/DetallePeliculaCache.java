@@ -0,0 +1,158 @@
+package unrn.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache acotado del detalle publico de peliculas para GET /peliculas/{id}.
+ *
+ * Guarda el DTO ya armado junto con la version de la pelicula y desaloja la
+ * entrada usada hace mas tiempo al superar el maximo configurado. Los cambios de
+ * datos, stock o rating invalidan el id ahora y otra vez al confirmar; la
+ * generacion impide guardar un detalle leido antes de ese cambio.
+ */
+@Component
+public class DetallePeliculaCache {
+
+    static final int MAX_ENTRADAS_POR_DEFECTO = 10_000;
+
+    private final int maxEntradas;
+    private final Map<Long, DetallePeliculaVersionado> entradas;
+    private final AtomicLong generacion = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    /**
+     * Inicializa una instancia de DetallePeliculaCache con valores por defecto.
+     */
+    public DetallePeliculaCache() {
+        this(MAX_ENTRADAS_POR_DEFECTO);
+    }
+
+    /**
+     * Inicializa una instancia de DetallePeliculaCache con los datos necesarios.
+     */
+    @Autowired
+    public DetallePeliculaCache(
+            @Value("${catalogo.detalle-cache.max-entradas:" + MAX_ENTRADAS_POR_DEFECTO + "}") int maxEntradas) {
+        this.maxEntradas = maxEntradas;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            /**
+             * Desaloja la entrada menos usada cuando se supera el maximo.
+             */
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DetallePeliculaVersionado> mayor) {
+                if (size() > DetallePeliculaCache.this.maxEntradas) {
+                    desalojos.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve la generacion actual para asociarla a un detalle que se va a leer.
+     */
+    public long generacion() {
+        return generacion.get();
+    }
+
+    /**
+     * Devuelve el detalle cacheado o null si no esta.
+     */
+    public DetallePeliculaVersionado obtener(Long id) {
+        DetallePeliculaVersionado entrada;
+        synchronized (entradas) {
+            entrada = entradas.get(id);
+        }
+        if (entrada == null) {
+            fallos.incrementAndGet();
+            return null;
+        }
+        aciertos.incrementAndGet();
+        return entrada;
+    }
+
+    /**
+     * Devuelve la etiqueta cacheada del detalle o null si no esta, sin contarlo como lectura.
+     */
+    public String etiqueta(Long id) {
+        synchronized (entradas) {
+            DetallePeliculaVersionado entrada = entradas.get(id);
+            return entrada == null ? null : entrada.etiqueta();
+        }
+    }
+
+    /**
+     * Guarda el detalle si no hubo cambios desde la generacion leida.
+     */
+    public void guardar(DetallePeliculaVersionado detalle, long generacionLeida) {
+        if (maxEntradas <= 0) {
+            return;
+        }
+        Long id = detalle.detalle().id();
+        synchronized (entradas) {
+            if (generacionLeida != generacion.get()) {
+                return;
+            }
+            DetallePeliculaVersionado actual = entradas.get(id);
+            if (actual == null || actual.version() <= detalle.version()) {
+                entradas.put(id, detalle);
+            }
+        }
+    }
+
+    /**
+     * Descarta el detalle de la pelicula ahora y nuevamente al confirmar la transaccion.
+     */
+    public void invalidar(Long id) {
+        quitar(id);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                /**
+                 * Descarta el detalle leido mientras la transaccion seguia abierta.
+                 */
+                @Override
+                public void afterCommit() {
+                    quitar(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Devuelve los contadores de uso del cache.
+     */
+    public Estadisticas estadisticas() {
+        int tamanio;
+        synchronized (entradas) {
+            tamanio = entradas.size();
+        }
+        return new Estadisticas(aciertos.get(), fallos.get(), desalojos.get(), tamanio, maxEntradas);
+    }
+
+    /**
+     * Avanza la generacion y quita la entrada del id.
+     */
+    private void quitar(Long id) {
+        synchronized (entradas) {
+            generacion.incrementAndGet();
+            entradas.remove(id);
+        }
+    }
+
+    /**
+     * Contadores de aciertos, fallos y desalojos del cache de detalle.
+     */
+    public record Estadisticas(long aciertos, long fallos, long desalojos, int entradas, int maxEntradas) {
+    }
+}
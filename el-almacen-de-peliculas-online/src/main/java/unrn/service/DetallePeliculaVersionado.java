@@ -0,0 +1,29 @@
+package unrn.service;
+
+import unrn.dto.DetallePeliculaDTO;
+
+import java.util.Objects;
+
+/**
+ * Detalle publico de una pelicula junto con la version de la que fue armado.
+ *
+ * La version no se expone en el DTO publico, pero la API la usa para el ETag
+ * del detalle. Como los ratings se actualizan sin aumentar la version, el ETag
+ * usa la etiqueta, que suma a la version un hash de los campos de rating.
+ */
+public record DetallePeliculaVersionado(DetallePeliculaDTO detalle, long version) {
+
+    /**
+     * Devuelve la etiqueta del detalle para armar el ETag.
+     */
+    public String etiqueta() {
+        return etiqueta(version, detalle.rating(), detalle.ratingPromedio(), detalle.totalRatings());
+    }
+
+    /**
+     * Arma la etiqueta a partir de la version y de los campos de rating de la pelicula.
+     */
+    public static String etiqueta(long version, int rating, Double ratingPromedio, Integer totalRatings) {
+        return version + "-" + Integer.toHexString(Objects.hash(rating, ratingPromedio, totalRatings));
+    }
+}
@@ -0,0 +1,122 @@
+package unrn.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.PeliculaVista;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Exporta el catalogo activo completo en NDJSON o CSV, una pelicula por linea.
+ *
+ * Escribe cada pelicula apenas la entrega el cursor del repositorio, sin armar
+ * listas ni agregados de dominio, asi la memoria usada es la misma para cualquier
+ * tamanio de catalogo. El CSV usa las columnas de la importacion masiva, con las
+ * listas separadas por '|', mas las que solo se leen (id, ratings, stock y
+ * version), de modo que un archivo exportado se puede volver a importar.
+ */
+@Service
+public class ExportacionPeliculasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacionPeliculasService.class);
+
+    static final int FETCH_SIZE_POR_DEFECTO = 500;
+    static final List<String> COLUMNAS_CSV = List.of("id", "titulo", "condicion", "directores", "precio",
+            "formato", "genero", "sinopsis", "actores", "imagenUrl", "fechaSalida", "rating", "ratingPromedio",
+            "totalRatings", "stockDisponible", "version");
+    private static final String SEPARADOR_LISTA = "|";
+
+    private final PeliculaRepository peliculaRepository;
+    private final ObjectMapper objectMapper;
+    private final int tamanioFetch;
+
+    /**
+     * Inicializa una instancia de ExportacionPeliculasService con los datos necesarios.
+     */
+    public ExportacionPeliculasService(PeliculaRepository peliculaRepository,
+            ObjectMapper objectMapper,
+            @Value("${catalogo.exportacion.fetch-size:" + FETCH_SIZE_POR_DEFECTO + "}") int tamanioFetch) {
+        this.peliculaRepository = peliculaRepository;
+        this.objectMapper = objectMapper;
+        this.tamanioFetch = Math.max(1, tamanioFetch);
+    }
+
+    /**
+     * Escribe todas las peliculas activas en la salida y devuelve cuantas exporto.
+     */
+    public long exportar(Writer salida, FormatoImportacion formato) {
+        long inicio = System.nanoTime();
+        if (formato == FormatoImportacion.CSV) {
+            escribir(salida, String.join(",", COLUMNAS_CSV));
+        }
+        long exportadas = peliculaRepository.recorrerVistasActivas(tamanioFetch, vista ->
+                escribir(salida, formato == FormatoImportacion.CSV ? lineaCsv(vista) : lineaJson(vista)));
+        log.info("Exportacion de peliculas terminada: {} peliculas en {} ms",
+                exportadas, (System.nanoTime() - inicio) / 1_000_000);
+        return exportadas;
+    }
+
+    /**
+     * Serializa la vista como una linea NDJSON.
+     */
+    private String lineaJson(PeliculaVista vista) {
+        try {
+            return objectMapper.writeValueAsString(vista);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Arma la linea CSV de la vista en el orden de COLUMNAS_CSV.
+     */
+    static String lineaCsv(PeliculaVista vista) {
+        return String.join(",",
+                campo(vista.id()),
+                campo(vista.titulo()),
+                campo(vista.condicion()),
+                campo(String.join(SEPARADOR_LISTA, vista.directores())),
+                campo(vista.precio()),
+                campo(vista.formato()),
+                campo(vista.genero()),
+                campo(vista.sinopsis()),
+                campo(String.join(SEPARADOR_LISTA, vista.actores())),
+                campo(vista.imagenUrl()),
+                campo(vista.fechaSalida()),
+                campo(vista.rating()),
+                campo(vista.ratingPromedio()),
+                campo(vista.totalRatings()),
+                campo(vista.stockDisponible()),
+                campo(vista.version()));
+    }
+
+    /**
+     * Escribe un valor CSV, entre comillas dobles si tiene comas, comillas o saltos de linea.
+     */
+    private static String campo(Object valor) {
+        String texto = Objects.toString(valor, "");
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0
+                && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+
+    private static void escribir(Writer salida, String linea) {
+        try {
+            salida.write(linea);
+            salida.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
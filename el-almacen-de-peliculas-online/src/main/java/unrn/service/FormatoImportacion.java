@@ -0,0 +1,8 @@
+package unrn.service;
+
+/**
+ * Formatos de archivo de la importacion y la exportacion masiva de peliculas.
+ */
+public enum FormatoImportacion {
+    NDJSON, CSV
+}
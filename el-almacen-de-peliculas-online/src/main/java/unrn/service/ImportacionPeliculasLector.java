@@ -0,0 +1,258 @@
+package unrn.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import unrn.dto.PeliculaImportacionFila;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lee de a una las filas de una importacion de peliculas en NDJSON o CSV.
+ *
+ * No junta el cuerpo en memoria: cada llamada a siguiente consume una linea del
+ * reader. En CSV la primera linea es el encabezado con los nombres de las
+ * columnas, en cualquier orden; los directores y actores se separan con '|' y
+ * los campos pueden ir entre comillas dobles, incluso con saltos de linea
+ * adentro, como los escribe la exportacion: un registro sigue en las lineas
+ * siguientes mientras tenga comillas abiertas, hasta MAX_LINEAS_REGISTRO lineas
+ * o MAX_CARACTERES_REGISTRO caracteres; pasado ese limite se informa como sin
+ * cerrar y la lectura sigue en la linea siguiente. Una fecha vacia se lee como
+ * ausente para que la informe la validacion de Pelicula. Una linea que no se
+ * puede leer se devuelve con su error para que la importacion siga con la
+ * proxima.
+ */
+class ImportacionPeliculasLector {
+
+    static final String ERROR_ENCABEZADO_CSV = "El CSV debe empezar con el encabezado de columnas";
+    static final String ERROR_COLUMNA_FALTANTE = "Falta la columna ";
+    static final String ERROR_CANTIDAD_CAMPOS = "La fila no tiene la misma cantidad de campos que el encabezado";
+    static final String ERROR_FILA_ILEGIBLE = "La fila no se puede leer: ";
+    static final String ERROR_REGISTRO_SIN_CERRAR = "El registro tiene comillas sin cerrar";
+    static final int MAX_LINEAS_REGISTRO = 100;
+    static final int MAX_CARACTERES_REGISTRO = 65_536;
+    static final List<String> COLUMNAS_CSV = List.of("titulo", "condicion", "directores", "precio", "formato",
+            "genero", "sinopsis", "actores", "imagenUrl", "fechaSalida", "rating");
+    private static final String SEPARADOR_LISTA = "\\|";
+
+    private final BufferedReader entrada;
+    private final FormatoImportacion formato;
+    private final ObjectMapper objectMapper;
+    private Map<String, Integer> columnas;
+    private int numeroLinea;
+
+    /**
+     * Inicializa una instancia de ImportacionPeliculasLector con los datos necesarios.
+     */
+    ImportacionPeliculasLector(BufferedReader entrada, FormatoImportacion formato, ObjectMapper objectMapper) {
+        this.entrada = entrada;
+        this.formato = formato;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Devuelve la proxima fila no vacia, o null al terminar la entrada.
+     */
+    Linea siguiente() {
+        String texto;
+        while ((texto = leerLinea()) != null) {
+            if (texto.isBlank()) {
+                continue;
+            }
+            int primeraLinea = numeroLinea;
+            if (formato == FormatoImportacion.CSV && columnas == null) {
+                columnas = encabezado(registroCsv(texto));
+                continue;
+            }
+            try {
+                if (formato == FormatoImportacion.CSV) {
+                    texto = registroCsv(texto);
+                }
+                var fila = formato == FormatoImportacion.CSV ? desdeCsv(texto) : desdeJson(texto);
+                return new Linea(primeraLinea, fila, null);
+            } catch (RuntimeException e) {
+                return new Linea(primeraLinea, null, mensaje(e));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Completa un registro CSV con las lineas siguientes mientras quede un campo entre comillas abierto.
+     *
+     * Si la entrada termina con las comillas abiertas devuelve lo leido, y la
+     * fila falla al separar sus campos. Una comilla suelta dejaria el registro
+     * abierto hasta el final del cuerpo, asi que pasado el limite de lineas o de
+     * caracteres se corta y se informa como sin cerrar.
+     */
+    private String registroCsv(String texto) {
+        var registro = new StringBuilder(texto);
+        int lineas = 1;
+        String siguiente;
+        while (comillasAbiertas(registro) && (siguiente = leerLinea()) != null) {
+            lineas++;
+            if (lineas > MAX_LINEAS_REGISTRO || registro.length() + siguiente.length() > MAX_CARACTERES_REGISTRO) {
+                throw new ValidationRuntimeException(ERROR_REGISTRO_SIN_CERRAR);
+            }
+            registro.append('\n').append(siguiente);
+        }
+        return registro.toString();
+    }
+
+    /**
+     * Indica si el texto termina dentro de un campo entre comillas dobles.
+     *
+     * Las comillas escapadas ("") suman dos, asi que alcanza con contar si la
+     * cantidad es impar.
+     */
+    static boolean comillasAbiertas(CharSequence texto) {
+        int comillas = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) == '"') {
+                comillas++;
+            }
+        }
+        return comillas % 2 != 0;
+    }
+
+    /**
+     * Lee la proxima linea del cuerpo llevando la cuenta del numero de linea.
+     */
+    private String leerLinea() {
+        try {
+            String texto = entrada.readLine();
+            if (texto != null) {
+                numeroLinea++;
+            }
+            return texto;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Interpreta una linea NDJSON como fila de importacion.
+     */
+    private PeliculaImportacionFila desdeJson(String texto) {
+        try {
+            return objectMapper.readValue(texto, PeliculaImportacionFila.class);
+        } catch (JsonProcessingException e) {
+            throw new ValidationRuntimeException(ERROR_FILA_ILEGIBLE + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Interpreta una linea CSV como fila de importacion segun el encabezado leido.
+     */
+    private PeliculaImportacionFila desdeCsv(String texto) {
+        List<String> campos = campos(texto);
+        if (campos.size() != columnas.size()) {
+            throw new ValidationRuntimeException(ERROR_CANTIDAD_CAMPOS);
+        }
+        try {
+            return new PeliculaImportacionFila(
+                    campo(campos, "titulo"),
+                    campo(campos, "condicion"),
+                    lista(campo(campos, "directores")),
+                    Double.parseDouble(campo(campos, "precio")),
+                    campo(campos, "formato"),
+                    campo(campos, "genero"),
+                    campo(campos, "sinopsis"),
+                    lista(campo(campos, "actores")),
+                    campo(campos, "imagenUrl"),
+                    fecha(campo(campos, "fechaSalida")),
+                    Integer.parseInt(campo(campos, "rating")));
+        } catch (RuntimeException e) {
+            throw new ValidationRuntimeException(ERROR_FILA_ILEGIBLE + e.getMessage());
+        }
+    }
+
+    /**
+     * Lee el encabezado CSV y exige todas las columnas conocidas.
+     */
+    private Map<String, Integer> encabezado(String texto) {
+        List<String> nombres = campos(texto);
+        var posiciones = new HashMap<String, Integer>();
+        for (int i = 0; i < nombres.size(); i++) {
+            posiciones.put(nombres.get(i).trim(), i);
+        }
+        if (posiciones.isEmpty()) {
+            throw new ValidationRuntimeException(ERROR_ENCABEZADO_CSV);
+        }
+        for (String columna : COLUMNAS_CSV) {
+            if (!posiciones.containsKey(columna)) {
+                throw new ValidationRuntimeException(ERROR_COLUMNA_FALTANTE + columna);
+            }
+        }
+        return posiciones;
+    }
+
+    /**
+     * Separa una linea CSV por comas respetando los campos entre comillas dobles.
+     */
+    static List<String> campos(String texto) {
+        var campos = new ArrayList<String>();
+        var actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    /**
+     * Convierte la fecha ISO del CSV, o null si la columna esta vacia.
+     */
+    private static LocalDate fecha(String texto) {
+        return texto.isEmpty() ? null : LocalDate.parse(texto);
+    }
+
+    private String campo(List<String> campos, String columna) {
+        return campos.get(columnas.get(columna)).trim();
+    }
+
+    /**
+     * Convierte una lista separada por '|' en nombres, descartando los vacios.
+     */
+    private static List<String> lista(String texto) {
+        return Arrays.stream(texto.split(SEPARADOR_LISTA))
+                .map(String::trim)
+                .filter(nombre -> !nombre.isEmpty())
+                .toList();
+    }
+
+    private static String mensaje(RuntimeException e) {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    /**
+     * Fila leida con su numero de linea; si no se pudo leer trae el error en lugar de la fila.
+     */
+    record Linea(int numero, PeliculaImportacionFila fila, String error) {
+    }
+}
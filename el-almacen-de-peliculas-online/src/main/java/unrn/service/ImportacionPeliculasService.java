@@ -0,0 +1,196 @@
+package unrn.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import unrn.dto.PeliculaImportacionFila;
+import unrn.event.movie.MovieBatchEventEnvelope;
+import unrn.event.movie.MovieEventPayload;
+import unrn.event.movie.MovieEventPublisher;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.model.Actor;
+import unrn.model.Condicion;
+import unrn.model.Director;
+import unrn.model.Formato;
+import unrn.model.Genero;
+import unrn.model.Pelicula;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Importa peliculas en masa desde un cuerpo NDJSON o CSV leido de a una linea.
+ *
+ * Cada fila se valida armando la Pelicula de dominio; las invalidas se informan
+ * con su numero de linea y no frenan al resto. Las validas se juntan en lotes de
+ * tamanio configurable y cada lote se inserta con JDBC por lotes en su propia
+ * transaccion, asi un lote fallido no revierte lo ya importado. Por cada lote
+ * confirmado se publica un unico evento MoviesImported.v1 y, al terminar, se
+ * reconstruye una sola vez el catalogo en memoria.
+ */
+@Service
+public class ImportacionPeliculasService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionPeliculasService.class);
+
+    static final int LOTE_POR_DEFECTO = 1000;
+    static final String ERROR_LOTE_FALLIDO = "No se pudo guardar el lote: ";
+
+    private final PeliculaRepository peliculaRepository;
+    private final MovieEventPublisher eventPublisher;
+    private final CatalogoLecturaEnMemoria catalogoEnMemoria;
+    private final ObjectMapper objectMapper;
+    private final int tamanioLote;
+
+    /**
+     * Inicializa una instancia de ImportacionPeliculasService con los datos necesarios.
+     */
+    public ImportacionPeliculasService(PeliculaRepository peliculaRepository,
+            MovieEventPublisher eventPublisher,
+            Optional<CatalogoLecturaEnMemoria> catalogoEnMemoria,
+            ObjectMapper objectMapper,
+            @Value("${catalogo.importacion.lote:" + LOTE_POR_DEFECTO + "}") int tamanioLote) {
+        this.peliculaRepository = peliculaRepository;
+        this.eventPublisher = eventPublisher;
+        this.catalogoEnMemoria = catalogoEnMemoria.orElse(null);
+        this.objectMapper = objectMapper;
+        this.tamanioLote = Math.max(1, tamanioLote);
+    }
+
+    /**
+     * Importa todas las filas de la entrada e informa errores y avance al observador.
+     */
+    public Resumen importar(BufferedReader entrada, FormatoImportacion formato, Observador observador) {
+        long inicio = System.nanoTime();
+        var lector = new ImportacionPeliculasLector(entrada, formato, objectMapper);
+        var lote = new ArrayList<Pelicula>(tamanioLote);
+        var lineasDelLote = new ArrayList<Integer>(tamanioLote);
+        var avance = new Avance();
+
+        ImportacionPeliculasLector.Linea linea;
+        while ((linea = lector.siguiente()) != null) {
+            avance.procesadas++;
+            if (linea.error() != null) {
+                avance.errores++;
+                observador.error(linea.numero(), linea.error());
+                continue;
+            }
+            try {
+                lote.add(peliculaDesde(linea.fila()));
+                lineasDelLote.add(linea.numero());
+            } catch (RuntimeException e) {
+                avance.errores++;
+                observador.error(linea.numero(), mensaje(e));
+                continue;
+            }
+            if (lote.size() == tamanioLote) {
+                guardarLote(lote, lineasDelLote, avance, observador);
+            }
+        }
+        if (!lote.isEmpty()) {
+            guardarLote(lote, lineasDelLote, avance, observador);
+        }
+        if (catalogoEnMemoria != null && avance.importadas > 0) {
+            catalogoEnMemoria.reconstruir();
+        }
+
+        var resumen = avance.resumen((System.nanoTime() - inicio) / 1_000_000);
+        log.info("Importacion de peliculas terminada: {} filas, {} importadas, {} con error en {} ms",
+                resumen.procesadas(), resumen.importadas(), resumen.errores(), resumen.milisegundos());
+        return resumen;
+    }
+
+    /**
+     * Inserta el lote en su propia transaccion y publica su evento; si falla, todas sus filas quedan con error.
+     */
+    private void guardarLote(List<Pelicula> lote, List<Integer> lineas, Avance avance, Observador observador) {
+        try {
+            var importadas = peliculaRepository.importarLote(lote);
+            avance.importadas += importadas.size();
+            publicar(importadas);
+        } catch (RuntimeException e) {
+            log.warn("Fallo un lote de importacion de {} peliculas", lote.size(), e);
+            avance.errores += lote.size();
+            for (Integer numero : lineas) {
+                observador.error(numero, ERROR_LOTE_FALLIDO + mensaje(e));
+            }
+        }
+        lote.clear();
+        lineas.clear();
+        observador.progreso(avance.resumen(0));
+    }
+
+    /**
+     * Publica un unico evento con las peliculas del lote; un fallo del broker no deshace la importacion.
+     */
+    private void publicar(List<Pelicula> importadas) {
+        var payloads = importadas.stream()
+                .map(p -> new MovieEventPayload(p.id(), p.titulo(), p.precio(), p.activa(), p.version()))
+                .toList();
+        try {
+            eventPublisher.publishNow(MovieBatchEventEnvelope.imported(payloads));
+        } catch (RuntimeException e) {
+            log.error("No se pudo publicar el evento de {} peliculas importadas", payloads.size(), e);
+        }
+    }
+
+    /**
+     * Arma la pelicula de dominio de una fila; sus invariantes validan la fila.
+     */
+    private static Pelicula peliculaDesde(PeliculaImportacionFila fila) {
+        return new Pelicula(
+                fila.titulo(),
+                new Condicion(fila.condicion()),
+                fila.directores() == null ? List.of() : fila.directores().stream().map(Director::new).toList(),
+                fila.precio(),
+                new Formato(fila.formato()),
+                new Genero(fila.genero()),
+                fila.sinopsis(),
+                fila.actores() == null ? List.of() : fila.actores().stream().map(Actor::new).toList(),
+                fila.imagenUrl(),
+                fila.fechaSalida(),
+                fila.rating());
+    }
+
+    private static String mensaje(RuntimeException e) {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    /**
+     * Recibe los errores por fila y el avance tras cada lote mientras dura la importacion.
+     */
+    public interface Observador {
+        /**
+         * Informa una fila que no se importo, con su numero de linea en la entrada.
+         */
+        void error(int linea, String mensaje);
+
+        /**
+         * Informa el avance acumulado despues de cada lote.
+         */
+        void progreso(Resumen avance);
+    }
+
+    /**
+     * Totales de una importacion: filas leidas, importadas, con error y duracion.
+     */
+    public record Resumen(int procesadas, int importadas, int errores, long milisegundos) {
+    }
+
+    /**
+     * Contadores mutables de la importacion en curso.
+     */
+    private static final class Avance {
+        private int procesadas;
+        private int importadas;
+        private int errores;
+
+        private Resumen resumen(long milisegundos) {
+            return new Resumen(procesadas, importadas, errores, milisegundos);
+        }
+    }
+}
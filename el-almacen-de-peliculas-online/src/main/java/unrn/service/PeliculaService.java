@@ -1,10 +1,6 @@
 package unrn.service;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import unrn.dto.AdminPeliculaDTO;
@@ -14,15 +10,20 @@ import unrn.event.movie.MovieEventEnvelope;
 import unrn.event.movie.MovieEventPayload;
 import unrn.event.movie.MovieEventPublisher;
 import unrn.infra.persistence.ActorRepository;
+import unrn.infra.persistence.CatalogoVersion;
 import unrn.infra.persistence.DirectorRepository;
 import unrn.infra.persistence.PageResult;
+import unrn.infra.persistence.PeliculaCursor;
+import unrn.infra.persistence.PeliculaFiltro;
 import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.PeliculaVista;
 import unrn.model.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -40,10 +41,11 @@ public class PeliculaService {
     static final String ERROR_PELICULA_INEXISTENTE = "La pelÃ­cula no existe";
     static final int MAX_SIZE = 100;
     static final Set<String> SORT_ALLOWLIST = Set.of("titulo", "precio", "fechaSalida", "genero", "formato",
-            "condicion");
+            "condicion", "relevancia");
     static final String ERROR_PAGE_INVALIDA = "El parÃ¡metro 'page' debe ser mayor o igual a 0";
     static final String ERROR_SIZE_INVALIDA = "El parÃ¡metro 'size' debe estar entre 1 y " + MAX_SIZE;
     static final String ERROR_SORT_INVALIDO = "El parÃ¡metro 'sort' no es vÃ¡lido";
+    static final String ERROR_CURSOR_INVALIDO = "El parametro 'cursor' no es valido para esta busqueda";
     static final String ERROR_STOCK_REQUERIDO = "El stock es requerido";
     static final String ERROR_STOCK_INVALIDO = "El stock debe ser un numero entero mayor o igual a cero";
     static final String ERROR_VERSION_REQUERIDA = "La version es requerida";
@@ -53,6 +55,10 @@ public class PeliculaService {
     private final ActorRepository actorRepository;
     private final PeliculaRepository peliculaRepository;
     private final MovieEventPublisher eventPublisher;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final CatalogoLecturaEnMemoria catalogoEnMemoria;
+    private final DetallePeliculaCache detalleCache;
+    private final CatalogoVersion catalogoVersion;
 
     /**
      * Inicializa una instancia de PeliculaService con los datos necesarios.
@@ -60,11 +66,19 @@ public class PeliculaService {
     public PeliculaService(DirectorRepository directorRepository,
             ActorRepository actorRepository,
             PeliculaRepository peliculaRepository,
-            MovieEventPublisher eventPublisher) {
+            MovieEventPublisher eventPublisher,
+            ApplicationEventPublisher applicationEventPublisher,
+            Optional<CatalogoLecturaEnMemoria> catalogoEnMemoria,
+            DetallePeliculaCache detalleCache,
+            CatalogoVersion catalogoVersion) {
         this.directorRepository = directorRepository;
         this.actorRepository = actorRepository;
         this.peliculaRepository = peliculaRepository;
         this.eventPublisher = eventPublisher;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.catalogoEnMemoria = catalogoEnMemoria.orElse(null);
+        this.detalleCache = detalleCache;
+        this.catalogoVersion = catalogoVersion;
     }
 
     // -------------------------
@@ -93,7 +107,7 @@ public class PeliculaService {
 
         var guardada = peliculaRepository.guardar(pelicula);
         var payload = payloadDesde(guardada);
-        eventPublisher.publishAfterCommit(MovieEventEnvelope.created(payload));
+        publicar(MovieEventEnvelope.created(payload));
     }
 
     // -------------------------
@@ -126,8 +140,9 @@ public class PeliculaService {
                 request.rating());
 
         var actualizada = peliculaRepository.actualizar(id, peliculaActualizada);
+        detalleCache.invalidar(id);
         var payload = payloadDesde(actualizada);
-        eventPublisher.publishAfterCommit(MovieEventEnvelope.updated(payload));
+        publicar(MovieEventEnvelope.updated(payload));
     }
 
     /**
@@ -142,6 +157,7 @@ public class PeliculaService {
         if (actualizada == null) {
             throw new PeliculaNotFoundException(ERROR_PELICULA_INEXISTENTE);
         }
+        detalleCache.invalidar(id);
 
         return AdminPeliculaDTO.from(actualizada);
     }
@@ -158,27 +174,24 @@ public class PeliculaService {
         if (eliminada == null) {
             throw new PeliculaNotFoundException(ERROR_PELICULA_INEXISTENTE);
         }
+        detalleCache.invalidar(id);
 
         var payload = payloadDesde(eliminada);
-        eventPublisher.publishAfterCommit(MovieEventEnvelope.retired(payload));
+        publicar(MovieEventEnvelope.retired(payload));
     }
 
     // -------------------------
     // LISTAR
     // -------------------------
-    /**
-     * Lista todas las peliculas activas disponibles en catalogo.
-     */
-    @Transactional(readOnly = true)
-    public List<Pelicula> listarTodas() {
-        return peliculaRepository.listarTodos();
-    }
-
     /**
      * Busca peliculas con filtros, orden y paginacion validada.
+     *
+     * Si se recibe cursor se pagina por clave a partir de la ultima fila entregada;
+     * si no, se mantiene la paginacion por offset para clientes existentes. Con
+     * conTotal en false se omite el conteo y solo se informa si hay pagina siguiente.
      */
     @Transactional(readOnly = true)
-    public Page<Pelicula> buscarPaginado(
+    public PageResult<Pelicula> buscarPaginado(
             String q,
             String genero,
             String formato,
@@ -192,11 +205,14 @@ public class PeliculaService {
             int page,
             int size,
             String sort,
-            boolean asc) {
+            boolean asc,
+            String cursor,
+            boolean conTotal) {
         String safeSort = (sort == null) ? "titulo" : sort.trim();
         assertParametrosPaginacionYOrdenValidos(page, size, safeSort);
+        PeliculaCursor posicion = cursorValido(cursor, safeSort, asc);
 
-        PageResult<Pelicula> result = peliculaRepository.buscarPaginado(
+        return peliculaRepository.buscarPaginado(
                 q,
                 genero,
                 formato,
@@ -210,18 +226,96 @@ public class PeliculaService {
                 page,
                 size,
                 safeSort,
-                asc);
+                asc,
+                posicion,
+                conTotal);
+    }
 
-        Sort sortSpec = Sort.by(asc ? Sort.Direction.ASC : Sort.Direction.DESC, safeSort);
-        Pageable pageable = PageRequest.of(result.getPage(), result.getSize(), sortSpec);
-        return new PageImpl<>(result.getItems(), pageable, result.getTotal());
+    /**
+     * Devuelve el detalle publico de una pelicula o null si no existe.
+     *
+     * Con el catalogo en memoria activo, las peliculas activas se responden sin ir
+     * a la base. Si no, se usa el cache de detalle y solo ante un fallo se arma el
+     * agregado desde el repositorio.
+     */
+    @Transactional(readOnly = true)
+    public DetallePeliculaVersionado detalle(Long id) {
+        if (catalogoEnMemoriaListo()) {
+            Pelicula enMemoria = catalogoEnMemoria.porId(id);
+            if (enMemoria != null) {
+                return new DetallePeliculaVersionado(DetallePeliculaDTO.from(enMemoria), enMemoria.version());
+            }
+        }
+        DetallePeliculaVersionado cacheado = detalleCache.obtener(id);
+        if (cacheado != null) {
+            return cacheado;
+        }
+
+        long generacion = detalleCache.generacion();
+        Pelicula pelicula = peliculaRepository.porId(id);
+        if (pelicula == null) {
+            return null;
+        }
+        var detalle = new DetallePeliculaVersionado(DetallePeliculaDTO.from(pelicula), pelicula.version());
+        detalleCache.guardar(detalle, generacion);
+        return detalle;
     }
 
     /**
-     * Busca peliculas y las transforma al DTO publico de detalle.
+     * Devuelve la etiqueta actual del detalle de una pelicula sin armarlo, o null si no existe.
+     *
+     * La etiqueta combina version y ratings, asi un rating nuevo cambia el ETag
+     * aunque no aumente la version. Permite responder 304 a un If-None-Match
+     * vigente con una lectura de memoria o, a lo sumo, una consulta de una fila.
      */
     @Transactional(readOnly = true)
-    public Page<DetallePeliculaDTO> buscarPaginadoDetalle(
+    public String etiquetaDetalle(Long id) {
+        if (catalogoEnMemoriaListo()) {
+            Pelicula enMemoria = catalogoEnMemoria.porId(id);
+            if (enMemoria != null) {
+                return DetallePeliculaVersionado.etiqueta(enMemoria.version(), enMemoria.rating(),
+                        enMemoria.ratingPromedio(), enMemoria.totalRatings());
+            }
+        }
+        String cacheada = detalleCache.etiqueta(id);
+        if (cacheada != null) {
+            return cacheada;
+        }
+        var version = peliculaRepository.versionDeDetalle(id);
+        return version == null ? null : DetallePeliculaVersionado.etiqueta(version.version(), version.rating(),
+                version.ratingPromedio(), version.totalRatings());
+    }
+
+    /**
+     * Devuelve la marca de cambios del catalogo para los ETag de listados.
+     */
+    public String marcaCatalogo() {
+        return catalogoVersion.marca();
+    }
+
+    /**
+     * Devuelve los contadores de aciertos, fallos y desalojos del cache de detalle.
+     */
+    public DetallePeliculaCache.Estadisticas estadisticasDetalleCache() {
+        return detalleCache.estadisticas();
+    }
+
+    /**
+     * Lista los generos disponibles para filtros del catalogo publico.
+     */
+    @Transactional(readOnly = true)
+    public List<String> listarCategorias() {
+        return catalogoEnMemoriaListo() ? catalogoEnMemoria.categorias() : peliculaRepository.listarGeneros();
+    }
+
+    /**
+     * Busca peliculas y las devuelve con el DTO publico de detalle.
+     *
+     * Con el catalogo en memoria activo la busqueda se resuelve sobre la foto, sin
+     * consultas a la base.
+     */
+    @Transactional(readOnly = true)
+    public PageResult<DetallePeliculaDTO> buscarPaginadoDetalle(
             String q,
             String genero,
             String formato,
@@ -235,16 +329,27 @@ public class PeliculaService {
             int page,
             int size,
             String sort,
-            boolean asc) {
-        return buscarPaginado(q, genero, formato, condicion, actor, director, minPrecio, maxPrecio, desde, hasta,
-                page, size, sort, asc).map(DetallePeliculaDTO::from);
+            boolean asc,
+            String cursor,
+            boolean conTotal) {
+        if (catalogoEnMemoriaListo()) {
+            String safeSort = (sort == null) ? "titulo" : sort.trim();
+            assertParametrosPaginacionYOrdenValidos(page, size, safeSort);
+            PeliculaCursor posicion = cursorValido(cursor, safeSort, asc);
+            var filtro = PeliculaFiltro.normalizado(q, genero, formato, condicion, actor, director, desde, hasta,
+                    minPrecio, maxPrecio);
+            return catalogoEnMemoria.buscar(filtro, page, size, safeSort, asc, posicion, conTotal)
+                    .map(DetallePeliculaDTO::from);
+        }
+        return buscarVistas(q, genero, formato, condicion, actor, director, minPrecio, maxPrecio, desde, hasta,
+                page, size, sort, asc, cursor, conTotal).map(DetallePeliculaDTO::from);
     }
 
     /**
-     * Busca peliculas y las transforma al DTO administrativo.
+     * Busca peliculas y las devuelve con el DTO administrativo.
      */
     @Transactional(readOnly = true)
-    public Page<AdminPeliculaDTO> buscarPaginadoDetalleAdmin(
+    public PageResult<AdminPeliculaDTO> buscarPaginadoDetalleAdmin(
             String q,
             String genero,
             String formato,
@@ -258,9 +363,57 @@ public class PeliculaService {
             int page,
             int size,
             String sort,
-            boolean asc) {
-        return buscarPaginado(q, genero, formato, condicion, actor, director, minPrecio, maxPrecio, desde, hasta,
-                page, size, sort, asc).map(AdminPeliculaDTO::from);
+            boolean asc,
+            String cursor,
+            boolean conTotal) {
+        return buscarVistas(q, genero, formato, condicion, actor, director, minPrecio, maxPrecio, desde, hasta,
+                page, size, sort, asc, cursor, conTotal).map(AdminPeliculaDTO::from);
+    }
+
+    /**
+     * Valida la busqueda y la resuelve con vistas de lectura, sin construir el
+     * agregado Pelicula por cada fila.
+     */
+    private PageResult<PeliculaVista> buscarVistas(
+            String q,
+            String genero,
+            String formato,
+            String condicion,
+            String actor,
+            String director,
+            BigDecimal minPrecio,
+            BigDecimal maxPrecio,
+            LocalDate desde,
+            LocalDate hasta,
+            int page,
+            int size,
+            String sort,
+            boolean asc,
+            String cursor,
+            boolean conTotal) {
+        String safeSort = (sort == null) ? "titulo" : sort.trim();
+        assertParametrosPaginacionYOrdenValidos(page, size, safeSort);
+        PeliculaCursor posicion = cursorValido(cursor, safeSort, asc);
+
+        var filtro = PeliculaFiltro.normalizado(q, genero, formato, condicion, actor, director, desde, hasta,
+                minPrecio, maxPrecio);
+        return peliculaRepository.buscarVistas(filtro, page, size, safeSort, asc, posicion, conTotal);
+    }
+
+    /**
+     * Indica si el catalogo en memoria esta habilitado y ya fue construido.
+     */
+    private boolean catalogoEnMemoriaListo() {
+        return catalogoEnMemoria != null && catalogoEnMemoria.listo();
+    }
+
+    /**
+     * Publica el evento de pelicula hacia RabbitMQ y, localmente, para los
+     * modelos de lectura; ambos se entregan despues del commit.
+     */
+    private void publicar(MovieEventEnvelope envelope) {
+        eventPublisher.publishAfterCommit(envelope);
+        applicationEventPublisher.publishEvent(envelope);
     }
 
     /**
@@ -299,6 +452,36 @@ public class PeliculaService {
         }
     }
 
+    /**
+     * Decodifica el cursor recibido y exige que corresponda al orden consultado.
+     */
+    private PeliculaCursor cursorValido(String cursor, String sort, boolean asc) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        PeliculaCursor posicion;
+        try {
+            posicion = PeliculaCursor.decodificar(cursor);
+        } catch (RuntimeException ex) {
+            throw cursorInvalido(cursor);
+        }
+        // El orden por relevancia depende del indice de texto y solo se pagina por offset.
+        if ("relevancia".equals(sort) || !posicion.correspondeA(sort, asc)) {
+            throw cursorInvalido(cursor);
+        }
+        return posicion;
+    }
+
+    /**
+     * Construye el error de validacion para un cursor que no puede usarse.
+     */
+    private CatalogoQueryValidationException cursorInvalido(String cursor) {
+        return new CatalogoQueryValidationException(
+                "INVALID_CURSOR",
+                ERROR_CURSOR_INVALIDO,
+                Map.of("field", "cursor", "value", cursor, "rule", "nextCursor de la misma busqueda"));
+    }
+
     /**
      * Valida y normaliza el stock recibido desde la API admin.
      */
@@ -6,6 +6,7 @@ CREATE TABLE IF NOT EXISTS eventos_procesados (
 );
 
 CREATE INDEX IF NOT EXISTS idx_eventos_procesados_compra ON eventos_procesados (compra_id);
+CREATE INDEX IF NOT EXISTS idx_eventos_procesados_processed_at ON eventos_procesados (processed_at);
 
 CREATE TABLE IF NOT EXISTS catalogo_outbox_event (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -13,12 +14,18 @@ CREATE TABLE IF NOT EXISTS catalogo_outbox_event (
     aggregate_id BIGINT NOT NULL,
     event_id VARCHAR(64) NOT NULL,
     event_type VARCHAR(128) NOT NULL,
-    payload_json VARCHAR(8000) NOT NULL,
+    payload_json VARCHAR(8000),
+    payload BLOB,
+    content_type VARCHAR(64),
     status VARCHAR(16) NOT NULL,
     created_at TIMESTAMP NOT NULL,
     published_at TIMESTAMP,
     attempts INT NOT NULL,
-    last_error VARCHAR(1000)
+    last_error VARCHAR(1000),
+    lease_owner VARCHAR(64),
+    lease_until TIMESTAMP,
+    next_attempt_at TIMESTAMP
 );
 
 CREATE INDEX IF NOT EXISTS idx_catalogo_outbox_status_created ON catalogo_outbox_event (status, created_at);
+CREATE INDEX IF NOT EXISTS idx_catalogo_outbox_status_next_attempt ON catalogo_outbox_event (status, next_attempt_at);
@@ -16,6 +16,7 @@ import unrn.app.Application;
 import unrn.config.JwtRoleConverter;
 import unrn.dto.PeliculaRequest;
 import unrn.event.movie.MovieEventPublisher;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 import unrn.service.ActorService;
 import unrn.service.DirectorService;
 import unrn.service.PeliculaService;
@@ -54,6 +55,9 @@ class AdminPeliculasContractIntegrationTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
     @Autowired
     private DirectorService directorService;
 
@@ -76,6 +80,7 @@ class AdminPeliculasContractIntegrationTest {
         jdbcTemplate.execute("DELETE FROM condicion");
         jdbcTemplate.execute("DELETE FROM formato");
         jdbcTemplate.execute("DELETE FROM genero");
+        referenciasCache.precargar();
     }
 
     @Test
@@ -0,0 +1,251 @@
+package unrn.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import unrn.app.Application;
+import unrn.event.movie.MovieEventPublisher;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
+import unrn.model.Actor;
+import unrn.model.Condicion;
+import unrn.model.Director;
+import unrn.model.Formato;
+import unrn.model.Genero;
+import unrn.model.Pelicula;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static unrn.support.CatalogoTestSupport.limpiarCatalogo;
+
+/**
+ * Pruebas de integracion de la exportacion del catalogo completo.
+ *
+ * Verifican que se exporten solo las peliculas activas, en orden de id y sin
+ * perder filas entre los lotes en que se completan los nombres, que el CSV
+ * escape comas y comillas, que lo exportado se pueda volver a importar y que
+ * la respuesta se comprima cuando el cliente acepta gzip.
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
+        "catalogo.importacion.lote=2",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class PeliculaExportacionIntegrationTest {
+
+    private static final String URL = "/api/admin/peliculas/export";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MovieEventPublisher movieEventPublisher;
+
+    @BeforeEach
+    void beforeEach() {
+        limpiarCatalogo(jdbcTemplate, referenciasCache);
+    }
+
+    @Test
+    @DisplayName("Exportar ndjsonConGzip devuelveLasActivasEnOrdenDeId")
+    void exportar_ndjsonConGzip_devuelveLasActivasEnOrdenDeId() throws Exception {
+        // Setup: Preparar el escenario
+        var peliculas = new ArrayList<Pelicula>();
+        for (int i = 0; i < 1_200; i++) {
+            peliculas.add(pelicula("Pelicula " + i, "Sinopsis " + i));
+        }
+        List<Long> ids = peliculaRepository.importarLote(peliculas).stream().map(Pelicula::id).toList();
+        peliculaRepository.eliminar(ids.get(0));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        MockHttpServletResponse response = mockMvc.perform(get(URL)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING), "Debe comprimir con gzip");
+        String[] lineas = descomprimir(response.getContentAsByteArray()).split("\n");
+        assertEquals(1_199, lineas.length, "Debe exportar solo las peliculas activas");
+        JsonNode primera = objectMapper.readTree(lineas[0]);
+        assertEquals(ids.get(1).longValue(), primera.get("id").asLong(), "Debe exportar en orden de id");
+        assertEquals("Director", primera.get("directores").get(0).asText(), "Debe incluir los directores");
+        JsonNode ultima = objectMapper.readTree(lineas[lineas.length - 1]);
+        assertEquals(ids.get(ids.size() - 1).longValue(), ultima.get("id").asLong(),
+                "No debe perder filas entre lotes");
+        assertEquals("Actor", ultima.get("actores").get(0).asText(), "Debe completar los nombres del ultimo lote");
+    }
+
+    @Test
+    @DisplayName("Exportar csvSinGzip escapaCamposYSeparaListas")
+    void exportar_csvSinGzip_escapaCamposYSeparaListas() throws Exception {
+        // Setup: Preparar el escenario
+        Long id = peliculaRepository.guardar(pelicula("Matrix, la pelicula", "Dice \"hola\"")).id();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        MockHttpServletResponse response = mockMvc.perform(get(URL).param("formato", "csv"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse();
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING), "Sin Accept-Encoding no debe comprimir");
+        String[] lineas = response.getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lineas.length, "Debe tener encabezado y una fila");
+        assertEquals("id,titulo,condicion,directores,precio,formato,genero,sinopsis,actores,imagenUrl,"
+                + "fechaSalida,rating,ratingPromedio,totalRatings,stockDisponible,version", lineas[0],
+                "El encabezado debe tener las columnas de la importacion");
+        assertEquals(id + ",\"Matrix, la pelicula\",nuevo,Director,100.00,BluRay,Drama,\"Dice \"\"hola\"\"\","
+                + "Actor,,1999-03-31,5,,,100.00,0", lineas[1], "Debe escapar comas y comillas");
+    }
+
+    @Test
+    @DisplayName("Exportar csvEImportarlo reproduceElCatalogoConSaltosDeLinea")
+    void exportar_csvEImportarlo_reproduceElCatalogoConSaltosDeLinea() throws Exception {
+        // Setup: Preparar el escenario
+        peliculaRepository.guardar(pelicula("Matrix, la pelicula", "Primera linea\nSegunda \"linea\", con coma"));
+        peliculaRepository.guardar(pelicula("Simple", "Sinopsis"));
+        String exportado = exportar("csv");
+        limpiarCatalogo(jdbcTemplate, referenciasCache);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        JsonNode resumen = importar(exportado, PeliculaAdminController.MEDIA_CSV);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(0, resumen.get("errores").asInt(), "El CSV exportado debe importarse sin errores");
+        assertEquals(2, resumen.get("importadas").asInt(), "Debe importar una pelicula por registro");
+        assertEquals(sinId(exportado), sinId(exportar("csv")),
+                "Reexportar lo importado debe dar las mismas filas salvo el id");
+    }
+
+    @Test
+    @DisplayName("Exportar ndjsonEImportarlo reproduceElCatalogo")
+    void exportar_ndjsonEImportarlo_reproduceElCatalogo() throws Exception {
+        // Setup: Preparar el escenario
+        peliculaRepository.guardar(pelicula("Matrix, la pelicula", "Primera linea\nSegunda \"linea\""));
+        peliculaRepository.guardar(pelicula("Simple", "Sinopsis"));
+        String exportado = exportar("ndjson");
+        limpiarCatalogo(jdbcTemplate, referenciasCache);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        JsonNode resumen = importar(exportado, PeliculaAdminController.MEDIA_NDJSON);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(0, resumen.get("errores").asInt(), "El NDJSON exportado debe importarse sin errores");
+        assertEquals(2, resumen.get("importadas").asInt(), "Debe importar una pelicula por linea");
+        assertEquals(sinIdJson(exportado), sinIdJson(exportar("ndjson")),
+                "Reexportar lo importado debe dar las mismas peliculas salvo el id");
+    }
+
+    @Test
+    @DisplayName("Exportar formatoDesconocido devuelveBadRequest")
+    void exportar_formatoDesconocido_devuelveBadRequest() throws Exception {
+        // Ejercitacion y Verificacion: Ejecutar la accion y verificar el resultado
+        mockMvc.perform(get(URL).param("formato", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String exportar(String formato) throws Exception {
+        return mockMvc.perform(get(URL).param("formato", formato))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Importa el cuerpo por la API de importacion masiva y devuelve la linea de resumen.
+     */
+    private JsonNode importar(String cuerpo, String contentType) throws Exception {
+        String[] lineas = mockMvc.perform(post("/api/admin/peliculas/bulk")
+                        .contentType(contentType)
+                        .content(cuerpo.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8)
+                .split("\n");
+        return objectMapper.readTree(lineas[lineas.length - 1]);
+    }
+
+    /**
+     * Quita el id, primer campo de cada fila CSV, respetando los registros de varias lineas.
+     */
+    private static List<String> sinId(String csv) {
+        var filas = new ArrayList<String>();
+        var registro = new StringBuilder();
+        for (String linea : csv.split("\n")) {
+            registro.append(registro.isEmpty() ? "" : "\n").append(linea);
+            if (registro.chars().filter(c -> c == '"').count() % 2 == 0) {
+                String fila = registro.toString();
+                filas.add(filas.isEmpty() ? fila : fila.substring(fila.indexOf(',') + 1));
+                registro.setLength(0);
+            }
+        }
+        return filas;
+    }
+
+    private List<JsonNode> sinIdJson(String ndjson) throws Exception {
+        var peliculas = new ArrayList<JsonNode>();
+        for (String linea : ndjson.split("\n")) {
+            var pelicula = (ObjectNode) objectMapper.readTree(linea);
+            pelicula.remove("id");
+            peliculas.add(pelicula);
+        }
+        return peliculas;
+    }
+
+    private static String descomprimir(byte[] cuerpo) throws Exception {
+        try (var entrada = new GZIPInputStream(new ByteArrayInputStream(cuerpo))) {
+            return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Pelicula pelicula(String titulo, String sinopsis) {
+        return new Pelicula(titulo, new Condicion("nuevo"), List.of(new Director("Director")), 100.00,
+                new Formato("BluRay"), new Genero("Drama"), sinopsis, List.of(new Actor("Actor")), "",
+                LocalDate.of(1999, 3, 31), 5);
+    }
+}
@@ -0,0 +1,274 @@
+package unrn.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import unrn.app.Application;
+import unrn.event.movie.MovieBatchEventEnvelope;
+import unrn.event.movie.MovieEventPublisher;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
+import unrn.model.Actor;
+import unrn.model.Pelicula;
+import unrn.service.ActorService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pruebas de integracion de la importacion masiva de peliculas.
+ *
+ * Verifican que las filas invalidas se informen con su linea sin frenar al
+ * resto, que los datos de referencia no se dupliquen aunque cambien las
+ * mayusculas, que se publique un evento por lote guardado y que el CSV acepte
+ * campos entre comillas y listas separadas por '|'.
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
+        "catalogo.importacion.lote=2",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class PeliculaImportacionIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PeliculaImportacionIntegrationTest.class);
+    private static final String URL = "/api/admin/peliculas/bulk";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private ActorService actorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MovieEventPublisher movieEventPublisher;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate.execute("DELETE FROM catalogo_outbox_event");
+        jdbcTemplate.execute("DELETE FROM eventos_procesados");
+        jdbcTemplate.execute("DELETE FROM pelicula_actor");
+        jdbcTemplate.execute("DELETE FROM pelicula_director");
+        jdbcTemplate.execute("DELETE FROM pelicula");
+        jdbcTemplate.execute("DELETE FROM actor");
+        jdbcTemplate.execute("DELETE FROM director");
+        jdbcTemplate.execute("DELETE FROM condicion");
+        jdbcTemplate.execute("DELETE FROM formato");
+        jdbcTemplate.execute("DELETE FROM genero");
+        referenciasCache.precargar();
+    }
+
+    @Test
+    @DisplayName("Importar ndjsonConFilasInvalidas importaLasValidasEInformaCadaError")
+    void importar_ndjsonConFilasInvalidas_importaLasValidasEInformaCadaError() throws Exception {
+        // Setup: Preparar el escenario
+        String cuerpo = String.join("\n",
+                filaJson("Matrix", "Drama", 100.0),
+                filaJson("Matrix Reloaded", "drama", 120.0),
+                "{no es json",
+                filaJson("Precio negativo", "Drama", -5.0),
+                "",
+                filaJson("Matrix Revolutions", "DRAMA", 130.0),
+                filaJson("Animatrix", "Drama", 90.0),
+                filaJson("Matrix Resurrections", "Drama", 150.0));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        List<JsonNode> lineas = importar(cuerpo, PeliculaAdminController.MEDIA_NDJSON);
+
+        // Verificacion: Verificar el resultado esperado
+        List<JsonNode> errores = lineas.stream().filter(l -> l.get("tipo").asText().equals("error")).toList();
+        assertEquals(List.of(3, 4), errores.stream().map(l -> l.get("linea").asInt()).toList(),
+                "Debe informar la linea de cada fila invalida");
+        JsonNode resumen = lineas.get(lineas.size() - 1);
+        assertEquals("resumen", resumen.get("tipo").asText(), "La ultima linea debe ser el resumen");
+        assertEquals(5, resumen.get("importadas").asInt(), "Debe importar las filas validas");
+        assertEquals(2, resumen.get("errores").asInt(), "Debe contar las filas con error");
+        assertEquals(3, lineas.stream().filter(l -> l.get("tipo").asText().equals("progreso")).count(),
+                "Debe informar el avance de cada lote");
+        assertEquals(5, contar("pelicula"), "Debe guardar solo las peliculas validas");
+        assertEquals(1, contar("genero"), "No debe duplicar generos que solo cambian en mayusculas");
+        assertEquals(1, contar("actor"), "Debe crear una sola vez cada actor");
+        assertEquals(5, contar("pelicula_actor"), "Debe asociar el reparto de cada pelicula");
+        verify(movieEventPublisher, times(3)).publishNow(any(MovieBatchEventEnvelope.class));
+    }
+
+    @Test
+    @DisplayName("Importar csvConComillasYListas reutilizaReferenciasExistentes")
+    void importar_csvConComillasYListas_reutilizaReferenciasExistentes() throws Exception {
+        // Setup: Preparar el escenario
+        actorService.crear("Keanu Reeves");
+        String cuerpo = String.join("\n",
+                "titulo,condicion,directores,precio,formato,genero,sinopsis,actores,imagenUrl,fechaSalida,rating",
+                "\"Matrix, la pelicula\",nuevo,Lana Wachowski|Lilly Wachowski,100.5,BluRay,Ciencia ficcion,"
+                        + "\"Dice \"\"hola\"\"\",Keanu Reeves|Carrie-Anne Moss,,1999-03-31,5");
+
+        // Ejercitacion: Ejecutar la accion a probar
+        List<JsonNode> lineas = importar(cuerpo, PeliculaAdminController.MEDIA_CSV);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(1, lineas.get(lineas.size() - 1).get("importadas").asInt(), "Debe importar la fila");
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM pelicula", Long.class);
+        Pelicula importada = peliculaRepository.porId(id);
+        assertEquals("Matrix, la pelicula", importada.titulo(), "Debe respetar las comas entre comillas");
+        assertEquals("Dice \"hola\"", importada.sinopsis(), "Debe interpretar las comillas escapadas");
+        assertEquals(2, importada.directores().size(), "Debe separar los directores por '|'");
+        assertEquals(Set.of("Keanu Reeves", "Carrie-Anne Moss"),
+                importada.actores().stream().map(Actor::nombre).collect(Collectors.toSet()),
+                "Debe separar los actores por '|'");
+        assertEquals(2, contar("actor"), "Debe reutilizar el actor existente");
+    }
+
+    @Test
+    @DisplayName("Importar csvConSaltoDeLineaEntreComillasYFechaVacia leeElRegistroEInformaLaFecha")
+    void importar_csvConSaltoDeLineaEntreComillasYFechaVacia_leeElRegistroEInformaLaFecha() throws Exception {
+        // Setup: Preparar el escenario
+        String cuerpo = String.join("\n",
+                "titulo,condicion,directores,precio,formato,genero,sinopsis,actores,imagenUrl,fechaSalida,rating",
+                "Matrix,nuevo,Lana Wachowski,100,BluRay,Drama,\"Primera linea",
+                "segunda linea\",Keanu Reeves,,1999-03-31,5",
+                "Sin fecha,nuevo,Lana Wachowski,100,BluRay,Drama,Sinopsis,Keanu Reeves,,,5");
+
+        // Ejercitacion: Ejecutar la accion a probar
+        List<JsonNode> lineas = importar(cuerpo, PeliculaAdminController.MEDIA_CSV);
+
+        // Verificacion: Verificar el resultado esperado
+        JsonNode error = lineas.stream().filter(l -> l.get("tipo").asText().equals("error")).findFirst().orElseThrow();
+        assertEquals(4, error.get("linea").asInt(), "Debe informar la linea donde empieza el registro con error");
+        assertTrue(error.get("error").asText().contains("fecha de salida"),
+                "La fecha vacia debe informarse con el error de validacion de Pelicula");
+        assertEquals(1, lineas.get(lineas.size() - 1).get("importadas").asInt(), "Debe importar el registro valido");
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM pelicula", Long.class);
+        assertEquals("Primera linea\nsegunda linea", peliculaRepository.porId(id).sinopsis(),
+                "Debe conservar el salto de linea dentro de las comillas");
+    }
+
+    @Test
+    @DisplayName("Importar csvConComillaSuelta cortaElRegistroEnElLimiteYSigueConElResto")
+    void importar_csvConComillaSuelta_cortaElRegistroEnElLimiteYSigueConElResto() throws Exception {
+        // Setup: Preparar el escenario
+        List<String> filas = new ArrayList<>();
+        filas.add("titulo,condicion,directores,precio,formato,genero,sinopsis,actores,imagenUrl,fechaSalida,rating");
+        filas.add("Matrix,nuevo,Lana Wachowski,100,BluRay,Drama,Sinopsis con \"comilla,Keanu Reeves,,1999-03-31,5");
+        for (int i = 0; i < 105; i++) {
+            filas.add("Pelicula " + i + ",nuevo,Lana Wachowski,100,BluRay,Drama,Sinopsis,Keanu Reeves,,1999-03-31,5");
+        }
+
+        // Ejercitacion: Ejecutar la accion a probar
+        List<JsonNode> lineas = importar(String.join("\n", filas), PeliculaAdminController.MEDIA_CSV);
+
+        // Verificacion: Verificar el resultado esperado
+        List<JsonNode> errores = lineas.stream().filter(l -> l.get("tipo").asText().equals("error")).toList();
+        assertEquals(1, errores.size(), "Debe informar un solo error por el registro sin cerrar");
+        assertEquals(2, errores.get(0).get("linea").asInt(), "Debe informar la linea donde empieza el registro");
+        assertTrue(errores.get(0).get("error").asText().contains("comillas sin cerrar"),
+                "Debe informar el registro como sin cerrar");
+        assertEquals(5, lineas.get(lineas.size() - 1).get("importadas").asInt(),
+                "Debe cortar el registro a las 100 lineas y seguir con las filas posteriores");
+    }
+
+    /**
+     * Benchmark de la importacion con lotes de 1000 peliculas, como en produccion.
+     *
+     * Solo corre con -Dbenchmark=true y registra el tiempo en el log; no lo
+     * compara con un limite porque depende de la maquina.
+     */
+    @Nested
+    @TestPropertySource(properties = "catalogo.importacion.lote=1000")
+    class ConLotesGrandes {
+
+        @Test
+        @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+        @DisplayName("Benchmark cienMilPeliculas seImportanTodas")
+        void benchmark_cienMilPeliculas_seImportanTodas() throws Exception {
+            // Setup: Preparar el escenario
+            var cuerpo = new StringBuilder();
+            for (int i = 0; i < 100_000; i++) {
+                cuerpo.append(filaJson("Pelicula " + i, "Genero " + (i % 20), 100.0 + i % 50,
+                        "Director " + (i % 500), "Actor " + (i % 2000))).append('\n');
+            }
+
+            // Ejercitacion: Ejecutar la accion a probar
+            long inicio = System.nanoTime();
+            List<JsonNode> lineas = importar(cuerpo.toString(), PeliculaAdminController.MEDIA_NDJSON);
+            long transcurridoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+            // Verificacion: Verificar el resultado esperado
+            log.info("100000 peliculas importadas en {} ms", transcurridoMs);
+            assertEquals(100_000, lineas.get(lineas.size() - 1).get("importadas").asInt(),
+                    "Debe importar todas las peliculas");
+            assertEquals(100_000, contar("pelicula"), "Debe guardar todas las peliculas");
+        }
+    }
+
+    private List<JsonNode> importar(String cuerpo, String contentType) throws Exception {
+        String respuesta = mockMvc.perform(post(URL)
+                        .contentType(contentType)
+                        .content(cuerpo.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        var lineas = new ArrayList<JsonNode>();
+        for (String linea : respuesta.split("\n")) {
+            lineas.add(objectMapper.readTree(linea));
+        }
+        return lineas;
+    }
+
+    private String filaJson(String titulo, String genero, double precio) {
+        return filaJson(titulo, genero, precio, "Lana Wachowski", "Keanu Reeves");
+    }
+
+    private String filaJson(String titulo, String genero, double precio, String director, String actor) {
+        return "{\"titulo\":\"" + titulo + "\",\"condicion\":\"nuevo\",\"directores\":[\"" + director + "\"],"
+                + "\"precio\":" + precio + ",\"formato\":\"BluRay\",\"genero\":\"" + genero + "\","
+                + "\"sinopsis\":\"Sinopsis\",\"actores\":[\"" + actor + "\"],\"imagenUrl\":\"\","
+                + "\"fechaSalida\":\"1999-03-31\",\"rating\":5}";
+    }
+
+    private int contar(String tabla) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tabla, Integer.class);
+    }
+}
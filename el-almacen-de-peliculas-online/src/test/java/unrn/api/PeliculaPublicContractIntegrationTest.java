@@ -15,17 +15,29 @@ import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import unrn.app.Application;
 import unrn.config.JwtRoleConverter;
 import unrn.dto.PeliculaRequest;
+import unrn.event.Event;
+import unrn.event.MessageListener;
+import unrn.event.RatingActualizadoEvent;
 import unrn.event.movie.MovieEventPublisher;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 import unrn.service.ActorService;
 import unrn.service.DirectorService;
 import unrn.service.PeliculaService;
 
+import com.jayway.jsonpath.JsonPath;
+
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -50,6 +62,9 @@ class PeliculaPublicContractIntegrationTest {
         @Autowired
         private JdbcTemplate jdbcTemplate;
 
+        @Autowired
+        private ReferenciasCatalogoCache referenciasCache;
+
         @Autowired
         private DirectorService directorService;
 
@@ -59,6 +74,9 @@ class PeliculaPublicContractIntegrationTest {
         @Autowired
         private PeliculaService peliculaService;
 
+        @Autowired
+        private MessageListener messageListener;
+
         @MockBean
         private MovieEventPublisher movieEventPublisher;
 
@@ -72,6 +90,7 @@ class PeliculaPublicContractIntegrationTest {
                 jdbcTemplate.execute("DELETE FROM condicion");
                 jdbcTemplate.execute("DELETE FROM formato");
                 jdbcTemplate.execute("DELETE FROM genero");
+                referenciasCache.precargar();
         }
 
         @Test
@@ -222,6 +241,229 @@ class PeliculaPublicContractIntegrationTest {
                                 .andExpect(jsonPath("$.message").isString());
         }
 
+        @Test
+        @DisplayName("listarPublico conCursor recorreTodasLasPaginasSinRepetir")
+        void listarPublico_conCursor_recorreTodasLasPaginasSinRepetir() throws Exception {
+                // Setup: Preparar el escenario con precios repetidos para forzar el desempate por id (mismo sentido que el orden)
+                crearPelicula("Cursor A", 50.0);
+                crearPelicula("Cursor B", 50.0);
+                crearPelicula("Cursor C", 50.0);
+                crearPelicula("Cursor D", 75.0);
+                crearPelicula("Cursor E", 20.0);
+
+                // Ejercitacion: seguir nextCursor hasta agotar resultados
+                List<String> titulos = new ArrayList<>();
+                String cursor = null;
+                int paginas = 0;
+                do {
+                        var request = get("/peliculas")
+                                        .param("size", "2")
+                                        .param("sort", "precio")
+                                        .param("asc", "false");
+                        if (cursor != null) {
+                                request = request.param("cursor", cursor);
+                        }
+                        String body = mockMvc.perform(request)
+                                        .andExpect(status().isOk())
+                                        .andReturn().getResponse().getContentAsString();
+                        titulos.addAll(JsonPath.read(body, "$.items[*].titulo"));
+                        cursor = JsonPath.read(body, "$.nextCursor");
+                        paginas++;
+                } while (cursor != null && paginas < 10);
+
+                // Verificacion: Verificar el resultado esperado
+                assertEquals(3, paginas, "Cinco peliculas de a dos deben recorrerse en tres paginas");
+                assertEquals(List.of("Cursor D", "Cursor C", "Cursor B", "Cursor A", "Cursor E"), titulos,
+                                "El recorrido por cursor debe respetar el orden y no repetir ni omitir peliculas");
+                assertNull(cursor, "La ultima pagina no debe ofrecer cursor siguiente");
+        }
+
+        @Test
+        @DisplayName("listarPublico cursorInvalido devuelve400")
+        void listarPublico_cursorInvalido_devuelve400() throws Exception {
+                // Setup: Preparar el escenario
+
+                // Ejercitacion: Ejecutar la accion a probar
+                mockMvc.perform(get("/peliculas")
+                                .param("size", "2")
+                                .param("sort", "titulo")
+                                .param("cursor", "no-es-un-cursor"))
+                                // Verificacion: Verificar el resultado esperado
+                                .andExpect(status().isBadRequest())
+                                .andExpect(jsonPath("$.code").value("INVALID_CURSOR"))
+                                .andExpect(jsonPath("$.message").isString());
+        }
+
+        @Test
+        @DisplayName("listarPublico sinTotal devuelveHasNextSinContar")
+        void listarPublico_sinTotal_devuelveHasNextSinContar() throws Exception {
+                // Setup: Preparar el escenario
+                crearPelicula("Scroll A", 10.0);
+                crearPelicula("Scroll B", 20.0);
+                crearPelicula("Scroll C", 30.0);
+
+                // Ejercitacion: Ejecutar la accion a probar
+                mockMvc.perform(get("/peliculas")
+                                .param("size", "2")
+                                .param("withTotal", "false"))
+                                // Verificacion: Verificar el resultado esperado
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.items.length()").value(2))
+                                .andExpect(jsonPath("$.total").doesNotExist())
+                                .andExpect(jsonPath("$.totalPages").doesNotExist())
+                                .andExpect(jsonPath("$.hasNext").value(true));
+
+                mockMvc.perform(get("/peliculas")
+                                .param("size", "2")
+                                .param("page", "1")
+                                .param("withTotal", "false"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.items.length()").value(1))
+                                .andExpect(jsonPath("$.hasNext").value(false));
+        }
+
+        @Test
+        @DisplayName("listarPublico altaDespuesDeContar actualizaTotalCacheado")
+        void listarPublico_altaDespuesDeContar_actualizaTotalCacheado() throws Exception {
+                // Setup: Preparar el escenario con un total ya cacheado
+                crearPelicula("Conteo A", 10.0);
+                mockMvc.perform(get("/peliculas").param("genero", "drama"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.total").value(1));
+
+                // Ejercitacion: Ejecutar la accion a probar
+                crearPelicula("Conteo B", 20.0);
+
+                // Verificacion: Verificar el resultado esperado
+                mockMvc.perform(get("/peliculas").param("genero", "DRAMA"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.total").value(2))
+                                .andExpect(jsonPath("$.hasNext").value(false));
+        }
+
+        @Test
+        @DisplayName("listarPublico textoSinAcentos encuentraPorActorYOrdenaPorRelevancia")
+        void listarPublico_textoSinAcentos_encuentraPorActorYOrdenaPorRelevancia() throws Exception {
+                // Setup: Preparar el escenario (el director de cada pelicula es "Director <titulo>")
+                crearPelicula("Canción del Mar", 10.0);
+                crearPelicula("Otra Historia", 20.0);
+                crearPelicula("Mar Adentro", 30.0);
+
+                // Ejercitacion: Ejecutar la accion a probar
+                mockMvc.perform(get("/peliculas")
+                                .param("q", "cancion")
+                                .param("sort", "relevancia"))
+                                // Verificacion: Verificar el resultado esperado
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.total").value(1))
+                                .andExpect(jsonPath("$.items[0].titulo").value("Canción del Mar"));
+
+                mockMvc.perform(get("/peliculas")
+                                .param("director", "adentro"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.total").value(1))
+                                .andExpect(jsonPath("$.items[0].titulo").value("Mar Adentro"));
+        }
+
+        @Test
+        @DisplayName("detallePublico repetido seSirveDesdeCacheYSeInvalidaAlEditar")
+        void detallePublico_repetido_seSirveDesdeCacheYSeInvalidaAlEditar() throws Exception {
+                // Setup: Preparar el escenario
+                crearPelicula("Detalle Original", 10.0);
+                String body = mockMvc.perform(get("/peliculas")).andReturn().getResponse().getContentAsString();
+                Integer id = JsonPath.read(body, "$.items[0].id");
+                mockMvc.perform(get("/peliculas/{id}", id)).andExpect(status().isOk());
+                var antes = peliculaService.estadisticasDetalleCache();
+
+                // Ejercitacion: Ejecutar la accion a probar
+                mockMvc.perform(get("/peliculas/{id}", id))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.titulo").value("Detalle Original"));
+                var director = directorService.crear("Director Detalle Editado");
+                var actor = actorService.crear("Actor Detalle Editado");
+                peliculaService.actualizarPelicula(id.longValue(), new PeliculaRequest("Detalle Editado", "NUEVO",
+                                List.of(director.id()), 10.0, "DVD", "DRAMA", "Sinopsis", List.of(actor.id()), "",
+                                LocalDate.of(2020, 1, 1), 5));
+
+                // Verificacion: Verificar el resultado esperado
+                assertEquals(antes.aciertos() + 1, peliculaService.estadisticasDetalleCache().aciertos(),
+                                "La segunda lectura del detalle debe salir del cache");
+                mockMvc.perform(get("/peliculas/{id}", id))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.titulo").value("Detalle Editado"));
+        }
+
+        @Test
+        @DisplayName("detallePublico conIfNoneMatchVigente devuelve304")
+        void detallePublico_conIfNoneMatchVigente_devuelve304() throws Exception {
+                // Setup: Preparar el escenario
+                crearPelicula("Etag Detalle", 10.0);
+                String body = mockMvc.perform(get("/peliculas")).andReturn().getResponse().getContentAsString();
+                Integer id = JsonPath.read(body, "$.items[0].id");
+                String etag = mockMvc.perform(get("/peliculas/{id}", id))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // Ejercitacion & Verificacion
+                assertTrue(etag.startsWith("\"" + id + "-0-"), "El ETag del detalle debe armarse con id y version");
+                mockMvc.perform(get("/peliculas/{id}", id).header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                peliculaService.eliminar(id.longValue());
+                mockMvc.perform(get("/peliculas/{id}", id).header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", startsWith("\"" + id + "-1-")));
+        }
+
+        @Test
+        @DisplayName("detallePublico conIfNoneMatchAnteriorAUnRating devuelve200")
+        void detallePublico_conIfNoneMatchAnteriorAUnRating_devuelve200() throws Exception {
+                // Setup: Preparar el escenario
+                crearPelicula("Etag Rating", 10.0);
+                String body = mockMvc.perform(get("/peliculas")).andReturn().getResponse().getContentAsString();
+                Integer id = JsonPath.read(body, "$.items[0].id");
+                String etag = mockMvc.perform(get("/peliculas/{id}", id))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // Ejercitacion: Ejecutar la accion a probar
+                messageListener.handleRatingEvents(List.of(new Event<>(Event.Type.CREATE, String.valueOf(id),
+                                new RatingActualizadoEvent(id.longValue(), 4, 12))));
+
+                // Verificacion: Verificar el resultado esperado
+                mockMvc.perform(get("/peliculas/{id}", id).header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", startsWith("\"" + id + "-0-")))
+                                .andExpect(jsonPath("$.totalRatings").value(12));
+        }
+
+        @Test
+        @DisplayName("listarPublico conIfNoneMatchVigente devuelve304HastaQueCambiaElCatalogo")
+        void listarPublico_conIfNoneMatchVigente_devuelve304HastaQueCambiaElCatalogo() throws Exception {
+                // Setup: Preparar el escenario
+                crearPelicula("Etag Listado A", 10.0);
+                String etagListado = mockMvc.perform(get("/peliculas"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+                String etagCategorias = mockMvc.perform(get("/categorias"))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // Ejercitacion & Verificacion
+                assertTrue(etagListado.startsWith("W/"), "El ETag del listado debe ser debil");
+                mockMvc.perform(get("/peliculas").header("If-None-Match", etagListado))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/categorias").header("If-None-Match", etagCategorias))
+                                .andExpect(status().isNotModified());
+
+                crearPelicula("Etag Listado B", 20.0);
+                mockMvc.perform(get("/peliculas").header("If-None-Match", etagListado))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.total").value(2));
+                mockMvc.perform(get("/categorias").header("If-None-Match", etagCategorias))
+                                .andExpect(status().isOk());
+        }
+
         private void crearPelicula(String titulo, double precio) {
                 var director = directorService.crear("Director " + titulo);
                 var actor = actorService.crear("Actor " + titulo);
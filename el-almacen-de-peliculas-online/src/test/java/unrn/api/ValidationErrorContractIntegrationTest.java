@@ -10,6 +10,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.jdbc.core.JdbcTemplate;
 import unrn.app.Application;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -35,6 +36,9 @@ public class ValidationErrorContractIntegrationTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
     @BeforeEach
     void beforeEach() {
         jdbcTemplate.execute("DELETE FROM pelicula_actor");
@@ -45,6 +49,7 @@ public class ValidationErrorContractIntegrationTest {
         jdbcTemplate.execute("DELETE FROM condicion");
         jdbcTemplate.execute("DELETE FROM formato");
         jdbcTemplate.execute("DELETE FROM genero");
+        referenciasCache.precargar();
     }
 
     @Test
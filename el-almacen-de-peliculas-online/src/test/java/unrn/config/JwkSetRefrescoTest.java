@@ -0,0 +1,220 @@
+package unrn.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la fuente de claves JWT con refresco en segundo plano.
+ *
+ * Usan un ResourceRetriever en memoria que sirve el JWK set y puede quedar
+ * bloqueado, para verificar que el arranque espera la primera descarga, que una
+ * clave rotada se toma en la descarga anticipada y que un Keycloak bloqueado
+ * solo demora el request hasta la espera maxima.
+ */
+class JwkSetRefrescoTest {
+
+    private static final Duration REFRESCO = Duration.ofMinutes(5);
+    private static final Duration REINTENTO = Duration.ofMillis(1);
+    private static final Duration ESPERA = Duration.ofMillis(500);
+
+    private final AtomicReference<JWKSet> publicado = new AtomicReference<>();
+    private final AtomicInteger descargas = new AtomicInteger();
+    private final AtomicInteger clavesQuitadas = new AtomicInteger();
+    private final CountDownLatch desbloqueo = new CountDownLatch(1);
+    private volatile boolean bloqueado;
+    private JwkSetRefresco refresco;
+
+    @AfterEach
+    void afterEach() {
+        desbloqueo.countDown();
+        if (refresco != null) {
+            refresco.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Iniciar primeraDescarga validaElPrimerToken")
+    void iniciar_primeraDescarga_validaElPrimerToken() throws Exception {
+        // Setup: Preparar el escenario
+        RSAKey clave = clave("k1");
+        publicado.set(new JWKSet(clave.toPublicJWK()));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        refresco = iniciar();
+        Jwt jwt = SecurityConfig.decodificadorNimbus(refresco).decode(firmar(clave, JWSAlgorithm.RS256));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(1, descargas.get(), "Iniciar debe esperar la primera descarga");
+        assertEquals("admin", jwt.getSubject(), "Debe aceptar el token firmado con la clave publicada");
+    }
+
+    @Test
+    @DisplayName("Decode claveRotada laDescargaYAceptaElToken")
+    void decode_claveRotada_laDescargaYAceptaElToken() throws Exception {
+        // Setup: Preparar el escenario
+        RSAKey vieja = clave("k1");
+        RSAKey rotada = clave("k2");
+        publicado.set(new JWKSet(vieja.toPublicJWK()));
+        refresco = iniciar();
+        NimbusJwtDecoder decoder = SecurityConfig.decodificadorNimbus(refresco);
+        publicado.set(new JWKSet(rotada.toPublicJWK()));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        Jwt jwt = decoder.decode(firmar(rotada, JWSAlgorithm.RS256));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals("admin", jwt.getSubject(), "El primer token con la clave rotada debe aceptarse");
+        assertEquals(2, descargas.get(), "El kid desconocido debe adelantar una descarga");
+        assertEquals(1, clavesQuitadas.get(), "Debe avisar que la clave vieja dejo de publicarse");
+    }
+
+    @Test
+    @DisplayName("Decode keycloakBloqueado esperaAcotadoYSigueConLasClavesAnteriores")
+    void decode_keycloakBloqueado_esperaAcotadoYSigueConLasClavesAnteriores() throws Exception {
+        // Setup: Preparar el escenario
+        RSAKey vieja = clave("k1");
+        RSAKey rotada = clave("k2");
+        publicado.set(new JWKSet(vieja.toPublicJWK()));
+        refresco = iniciar();
+        NimbusJwtDecoder decoder = SecurityConfig.decodificadorNimbus(refresco);
+        publicado.set(new JWKSet(List.of(vieja.toPublicJWK(), rotada.toPublicJWK())));
+        bloqueado = true;
+
+        // Ejercitacion: Ejecutar la accion a probar
+        long inicio = System.nanoTime();
+        assertThrows(BadJwtException.class, () -> decoder.decode(firmar(rotada, JWSAlgorithm.RS256)),
+                "Si la descarga no termina dentro de la espera el token debe rechazarse");
+        long transcurridoMs = (System.nanoTime() - inicio) / 1_000_000;
+        Jwt conClaveVieja = decoder.decode(firmar(vieja, JWSAlgorithm.RS256));
+
+        // Verificacion: Verificar el resultado esperado
+        assertTrue(transcurridoMs < ESPERA.toMillis() + 1_000,
+                "El request no debe esperar mas que la espera maxima: " + transcurridoMs + " ms");
+        assertEquals("admin", conClaveVieja.getSubject(), "Debe seguir validando con las claves anteriores");
+        bloqueado = false;
+        desbloqueo.countDown();
+        esperarDescargas(2);
+        assertEquals("admin", decoder.decode(firmar(rotada, JWSAlgorithm.RS256)).getSubject(),
+                "Tras la descarga anticipada debe aceptar la clave rotada");
+        assertEquals(0, clavesQuitadas.get(), "Agregar una clave no debe avisar claves quitadas");
+    }
+
+    @Test
+    @DisplayName("Decode claveEcSinAlg aceptaES256")
+    void decode_claveEcSinAlg_aceptaES256() throws Exception {
+        // Setup: Preparar el escenario
+        ECKey clave = new ECKeyGenerator(Curve.P_256).keyID("ec1").generate();
+        publicado.set(new JWKSet(clave.toPublicJWK()));
+        refresco = iniciar();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        Jwt jwt = SecurityConfig.decodificadorNimbus(refresco)
+                .decode(firmar("ec1", new ECDSASigner(clave), JWSAlgorithm.ES256));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals("admin", jwt.getSubject(), "Debe aceptar ES256 si el JWK set publica una clave EC");
+    }
+
+    @Test
+    @DisplayName("Decode algoritmoDistintoAlDeLaClave rechazaElToken")
+    void decode_algoritmoDistintoAlDeLaClave_rechazaElToken() throws Exception {
+        // Setup: Preparar el escenario
+        RSAKey clave = new RSAKeyGenerator(2048).keyID("k1").algorithm(JWSAlgorithm.RS256).generate();
+        publicado.set(new JWKSet(clave.toPublicJWK()));
+        refresco = iniciar();
+        NimbusJwtDecoder decoder = SecurityConfig.decodificadorNimbus(refresco);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        String token = firmar(clave, JWSAlgorithm.RS512);
+
+        // Verificacion: Verificar el resultado esperado
+        assertThrows(BadJwtException.class, () -> decoder.decode(token),
+                "Una clave publicada para RS256 no debe validar tokens RS512");
+        assertEquals(Set.of(JWSAlgorithm.RS256), refresco.algoritmos(),
+                "Los algoritmos admitidos deben salir del alg de la clave");
+    }
+
+    private JwkSetRefresco iniciar() throws Exception {
+        ResourceRetriever retriever = (URL url) -> {
+            if (bloqueado) {
+                try {
+                    desbloqueo.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("descarga interrumpida");
+                }
+            }
+            String cuerpo = publicado.get().toString();
+            descargas.incrementAndGet();
+            return new Resource(cuerpo, "application/json");
+        };
+        var fuente = new JwkSetRefresco(URI.create("http://keycloak/certs").toURL(), retriever, REFRESCO, REINTENTO,
+                ESPERA);
+        fuente.alQuitarClaves(clavesQuitadas::incrementAndGet);
+        fuente.iniciar();
+        return fuente;
+    }
+
+    private void esperarDescargas(int cantidad) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (descargas.get() < cantidad && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertTrue(descargas.get() >= cantidad, "El JWK set debe descargarse en segundo plano");
+    }
+
+    private static RSAKey clave(String kid) throws Exception {
+        return new RSAKeyGenerator(2048).keyID(kid).generate();
+    }
+
+    private static String firmar(RSAKey clave, JWSAlgorithm algoritmo) throws Exception {
+        return firmar(clave.getKeyID(), new RSASSASigner(clave), algoritmo);
+    }
+
+    private static String firmar(String kid, JWSSigner firmante, JWSAlgorithm algoritmo) throws Exception {
+        var claims = new JWTClaimsSet.Builder()
+                .subject("admin")
+                .issueTime(Date.from(Instant.now()))
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                .build();
+        var jwt = new SignedJWT(new JWSHeader.Builder(algoritmo).keyID(kid).build(), claims);
+        jwt.sign(firmante);
+        return jwt.serialize();
+    }
+}
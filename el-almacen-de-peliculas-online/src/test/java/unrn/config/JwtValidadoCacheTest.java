@@ -0,0 +1,186 @@
+package unrn.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas unitarias del cache de tokens JWT validados.
+ *
+ * Verifican que un token vigente se valide y convierta una sola vez, que deje de
+ * usarse al llegar a su exp, que los tokens rechazados no se guarden y que el
+ * cache respete su maximo de entradas.
+ */
+class JwtValidadoCacheTest {
+
+    private static final Instant AHORA = Instant.parse("2026-01-01T10:00:00Z");
+
+    private final RelojManual reloj = new RelojManual(AHORA);
+    private final AtomicInteger decodificaciones = new AtomicInteger();
+    private final AtomicInteger conversiones = new AtomicInteger();
+
+    @Test
+    @DisplayName("Decodificar mismoTokenVariasVeces validaUnaSolaVez")
+    void decodificar_mismoTokenVariasVeces_validaUnaSolaVez() {
+        // Setup: Preparar el escenario
+        JwtValidadoCache cache = new JwtValidadoCache(10, reloj);
+        JwtDecoder decoder = decoder();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        Jwt primero = cache.decodificar("token-a", decoder);
+        Jwt segundo = cache.decodificar("token-a", decoder);
+        Collection<GrantedAuthority> roles = cache.authorities(segundo, this::convertir);
+        Collection<GrantedAuthority> rolesOtraVez = cache.authorities(cache.decodificar("token-a", decoder),
+                this::convertir);
+
+        // Verificacion: Verificar el resultado esperado
+        assertSame(primero, segundo, "Debe devolver el JWT ya validado");
+        assertEquals(1, decodificaciones.get(), "La firma solo debe verificarse la primera vez");
+        assertEquals(1, conversiones.get(), "Los roles solo deben calcularse la primera vez");
+        assertEquals(roles, rolesOtraVez, "Debe devolver las mismas authorities");
+        assertEquals(2, cache.estadisticas().aciertos(), "Debe contar los aciertos");
+    }
+
+    @Test
+    @DisplayName("Decodificar tokenVencido vuelveAValidar")
+    void decodificar_tokenVencido_vuelveAValidar() {
+        // Setup: Preparar el escenario
+        JwtValidadoCache cache = new JwtValidadoCache(10, reloj);
+        JwtDecoder decoder = decoder();
+        cache.decodificar("token-a", decoder);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        reloj.avanzar(Duration.ofMinutes(5));
+        cache.decodificar("token-a", decoder);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(2, decodificaciones.get(), "Al llegar al exp el token debe validarse de nuevo");
+    }
+
+    @Test
+    @DisplayName("Decodificar tokenRechazado noSeGuarda")
+    void decodificar_tokenRechazado_noSeGuarda() {
+        // Setup: Preparar el escenario
+        JwtValidadoCache cache = new JwtValidadoCache(10, reloj);
+        JwtDecoder decoder = token -> {
+            decodificaciones.incrementAndGet();
+            throw new BadJwtException("Invalid issuer");
+        };
+
+        // Ejercitacion: Ejecutar la accion a probar
+        assertThrows(BadJwtException.class, () -> cache.decodificar("token-malo", decoder));
+        assertThrows(BadJwtException.class, () -> cache.decodificar("token-malo", decoder));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(2, decodificaciones.get(), "Un token rechazado debe validarse en cada request");
+        assertEquals(0, cache.estadisticas().entradas(), "No debe guardar tokens rechazados");
+    }
+
+    @Test
+    @DisplayName("Decodificar masTokensQueElMaximo desalojaElMenosUsado")
+    void decodificar_masTokensQueElMaximo_desalojaElMenosUsado() {
+        // Setup: Preparar el escenario
+        JwtValidadoCache cache = new JwtValidadoCache(2, reloj);
+        JwtDecoder decoder = decoder();
+        cache.decodificar("token-a", decoder);
+        cache.decodificar("token-b", decoder);
+        cache.decodificar("token-a", decoder);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.decodificar("token-c", decoder);
+        cache.decodificar("token-a", decoder);
+        cache.decodificar("token-b", decoder);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(2, cache.estadisticas().entradas(), "No debe superar el maximo");
+        assertEquals(4, decodificaciones.get(), "Solo el token menos usado debe validarse otra vez");
+    }
+
+    @Test
+    @DisplayName("Vaciar claveRetirada vuelveAValidarLosTokens")
+    void vaciar_claveRetirada_vuelveAValidarLosTokens() {
+        // Setup: Preparar el escenario
+        JwtValidadoCache cache = new JwtValidadoCache(10, reloj);
+        JwtDecoder decoder = decoder();
+        cache.decodificar("token-a", decoder);
+        JwtDecoder decoderQueVacia = token -> {
+            Jwt jwt = decoder.decode(token);
+            cache.vaciar();
+            return jwt;
+        };
+        cache.decodificar("token-b", decoderQueVacia);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.decodificar("token-a", decoder);
+        cache.decodificar("token-b", decoder);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(4, decodificaciones.get(), "Tras vaciar cada token debe validarse de nuevo");
+        assertEquals(0, cache.estadisticas().aciertos(),
+                "Un token validado mientras se vaciaba tampoco debe quedar guardado");
+    }
+
+    private JwtDecoder decoder() {
+        return token -> {
+            decodificaciones.incrementAndGet();
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("admin")
+                    .issuedAt(AHORA.minusSeconds(60))
+                    .expiresAt(AHORA.plus(Duration.ofMinutes(5)))
+                    .build();
+        };
+    }
+
+    private Collection<GrantedAuthority> convertir(Jwt jwt) {
+        conversiones.incrementAndGet();
+        return List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+    }
+
+    /**
+     * Reloj que solo avanza cuando la prueba lo indica.
+     */
+    private static final class RelojManual extends Clock {
+        private Instant ahora;
+
+        private RelojManual(Instant ahora) {
+            this.ahora = ahora;
+        }
+
+        private void avanzar(Duration duracion) {
+            ahora = ahora.plus(duracion);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package unrn.config;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Pruebas del reintento diferido de los listeners RabbitMQ.
+ *
+ * Usan un broker en memoria que guarda los mensajes por cola y simula el
+ * vencimiento del TTL devolviendo los reintentos a la cola original. El
+ * consumidor pasa por el mismo advice que arma RabbitMQConfig para los
+ * containers, asi se verifica por ruteo y orden, sin medir tiempos, que un
+ * mensaje envenenado no demore al resto y termine en la parking-lot al agotar
+ * los intentos.
+ */
+class ReintentoDiferidoRecovererTest {
+
+    private static final String COLA = "movieQueue";
+    private static final String VENENO = "veneno";
+    private static final int MAX_REINTENTOS = 3;
+
+    private final Map<String, Deque<Message>> broker = new HashMap<>();
+    private final List<String> procesados = new ArrayList<>();
+    private ReintentoDiferidoRecoverer recoverer;
+    private Consumidor consumidor;
+
+    @BeforeEach
+    void beforeEach() {
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(invocacion -> {
+            publicar(invocacion.getArgument(1), invocacion.getArgument(2));
+            return null;
+        }).when(rabbitTemplate).send(eq(""), anyString(), any(Message.class));
+        recoverer = new ReintentoDiferidoRecoverer(rabbitTemplate, Set.of(COLA), MAX_REINTENTOS);
+
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget((Consumidor) (canal, data) -> procesar((Message) data));
+        proxyFactory.addInterface(Consumidor.class);
+        proxyFactory.addAdvice(RabbitMQConfig.reintentoDiferido(recoverer));
+        consumidor = (Consumidor) proxyFactory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Consumir mensajeEnvenenado noDemoraAlRestoYTerminaEnParkingLot")
+    void consumir_mensajeEnvenenado_noDemoraAlRestoYTerminaEnParkingLot() {
+        // Setup: Preparar el escenario
+        for (int i = 0; i < 100; i++) {
+            publicar(COLA, mensaje("pelicula-" + i));
+        }
+        publicar(COLA, mensaje(VENENO));
+        for (int i = 100; i < 200; i++) {
+            publicar(COLA, mensaje("pelicula-" + i));
+        }
+
+        // Ejercitacion: Ejecutar la accion a probar
+        consumirTodo();
+        List<String> primeraPasada = List.copyOf(procesados);
+        int enPrimerReintento = cola(ReintentoDiferidoRecoverer.colaReintento(COLA, 1)).size();
+        boolean originalVacia = cola(COLA).isEmpty();
+        for (int intento = 1; intento <= MAX_REINTENTOS; intento++) {
+            vencerTtl(ReintentoDiferidoRecoverer.colaReintento(COLA, intento));
+            consumirTodo();
+        }
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(IntStream.range(0, 200).mapToObj(i -> "pelicula-" + i).toList(), primeraPasada,
+                "Los mensajes sanos deben procesarse en orden en la primera pasada, sin esperar al envenenado");
+        assertTrue(originalVacia, "La cola original debe quedar vacia tras la primera pasada");
+        assertEquals(1, enPrimerReintento, "El mensaje envenenado debe derivarse al primer reintento");
+        assertEquals(200, procesados.size(), "Los reintentos no deben volver a procesar mensajes sanos");
+        Deque<Message> parkingLot = cola(ReintentoDiferidoRecoverer.colaParkingLot(COLA));
+        assertEquals(1, parkingLot.size(), "El mensaje envenenado debe terminar en la parking-lot");
+        assertEquals(MAX_REINTENTOS + 1, parkingLot.peek().getMessageProperties()
+                .getHeaders().get(ReintentoDiferidoRecoverer.HEADER_REINTENTOS),
+                "Debe registrar cuantas veces fallo");
+        assertTrue(String.valueOf(parkingLot.peek().getMessageProperties()
+                        .getHeaders().get(ReintentoDiferidoRecoverer.HEADER_ERROR)).contains("ERROR_PELICULA_NO_ENCONTRADA"),
+                "Debe guardar el ultimo error");
+    }
+
+    @Test
+    @DisplayName("Recover errorDeConversion vaDirectoAParkingLot")
+    void recover_errorDeConversion_vaDirectoAParkingLot() {
+        // Setup: Preparar el escenario
+        Message mensaje = recibido(mensaje("{no es json"));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        recoverer.recover(mensaje, new RuntimeException(new MessageConversionException("cuerpo invalido")));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(1, cola(ReintentoDiferidoRecoverer.colaParkingLot(COLA)).size(),
+                "Un cuerpo que no se puede convertir no debe reintentarse");
+        assertTrue(cola(ReintentoDiferidoRecoverer.colaReintento(COLA, 1)).isEmpty(),
+                "No debe pasar por las colas de reintento");
+    }
+
+    @Test
+    @DisplayName("Recover loteFallido derivaCadaMensajeSegunSusReintentos")
+    void recover_loteFallido_derivaCadaMensajeSegunSusReintentos() {
+        // Setup: Preparar el escenario
+        Message nuevo = recibido(mensaje("nuevo"));
+        Message reintentado = recibido(mensaje("reintentado"));
+        reintentado.getMessageProperties().setHeader(ReintentoDiferidoRecoverer.HEADER_REINTENTOS, 1);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        recoverer.recover(List.of(nuevo, reintentado), new RuntimeException("ERROR_BASE_NO_DISPONIBLE"));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(1, cola(ReintentoDiferidoRecoverer.colaReintento(COLA, 1)).size(),
+                "El mensaje nuevo debe ir al primer reintento");
+        assertEquals(1, cola(ReintentoDiferidoRecoverer.colaReintento(COLA, 2)).size(),
+                "El mensaje ya reintentado debe ir al segundo reintento");
+    }
+
+    @Test
+    @DisplayName("Recover colaSinReintentos rechazaSinReencolar")
+    void recover_colaSinReintentos_rechazaSinReencolar() {
+        // Setup: Preparar el escenario
+        Message mensaje = mensaje("otro");
+        mensaje.getMessageProperties().setConsumerQueue("otra.cola");
+
+        // Ejercitacion y Verificacion: Ejecutar la accion y verificar el resultado
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> recoverer.recover(mensaje, new RuntimeException("ERROR")),
+                "Una cola sin topologia de reintento debe rechazar el mensaje");
+    }
+
+    /**
+     * Entrega los mensajes de la cola original al consumidor hasta vaciarla.
+     */
+    private void consumirTodo() {
+        Message mensaje;
+        while ((mensaje = cola(COLA).poll()) != null) {
+            consumidor.invocar(null, recibido(mensaje));
+        }
+    }
+
+    /**
+     * Simula el vencimiento del TTL: devuelve los mensajes de la cola de reintento a la original.
+     */
+    private void vencerTtl(String colaReintento) {
+        Message mensaje;
+        while ((mensaje = cola(colaReintento).poll()) != null) {
+            publicar(COLA, mensaje);
+        }
+    }
+
+    /**
+     * Procesa un mensaje como el listener: falla siempre con el envenenado.
+     */
+    private void procesar(Message mensaje) {
+        if (VENENO.equals(new String(mensaje.getBody(), StandardCharsets.UTF_8))) {
+            throw new RuntimeException("ERROR_PELICULA_NO_ENCONTRADA");
+        }
+        procesados.add(new String(mensaje.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void publicar(String cola, Message mensaje) {
+        cola(cola).add(mensaje);
+    }
+
+    private Deque<Message> cola(String nombre) {
+        return broker.computeIfAbsent(nombre, clave -> new ArrayDeque<>());
+    }
+
+    /**
+     * Marca el mensaje como recibido desde la cola original, como hace el container.
+     */
+    private static Message recibido(Message mensaje) {
+        mensaje.getMessageProperties().setConsumerQueue(COLA);
+        return mensaje;
+    }
+
+    private static Message mensaje(String cuerpo) {
+        return new Message(cuerpo.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
+
+    /**
+     * Misma forma que la invocacion del listener dentro del container: canal y mensaje.
+     */
+    interface Consumidor {
+        void invocar(Channel canal, Object data);
+    }
+}
@@ -0,0 +1,170 @@
+package unrn.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import unrn.app.Application;
+import unrn.config.RabbitMQConfig;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
+import unrn.model.Pelicula;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unrn.support.CatalogoTestSupport.guardarPelicula;
+import static unrn.support.CatalogoTestSupport.limpiarCatalogo;
+
+/**
+ * Pruebas de integracion del consumo por lotes de eventos de rating.
+ *
+ * Verifican que el lote guarde solo el ultimo rating de cada pelicula, sin tocar
+ * la version ni el resto de las columnas, que los eventos invalidos o de
+ * peliculas inexistentes no frenen al resto y que el listener use el container
+ * por lotes con el tamanio configurado. Tambien que el rating local de los
+ * eventos de pelicula se guarde sin aumentar la version.
+ */
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
+        "catalogo.rating.lote.tamanio=25",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class MessageListenerRatingLoteIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private MessageListener messageListener;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    private Long matrixId;
+    private Long reloadedId;
+
+    @BeforeEach
+    void beforeEach() {
+        limpiarCatalogo(jdbcTemplate, referenciasCache);
+
+        matrixId = guardarPelicula(peliculaRepository, "Matrix");
+        reloadedId = guardarPelicula(peliculaRepository, "Matrix Reloaded");
+    }
+
+    @Test
+    @DisplayName("HandleRatingEvents variosEventosPorPelicula guardaElUltimoSinCambiarVersion")
+    void handleRatingEvents_variosEventosPorPelicula_guardaElUltimoSinCambiarVersion() {
+        // Setup: Preparar el escenario
+        List<Event<String, RatingActualizadoEvent>> lote = List.of(
+                rating(matrixId, 6, 10),
+                rating(reloadedId, 4, 3),
+                rating(matrixId, 7, 11),
+                rating(matrixId, 8, 12));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        messageListener.handleRatingEvents(lote);
+
+        // Verificacion: Verificar el resultado esperado
+        Map<String, Object> matrix = fila(matrixId);
+        assertEquals(8.0, ((Number) matrix.get("RATING_PROMEDIO")).doubleValue(), "Debe quedar el ultimo promedio");
+        assertEquals(12, ((Number) matrix.get("TOTAL_RATINGS")).intValue(), "Debe quedar el ultimo total");
+        assertEquals(0L, ((Number) matrix.get("VERSION")).longValue(), "El rating no debe aumentar la version");
+        assertEquals("Matrix", matrix.get("TITULO"), "No debe tocar el resto de la pelicula");
+        assertEquals(4.0, ((Number) fila(reloadedId).get("RATING_PROMEDIO")).doubleValue(),
+                "Cada pelicula del lote debe recibir su rating");
+    }
+
+    @Test
+    @DisplayName("HandleRatingEvents eventosInvalidosOInexistentes aplicaElResto")
+    void handleRatingEvents_eventosInvalidosOInexistentes_aplicaElResto() {
+        // Setup: Preparar el escenario
+        List<Event<String, RatingActualizadoEvent>> lote = List.of(
+                rating(matrixId, 11, 5),
+                rating(999_999L, 5, 5),
+                rating(reloadedId, 9, 2),
+                new Event<>(Event.Type.CREATE, "sin-datos", null));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        messageListener.handleRatingEvents(lote);
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(fila(matrixId).get("RATING_PROMEDIO"), "Un promedio fuera de rango no debe guardarse");
+        assertEquals(9.0, ((Number) fila(reloadedId).get("RATING_PROMEDIO")).doubleValue(),
+                "Los eventos validos del lote deben aplicarse igual");
+    }
+
+    @Test
+    @DisplayName("HandleMovieEvent ratingLocal actualizaSoloEsaColumnaSinCambiarVersion")
+    void handleMovieEvent_ratingLocal_actualizaSoloEsaColumnaSinCambiarVersion() {
+        // Setup: Preparar el escenario
+        Pelicula datos = peliculaRepository.porId(matrixId);
+        datos.actualizarRating(2);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        messageListener.handleMovieEvent(new Event<>(Event.Type.CREATE, String.valueOf(matrixId), datos));
+
+        // Verificacion: Verificar el resultado esperado
+        Map<String, Object> matrix = jdbcTemplate.queryForMap(
+                "SELECT rating, version FROM pelicula WHERE id = ?", matrixId);
+        assertEquals(2, ((Number) matrix.get("RATING")).intValue(), "Debe guardar el rating local");
+        assertEquals(0L, ((Number) matrix.get("VERSION")).longValue(), "El rating no debe aumentar la version");
+    }
+
+    @Test
+    @DisplayName("ContainerFactory listenerDeRatings entregaLotesConReintentoDiferido")
+    void containerFactory_listenerDeRatings_entregaLotesConReintentoDiferido() {
+        // Ejercitacion: Ejecutar la accion a probar
+        AbstractMessageListenerContainer container = containerDeRatings();
+
+        // Verificacion: Verificar el resultado esperado
+        assertNotNull(container, "Debe existir el container del listener de ratings");
+        assertTrue((Boolean) ReflectionTestUtils.getField(container, "consumerBatchEnabled"),
+                "El container debe juntar mensajes en lotes");
+        assertEquals(25, ReflectionTestUtils.getField(container, "batchSize"),
+                "Debe usar el tamanio de lote configurado");
+        assertEquals(1, ((Object[]) ReflectionTestUtils.getField(container, "adviceChain")).length,
+                "Los fallos deben derivarse al reintento diferido");
+    }
+
+    private Event<String, RatingActualizadoEvent> rating(Long peliculaId, int promedio, long total) {
+        return new Event<>(Event.Type.CREATE, String.valueOf(peliculaId),
+                new RatingActualizadoEvent(peliculaId, promedio, total));
+    }
+
+    private Map<String, Object> fila(Long id) {
+        return jdbcTemplate.queryForMap(
+                "SELECT titulo, rating_promedio, total_ratings, version FROM pelicula WHERE id = ?", id);
+    }
+
+    private AbstractMessageListenerContainer containerDeRatings() {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (container instanceof AbstractMessageListenerContainer abstracto
+                    && List.of(abstracto.getQueueNames()).contains(RabbitMQConfig.RATING_CATALOGO_QUEUE)) {
+                return abstracto;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,204 @@
+package unrn.event.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import unrn.app.Application;
+import unrn.infra.persistence.CatalogoVersion;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unrn.support.CatalogoTestSupport.guardarPelicula;
+import static unrn.support.CatalogoTestSupport.limpiarCatalogo;
+
+/**
+ * Pruebas de integracion del motor de descuento por UPDATE condicional.
+ *
+ * Verifican que con catalogo.stock.motor=condicional la compra se acepte o rechace
+ * con la misma semantica y las mismas filas de outbox que el motor con bloqueo, sin
+ * dejar descuentos parciales ni sobrevender.
+ */
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
+        "catalogo.stock.motor=condicional",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class DescuentoStockCondicionalIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private CatalogoVersion catalogoVersion;
+
+    @Autowired
+    private MotorDescuentoStock motorDescuentoStock;
+
+    @Autowired
+    private ProcesarCompraConfirmadaService procesarCompraConfirmadaService;
+
+    private Long matrixId;
+    private Long reloadedId;
+
+    @BeforeEach
+    void beforeEach() {
+        limpiarCatalogo(jdbcTemplate, referenciasCache);
+
+        matrixId = guardarPelicula(peliculaRepository, "Matrix");
+        reloadedId = guardarPelicula(peliculaRepository, "Matrix Reloaded");
+    }
+
+    @Test
+    @DisplayName("Procesar conMotorCondicional descuentaStockYAumentaVersion")
+    void procesar_conMotorCondicional_descuentaStockYAumentaVersion() {
+        // Setup: Preparar el escenario
+        var event = compra("cond-ok-1", new CompraConfirmadaEvent.ItemCompraConfirmada(matrixId, 5),
+                new CompraConfirmadaEvent.ItemCompraConfirmada(reloadedId, 3),
+                new CompraConfirmadaEvent.ItemCompraConfirmada(matrixId, 2));
+        String marcaAnterior = catalogoVersion.marca();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var resultado = procesarCompraConfirmadaService.procesar(event);
+
+        // Verificacion: Verificar el resultado esperado
+        assertInstanceOf(DescuentoStockCondicional.class, motorDescuentoStock, "Debe usarse el motor condicional");
+        assertFalse(resultado.tieneRechazo(), "La compra con stock suficiente debe aceptarse");
+        assertEquals(0, new BigDecimal("93").compareTo(stock(matrixId)), "Debe descontar la suma de los items");
+        assertEquals(0, new BigDecimal("97").compareTo(stock(reloadedId)), "Debe descontar la segunda pelicula");
+        assertEquals(1L, version(matrixId), "El descuento debe aumentar la version");
+        assertEquals(1, contarOutbox("StockValidationAcceptedEvent"), "Debe registrar el accepted en outbox");
+        assertNotEquals(marcaAnterior, catalogoVersion.marca(), "El descuento debe avanzar la version del catalogo");
+    }
+
+    @Test
+    @DisplayName("Procesar segundoItemInsuficiente rechazaSinDescuentoParcial")
+    void procesar_segundoItemInsuficiente_rechazaSinDescuentoParcial() {
+        // Setup: el primer item (menor id) alcanza y el segundo no
+        var event = compra("cond-rej-1", new CompraConfirmadaEvent.ItemCompraConfirmada(matrixId, 5),
+                new CompraConfirmadaEvent.ItemCompraConfirmada(reloadedId, 500));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var resultado = procesarCompraConfirmadaService.procesar(event);
+
+        // Verificacion: Verificar el resultado esperado
+        assertTrue(resultado.tieneRechazo(), "Debe rechazarse la compra");
+        assertEquals(ProcesarCompraConfirmadaService.MOTIVO_STOCK_INSUFICIENTE, resultado.rechazoEvent().motivo(),
+                "El motivo debe ser stock insuficiente");
+        assertEquals(1, resultado.rechazoEvent().detalles().size(), "Solo el item faltante debe detallarse");
+        assertEquals("100", resultado.rechazoEvent().detalles().get(0).disponible(),
+                "El detalle debe informar el stock disponible");
+        assertEquals(0, new BigDecimal("100").compareTo(stock(matrixId)),
+                "El item que alcanzaba no debe quedar descontado");
+        assertEquals(0L, version(matrixId), "Tampoco debe cambiar su version");
+        assertEquals(1, contarOutbox("StockRechazadoEvent"), "Debe registrar el rechazo en outbox");
+    }
+
+    @Test
+    @DisplayName("Procesar peliculaRetirada rechazaComoInexistente")
+    void procesar_peliculaRetirada_rechazaComoInexistente() {
+        // Setup: Preparar el escenario
+        peliculaRepository.eliminar(reloadedId);
+        var event = compra("cond-ret-1", new CompraConfirmadaEvent.ItemCompraConfirmada(reloadedId, 1),
+                new CompraConfirmadaEvent.ItemCompraConfirmada(matrixId, 1));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var resultado = procesarCompraConfirmadaService.procesar(event);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(ProcesarCompraConfirmadaService.MOTIVO_PELICULA_INEXISTENTE, resultado.rechazoEvent().motivo(),
+                "Una pelicula retirada debe rechazarse como inexistente");
+        assertEquals(0, new BigDecimal("100").compareTo(stock(matrixId)), "No debe descontar la otra pelicula");
+    }
+
+    @Test
+    @DisplayName("Procesar comprasConcurrentes noSobrevende")
+    void procesar_comprasConcurrentes_noSobrevende() throws Exception {
+        // Setup: 30 compras de 7 unidades sobre 100 de stock, con las dos peliculas en distinto orden
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ProcesarCompraConfirmadaService.ResultadoProcesamiento>> futuros = new ArrayList<>();
+        try {
+            for (int i = 0; i < 30; i++) {
+                var items = i % 2 == 0
+                        ? List.of(new CompraConfirmadaEvent.ItemCompraConfirmada(matrixId, 7),
+                                new CompraConfirmadaEvent.ItemCompraConfirmada(reloadedId, 1))
+                        : List.of(new CompraConfirmadaEvent.ItemCompraConfirmada(reloadedId, 1),
+                                new CompraConfirmadaEvent.ItemCompraConfirmada(matrixId, 7));
+                var event = new CompraConfirmadaEvent("cond-conc-" + i, 500L + i, "cliente", Instant.now(), items);
+                futuros.add(executor.submit(
+                        (Callable<ProcesarCompraConfirmadaService.ResultadoProcesamiento>) () -> {
+                            start.await(5, TimeUnit.SECONDS);
+                            return procesarCompraConfirmadaService.procesar(event);
+                        }));
+            }
+
+            // Ejercitacion: Ejecutar la accion a probar
+            start.countDown();
+            int aceptadas = 0;
+            for (var futuro : futuros) {
+                if (!futuro.get(30, TimeUnit.SECONDS).tieneRechazo()) {
+                    aceptadas++;
+                }
+            }
+
+            // Verificacion: Verificar el resultado esperado
+            assertEquals(14, aceptadas, "Con 100 unidades solo alcanzan 14 compras de 7");
+            assertEquals(0, new BigDecimal("2").compareTo(stock(matrixId)), "Deben quedar 2 unidades");
+            assertEquals(0, new BigDecimal("86").compareTo(stock(reloadedId)),
+                    "La segunda pelicula solo debe descontarse en las compras aceptadas");
+            assertEquals(30, contarOutbox("StockValidationAcceptedEvent") + contarOutbox("StockRechazadoEvent"),
+                    "Cada compra debe dejar un resultado en outbox");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompraConfirmadaEvent compra(String eventId, CompraConfirmadaEvent.ItemCompraConfirmada... items) {
+        return new CompraConfirmadaEvent(eventId, 1L, "cliente", Instant.now(), List.of(items));
+    }
+
+    private BigDecimal stock(Long id) {
+        return jdbcTemplate.queryForObject("SELECT stock_disponible FROM pelicula WHERE id = ?", BigDecimal.class, id);
+    }
+
+    private long version(Long id) {
+        return jdbcTemplate.queryForObject("SELECT version FROM pelicula WHERE id = ?", Long.class, id);
+    }
+
+    private int contarOutbox(String eventType) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM catalogo_outbox_event WHERE event_type=? AND status='PENDING'",
+                Integer.class,
+                eventType);
+    }
+}
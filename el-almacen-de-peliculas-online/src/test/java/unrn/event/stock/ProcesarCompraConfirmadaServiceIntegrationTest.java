@@ -12,6 +12,7 @@ import unrn.app.Application;
 import unrn.infra.persistence.EventoProcesadoRepository;
 import unrn.infra.persistence.PeliculaEntity;
 import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 import unrn.model.Actor;
 import unrn.model.Condicion;
 import unrn.model.Director;
@@ -45,6 +46,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
         "spring.rabbitmq.listener.simple.auto-startup=false",
         "spring.rabbitmq.listener.direct.auto-startup=false",
         "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
         "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
 })
 class ProcesarCompraConfirmadaServiceIntegrationTest {
@@ -55,6 +57,9 @@ class ProcesarCompraConfirmadaServiceIntegrationTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
     @Autowired
     private PeliculaRepository peliculaRepository;
 
@@ -78,6 +83,7 @@ class ProcesarCompraConfirmadaServiceIntegrationTest {
         jdbcTemplate.execute("DELETE FROM condicion");
         jdbcTemplate.execute("DELETE FROM formato");
         jdbcTemplate.execute("DELETE FROM genero");
+        referenciasCache.precargar();
 
         Pelicula pelicula = new Pelicula(
                 "Matrix",
@@ -0,0 +1,137 @@
+package unrn.event.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import unrn.app.Application;
+import unrn.infra.persistence.CatalogoOutboxEventRepository;
+import unrn.infra.persistence.EventoProcesadoRepository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de integracion de la depuracion del outbox y de la tabla de idempotencia.
+ *
+ * Verifican que solo se borren eventos publicados fuera de la retencion y marcas
+ * fuera de la ventana de deduplicacion, en varios lotes, y que la corrida informe
+ * cuantas filas borro.
+ */
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
+        "catalogo.retencion.enabled=false",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class RetencionOutboxServiceIntegrationTest {
+
+    private static final Instant AHORA = Instant.parse("2026-06-01T12:00:00Z");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CatalogoOutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private EventoProcesadoRepository eventoProcesadoRepository;
+
+    private long secuencia;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate.execute("DELETE FROM catalogo_outbox_event");
+        jdbcTemplate.execute("DELETE FROM eventos_procesados");
+    }
+
+    @Test
+    @DisplayName("Depurar filasViejasYRecientes borraSoloPublicadosYMarcasFueraDeVentana")
+    void depurar_filasViejasYRecientes_borraSoloPublicadosYMarcasFueraDeVentana() {
+        // Setup: Preparar el escenario
+        RetencionOutboxService service = new RetencionOutboxService(
+                outboxEventRepository, eventoProcesadoRepository, 24, 48, 2, 100);
+        for (int i = 0; i < 5; i++) {
+            insertarOutbox("PUBLISHED", AHORA.minus(Duration.ofHours(30)));
+        }
+        insertarOutbox("PUBLISHED", AHORA.minus(Duration.ofHours(2)));
+        insertarOutbox("FAILED", AHORA.minus(Duration.ofHours(30)));
+        insertarOutbox("PENDING", AHORA.minus(Duration.ofHours(30)));
+        for (int i = 0; i < 3; i++) {
+            insertarEventoProcesado(AHORA.minus(Duration.ofHours(50)));
+        }
+        insertarEventoProcesado(AHORA.minus(Duration.ofHours(30)));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        RetencionOutboxService.ResultadoRetencion resultado = service.depurar(AHORA);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(5, resultado.outboxEliminados(), "Debe borrar los publicados fuera de la retencion");
+        assertEquals(3, resultado.eventosProcesadosEliminados(), "Debe borrar las marcas fuera de la ventana");
+        assertEquals(3, contar("catalogo_outbox_event"), "Deben quedar el publicado reciente, el FAILED y el pendiente");
+        assertEquals(1, contar("eventos_procesados"), "Debe quedar la marca dentro de la ventana de deduplicacion");
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM catalogo_outbox_event WHERE status='PUBLISHED' AND created_at < ?",
+                Integer.class, Timestamp.from(AHORA.minus(Duration.ofHours(24)))),
+                "No deben quedar publicados vencidos");
+    }
+
+    @Test
+    @DisplayName("Depurar maximoDeLotesAlcanzado dejaElRestoParaLaProximaCorrida")
+    void depurar_maximoDeLotesAlcanzado_dejaElRestoParaLaProximaCorrida() {
+        // Setup: Preparar el escenario
+        RetencionOutboxService service = new RetencionOutboxService(
+                outboxEventRepository, eventoProcesadoRepository, 24, 48, 2, 2);
+        for (int i = 0; i < 7; i++) {
+            insertarOutbox("PUBLISHED", AHORA.minus(Duration.ofHours(30)));
+        }
+
+        // Ejercitacion: Ejecutar la accion a probar
+        RetencionOutboxService.ResultadoRetencion primera = service.depurar(AHORA);
+        RetencionOutboxService.ResultadoRetencion segunda = service.depurar(AHORA);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(4, primera.outboxEliminados(), "Cada corrida debe borrar a lo sumo lote por max-lotes filas");
+        assertEquals(3, segunda.outboxEliminados(), "La siguiente corrida debe seguir con el resto");
+        assertEquals(7, service.estadisticas().outboxEliminados(), "El acumulado debe sumar ambas corridas");
+        assertEquals(2, service.estadisticas().corridas(), "Debe contar las corridas ejecutadas");
+    }
+
+    /**
+     * Inserta una fila de outbox con el estado y la fecha de creacion indicados.
+     */
+    private void insertarOutbox(String status, Instant createdAt) {
+        secuencia++;
+        jdbcTemplate.update("""
+                INSERT INTO catalogo_outbox_event
+                    (aggregate_type, aggregate_id, event_id, event_type, payload_json, status, created_at, attempts)
+                VALUES ('COMPRA', ?, ?, 'StockValidationAcceptedEvent', '{}', ?, ?, 0)
+                """, secuencia, "evt-ret-" + secuencia, status, Timestamp.from(createdAt));
+    }
+
+    /**
+     * Inserta una marca de evento procesado con la fecha indicada.
+     */
+    private void insertarEventoProcesado(Instant processedAt) {
+        secuencia++;
+        jdbcTemplate.update(
+                "INSERT INTO eventos_procesados (event_id, processed_at, source, compra_id) VALUES (?, ?, 'VENTAS', ?)",
+                "proc-ret-" + secuencia, Timestamp.from(processedAt), secuencia);
+    }
+
+    /**
+     * Cuenta las filas de la tabla indicada.
+     */
+    private int contar(String tabla) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tabla, Integer.class);
+    }
+}
@@ -0,0 +1,289 @@
+package unrn.event.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.AbstractMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import unrn.app.Application;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static unrn.support.CatalogoTestSupport.guardarPelicula;
+import static unrn.support.CatalogoTestSupport.limpiarCatalogo;
+
+/**
+ * Pruebas de integracion y benchmark del listener de validacion de stock con
+ * varios consumidores.
+ *
+ * Verifican que el listener use su container factory con la concurrencia y el
+ * prefetch configurados y que varios consumidores tomando solicitudes de una
+ * misma cola, como hace el container, dejen el stock exacto y sin sobreventa.
+ * El benchmark mide el throughput con 1, 2, 4 y 8 consumidores con la misma
+ * verificacion en cada corrida; se ejecuta con
+ * mvn test -Dtest=StockValidationListenerConcurrenciaIntegrationTest -Dbenchmark=true
+ *
+ * Sin broker en las pruebas, los consumidores son hilos propios que llaman al
+ * listener directamente: el benchmark mide como escala el listener con los
+ * bloqueos por pelicula en la base, no el container factory, el prefetch ni
+ * los hilos virtuales, y no incluye el costo de RabbitMQ.
+ */
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
+        "catalogo.stock.validation.listener.concurrency=3",
+        "catalogo.stock.validation.listener.max-concurrency=6",
+        "catalogo.stock.validation.listener.prefetch=7",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class StockValidationListenerConcurrenciaIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StockValidationListenerConcurrenciaIntegrationTest.class);
+    private static final int SOLICITUDES_PRUEBA = 60;
+    private static final int SOLICITUDES_BENCHMARK = 400;
+    private static final int PELICULAS_COMUNES = 16;
+    private static final int STOCK_COMUN = 100;
+    private static final int STOCK_ESCASO = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private StockValidationRequestListener listener;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    private Long escasaId;
+    private final List<Long> comunesIds = new ArrayList<>();
+
+    @BeforeEach
+    void beforeEach() {
+        limpiarCatalogo(jdbcTemplate, referenciasCache);
+
+        escasaId = guardarPelicula(peliculaRepository, "Escasa");
+        comunesIds.clear();
+        for (int i = 0; i < PELICULAS_COMUNES; i++) {
+            comunesIds.add(guardarPelicula(peliculaRepository, "Comun " + i));
+        }
+    }
+
+    @Test
+    @DisplayName("ContainerFactory listenerDeValidacion usaConcurrenciaYPrefetchConfigurados")
+    void containerFactory_listenerDeValidacion_usaConcurrenciaYPrefetchConfigurados() {
+        // Ejercitacion: Ejecutar la accion a probar
+        AbstractMessageListenerContainer container = containerDeValidacion();
+
+        // Verificacion: Verificar el resultado esperado
+        assertNotNull(container, "Debe existir el container del listener de validacion de stock");
+        assertEquals(3, ReflectionTestUtils.getField(container, "concurrentConsumers"),
+                "Debe usar los consumidores configurados");
+        assertEquals(6, ReflectionTestUtils.getField(container, "maxConcurrentConsumers"),
+                "Debe usar el maximo de consumidores configurado");
+        assertEquals(7, ReflectionTestUtils.getField(container, "prefetchCount"),
+                "Debe usar el prefetch configurado");
+    }
+
+    @Test
+    @DisplayName("Procesar cuatroConsumidores mantieneStockExacto")
+    void procesar_cuatroConsumidores_mantieneStockExacto() throws Exception {
+        // Setup: Preparar el escenario
+        reiniciarStock();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        procesarConConsumidores(4, SOLICITUDES_PRUEBA, "conc-");
+
+        // Verificacion: Verificar el resultado esperado
+        verificarStock(4, SOLICITUDES_PRUEBA);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark masConsumidores escalaYMantieneStockExacto")
+    void benchmark_masConsumidores_escalaYMantieneStockExacto() throws Exception {
+        // Setup: Preparar el escenario
+        int[] consumidores = {1, 2, 4, 8};
+        List<String> filas = new ArrayList<>();
+        double base = 0;
+
+        for (int cantidad : consumidores) {
+            reiniciarStock();
+
+            // Ejercitacion: Ejecutar la accion a probar
+            long duracionNanos = procesarConConsumidores(cantidad, SOLICITUDES_BENCHMARK, "bench-" + cantidad + "-");
+            double porSegundo = SOLICITUDES_BENCHMARK * 1_000_000_000.0 / duracionNanos;
+            if (cantidad == 1) {
+                base = porSegundo;
+            }
+            filas.add(String.format(Locale.ROOT, "consumidores=%d solicitudes/s=%.0f aceleracion=%.2fx",
+                    cantidad, porSegundo, porSegundo / base));
+
+            // Verificacion: Verificar el resultado esperado
+            verificarStock(cantidad, SOLICITUDES_BENCHMARK);
+        }
+
+        log.info("Benchmark validacion de stock ({} solicitudes):", SOLICITUDES_BENCHMARK);
+        filas.forEach(fila -> log.info("  {}", fila));
+    }
+
+    /**
+     * Verifica que la pelicula escasa se agote sin sobreventa y que cada pelicula
+     * comun tenga exactamente el stock que dejan las compras aceptadas.
+     */
+    private void verificarStock(int consumidores, int solicitudes) {
+        int rechazadas = solicitudes / 10 - STOCK_ESCASO;
+        assertEquals(0, BigDecimal.ZERO.compareTo(stock(escasaId)),
+                "La pelicula escasa debe agotarse sin quedar negativa con " + consumidores + " consumidores");
+        assertArrayEquals(stockEsperadoComunes(), stockComunes(),
+                "El stock de cada pelicula debe coincidir con las compras aceptadas con "
+                        + consumidores + " consumidores");
+        assertEquals(solicitudes - rechazadas, contarOutbox("StockValidationAcceptedEvent"),
+                "Solo deben rechazarse las compras que no alcanzan la pelicula escasa");
+        assertEquals(rechazadas, contarOutbox("StockRechazadoEvent"),
+                "Cada compra rechazada debe dejar su rechazo en outbox");
+    }
+
+    /**
+     * Reparte las solicitudes entre consumidores que toman de una misma cola y devuelve cuanto tardaron.
+     */
+    private long procesarConConsumidores(int cantidad, int solicitudes, String prefijo) throws Exception {
+        BlockingQueue<StockValidationRequestedEvent> cola = new LinkedBlockingQueue<>();
+        for (int i = 0; i < solicitudes; i++) {
+            cola.add(new StockValidationRequestedEvent(prefijo + i, (long) i, items(i), Instant.now()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(cantidad);
+        try {
+            long inicio = System.nanoTime();
+            List<Future<?>> consumidores = new ArrayList<>();
+            for (int c = 0; c < cantidad; c++) {
+                consumidores.add(executor.submit(() -> {
+                    StockValidationRequestedEvent event;
+                    while ((event = cola.poll()) != null) {
+                        listener.onStockValidationRequested(event);
+                    }
+                }));
+            }
+            for (Future<?> consumidor : consumidores) {
+                consumidor.get(60, TimeUnit.SECONDS);
+            }
+            return System.nanoTime() - inicio;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Arma los items de la solicitud i: una de cada diez pide la pelicula escasa y
+     * el resto dos peliculas comunes distintas, en orden variable.
+     */
+    private List<StockValidationRequestedEvent.Item> items(int i) {
+        Long comun = comunesIds.get(i % PELICULAS_COMUNES);
+        if (esEscasa(i)) {
+            return List.of(new StockValidationRequestedEvent.Item(escasaId, 1),
+                    new StockValidationRequestedEvent.Item(comun, 1));
+        }
+        Long otra = comunesIds.get((i * 7 + 3) % PELICULAS_COMUNES);
+        if (otra.equals(comun)) {
+            otra = comunesIds.get((i + 1) % PELICULAS_COMUNES);
+        }
+        return List.of(new StockValidationRequestedEvent.Item(otra, 1),
+                new StockValidationRequestedEvent.Item(comun, 1));
+    }
+
+    private boolean esEscasa(int i) {
+        return i % 10 == 0;
+    }
+
+    /**
+     * Calcula el stock final de cada pelicula comun a partir de las compras aceptadas en outbox.
+     */
+    private int[] stockEsperadoComunes() {
+        List<Long> aceptadas = jdbcTemplate.queryForList(
+                "SELECT aggregate_id FROM catalogo_outbox_event WHERE event_type='StockValidationAcceptedEvent'",
+                Long.class);
+        int[] descontado = new int[PELICULAS_COMUNES];
+        for (Long compraId : aceptadas) {
+            for (var item : items(compraId.intValue())) {
+                int indice = comunesIds.indexOf(item.peliculaId());
+                if (indice >= 0) {
+                    descontado[indice] += item.cantidad();
+                }
+            }
+        }
+        int[] esperado = new int[PELICULAS_COMUNES];
+        for (int i = 0; i < PELICULAS_COMUNES; i++) {
+            esperado[i] = STOCK_COMUN - descontado[i];
+        }
+        return esperado;
+    }
+
+    private int[] stockComunes() {
+        int[] stock = new int[PELICULAS_COMUNES];
+        for (int i = 0; i < PELICULAS_COMUNES; i++) {
+            stock[i] = stock(comunesIds.get(i)).intValueExact();
+        }
+        return stock;
+    }
+
+    private void reiniciarStock() {
+        jdbcTemplate.execute("DELETE FROM catalogo_outbox_event");
+        jdbcTemplate.execute("DELETE FROM eventos_procesados");
+        jdbcTemplate.update("UPDATE pelicula SET stock_disponible = ?", STOCK_COMUN);
+        jdbcTemplate.update("UPDATE pelicula SET stock_disponible = ? WHERE id = ?", STOCK_ESCASO, escasaId);
+    }
+
+    private AbstractMessageListenerContainer containerDeValidacion() {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (container instanceof AbstractMessageListenerContainer abstracto
+                    && List.of(abstracto.getQueueNames()).contains("catalogo.stock.validation.requests")) {
+                return abstracto;
+            }
+        }
+        return null;
+    }
+
+    private BigDecimal stock(Long id) {
+        return jdbcTemplate.queryForObject("SELECT stock_disponible FROM pelicula WHERE id = ?", BigDecimal.class, id);
+    }
+
+    private int contarOutbox(String eventType) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM catalogo_outbox_event WHERE event_type=?",
+                Integer.class,
+                eventType);
+    }
+}
@@ -12,22 +12,29 @@ import org.springframework.test.context.TestPropertySource;
 import unrn.app.Application;
 import unrn.infra.persistence.PeliculaEntity;
 import unrn.infra.persistence.PeliculaRepository;
-import unrn.model.Actor;
-import unrn.model.Condicion;
-import unrn.model.Director;
-import unrn.model.Formato;
-import unrn.model.Genero;
-import unrn.model.Pelicula;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static unrn.support.CatalogoTestSupport.guardarPelicula;
+import static unrn.support.CatalogoTestSupport.limpiarCatalogo;
 
 /**
  * Pruebas de integracion del listener de solicitudes de validacion de stock.
@@ -40,6 +47,7 @@ import static org.mockito.Mockito.verify;
         "spring.rabbitmq.listener.simple.auto-startup=false",
         "spring.rabbitmq.listener.direct.auto-startup=false",
         "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
         "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
 })
 class StockValidationRequestListenerIntegrationTest {
@@ -50,6 +58,9 @@ class StockValidationRequestListenerIntegrationTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
     @Autowired
     private PeliculaRepository peliculaRepository;
 
@@ -66,31 +77,9 @@ class StockValidationRequestListenerIntegrationTest {
 
     @BeforeEach
     void beforeEach() {
-        jdbcTemplate.execute("DELETE FROM catalogo_outbox_event");
-        jdbcTemplate.execute("DELETE FROM eventos_procesados");
-        jdbcTemplate.execute("DELETE FROM pelicula_actor");
-        jdbcTemplate.execute("DELETE FROM pelicula_director");
-        jdbcTemplate.execute("DELETE FROM pelicula");
-        jdbcTemplate.execute("DELETE FROM actor");
-        jdbcTemplate.execute("DELETE FROM director");
-        jdbcTemplate.execute("DELETE FROM condicion");
-        jdbcTemplate.execute("DELETE FROM formato");
-        jdbcTemplate.execute("DELETE FROM genero");
-
-        Pelicula pelicula = new Pelicula(
-                "Matrix",
-                new Condicion("nuevo"),
-                List.of(new Director("Lana Wachowski")),
-                100.00,
-                new Formato("BluRay"),
-                new Genero("Ciencia ficcion"),
-                "Sinopsis",
-                List.of(new Actor("Keanu Reeves")),
-                "",
-                LocalDate.of(1999, 3, 31),
-                5);
-
-        peliculaId = peliculaRepository.guardar(pelicula).id();
+        limpiarCatalogo(jdbcTemplate, referenciasCache);
+
+        peliculaId = guardarPelicula(peliculaRepository, "Matrix");
     }
 
     @Test
@@ -142,4 +131,73 @@ class StockValidationRequestListenerIntegrationTest {
         assertEquals(1, outboxRechazado,
                 "Debe registrar un StockRechazadoEvent pendiente en outbox");
     }
+
+    @Test
+    @DisplayName("StockValidationRequestListener solicitudesSolapadas noSeTraban y noSobrevenden")
+    void stockValidationRequestListener_solicitudesSolapadas_noSeTrabanYNoSobrevenden() throws Exception {
+        // Setup: tres peliculas con stock 100 y solicitudes que las piden en distinto orden
+        List<Long> ids = List.of(peliculaId, guardarPelicula(peliculaRepository, "Matrix Reloaded"),
+                guardarPelicula(peliculaRepository, "Matrix Revolutions"));
+        Map<String, List<StockValidationRequestedEvent.Item>> itemsPorEvento = new HashMap<>();
+        List<StockValidationRequestedEvent> eventos = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            List<StockValidationRequestedEvent.Item> items = new ArrayList<>();
+            for (int j = 0; j < 2 + i % 2; j++) {
+                // Orden distinto segun el evento y, a veces, la misma pelicula repetida
+                Long id = ids.get((i + (i % 3 == 0 ? -j : j) + 3 * ids.size()) % ids.size());
+                items.add(new StockValidationRequestedEvent.Item(id, 1 + (i + j) % 5));
+            }
+            if (i % 7 == 0) {
+                items.add(items.get(0));
+            }
+            var evento = new StockValidationRequestedEvent("stock-req-concurrente-" + i, 1000L + i, items,
+                    Instant.now());
+            itemsPorEvento.put(evento.eventId(), items);
+            eventos.add(evento);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            // Ejercitacion: disparar todas las solicitudes a la vez
+            List<Future<?>> futuros = new ArrayList<>();
+            for (var evento : eventos) {
+                futuros.add(executor.submit((Callable<Void>) () -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    listener.onStockValidationRequested(evento);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var futuro : futuros) {
+                // Un deadlock o timeout de lock se propagaria como excepcion aca
+                futuro.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Verificacion: cada pelicula descuenta exactamente lo aceptado y nunca queda negativa
+        var aceptados = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT event_id FROM catalogo_outbox_event WHERE event_type='StockValidationAcceptedEvent'",
+                String.class));
+        Integer resultados = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalogo_outbox_event",
+                Integer.class);
+        assertEquals(eventos.size(), resultados, "Cada solicitud debe dejar un unico resultado en outbox");
+
+        Map<Long, BigDecimal> vendido = new HashMap<>();
+        for (String eventId : aceptados) {
+            for (var item : itemsPorEvento.get(eventId)) {
+                vendido.merge(item.peliculaId(), BigDecimal.valueOf(item.cantidad()), BigDecimal::add);
+            }
+        }
+        for (Long id : ids) {
+            BigDecimal stock = jdbcTemplate.queryForObject(
+                    "SELECT stock_disponible FROM pelicula WHERE id = ?", BigDecimal.class, id);
+            assertTrue(stock.signum() >= 0, "El stock nunca debe quedar negativo");
+            assertEquals(0, new BigDecimal("100").subtract(vendido.getOrDefault(id, BigDecimal.ZERO))
+                    .compareTo(stock), "El stock debe reflejar exactamente las solicitudes aceptadas");
+        }
+        assertTrue(aceptados.size() < eventos.size(), "La demanda supera el stock: debe haber rechazos");
+    }
 }
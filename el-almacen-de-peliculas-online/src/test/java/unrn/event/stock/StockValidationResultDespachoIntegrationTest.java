@@ -0,0 +1,118 @@
+package unrn.event.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import unrn.app.Application;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de integracion del despacho inmediato del outbox de stock.
+ *
+ * Con el scheduler apagado verifican que un resultado confirmado se publique y
+ * quede PUBLISHED sin esperar al barrido, y que uno revertido nunca se despache.
+ */
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=true",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class StockValidationResultDespachoIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StockValidationResultOutboxService outboxService;
+
+    @MockBean
+    private StockValidationAcceptedPublisher acceptedPublisher;
+
+    @MockBean
+    private StockRechazadoPublisher rechazadoPublisher;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate.execute("DELETE FROM catalogo_outbox_event");
+        jdbcTemplate.execute("DELETE FROM eventos_procesados");
+        when(acceptedPublisher.publicarConConfirmacion(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(rechazadoPublisher.publicarConConfirmacion(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    @DisplayName("RegistrarAccepted transaccionConfirmada publicaSinEsperarAlScheduler")
+    void registrarAccepted_transaccionConfirmada_publicaSinEsperarAlScheduler() throws InterruptedException {
+        // Setup: Preparar el escenario
+        StockValidationAcceptedEvent event = new StockValidationAcceptedEvent("evt-push", 21L, Instant.now());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        long inicio = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> outboxService.registrarAccepted(event));
+        verify(acceptedPublisher, timeout(2_000)).publicarConConfirmacion(eq("evt-push"), any());
+        long demoraMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        // Verificacion: Verificar el resultado esperado
+        assertTrue(esperarPublicado("evt-push"), "El evento debe quedar PUBLISHED sin correr el scheduler");
+        assertTrue(demoraMs < 2_000, "La publicacion no debe esperar el intervalo del scheduler: " + demoraMs + " ms");
+    }
+
+    @Test
+    @DisplayName("RegistrarRechazado transaccionRevertida noDespacha")
+    void registrarRechazado_transaccionRevertida_noDespacha() {
+        // Setup: Preparar el escenario
+        StockRechazadoEvent event = new StockRechazadoEvent("evt-rollback", 22L, "sin stock", List.of());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.registrarRechazado(event);
+            status.setRollbackOnly();
+        });
+
+        // Verificacion: Verificar el resultado esperado
+        verify(rechazadoPublisher, after(500).never()).publicarConConfirmacion(any(), any());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM catalogo_outbox_event", Integer.class),
+                "La fila revertida no debe existir");
+    }
+
+    /**
+     * Espera hasta dos segundos a que la fila del evento quede PUBLISHED.
+     */
+    private boolean esperarPublicado(String eventId) throws InterruptedException {
+        for (int intento = 0; intento < 40; intento++) {
+            Integer publicados = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM catalogo_outbox_event WHERE event_id=? AND status='PUBLISHED'",
+                    Integer.class,
+                    eventId);
+            if (publicados != null && publicados == 1) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+}
@@ -2,22 +2,32 @@ package unrn.event.stock;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.test.util.ReflectionTestUtils;
 import unrn.infra.persistence.CatalogoOutboxEventEntity;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
  * Pruebas del scheduler que publica resultados pendientes del outbox de stock.
  *
- * Verifican publicacion de eventos aceptados y rechazados, marcado de publicados,
- * registro de fallos y respeto del limite de reintentos configurado.
+ * Verifican publicacion de eventos aceptados y rechazados, marcado de publicados
+ * por lote, registro de fallos y confirmaciones vencidas, y el drenado por lotes.
  */
 class StockValidationResultOutboxPublisherSchedulerTest {
 
@@ -28,20 +38,17 @@ class StockValidationResultOutboxPublisherSchedulerTest {
         StockValidationAcceptedPublisher acceptedPublisher = mock(StockValidationAcceptedPublisher.class);
         StockRechazadoPublisher rechazadoPublisher = mock(StockRechazadoPublisher.class);
         StockValidationResultOutboxPublisherScheduler scheduler = new StockValidationResultOutboxPublisherScheduler(
-                outboxService,
-                acceptedPublisher,
-                rechazadoPublisher,
-                3);
+                new StockValidationResultOutboxPublicador(outboxService, acceptedPublisher, rechazadoPublisher, 3));
         CatalogoOutboxEventEntity outboxEvent = outboxEvent();
-        StockValidationAcceptedEvent event = new StockValidationAcceptedEvent("evt-ok", 10L, Instant.now());
 
-        when(outboxService.pendientes(3)).thenReturn(List.of(outboxEvent));
-        when(outboxService.leerEvento(outboxEvent)).thenReturn(event);
+        when(outboxService.reclamar(anyString(), eq(3), eq(100), anyLong())).thenReturn(List.of(outboxEvent));
+        when(outboxService.mensaje(outboxEvent)).thenReturn(mensaje());
+        when(acceptedPublisher.publicarConConfirmacion(eq("evt"), any(Message.class))).thenReturn(CompletableFuture.completedFuture(null));
 
         scheduler.publicarPendientes();
 
-        verify(acceptedPublisher).publicarAhora(event);
-        verify(outboxService).marcarPublicado(1L);
+        verify(acceptedPublisher).publicarConConfirmacion(eq("evt"), any(Message.class));
+        verify(outboxService).marcarPublicados(anyString(), eq(List.of(1L)));
     }
 
     @Test
@@ -51,20 +58,77 @@ class StockValidationResultOutboxPublisherSchedulerTest {
         StockValidationAcceptedPublisher acceptedPublisher = mock(StockValidationAcceptedPublisher.class);
         StockRechazadoPublisher rechazadoPublisher = mock(StockRechazadoPublisher.class);
         StockValidationResultOutboxPublisherScheduler scheduler = new StockValidationResultOutboxPublisherScheduler(
-                outboxService,
-                acceptedPublisher,
-                rechazadoPublisher,
-                3);
+                new StockValidationResultOutboxPublicador(outboxService, acceptedPublisher, rechazadoPublisher, 3));
         CatalogoOutboxEventEntity outboxEvent = outboxEvent();
-        StockValidationAcceptedEvent event = new StockValidationAcceptedEvent("evt-fail", 11L, Instant.now());
 
-        when(outboxService.pendientes(3)).thenReturn(List.of(outboxEvent));
-        when(outboxService.leerEvento(outboxEvent)).thenReturn(event);
-        doThrow(new RuntimeException("rabbit down")).when(acceptedPublisher).publicarAhora(event);
+        when(outboxService.reclamar(anyString(), eq(3), eq(100), anyLong())).thenReturn(List.of(outboxEvent));
+        when(outboxService.mensaje(outboxEvent)).thenReturn(mensaje());
+        when(acceptedPublisher.publicarConConfirmacion(eq("evt"), any(Message.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("rabbit down")));
 
         scheduler.publicarPendientes();
 
-        verify(outboxService).registrarFallo(1L, "rabbit down", 3);
+        verify(outboxService).registrarFallos(anyString(), eq(Map.of(1L, "rabbit down")), eq(3));
+        verify(outboxService).marcarPublicados(anyString(), eq(List.of()));
+    }
+
+    @Test
+    @DisplayName("PublicarPendientes loteCompleto sigueDrenandoHastaVaciar")
+    void publicarPendientes_loteCompleto_sigueDrenandoHastaVaciar() {
+        // Setup: Preparar el escenario
+        StockValidationResultOutboxService outboxService = mock(StockValidationResultOutboxService.class);
+        StockValidationAcceptedPublisher acceptedPublisher = mock(StockValidationAcceptedPublisher.class);
+        StockRechazadoPublisher rechazadoPublisher = mock(StockRechazadoPublisher.class);
+        StockValidationResultOutboxPublisherScheduler scheduler = new StockValidationResultOutboxPublisherScheduler(
+                new StockValidationResultOutboxPublicador(
+                        outboxService, acceptedPublisher, rechazadoPublisher, 3, 1_000, "catalogo-a", 30_000),
+                1,
+                10);
+        CatalogoOutboxEventEntity primero = outboxEvent();
+        CatalogoOutboxEventEntity segundo = outboxEvent();
+        ReflectionTestUtils.setField(segundo, "id", 2L);
+
+        when(outboxService.reclamar(startsWith("catalogo-a#"), eq(3), eq(1), eq(30_000L)))
+                .thenReturn(List.of(primero), List.of(segundo), List.of());
+        when(outboxService.mensaje(primero)).thenReturn(mensaje());
+        when(outboxService.mensaje(segundo)).thenReturn(mensaje());
+        when(acceptedPublisher.publicarConConfirmacion(eq("evt"), any(Message.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        scheduler.publicarPendientes();
+
+        // Verificacion: Verificar el resultado esperado
+        verify(outboxService).marcarPublicados(startsWith("catalogo-a#"), eq(List.of(1L)));
+        verify(outboxService).marcarPublicados(startsWith("catalogo-a#"), eq(List.of(2L)));
+        verify(outboxService, times(3)).reclamar(startsWith("catalogo-a#"), eq(3), eq(1), eq(30_000L));
+    }
+
+    @Test
+    @DisplayName("PublicarPendientes sinConfirmacionATiempo registraFalloYNoMarcaPublicado")
+    void publicarPendientes_sinConfirmacionATiempo_registraFalloYNoMarcaPublicado() {
+        // Setup: Preparar el escenario
+        StockValidationResultOutboxService outboxService = mock(StockValidationResultOutboxService.class);
+        StockValidationAcceptedPublisher acceptedPublisher = mock(StockValidationAcceptedPublisher.class);
+        StockRechazadoPublisher rechazadoPublisher = mock(StockRechazadoPublisher.class);
+        StockValidationResultOutboxPublisherScheduler scheduler = new StockValidationResultOutboxPublisherScheduler(
+                new StockValidationResultOutboxPublicador(
+                        outboxService, acceptedPublisher, rechazadoPublisher, 3, 50, "catalogo-a", 30_000),
+                10,
+                10);
+        CatalogoOutboxEventEntity outboxEvent = outboxEvent();
+
+        when(outboxService.reclamar(startsWith("catalogo-a#"), eq(3), eq(10), eq(30_000L))).thenReturn(List.of(outboxEvent));
+        when(outboxService.mensaje(outboxEvent)).thenReturn(mensaje());
+        when(acceptedPublisher.publicarConConfirmacion(eq("evt"), any(Message.class))).thenReturn(new CompletableFuture<>());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        scheduler.publicarPendientes();
+
+        // Verificacion: Verificar el resultado esperado
+        verify(outboxService).registrarFallos(startsWith("catalogo-a#"),
+                eq(Map.of(1L, StockValidationResultOutboxService.ERROR_PUBLICACION_NO_CONFIRMADA + ": timeout")),
+                eq(3));
+        verify(outboxService).marcarPublicados(startsWith("catalogo-a#"), eq(List.of()));
     }
 
     private CatalogoOutboxEventEntity outboxEvent() {
@@ -73,9 +137,14 @@ class StockValidationResultOutboxPublisherSchedulerTest {
                 10L,
                 "evt",
                 StockValidationResultOutboxService.EVENT_TYPE_STOCK_VALIDATION_ACCEPTED,
-                "{}",
+                "{}".getBytes(StandardCharsets.UTF_8),
+                MessageProperties.CONTENT_TYPE_JSON,
                 Instant.now());
         ReflectionTestUtils.setField(outboxEvent, "id", 1L);
         return outboxEvent;
     }
+
+    private Message mensaje() {
+        return new Message("{}".getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
 }
@@ -0,0 +1,234 @@
+package unrn.event.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import unrn.app.Application;
+import unrn.infra.persistence.CatalogoOutboxEventRepository;
+import unrn.infra.persistence.CatalogoOutboxEventStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pruebas de integracion del reclamo de lotes del outbox entre varias instancias.
+ *
+ * Verifican que varios publicadores corriendo a la vez sobre la misma base se
+ * repartan las filas sin repetir envios, que un lease vencido pueda retomarse,
+ * que un fallo tardio no pise la fila de otro reclamo, que el backoff posponga
+ * los reintentos y que el dead-letter pueda reencolarse.
+ */
+@SpringBootTest(classes = Application.class)
+@TestPropertySource(properties = {
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "catalogo.outbox.scheduler.enabled=false",
+        "catalogo.outbox.despacho.enabled=false",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/mock-jwks"
+})
+class StockValidationResultOutboxReclamoIntegrationTest {
+
+    private static final int EVENTOS = 200;
+    private static final int INSTANCIAS = 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockValidationResultOutboxService outboxService;
+
+    @Autowired
+    private CatalogoOutboxEventRepository outboxEventRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate.execute("DELETE FROM catalogo_outbox_event");
+        jdbcTemplate.execute("DELETE FROM eventos_procesados");
+    }
+
+    @Test
+    @DisplayName("PublicarPendientes variasInstanciasConcurrentes publicaCadaEventoUnaSolaVez")
+    void publicarPendientes_variasInstanciasConcurrentes_publicaCadaEventoUnaSolaVez() throws Exception {
+        // Setup: Preparar el escenario
+        for (long compraId = 1; compraId <= EVENTOS; compraId++) {
+            outboxService.registrarAccepted(new StockValidationAcceptedEvent("evt-" + compraId, compraId, Instant.now()));
+        }
+        Map<String, AtomicInteger> envios = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> enviosPorInstancia = new ConcurrentHashMap<>();
+        List<StockValidationResultOutboxPublisherScheduler> schedulers = new ArrayList<>();
+        for (int i = 0; i < INSTANCIAS; i++) {
+            String instancia = "catalogo-" + i;
+            StockValidationAcceptedPublisher acceptedPublisher = mock(StockValidationAcceptedPublisher.class);
+            when(acceptedPublisher.publicarConConfirmacion(anyString(), any())).thenAnswer(invocation -> {
+                String eventId = invocation.getArgument(0);
+                envios.computeIfAbsent(eventId, id -> new AtomicInteger()).incrementAndGet();
+                enviosPorInstancia.computeIfAbsent(instancia, id -> new AtomicInteger()).incrementAndGet();
+                Thread.sleep(1);
+                return CompletableFuture.completedFuture(null);
+            });
+            schedulers.add(new StockValidationResultOutboxPublisherScheduler(
+                    new StockValidationResultOutboxPublicador(
+                            outboxService,
+                            acceptedPublisher,
+                            mock(StockRechazadoPublisher.class),
+                            3,
+                            1_000,
+                            instancia,
+                            30_000),
+                    5,
+                    1));
+        }
+
+        // Ejercitacion: Ejecutar la accion a probar
+        ExecutorService executor = Executors.newFixedThreadPool(INSTANCIAS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> corridas = new ArrayList<>();
+        try {
+            for (StockValidationResultOutboxPublisherScheduler scheduler : schedulers) {
+                corridas.add(executor.submit(() -> {
+                    largada.await();
+                    while (outboxService.pendientesCount() > 0) {
+                        scheduler.publicarPendientes();
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> corrida : corridas) {
+                corrida.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(EVENTOS, envios.size(), "Todos los eventos deben publicarse");
+        assertTrue(envios.values().stream().allMatch(cantidad -> cantidad.get() == 1),
+                "Ningun evento debe publicarse mas de una vez: " + envios);
+        assertEquals(EVENTOS, outboxEventRepository.countByStatus(CatalogoOutboxEventStatus.PUBLISHED),
+                "Todas las filas deben quedar publicadas");
+        assertTrue(enviosPorInstancia.size() > 1, "El trabajo debe repartirse entre instancias");
+    }
+
+    @Test
+    @DisplayName("Reclamar leaseVigente noEntregaFilasAOtraInstancia")
+    void reclamar_leaseVigente_noEntregaFilasAOtraInstancia() {
+        // Setup: Preparar el escenario
+        outboxService.registrarAccepted(new StockValidationAcceptedEvent("evt-lease", 1L, Instant.now()));
+        Instant ahora = Instant.now();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var primera = outboxEventRepository.reclamar("catalogo-a", 3, 10, ahora, ahora.plusSeconds(30));
+        var segunda = outboxEventRepository.reclamar("catalogo-b", 3, 10, ahora.plusSeconds(1), ahora.plusSeconds(31));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(1, primera.size(), "La primera instancia debe reclamar el evento");
+        assertEquals("catalogo-a", primera.get(0).leaseOwner(), "El lease debe quedar a nombre de la primera");
+        assertTrue(segunda.isEmpty(), "Con el lease vigente otra instancia no debe obtener el evento");
+    }
+
+    @Test
+    @DisplayName("Reclamar leaseVencido otraInstanciaRetomaElEvento")
+    void reclamar_leaseVencido_otraInstanciaRetomaElEvento() {
+        // Setup: Preparar el escenario
+        outboxService.registrarAccepted(new StockValidationAcceptedEvent("evt-vencido", 2L, Instant.now()));
+        Instant ahora = Instant.now();
+        outboxEventRepository.reclamar("catalogo-a", 3, 10, ahora, ahora.plusSeconds(30));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var retomados = outboxEventRepository.reclamar(
+                "catalogo-b", 3, 10, ahora.plusSeconds(31), ahora.plusSeconds(61));
+        int marcadosPorVencida = outboxEventRepository.marcarPublicados(
+                "catalogo-a", List.of(retomados.get(0).id()), ahora.plusSeconds(32));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(1, retomados.size(), "Vencido el lease otra instancia debe poder retomarlo");
+        assertEquals("catalogo-b", retomados.get(0).leaseOwner(), "El lease debe pasar a la nueva instancia");
+        assertEquals(0, marcadosPorVencida, "La instancia que perdio el lease no debe marcarlo publicado");
+    }
+
+    @Test
+    @DisplayName("RegistrarFallos leasePerdido noTocaLaFilaPublicadaPorOtraInstancia")
+    void registrarFallos_leasePerdido_noTocaLaFilaPublicadaPorOtraInstancia() {
+        // Setup: Preparar el escenario
+        outboxService.registrarAccepted(new StockValidationAcceptedEvent("evt-nack-tardio", 6L, Instant.now()));
+        Instant ahora = Instant.now();
+        Long id = outboxEventRepository.reclamar("catalogo-a", 1, 10, ahora, ahora.plusSeconds(30)).get(0).id();
+        outboxEventRepository.reclamar("catalogo-b", 1, 10, ahora.plusSeconds(31), ahora.plusSeconds(61));
+        outboxEventRepository.marcarPublicados("catalogo-b", List.of(id), ahora.plusSeconds(32));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        outboxService.registrarFallos("catalogo-a", Map.of(id, "nack tardio"), 1);
+
+        // Verificacion: Verificar el resultado esperado
+        var fila = outboxEventRepository.findById(id).orElseThrow();
+        assertEquals(CatalogoOutboxEventStatus.PUBLISHED, fila.status(), "El fallo tardio no debe pisar la publicacion");
+        assertEquals(0, fila.attempts(), "El fallo tardio no debe sumar intentos");
+        assertEquals(0, outboxService.fallidosCount(), "El evento no debe ir a dead-letter");
+    }
+
+    @Test
+    @DisplayName("Reclamar falloConBackoff noReintentaHastaElProximoIntento")
+    void reclamar_falloConBackoff_noReintentaHastaElProximoIntento() {
+        // Setup: Preparar el escenario
+        outboxService.registrarAccepted(new StockValidationAcceptedEvent("evt-backoff", 3L, Instant.now()));
+        Instant ahora = Instant.now();
+        var reclamados = outboxEventRepository.reclamar("catalogo-a", 3, 10, ahora, ahora.plusSeconds(30));
+        outboxService.registrarFallos("catalogo-a", Map.of(reclamados.get(0).id(), "rabbit down"), 3);
+        Instant proximoIntento = outboxEventRepository.findById(reclamados.get(0).id()).orElseThrow().nextAttemptAt();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var antes = outboxEventRepository.reclamar("catalogo-b", 3, 10, proximoIntento.minusMillis(1),
+                proximoIntento.plusSeconds(30));
+        var despues = outboxEventRepository.reclamar("catalogo-b", 3, 10, proximoIntento.plusMillis(1),
+                proximoIntento.plusSeconds(30));
+
+        // Verificacion: Verificar el resultado esperado
+        assertTrue(proximoIntento.isAfter(ahora), "El fallo debe postergar el proximo intento");
+        assertTrue(antes.isEmpty(), "Antes del proximo intento el evento no debe reclamarse");
+        assertEquals(1, despues.size(), "Llegado el proximo intento el evento debe reclamarse");
+    }
+
+    @Test
+    @DisplayName("ReencolarFallidos eventosEnDeadLetter vuelvenAPendientesConIntentosEnCero")
+    void reencolarFallidos_eventosEnDeadLetter_vuelvenAPendientesConIntentosEnCero() {
+        // Setup: Preparar el escenario
+        outboxService.registrarAccepted(new StockValidationAcceptedEvent("evt-dlq-1", 4L, Instant.now()));
+        outboxService.registrarAccepted(new StockValidationAcceptedEvent("evt-dlq-2", 5L, Instant.now()));
+        var reclamados = outboxService.reclamar("catalogo-a", 1, 10, 30_000);
+        outboxService.registrarFallos("catalogo-a",
+                Map.of(reclamados.get(0).id(), "rabbit down", reclamados.get(1).id(), "rabbit down"), 1);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        long fallidosAntes = outboxService.fallidosCount();
+        int reencolados = outboxService.reencolarFallidos(10);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(2, fallidosAntes, "Agotar los intentos debe mandar los eventos a dead-letter");
+        assertEquals(2, reencolados, "Deben reencolarse todos los eventos en dead-letter");
+        assertEquals(0, outboxService.fallidosCount(), "No deben quedar eventos en dead-letter");
+        assertEquals(2, outboxService.reclamar("catalogo-a", 1, 10, 30_000).size(),
+                "Los reencolados deben poder reclamarse de inmediato con intentos en cero");
+    }
+}
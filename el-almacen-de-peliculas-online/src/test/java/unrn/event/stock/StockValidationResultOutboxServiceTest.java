@@ -0,0 +1,117 @@
+package unrn.event.stock;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import unrn.config.RabbitMQConfig;
+import unrn.infra.persistence.CatalogoOutboxEventEntity;
+import unrn.infra.persistence.CatalogoOutboxEventRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Pruebas del servicio de outbox de stock.
+ *
+ * Verifican que la espera de backoff crezca exponencialmente, respete el maximo y
+ * que el jitter quede entre la mitad y el total de la espera, y que el cuerpo
+ * guardado se publique tal cual, sin volver a serializar el evento.
+ */
+class StockValidationResultOutboxServiceTest {
+
+    @Test
+    @DisplayName("DemoraReintento intentosSucesivos duplicaLaEsperaHastaElMaximo")
+    void demoraReintento_intentosSucesivos_duplicaLaEsperaHastaElMaximo() {
+        // Setup: Preparar el escenario
+        long base = 1_000;
+        long maximo = 10_000;
+
+        // Ejercitacion: Ejecutar la accion a probar
+        long primero = StockValidationResultOutboxService.demoraReintento(1, base, maximo, 1.0);
+        long segundo = StockValidationResultOutboxService.demoraReintento(2, base, maximo, 1.0);
+        long tercero = StockValidationResultOutboxService.demoraReintento(3, base, maximo, 1.0);
+        long muchos = StockValidationResultOutboxService.demoraReintento(40, base, maximo, 1.0);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(1_000, primero, "El primer reintento debe esperar la base");
+        assertEquals(2_000, segundo, "Cada intento debe duplicar la espera");
+        assertEquals(4_000, tercero, "Cada intento debe duplicar la espera");
+        assertEquals(10_000, muchos, "La espera no debe superar el maximo");
+    }
+
+    @Test
+    @DisplayName("DemoraReintento jitterExtremo quedaEntreLaMitadYElTotal")
+    void demoraReintento_jitterExtremo_quedaEntreLaMitadYElTotal() {
+        // Ejercitacion: Ejecutar la accion a probar
+        long minimo = StockValidationResultOutboxService.demoraReintento(3, 1_000, 60_000, 0.0);
+        long maximo = StockValidationResultOutboxService.demoraReintento(3, 1_000, 60_000, 1.0);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(2_000, minimo, "Con azar cero la espera debe ser la mitad");
+        assertEquals(4_000, maximo, "Con azar uno la espera debe ser completa");
+    }
+
+    @Test
+    @DisplayName("Mensaje eventoRegistrado enviaLosMismosBytesQueElConversor")
+    void mensaje_eventoRegistrado_enviaLosMismosBytesQueElConversor() {
+        // Setup: Preparar el escenario
+        CatalogoOutboxEventRepository repository = mock(CatalogoOutboxEventRepository.class);
+        MessageConverter converter = new RabbitMQConfig().jsonMessageConverter();
+        StockValidationResultOutboxService service = new StockValidationResultOutboxService(
+                repository, converter, Optional.empty(), 1_000, 300_000);
+        StockValidationAcceptedEvent event = new StockValidationAcceptedEvent(
+                "evt-bytes", 30L, Instant.parse("2026-06-01T12:00:00Z"));
+        service.registrarAccepted(event);
+        ArgumentCaptor<CatalogoOutboxEventEntity> guardado = ArgumentCaptor.forClass(CatalogoOutboxEventEntity.class);
+        verify(repository).save(guardado.capture());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        Message mensaje = service.mensaje(guardado.getValue());
+
+        // Verificacion: Verificar el resultado esperado
+        assertArrayEquals(converter.toMessage(event, new MessageProperties()).getBody(), mensaje.getBody(),
+                "Debe enviar el cuerpo serializado al registrar");
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, mensaje.getMessageProperties().getContentType(),
+                "Debe conservar el content type del conversor");
+        assertEquals(StockValidationAcceptedEvent.class.getName(),
+                mensaje.getMessageProperties().getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME),
+                "Debe informar el tipo del evento");
+        assertEquals(event, converter.fromMessage(mensaje), "El mensaje debe leerse como el evento original");
+    }
+
+    @Test
+    @DisplayName("Mensaje filaConPayloadJsonLegado enviaElTextoComoCuerpoJson")
+    void mensaje_filaConPayloadJsonLegado_enviaElTextoComoCuerpoJson() {
+        // Setup: Preparar el escenario
+        StockValidationResultOutboxService service = new StockValidationResultOutboxService(
+                mock(CatalogoOutboxEventRepository.class), new RabbitMQConfig().jsonMessageConverter(),
+                Optional.empty(), 1_000, 300_000);
+        String json = "{\"eventId\":\"evt-legado\",\"compraId\":31,\"motivo\":\"sin stock\",\"detalles\":[]}";
+        CatalogoOutboxEventEntity legado = new CatalogoOutboxEventEntity("COMPRA", 31L, "evt-legado",
+                StockValidationResultOutboxService.EVENT_TYPE_STOCK_RECHAZADO, null, null, Instant.now());
+        ReflectionTestUtils.setField(legado, "payloadJson", json);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        Message mensaje = service.mensaje(legado);
+
+        // Verificacion: Verificar el resultado esperado
+        assertArrayEquals(json.getBytes(StandardCharsets.UTF_8), mensaje.getBody(),
+                "Debe enviar el payload JSON guardado");
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, mensaje.getMessageProperties().getContentType(),
+                "Las filas legadas se envian como JSON");
+        assertEquals(StockRechazadoEvent.class.getName(),
+                mensaje.getMessageProperties().getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME),
+                "Debe informar el tipo del evento");
+    }
+}
@@ -0,0 +1,81 @@
+package unrn.infra.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas unitarias del cache de totales de busqueda.
+ *
+ * Verifican que filtros equivalentes compartan entrada y que un cambio de catalogo
+ * descarte los totales, incluso los calculados antes de ese cambio.
+ */
+class PeliculaConteoCacheTest {
+
+    @Test
+    @DisplayName("Obtener filtroEquivalente devuelveTotalCacheado")
+    void obtener_filtroEquivalente_devuelveTotalCacheado() {
+        // Setup: Preparar el escenario
+        var cache = new PeliculaConteoCache(60_000, 10);
+        var filtro = PeliculaFiltro.normalizado("Blade", "DRAMA", null, "", null, null, null, null,
+                new BigDecimal("10.00"), null);
+        cache.guardar(filtro, 7, cache.generacion());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var equivalente = PeliculaFiltro.normalizado("blade", "drama", " ", null, null, null, null, null,
+                new BigDecimal("10"), null);
+        Long total = cache.obtener(equivalente);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(7L, total, "Filtros que solo difieren en mayusculas, vacios o escala deben compartir total");
+    }
+
+    @Test
+    @DisplayName("Invalidar conTotalCacheado descartaTotal")
+    void invalidar_conTotalCacheado_descartaTotal() {
+        // Setup: Preparar el escenario
+        var cache = new PeliculaConteoCache(60_000, 10);
+        var filtro = PeliculaFiltro.normalizado(null, null, null, null, null, null, null, null, null, null);
+        cache.guardar(filtro, 3, cache.generacion());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.invalidar();
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(cache.obtener(filtro), "Un cambio de catalogo debe descartar los totales cacheados");
+    }
+
+    @Test
+    @DisplayName("Guardar conteoCalculadoAntesDeInvalidar noSeCachea")
+    void guardar_conteoCalculadoAntesDeInvalidar_noSeCachea() {
+        // Setup: Preparar el escenario
+        var cache = new PeliculaConteoCache(60_000, 10);
+        var filtro = PeliculaFiltro.normalizado(null, null, null, null, null, null, null, null, null, null);
+        long generacionLeida = cache.generacion();
+        cache.invalidar();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.guardar(filtro, 3, generacionLeida);
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(cache.obtener(filtro), "Un total leido antes del cambio no debe quedar cacheado");
+    }
+
+    @Test
+    @DisplayName("Guardar ttlCero noSeCachea")
+    void guardar_ttlCero_noSeCachea() {
+        // Setup: Preparar el escenario
+        var cache = new PeliculaConteoCache(0, 10);
+        var filtro = PeliculaFiltro.normalizado("matrix", null, null, null, null, null, null, null, null, null);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.guardar(filtro, 1, cache.generacion());
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(cache.obtener(filtro), "Con ttl 0 el cache debe quedar deshabilitado");
+    }
+}
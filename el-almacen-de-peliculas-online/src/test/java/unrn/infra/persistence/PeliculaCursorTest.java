@@ -0,0 +1,91 @@
+package unrn.infra.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas unitarias del cursor opaco de paginacion por clave.
+ *
+ * Verifican que el cursor sobreviva la ida y vuelta por texto, conserve el tipo
+ * del valor de orden y rechace textos manipulados o incompletos.
+ */
+class PeliculaCursorTest {
+
+    @Test
+    @DisplayName("Decodificar cursorCodificado conservaOrdenValorEId")
+    void decodificar_cursorCodificado_conservaOrdenValorEId() {
+        // Setup: Preparar el escenario
+        var cursor = new PeliculaCursor("titulo", false, "Blade|Runner", 42L);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var decodificado = PeliculaCursor.decodificar(cursor.codificar());
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(cursor, decodificado, "El cursor debe conservar todos sus datos aun con separadores en el valor");
+    }
+
+    @Test
+    @DisplayName("ValorDeOrden sortPrecio devuelveBigDecimal")
+    void valorDeOrden_sortPrecio_devuelveBigDecimal() {
+        // Setup: Preparar el escenario
+        var cursor = new PeliculaCursor("precio", true, "9.99", 1L);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var valor = cursor.valorDeOrden();
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(new BigDecimal("9.99"), valor, "El precio debe compararse como BigDecimal");
+    }
+
+    @Test
+    @DisplayName("ValorDeOrden sortFechaSalida devuelveLocalDate")
+    void valorDeOrden_sortFechaSalida_devuelveLocalDate() {
+        // Setup: Preparar el escenario
+        var cursor = new PeliculaCursor("fechaSalida", true, "1999-03-31", 1L);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var valor = cursor.valorDeOrden();
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(LocalDate.of(1999, 3, 31), valor, "La fecha debe compararse como LocalDate");
+    }
+
+    @Test
+    @DisplayName("Decodificar textoNoBase64 lanzaExcepcion")
+    void decodificar_textoNoBase64_lanzaExcepcion() {
+        // Setup & Ejercitacion
+        var ex = assertThrows(RuntimeException.class, () -> PeliculaCursor.decodificar("%%no-es-un-cursor%%"));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(PeliculaCursor.ERROR_CURSOR_INVALIDO, ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Constructor precioNoNumerico lanzaExcepcion")
+    void constructor_precioNoNumerico_lanzaExcepcion() {
+        // Setup & Ejercitacion
+        var ex = assertThrows(RuntimeException.class, () -> new PeliculaCursor("precio", true, "barato", 1L));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(PeliculaCursor.ERROR_CURSOR_INVALIDO, ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("CorrespondeA otroSentido devuelveFalse")
+    void correspondeA_otroSentido_devuelveFalse() {
+        // Setup: Preparar el escenario
+        var cursor = new PeliculaCursor("titulo", true, "Matrix", 1L);
+
+        // Ejercitacion & Verificacion
+        assertTrue(cursor.correspondeA("titulo", true), "Debe corresponder al mismo orden");
+        assertFalse(cursor.correspondeA("titulo", false), "No debe reutilizarse con el sentido invertido");
+    }
+}
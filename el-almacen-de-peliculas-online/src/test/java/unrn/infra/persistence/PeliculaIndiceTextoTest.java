@@ -0,0 +1,113 @@
+package unrn.infra.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import unrn.model.Actor;
+import unrn.model.Condicion;
+import unrn.model.Director;
+import unrn.model.Formato;
+import unrn.model.Genero;
+import unrn.model.Pelicula;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas unitarias del indice de texto de peliculas.
+ *
+ * Verifican la normalizacion sin acentos, la coincidencia por prefijo, el orden por
+ * relevancia entre campos y que un retiro saque la pelicula del indice.
+ */
+class PeliculaIndiceTextoTest {
+
+    @Test
+    @DisplayName("Tokens textoConAcentos normalizaSinAcentosNiMayusculas")
+    void tokens_textoConAcentos_normalizaSinAcentosNiMayusculas() {
+        // Ejercitacion: Ejecutar la accion a probar
+        var tokens = PeliculaIndiceTexto.tokens("Acción, CORAZÓN-valiente ñandú");
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(List.of("accion", "corazon", "valiente", "nandu"), tokens,
+                "Las palabras deben quedar en minusculas y sin acentos");
+    }
+
+    @Test
+    @DisplayName("Buscar consultaSinAcentos encuentraTituloAcentuado")
+    void buscar_consultaSinAcentos_encuentraTituloAcentuado() {
+        // Setup: Preparar el escenario
+        var indice = new PeliculaIndiceTexto();
+        indice.sincronizar(pelicula(1L, "El Secreto de sus Ojos", "Un crimen sin resolver", "Ricardo Darín",
+                "Juan José Campanella", true));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var porTitulo = indice.buscar("secreto ojos");
+        var porActor = indice.buscar("DARIN");
+        var porPrefijo = indice.buscar("campan");
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(List.of(1L), List.copyOf(porTitulo.keySet()), "Todas las palabras deben coincidir en el titulo");
+        assertEquals(List.of(1L), List.copyOf(porActor.keySet()), "El actor debe encontrarse sin acento");
+        assertEquals(List.of(1L), List.copyOf(porPrefijo.keySet()), "Un prefijo debe coincidir con el director");
+    }
+
+    @Test
+    @DisplayName("Buscar palabraEnTituloYSinopsis priorizaTitulo")
+    void buscar_palabraEnTituloYSinopsis_priorizaTitulo() {
+        // Setup: Preparar el escenario
+        var indice = new PeliculaIndiceTexto();
+        indice.sincronizar(pelicula(1L, "Viaje a la Luna", "Una aventura de piratas", "Ana", "Pedro", true));
+        indice.sincronizar(pelicula(2L, "Piratas del Caribe", "Aventura en el mar", "Ana", "Pedro", true));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var resultado = indice.buscar("piratas");
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(List.of(2L, 1L), List.copyOf(resultado.keySet()),
+                "La coincidencia en el titulo debe pesar mas que en la sinopsis");
+    }
+
+    @Test
+    @DisplayName("Puntajes masCoincidenciasQueElMaximo devuelveTodasYMejoresRecorta")
+    void puntajes_masCoincidenciasQueElMaximo_devuelveTodasYMejoresRecorta() {
+        // Setup: Preparar el escenario
+        var indice = new PeliculaIndiceTexto(2);
+        for (long id = 1; id <= 4; id++) {
+            indice.sincronizar(pelicula(id, "Matrix " + id, "Sinopsis", "Keanu Reeves", "Lana Wachowski", true));
+        }
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var puntajes = indice.puntajes("matrix");
+        var mejores = indice.mejores(puntajes, id -> id > 1);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(4, puntajes.size(), "Los puntajes deben incluir todas las coincidencias");
+        assertEquals(List.of(2L, 3L), List.copyOf(mejores.keySet()),
+                "Las mejores deben recortarse al maximo entre las admitidas");
+    }
+
+    @Test
+    @DisplayName("Sincronizar peliculaRetirada laQuitaDelIndice")
+    void sincronizar_peliculaRetirada_laQuitaDelIndice() {
+        // Setup: Preparar el escenario
+        var indice = new PeliculaIndiceTexto();
+        indice.sincronizar(pelicula(1L, "Matrix", "Realidad simulada", "Keanu Reeves", "Lana Wachowski", true));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        indice.sincronizar(pelicula(1L, "Matrix", "Realidad simulada", "Keanu Reeves", "Lana Wachowski", false));
+
+        // Verificacion: Verificar el resultado esperado
+        assertTrue(indice.buscar("matrix").isEmpty(), "Una pelicula retirada no debe aparecer en la busqueda");
+        assertTrue(indice.buscarEnCampo(PeliculaIndiceTexto.Campo.ACTOR, "keanu").isEmpty(),
+                "Tampoco debe quedar en los terminos de actores");
+    }
+
+    private Pelicula pelicula(Long id, String titulo, String sinopsis, String actor, String director,
+            boolean activa) {
+        return new Pelicula(id, titulo, Condicion.NUEVO, List.of(new Director(director)), 10.0,
+                new Formato("DVD"), new Genero("Drama"), sinopsis, List.of(new Actor(actor)), "",
+                LocalDate.of(2000, 1, 1), 3, activa, 1L);
+    }
+}
@@ -1,12 +1,21 @@
 package unrn.infra.persistence;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import unrn.model.*;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,13 +30,32 @@ import unrn.app.Application;
 @SpringBootTest(classes = Application.class, properties = {
         "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/jwks",
         "spring.rabbitmq.listener.simple.auto-startup=false",
-        "spring.rabbitmq.listener.direct.auto-startup=false"
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
 })
 class PeliculaRepositoryIntegrationTest {
 
     @Autowired
     PeliculaRepository repo;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ReferenciasCatalogoCache referenciasCache;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void beforeEach() {
+        // Otras clases de prueba vacian las tablas de referencia por JDBC.
+        referenciasCache.precargar();
+    }
+
     @Test
     @DisplayName("guardar y recuperar pelicula desde H2 via Spring Data JPA")
     void guardar_recuperar_pelicula() {
@@ -43,21 +71,66 @@ class PeliculaRepositoryIntegrationTest {
     }
 
     @Test
-    @DisplayName("listar todos excluye peliculas retiradas")
-    void listarTodos_excluyePeliculasRetiradas() {
+    @DisplayName("stream de activas excluye peliculas retiradas")
+    void streamActivas_excluyePeliculasRetiradas() {
         // Setup
         var activa = repo.guardar(samplePelicula("Activa " + System.nanoTime()));
         var retirada = repo.guardar(samplePelicula("Retirada " + System.nanoTime()));
         repo.eliminar(retirada.id());
 
-        // EjercitaciÃ³n
-        var items = repo.listarTodos();
+        // Ejercitacion
+        List<Long> ids = new TransactionTemplate(transactionManager).execute(estado -> {
+            try (var peliculas = repo.streamActivas()) {
+                return peliculas.map(Pelicula::id).toList();
+            }
+        });
 
-        // VerificaciÃ³n
-        assertTrue(items.stream().anyMatch(p -> p.id().equals(activa.id())),
-                "La pelÃ­cula activa debe aparecer en el listado");
-        assertFalse(items.stream().anyMatch(p -> p.id().equals(retirada.id())),
-                "La pelÃ­cula retirada no debe aparecer en el listado");
+        // Verificacion
+        assertTrue(ids.contains(activa.id()), "La pelicula activa debe aparecer en el stream");
+        assertFalse(ids.contains(retirada.id()), "La pelicula retirada no debe aparecer en el stream");
+    }
+
+    @Test
+    @DisplayName("stream de activas trae los repartos por lote sin consultas por pelicula")
+    void streamActivas_variosLotes_traeRepartosConPocasConsultas() {
+        // Setup
+        String token = "Stream" + System.nanoTime();
+        var peliculas = IntStream.range(0, 1_100)
+                .mapToObj(i -> peliculaConReparto(String.format("%s %04d", token, i),
+                        List.of(new Actor(token + " Actor " + i % 7))))
+                .toList();
+        repo.importarLote(peliculas);
+        int activas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pelicula WHERE activa = TRUE",
+                Integer.class);
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Ejercitacion
+        List<Pelicula> leidas = new TransactionTemplate(transactionManager).execute(estado -> {
+            try (var stream = repo.streamActivas()) {
+                return stream.filter(p -> p.titulo().startsWith(token)).toList();
+            }
+        });
+
+        // Verificacion
+        assertEquals(1_100, leidas.size(), "Debe devolver todas las peliculas activas");
+        assertEquals(token + " 0000", leidas.get(0).titulo(), "Debe ordenar por titulo");
+        assertEquals(token + " 1099", leidas.get(leidas.size() - 1).titulo(), "Debe ordenar por titulo");
+        assertEquals(token + " Actor 6", leidas.get(1_000).actores().get(0).nombre(),
+                "Cada pelicula debe traer su reparto");
+        int lotes = (activas + 499) / 500;
+        assertTrue(statistics.getQueryExecutionCount() <= 1 + 2L * lotes,
+                "Debe hacer una consulta de filas y dos de nombres por lote; consultas: "
+                        + statistics.getQueryExecutionCount());
+        assertEquals(0, statistics.getEntityLoadCount(), "No debe cargar entidades");
+    }
+
+    @Test
+    @DisplayName("stream de activas sin transaccion lanza excepcion")
+    void streamActivas_sinTransaccion_lanzaExcepcion() {
+        // Ejercitacion y Verificacion
+        assertThrows(IllegalTransactionStateException.class, () -> repo.streamActivas(),
+                "El cursor necesita una transaccion abierta por el llamador");
     }
 
     @Test
@@ -93,10 +166,268 @@ class PeliculaRepositoryIntegrationTest {
                 "La pelÃ­cula retirada debe quedar excluida");
     }
 
+    @Test
+    @DisplayName("buscar paginado con mas coincidencias que el maximo del indice filtra con todas")
+    void buscarPaginado_masCoincidenciasQueElMaximo_soloRecortaLaRelevancia() {
+        // Setup
+        String token = "Masivo" + System.nanoTime();
+        repo.importarLote(IntStream.range(0, 1_100)
+                .mapToObj(i -> samplePelicula(String.format("%s %04d", token, i)))
+                .toList());
+
+        // Ejercitacion
+        var primera = repo.buscarPaginado(token, null, null, null, null, null, null, null, null, null,
+                0, 20, "titulo", true, null, true);
+        var siguiente = repo.buscarPaginado(token, null, null, null, null, null, null, null, null, null,
+                0, 20, "titulo", true, PeliculaCursor.decodificar(primera.getNextCursor()), false);
+        var ultima = repo.buscarPaginado(token, null, null, null, null, null, null, null, null, null,
+                54, 20, "titulo", true, null, false);
+        var porRelevancia = repo.buscarPaginado(token, null, null, null, null, null, null, null, null, null,
+                0, 20, "relevancia", true, null, true);
+
+        // Verificacion
+        assertEquals(1_100L, primera.getTotal(), "El total debe contar todas las coincidencias del indice");
+        assertEquals(token + " 0000", primera.getItems().get(0).titulo(), "Debe ordenar por titulo");
+        assertEquals(token + " 0020", siguiente.getItems().get(0).titulo(), "El cursor debe seguir el orden");
+        assertEquals(token + " 1099", ultima.getItems().get(ultima.getItems().size() - 1).titulo(),
+                "Las ultimas coincidencias tambien deben poder paginarse");
+        assertFalse(ultima.hasNext(), "La ultima pagina no debe informar siguiente");
+        assertEquals(1_000L, porRelevancia.getTotal(),
+                "Solo el orden por relevancia se recorta al maximo de coincidencias");
+        assertEquals(20, porRelevancia.getItems().size(), "La pagina por relevancia debe completarse");
+    }
+
+    @Test
+    @DisplayName("buscar paginado carga asociaciones con cantidad fija de sentencias")
+    void buscarPaginado_paginaCompleta_cargaAsociacionesConCantidadFijaDeSentencias() {
+        // Setup: peliculas con genero, formato, condicion, director y actor distintos
+        String token = "SinNMasUno" + System.nanoTime();
+        for (int i = 0; i < 12; i++) {
+            repo.guardar(new Pelicula(
+                    token + " " + i,
+                    new Condicion(i % 2 == 0 ? "nuevo" : "usado"),
+                    java.util.List.of(new Director("Director " + token + i)),
+                    10.0 + i,
+                    new Formato("Formato " + i),
+                    new Genero("Genero " + i),
+                    "Sinopsis",
+                    java.util.List.of(new Actor("Actor " + token + i), new Actor("Actora " + token + i)),
+                    "http://example.com/img.jpg",
+                    LocalDate.of(2000, 1, 1),
+                    3));
+        }
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // EjercitaciÃ³n
+        var page = repo.buscarPaginado(token, null, null, null, null, null, null, null, null, null,
+                0, 10, "titulo", true, null, true);
+
+        // VerificaciÃ³n: ids + asociaciones (2) + conteo, sin importar el tamanio de pagina
+        assertEquals(10, page.getItems().size(), "La pagina debe traer 10 peliculas");
+        assertTrue(page.getItems().stream().allMatch(p -> p.directores().size() == 1 && p.actores().size() == 2),
+                "Cada pelicula debe traer sus directores y actores");
+        assertTrue(statistics.getPrepareStatementCount() <= 4,
+                "Una pagina no debe disparar consultas por fila; sentencias: "
+                        + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("buscar vistas coincide con el detalle armado desde el dominio")
+    void buscarVistas_mismoFiltro_coincideConDetalleDesdeDominio() {
+        // Setup
+        String token = "Vista" + System.nanoTime();
+        repo.guardar(samplePelicula(token + " Uno"));
+        repo.guardar(samplePelicula(token + " Dos"));
+        var filtro = PeliculaFiltro.normalizado(token, null, null, null, null, null, null, null, null, null);
+
+        // EjercitaciÃ³n
+        var vistas = repo.buscarVistas(filtro, 0, 10, "titulo", true, null, true);
+        var dominio = repo.buscarPaginado(token, null, null, null, null, null, null, null, null, null,
+                0, 10, "titulo", true);
+
+        // VerificaciÃ³n
+        assertEquals(dominio.getTotal(), vistas.getTotal(), "El total debe coincidir");
+        assertEquals(
+                dominio.getItems().stream().map(unrn.dto.AdminPeliculaDTO::from).toList(),
+                vistas.getItems().stream().map(unrn.dto.AdminPeliculaDTO::from).toList(),
+                "La proyeccion debe producir el mismo DTO que el camino por dominio");
+    }
+
+    @Test
+    @DisplayName("actualizar rating no cambia la version ni choca con la edicion de stock")
+    void actualizarRating_noCambiaVersion_stockConVersionLeidaAntesSigueValido() {
+        // Setup: Preparar el escenario
+        var guardada = repo.guardar(samplePelicula("Rating " + System.nanoTime()));
+        long versionLeida = repo.versionDe(guardada.id());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        boolean actualizada = repo.actualizarRating(guardada.id(), 7.5, 40);
+        var conStock = repo.actualizarStock(guardada.id(), new java.math.BigDecimal("12"), versionLeida);
+
+        // Verificacion: Verificar el resultado esperado
+        assertTrue(actualizada, "Debe informar que la pelicula existia");
+        assertNotNull(conStock, "El stock debe actualizarse con la version leida antes del rating");
+        var leida = repo.porId(guardada.id());
+        assertEquals(7.5, leida.ratingPromedio(), "Debe guardar el rating promedio");
+        assertEquals(40, leida.totalRatings(), "Debe guardar el total de ratings");
+        assertEquals(versionLeida + 1, leida.version(), "Solo la edicion de stock debe aumentar la version");
+        assertFalse(repo.actualizarRating(999_999L, 5.0, 1), "Una pelicula inexistente debe informarse");
+    }
+
+    @Test
+    @DisplayName("actualizar rating con menos votos por un rating borrado lo aplica")
+    void actualizarRatings_totalMenorPorRatingBorrado_loAplica() {
+        // Setup
+        var guardada = repo.guardar(samplePelicula("Rating borrado " + System.nanoTime()));
+        repo.actualizarRating(guardada.id(), 8.0, 40);
+
+        // Ejercitacion
+        var inexistentes = repo.actualizarRatings(List.of(new RatingPelicula(guardada.id(), 7.5, 39)));
+
+        // Verificacion
+        assertTrue(inexistentes.isEmpty(), "La pelicula existe");
+        var leida = repo.porId(guardada.id());
+        assertEquals(7.5, leida.ratingPromedio(), "Debe guardar el promedio sin el rating borrado");
+        assertEquals(39, leida.totalRatings(), "El total debe poder bajar");
+    }
+
+    @Test
+    @DisplayName("actualizar desde backoffice conserva el rating de la comunidad")
+    void actualizar_edicionDeBackoffice_conservaRatingDeLaComunidad() {
+        // Setup: Preparar el escenario
+        var guardada = repo.guardar(samplePelicula("Edicion " + System.nanoTime()));
+        repo.actualizarRating(guardada.id(), 8.0, 15);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        repo.actualizar(guardada.id(), samplePelicula("Editada " + System.nanoTime()));
+
+        // Verificacion: Verificar el resultado esperado
+        var leida = repo.porId(guardada.id());
+        assertEquals(8.0, leida.ratingPromedio(), "La edicion no debe pisar el rating promedio");
+        assertEquals(15, leida.totalRatings(), "La edicion no debe pisar el total de ratings");
+    }
+
+    @Test
+    @DisplayName("guardar con datos de referencia cacheados no los busca por nombre")
+    void guardar_referenciasCacheadas_noConsultaPorNombre() {
+        // Setup
+        String token = "Reparto" + System.nanoTime();
+        var reparto = IntStream.range(0, 15).mapToObj(i -> new Actor(token + " Actor " + i)).toList();
+        repo.guardar(peliculaConReparto(token + " Uno", reparto));
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Ejercitacion
+        var guardada = repo.guardar(peliculaConReparto(token + " Dos", reparto));
+
+        // Verificacion
+        assertEquals(0, statistics.getQueryExecutionCount(),
+                "Los nombres cacheados no deben consultarse; consultas: " + statistics.getQueryExecutionCount());
+        assertEquals(0, statistics.getEntityLoadCount(), "Tampoco debe cargar las entidades de referencia");
+        assertEquals(nombres(reparto), nombres(repo.porId(guardada.id()).actores()),
+                "La pelicula debe quedar con todo el reparto");
+        assertEquals(15, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM actor WHERE nombre LIKE ?", Integer.class, token + "%"),
+                "No debe duplicar actores");
+    }
+
+    @Test
+    @DisplayName("guardar resuelve los nombres no cacheados con un solo IN por dimension")
+    void guardar_actoresNoCacheados_losResuelveConUnSoloIn() {
+        // Setup
+        String token = "Externo" + System.nanoTime();
+        repo.guardar(samplePelicula(token + " Previa"));
+        var reparto = IntStream.range(0, 15).mapToObj(i -> new Actor(token + " Actor " + i)).toList();
+        reparto.forEach(a -> jdbcTemplate.update("INSERT INTO actor (nombre) VALUES (?)", a.nombre()));
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Ejercitacion
+        var guardada = repo.guardar(peliculaConReparto(token + " Nueva", reparto));
+
+        // Verificacion
+        assertEquals(1, statistics.getQueryExecutionCount(),
+                "Solo los actores insertados por fuera deben consultarse, en una sola consulta");
+        assertEquals(nombres(reparto), nombres(repo.porId(guardada.id()).actores()),
+                "Debe reutilizar los actores existentes");
+        assertEquals(15, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM actor WHERE nombre LIKE ?", Integer.class, token + "%"),
+                "No debe duplicar actores");
+    }
+
+    @Test
+    @DisplayName("guardar resuelve un nombre con otras mayusculas igual este o no en el cache")
+    void guardar_directorConOtrasMayusculas_resuelveLaMismaFilaConYSinCache() {
+        // Setup
+        String director = "Nolan " + System.nanoTime();
+        jdbcTemplate.update("INSERT INTO director (nombre) VALUES (?)", director);
+        String minusculas = director.toLowerCase(java.util.Locale.ROOT);
+
+        // Ejercitacion
+        var sinCache = repo.guardar(conDirector("Sin cache " + System.nanoTime(), minusculas));
+        var conCache = repo.guardar(conDirector("Con cache " + System.nanoTime(), minusculas));
+
+        // Verificacion
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM director WHERE LOWER(nombre) = ?", Integer.class, minusculas),
+                "No debe duplicar el director por las mayusculas");
+        assertEquals(List.of(director), repo.porId(sinCache.id()).directores().stream().map(Director::nombre).toList(),
+                "Sin cache debe usar el director existente");
+        assertEquals(List.of(director), repo.porId(conCache.id()).directores().stream().map(Director::nombre).toList(),
+                "Con cache debe resolver al mismo director");
+    }
+
+    private java.util.Set<String> nombres(List<Actor> actores) {
+        return actores.stream().map(Actor::nombre).collect(java.util.stream.Collectors.toSet());
+    }
+
+    private Pelicula peliculaConReparto(String titulo, List<Actor> reparto) {
+        return new Pelicula(
+                titulo,
+                new Condicion("nuevo"),
+                List.of(new Director("Pedro")),
+                9.99,
+                new Formato("Blu-ray"),
+                new Genero("Comedia"),
+                "Una sinopsis",
+                reparto,
+                "http://example.com/img.jpg",
+                LocalDate.now(),
+                4);
+    }
+
     private Pelicula samplePelicula() {
         return samplePelicula("La prueba");
     }
 
+    @Test
+    @DisplayName("guardar con un director borrado por fuera falla una vez y el reintento lo vuelve a crear")
+    void guardar_directorBorradoFueraDelCache_reintentoLoVuelveACrear() {
+        // Setup
+        String director = "Director borrado " + System.nanoTime();
+        var primera = repo.guardar(conDirector("Primera " + System.nanoTime(), director));
+        jdbcTemplate.update("DELETE FROM pelicula_actor WHERE pelicula_id = ?", primera.id());
+        jdbcTemplate.update("DELETE FROM pelicula_director WHERE pelicula_id = ?", primera.id());
+        jdbcTemplate.update("DELETE FROM pelicula WHERE id = ?", primera.id());
+        jdbcTemplate.update("DELETE FROM director WHERE nombre = ?", director);
+
+        // Ejercitacion
+        assertThrows(RuntimeException.class, () -> repo.guardar(conDirector("Segunda", director)),
+                "El id cacheado del director borrado debe fallar por clave foranea");
+        var reintento = repo.guardar(conDirector("Tercera " + System.nanoTime(), director));
+
+        // Verificacion
+        assertEquals(List.of(director), repo.porId(reintento.id()).directores().stream().map(Director::nombre).toList(),
+                "El reintento debe volver a crear el director");
+    }
+
+    private Pelicula conDirector(String titulo, String director) {
+        return new Pelicula(titulo, new Condicion("nuevo"), List.of(new Director(director)), 9.99,
+                new Formato("Blu-ray"), new Genero("Comedia"), "Una sinopsis", List.of(new Actor("Ana")),
+                "http://example.com/img.jpg", LocalDate.now(), 4);
+    }
+
     private Pelicula samplePelicula(String titulo) {
         var d = java.util.List.of(new Director("Pedro"));
         var a = java.util.List.of(new Actor("Ana"));
@@ -25,6 +25,15 @@ class CatalogoTest {
         assertEquals(Catalogo.ERROR_PELICULAS_NULAS, ex.getMessage());
     }
 
+    @Test
+    @DisplayName("desde streamNulo lanzaExcepcion")
+    void desde_streamNulo_lanzaExcepcion() {
+        // Setup & ejercitacion
+        var ex = assertThrows(RuntimeException.class, () -> Catalogo.desde(null));
+        // Verificacion
+        assertEquals(Catalogo.ERROR_PELICULAS_NULAS, ex.getMessage());
+    }
+
     @Test
     @DisplayName("constructor listaConNulos lanzaExcepcion")
     void constructor_listaConNulos_lanzaExcepcion() {
@@ -16,6 +16,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import unrn.app.Application;
 import unrn.event.movie.MovieEventPublisher;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
 
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -44,6 +45,9 @@ class AdminPeliculasControllerIntegrationTest {
         @Autowired
         private JdbcTemplate jdbcTemplate;
 
+        @Autowired
+        private ReferenciasCatalogoCache referenciasCache;
+
         @Autowired
         private ObjectMapper objectMapper;
 
@@ -60,6 +64,7 @@ class AdminPeliculasControllerIntegrationTest {
                 jdbcTemplate.execute("DELETE FROM condicion");
                 jdbcTemplate.execute("DELETE FROM formato");
                 jdbcTemplate.execute("DELETE FROM genero");
+                referenciasCache.precargar();
         }
 
     @Test
@@ -0,0 +1,268 @@
+package unrn.service;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import unrn.app.Application;
+import unrn.dto.PeliculaRequest;
+import unrn.event.movie.MovieEventPublisher;
+import unrn.infra.persistence.PeliculaFiltro;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.PeliculaVista;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pruebas de integracion del catalogo en memoria.
+ *
+ * Verifican que con el modelo de lectura habilitado las consultas publicas no
+ * generen sentencias SQL, que los cambios de pelicula, rating y stock lleguen a
+ * la copia despues del commit y que la busqueda en memoria devuelva lo mismo que
+ * la busqueda en base. Los cambios los aplica un hilo escritor, por eso las
+ * pruebas esperan a que se vean.
+ */
+@SpringBootTest(classes = Application.class, properties = {
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/jwks",
+        "spring.rabbitmq.listener.simple.auto-startup=false",
+        "spring.rabbitmq.listener.direct.auto-startup=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "catalogo.lectura.en-memoria.enabled=true",
+        "catalogo.lectura.en-memoria.refresco-ms=3600000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CatalogoLecturaEnMemoriaIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenciasCatalogoCache referenciasCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DirectorService directorService;
+
+    @Autowired
+    private ActorService actorService;
+
+    @Autowired
+    private PeliculaService peliculaService;
+
+    @Autowired
+    private PeliculaRepository peliculaRepository;
+
+    @Autowired
+    private CatalogoLecturaEnMemoria catalogoEnMemoria;
+
+    @MockBean
+    private MovieEventPublisher movieEventPublisher;
+
+    @BeforeEach
+    void beforeEach() {
+        jdbcTemplate.execute("DELETE FROM pelicula_actor");
+        jdbcTemplate.execute("DELETE FROM pelicula_director");
+        jdbcTemplate.execute("DELETE FROM pelicula");
+        jdbcTemplate.execute("DELETE FROM actor");
+        jdbcTemplate.execute("DELETE FROM director");
+        jdbcTemplate.execute("DELETE FROM condicion");
+        jdbcTemplate.execute("DELETE FROM formato");
+        jdbcTemplate.execute("DELETE FROM genero");
+        referenciasCache.precargar();
+        catalogoEnMemoria.reconstruir();
+    }
+
+    @Test
+    @DisplayName("Lecturas publicas conCatalogoEnMemoria noEjecutanSql")
+    void lecturasPublicas_conCatalogoEnMemoria_noEjecutanSql() throws Exception {
+        // Setup: Preparar el escenario
+        crearPelicula("Memoria A", 10.0, "DRAMA");
+        crearPelicula("Memoria B", 20.0, "COMEDIA");
+        esperarActivas(2);
+        String body = mockMvc.perform(get("/peliculas").param("q", "memoria b"))
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(body, "$.items[0].id");
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        mockMvc.perform(get("/peliculas").param("genero", "drama").param("sort", "precio"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.items[0].titulo").value("Memoria A"));
+        mockMvc.perform(get("/peliculas/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.titulo").value("Memoria B"));
+        mockMvc.perform(get("/categorias"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(0, statistics.getPrepareStatementCount(),
+                "Con el catalogo en memoria las lecturas publicas no deben ir a la base");
+    }
+
+    @Test
+    @DisplayName("Eventos de pelicula despuesDelCommit actualizanCatalogoEnMemoria")
+    void eventosDePelicula_despuesDelCommit_actualizanCatalogoEnMemoria() throws Exception {
+        // Setup: Preparar el escenario
+        crearPelicula("Original", 10.0, "DRAMA");
+        esperarActivas(1);
+        String body = mockMvc.perform(get("/peliculas")).andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(body, "$.items[0].id");
+        var director = directorService.crear("Director Editado");
+        var actor = actorService.crear("Actor Editado");
+
+        // Ejercitacion: Ejecutar la accion a probar
+        peliculaService.actualizarPelicula(id.longValue(), new PeliculaRequest("Editada", "USADO",
+                List.of(director.id()), 15.0, "DVD", "TERROR", "Sinopsis", List.of(actor.id()), "",
+                LocalDate.of(2021, 1, 1), 4));
+        esperarHasta(() -> "Editada".equals(catalogoEnMemoria.porId(id.longValue()).titulo()));
+
+        // Verificacion: Verificar el resultado esperado
+        mockMvc.perform(get("/peliculas").param("genero", "terror"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.items[0].titulo").value("Editada"))
+                .andExpect(jsonPath("$.items[0].condicion").value("usado"));
+
+        peliculaService.eliminar(id.longValue());
+        esperarActivas(0);
+        mockMvc.perform(get("/peliculas"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    @DisplayName("Buscar enMemoria devuelveMismoOrdenQueLaBase")
+    void buscar_enMemoria_devuelveMismoOrdenQueLaBase() throws Exception {
+        // Setup: Preparar el escenario con precios y fechas repetidos
+        crearPelicula("Zeta", 30.0, "DRAMA");
+        crearPelicula("Alfa", 10.0, "COMEDIA");
+        crearPelicula("Beta", 10.0, "DRAMA");
+        crearPelicula("Gama", 20.0, "TERROR");
+        esperarActivas(4);
+        var filtro = PeliculaFiltro.normalizado(null, null, null, null, null, null, null, null,
+                new BigDecimal("10"), null);
+
+        for (String sort : List.of("titulo", "precio", "fechaSalida", "genero")) {
+            for (boolean asc : List.of(true, false)) {
+                // Ejercitacion: Ejecutar la accion a probar
+                var enBase = peliculaRepository.buscarVistas(filtro, 0, 10, sort, asc, null, true);
+                var enMemoria = catalogoEnMemoria.buscar(filtro, 0, 10, sort, asc, null, true);
+
+                // Verificacion: Verificar el resultado esperado
+                assertEquals(enBase.getItems().stream().map(PeliculaVista::id).toList(),
+                        enMemoria.getItems().stream().map(p -> p.id()).toList(),
+                        "El orden en memoria debe coincidir con la base para sort=" + sort + " asc=" + asc);
+                assertEquals(enBase.getTotal(), enMemoria.getTotal(), "El total debe coincidir");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Buscar textoSinPalabrasIndexables noDevuelvePeliculas")
+    void buscar_textoSinPalabrasIndexables_noDevuelvePeliculas() throws Exception {
+        // Setup: Preparar el escenario
+        crearPelicula("Alfa", 10.0, "DRAMA");
+        esperarActivas(1);
+
+        for (String q : List.of("!!!", "-")) {
+            // Ejercitacion: Ejecutar la accion a probar
+            var filtro = PeliculaFiltro.normalizado(q, null, null, null, null, null, null, null, null, null);
+            var enBase = peliculaRepository.buscarVistas(filtro, 0, 10, "titulo", true, null, true);
+            var enMemoria = catalogoEnMemoria.buscar(filtro, 0, 10, "titulo", true, null, true);
+
+            // Verificacion: Verificar el resultado esperado
+            assertEquals(0L, enBase.getTotal(), "En base q=" + q + " no debe devolver todo el catalogo");
+            assertEquals(0L, enMemoria.getTotal(), "En memoria q=" + q + " no debe devolver todo el catalogo");
+        }
+    }
+
+    @Test
+    @DisplayName("Rating y stock despuesDelCommit actualizanDetalleEnMemoria")
+    void ratingYStock_despuesDelCommit_actualizanDetalleEnMemoria() throws Exception {
+        // Setup: Preparar el escenario
+        crearPelicula("Valorada", 10.0, "DRAMA");
+        esperarActivas(1);
+        Long id = catalogoEnMemoria.buscar(todas(), 0, 1, "titulo", true, null, false).getItems().get(0).id();
+
+        // Ejercitacion: Ejecutar la accion a probar
+        peliculaRepository.actualizarRating(id, 8.5, 10);
+        peliculaService.actualizarStock(id, new BigDecimal("42"), 0L);
+        esperarHasta(() -> catalogoEnMemoria.porId(id).stockDisponible().compareTo(new BigDecimal("42")) == 0
+                && Double.valueOf(8.5).equals(catalogoEnMemoria.porId(id).ratingPromedio()));
+
+        // Verificacion: Verificar el resultado esperado
+        mockMvc.perform(get("/peliculas/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ratingPromedio").value(8.5))
+                .andExpect(jsonPath("$.totalRatings").value(10));
+    }
+
+    /**
+     * Espera a que la copia en memoria tenga la cantidad indicada de peliculas activas.
+     */
+    private void esperarActivas(long cantidad) throws InterruptedException {
+        esperarHasta(() -> catalogoEnMemoria.buscar(todas(), 0, 1, "titulo", true, null, true).getTotal() == cantidad);
+    }
+
+    /**
+     * Espera hasta que el hilo escritor aplique el cambio que cumple la condicion.
+     */
+    private void esperarHasta(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "El catalogo en memoria debe aplicar el cambio");
+            Thread.sleep(10);
+        }
+    }
+
+    private PeliculaFiltro todas() {
+        return PeliculaFiltro.normalizado(null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private void crearPelicula(String titulo, double precio, String genero) {
+        var director = directorService.crear("Director " + titulo);
+        var actor = actorService.crear("Actor " + titulo);
+
+        peliculaService.crearPelicula(new PeliculaRequest(
+                titulo,
+                "NUEVO",
+                List.of(director.id()),
+                precio,
+                "DVD",
+                genero,
+                "Sinopsis " + titulo,
+                List.of(actor.id()),
+                "",
+                LocalDate.of(2020, 1, 1),
+                5));
+    }
+}
@@ -0,0 +1,86 @@
+package unrn.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import unrn.infra.persistence.PeliculaCursor;
+import unrn.infra.persistence.PeliculaFiltro;
+import unrn.model.Actor;
+import unrn.model.Catalogo;
+import unrn.model.Condicion;
+import unrn.model.Director;
+import unrn.model.Formato;
+import unrn.model.Genero;
+import unrn.model.Pelicula;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Pruebas unitarias de la foto en memoria del catalogo.
+ *
+ * Verifican que el orden de texto siga la colacion de la base, sin distinguir
+ * mayusculas ni acentos, que el cursor recorra las paginas sin repetir filas y que
+ * los cambios de rating reemplacen la pelicula sin rearmar la foto.
+ */
+class CatalogoSnapshotTest {
+
+    private static final PeliculaFiltro TODAS =
+            PeliculaFiltro.normalizado(null, null, null, null, null, null, null, null, null, null);
+
+    @Test
+    @DisplayName("Buscar ordenPorTitulo sigueColacionSinMayusculasNiAcentos")
+    void buscar_ordenPorTitulo_sigueColacionSinMayusculasNiAcentos() {
+        // Setup: Preparar el escenario
+        var snapshot = snapshot(List.of(
+                pelicula(1L, "beta", 3), pelicula(2L, "Alfa", 3), pelicula(3L, "Árbol", 3),
+                pelicula(4L, "alfa dos", 3), pelicula(5L, "Zeta", 3)));
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var titulos = new ArrayList<String>();
+        PeliculaCursor cursor = null;
+        do {
+            var pagina = snapshot.buscar(TODAS, CatalogoSnapshot.Coincidencias.SIN_INDICE, 0, 2, "titulo", true,
+                    cursor, false);
+            pagina.getItems().forEach(p -> titulos.add(p.titulo()));
+            cursor = pagina.getNextCursor() == null ? null : PeliculaCursor.decodificar(pagina.getNextCursor());
+        } while (cursor != null);
+
+        // Verificacion: Verificar el resultado esperado
+        assertEquals(List.of("Alfa", "alfa dos", "Árbol", "beta", "Zeta"), titulos,
+                "El cursor debe recorrer todas las peliculas en el orden de la colacion sin repetir");
+    }
+
+    @Test
+    @DisplayName("ConCambios soloCambiaRating reemplazaLaPeliculaSinCambiarElOrden")
+    void conCambios_soloCambiaRating_reemplazaLaPeliculaSinCambiarElOrden() {
+        // Setup: Preparar el escenario
+        var snapshot = snapshot(List.of(pelicula(1L, "Beta", 3), pelicula(2L, "Alfa", 3)));
+        var valorada = pelicula(1L, "Beta", 5);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        var nueva = snapshot.conCambios(Set.of(1L), List.of(valorada));
+        var pagina = nueva.buscar(TODAS, CatalogoSnapshot.Coincidencias.SIN_INDICE, 0, 10, "titulo", true, null,
+                false);
+
+        // Verificacion: Verificar el resultado esperado
+        assertSame(valorada, nueva.porId(1L), "La pelicula con el rating nuevo debe reemplazar a la anterior");
+        assertEquals(List.of(2L, 1L), pagina.getItems().stream().map(Pelicula::id).toList(),
+                "El orden por titulo debe mantenerse");
+        assertEquals(3, snapshot.porId(1L).rating(), "La foto anterior no debe modificarse");
+    }
+
+    private CatalogoSnapshot snapshot(List<Pelicula> peliculas) {
+        return new CatalogoSnapshot(new Catalogo(peliculas), List.of("Drama"));
+    }
+
+    private Pelicula pelicula(Long id, String titulo, int rating) {
+        return new Pelicula(id, titulo, Condicion.NUEVO, List.of(new Director("Pedro")), 10.0,
+                new Formato("DVD"), new Genero("Drama"), "Sinopsis", List.of(new Actor("Ana")), "",
+                LocalDate.of(2000, 1, 1), rating, true, 1L);
+    }
+}
@@ -0,0 +1,93 @@
+package unrn.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import unrn.dto.DetallePeliculaDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas unitarias del cache acotado de detalle de peliculas.
+ *
+ * Verifican el desalojo por uso, la invalidacion por id, el rechazo de detalles
+ * leidos antes de un cambio y los contadores expuestos como metricas.
+ */
+class DetallePeliculaCacheTest {
+
+    @Test
+    @DisplayName("Guardar superandoMaximo desalojaLaMenosUsada")
+    void guardar_superandoMaximo_desalojaLaMenosUsada() {
+        // Setup: Preparar el escenario
+        var cache = new DetallePeliculaCache(2);
+        cache.guardar(detalle(1L, 0L), cache.generacion());
+        cache.guardar(detalle(2L, 0L), cache.generacion());
+        cache.obtener(1L);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.guardar(detalle(3L, 0L), cache.generacion());
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(cache.obtener(2L), "Debe desalojarse la entrada usada hace mas tiempo");
+        assertNotNull(cache.obtener(1L), "La entrada leida recientemente debe conservarse");
+        assertEquals(1, cache.estadisticas().desalojos(), "Debe contarse un desalojo");
+    }
+
+    @Test
+    @DisplayName("Obtener despuesDeInvalidar devuelveNull")
+    void obtener_despuesDeInvalidar_devuelveNull() {
+        // Setup: Preparar el escenario
+        var cache = new DetallePeliculaCache(10);
+        cache.guardar(detalle(1L, 3L), cache.generacion());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.invalidar(1L);
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(cache.obtener(1L), "El detalle invalidado no debe devolverse");
+    }
+
+    @Test
+    @DisplayName("Guardar conGeneracionVieja noGuardaElDetalle")
+    void guardar_conGeneracionVieja_noGuardaElDetalle() {
+        // Setup: Preparar el escenario con una lectura anterior a un cambio
+        var cache = new DetallePeliculaCache(10);
+        long generacionLeida = cache.generacion();
+        cache.invalidar(1L);
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.guardar(detalle(1L, 0L), generacionLeida);
+
+        // Verificacion: Verificar el resultado esperado
+        assertNull(cache.obtener(1L), "No debe guardarse un detalle leido antes del cambio");
+    }
+
+    @Test
+    @DisplayName("Estadisticas lecturas cuentanAciertosYFallos")
+    void estadisticas_lecturas_cuentanAciertosYFallos() {
+        // Setup: Preparar el escenario
+        var cache = new DetallePeliculaCache(10);
+        cache.guardar(detalle(1L, 0L), cache.generacion());
+
+        // Ejercitacion: Ejecutar la accion a probar
+        cache.obtener(1L);
+        cache.obtener(1L);
+        cache.obtener(2L);
+
+        // Verificacion: Verificar el resultado esperado
+        var estadisticas = cache.estadisticas();
+        assertEquals(2, estadisticas.aciertos(), "Debe contar dos aciertos");
+        assertEquals(1, estadisticas.fallos(), "Debe contar un fallo");
+        assertEquals(1, estadisticas.entradas(), "Debe informar una entrada");
+    }
+
+    private DetallePeliculaVersionado detalle(Long id, long version) {
+        return new DetallePeliculaVersionado(new DetallePeliculaDTO(id, "Titulo " + id, "nuevo", List.of("Director"),
+                10.0, "DVD", "DRAMA", "Sinopsis", List.of("Actor"), "", LocalDate.of(2020, 1, 1), 5, null, null),
+                version);
+    }
+}
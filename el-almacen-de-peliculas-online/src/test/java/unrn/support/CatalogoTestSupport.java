@@ -0,0 +1,68 @@
+package unrn.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import unrn.infra.persistence.PeliculaRepository;
+import unrn.infra.persistence.ReferenciasCatalogoCache;
+import unrn.model.Actor;
+import unrn.model.Condicion;
+import unrn.model.Director;
+import unrn.model.Formato;
+import unrn.model.Genero;
+import unrn.model.Pelicula;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Datos y limpieza compartidos por las pruebas de integracion de stock y ratings.
+ *
+ * Borra las tablas del catalogo y del outbox en el orden de sus claves foraneas y
+ * guarda peliculas con el mismo reparto, para que cada prueba solo cambie el
+ * titulo.
+ */
+public final class CatalogoTestSupport {
+
+    private static final List<String> TABLAS = List.of(
+            "catalogo_outbox_event",
+            "eventos_procesados",
+            "pelicula_actor",
+            "pelicula_director",
+            "pelicula",
+            "actor",
+            "director",
+            "condicion",
+            "formato",
+            "genero");
+
+    /**
+     * Evita instanciar la clase de utilidades.
+     */
+    private CatalogoTestSupport() {
+    }
+
+    /**
+     * Vacia las tablas del catalogo y recarga el cache de referencias, que queda vacio.
+     */
+    public static void limpiarCatalogo(JdbcTemplate jdbcTemplate, ReferenciasCatalogoCache referenciasCache) {
+        TABLAS.forEach(tabla -> jdbcTemplate.execute("DELETE FROM " + tabla));
+        referenciasCache.precargar();
+    }
+
+    /**
+     * Guarda una pelicula activa con el reparto comun y devuelve su id.
+     */
+    public static Long guardarPelicula(PeliculaRepository peliculaRepository, String titulo) {
+        return peliculaRepository.guardar(new Pelicula(
+                titulo,
+                new Condicion("nuevo"),
+                List.of(new Director("Lana Wachowski")),
+                100.00,
+                new Formato("BluRay"),
+                new Genero("Ciencia ficcion"),
+                "Sinopsis",
+                List.of(new Actor("Keanu Reeves")),
+                "",
+                LocalDate.of(1999, 3, 31),
+                5)).id();
+    }
+}